@@ -0,0 +1,144 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.elk.alg.layered.graph.LEdge;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPhase;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPipelineBuilder;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+
+/**
+ * Compares the layering strategies on long traces, which is where they differ the most, with and
+ * without layering partitions in parallel. Measures the time the layering phase takes and, once
+ * per trial, prints the quality of the layering: the number of layers, which determines the
+ * height of the diagram, and the total length of the lifeline segments between consecutive
+ * messages, which network simplex minimizes.
+ *
+ * <pre>
+ * java -jar benchmarks/de.cau.cs.kieler.papyrus.sequence.benchmarks/target/benchmarks.jar \
+ *     LayeringBenchmark
+ * </pre>
+ *
+ * @see ProcessorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LayeringBenchmark {
+
+    /** Diagram size as {@code <lifelines>x<messages>}. */
+    @Param({ "10x10000", "10x100000", "100x100000" })
+    public String shape;
+
+    /** The layering strategy to measure. */
+    @Param({ "NETWORK_SIMPLEX", "LONGEST_PATH", "LIFELINE_CHAINS" })
+    public LayeringStrategy layeringStrategy;
+
+    /** The number of messages per partition layered in parallel, 0 for no partitions. */
+    @Param({ "0", "10000" })
+    public int partitionSize;
+
+    /** Generator for the diagrams, set up once per trial. */
+    private SequenceDiagramGenerator generator;
+    /** The layout context, already processed up to the layering phase. */
+    private LayoutContext context;
+    /** The layering processor. */
+    private ISequenceLayoutProcessor processor;
+
+
+    /**
+     * Sets up the generator for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void setUpGenerator() {
+        generator = SequenceDiagramGenerator.forShape(shape, CoordinateSystem.KGRAPH)
+                .withLayeringStrategy(layeringStrategy)
+                .withLayeringPartitionSize(partitionSize);
+    }
+
+    /**
+     * Generates a fresh diagram and runs all processors up to the layering phase on it.
+     */
+    @Setup(Level.Invocation)
+    public void setUpContext() {
+        context = LayoutContext.fromLayoutData(generator.generate());
+        context.kgraph = context.kgraph.getChildren().get(0);
+
+        List<ISequenceLayoutProcessor> processors = new LayoutPipelineBuilder().build(context);
+        for (int i = 0; i < LayoutPhase.LAYERING.ordinal(); i++) {
+            processors.get(i).process(context, new BasicProgressMonitor());
+        }
+        processor = processors.get(LayoutPhase.LAYERING.ordinal());
+    }
+
+    /**
+     * Runs the layering processor.
+     *
+     * @return the layout context, to keep the JIT from eliminating the processor run.
+     */
+    @Benchmark
+    public LayoutContext layer() {
+        processor.process(context, new BasicProgressMonitor());
+        return context;
+    }
+
+    /**
+     * Prints the quality of the last layering. Layering is deterministic, so all invocations of a
+     * trial produce the same result.
+     */
+    @TearDown(Level.Trial)
+    public void printQuality() {
+        List<Layer> layers = context.lgraph.getLayers();
+        long segmentLength = 0;
+        for (Layer layer : layers) {
+            for (LNode node : layer.getNodes()) {
+                for (LEdge edge : node.getOutgoingEdges()) {
+                    segmentLength += edge.getTarget().getNode().getLayer().getIndex()
+                            - layer.getIndex();
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(layeringStrategy + " on " + shape + " with partition size "
+                + partitionSize + ": layers=" + layers.size() + ", segmentLength=" + segmentLength);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.cau.cs.kieler.papyrus.sequence.SequenceDiagramLayoutProvider;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+
+/**
+ * Measures the complete sequence diagram layout pipeline, from import to export, on generated
+ * diagrams of different sizes. Since layout modifies the graph, every invocation works on a freshly
+ * generated diagram; generation is not part of the measurement. All invocations of a trial share
+ * one layout provider, which assembles its pipeline during the first warmup invocation.
+ *
+ * <p>
+ * Build and run the benchmarks like this:
+ * </p>
+ *
+ * <pre>
+ * mvn -Pbenchmarks package
+ * java -jar benchmarks/de.cau.cs.kieler.papyrus.sequence.benchmarks/target/benchmarks.jar \
+ *     LayoutPipelineBenchmark -prof gc
+ * </pre>
+ *
+ * <p>
+ * The {@code gc} profiler reports allocation rates alongside the timings. The parameters can be
+ * restricted on the command line, for example {@code -p shape=100x1000 -p coordinateSystem=KGRAPH}.
+ * </p>
+ *
+ * @see ProcessorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LayoutPipelineBenchmark {
+
+    /** Diagram size as {@code <lifelines>x<messages>}. */
+    @Param({ "10x100", "100x1000", "1000x10000", "5000x100000" })
+    public String shape;
+
+    /** The coordinate system the diagram is laid out in. */
+    @Param({ "KGRAPH", "PAPYRUS" })
+    public CoordinateSystem coordinateSystem;
+
+    /** The lifeline sorting strategy to use. */
+    @Param({ "INTERACTIVE", "LAYER_BASED", "SHORT_MESSAGES", "CROSSING_MINIMIZATION" })
+    public LifelineSortingStrategy sortingStrategy;
+
+    /** Generator for the diagrams, set up once per trial. */
+    private SequenceDiagramGenerator generator;
+    /** The layout provider, set up once per trial so that its pipelines are reused. */
+    private SequenceDiagramLayoutProvider provider;
+    /** The diagram laid out by the next invocation. */
+    private ElkNode diagram;
+
+
+    /**
+     * Sets up the generator for the current parameters and the layout provider.
+     */
+    @Setup(Level.Trial)
+    public void setUpGenerator() {
+        generator = SequenceDiagramGenerator.forShape(shape, coordinateSystem)
+                .withSortingStrategy(sortingStrategy);
+        provider = new SequenceDiagramLayoutProvider();
+    }
+
+    /**
+     * Generates a fresh diagram for the next invocation.
+     */
+    @Setup(Level.Invocation)
+    public void setUpDiagram() {
+        diagram = generator.generate();
+    }
+
+    /**
+     * Lays out the diagram.
+     *
+     * @return the laid out diagram, to keep the JIT from eliminating the layout run.
+     */
+    @Benchmark
+    public ElkNode layout() {
+        provider.layout(diagram, new BasicProgressMonitor());
+        return diagram;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPhase;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPipelineBuilder;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+
+/**
+ * Measures single processors of the sequence diagram layout pipeline. Before each invocation, a
+ * fresh diagram is generated and all processors preceding the measured phase are run on it, so
+ * that only the measured processor contributes to timings and, with {@code -prof gc}, to the
+ * allocation rate.
+ *
+ * <p>
+ * Run like this to get a per-processor breakdown of the 1000 lifelines by 10000 messages case:
+ * </p>
+ *
+ * <pre>
+ * java -jar benchmarks/de.cau.cs.kieler.papyrus.sequence.benchmarks/target/benchmarks.jar \
+ *     ProcessorBenchmark -p shape=1000x10000 -prof gc
+ * </pre>
+ *
+ * @see LayoutPipelineBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProcessorBenchmark {
+
+    /** Diagram size as {@code <lifelines>x<messages>}. */
+    @Param({ "10x100", "100x1000", "1000x10000", "5000x100000" })
+    public String shape;
+
+    /** The coordinate system the diagram is laid out in. */
+    @Param({ "KGRAPH", "PAPYRUS" })
+    public CoordinateSystem coordinateSystem;
+
+    /** The lifeline sorting strategy to use. */
+    @Param({ "INTERACTIVE", "LAYER_BASED", "SHORT_MESSAGES", "CROSSING_MINIMIZATION" })
+    public LifelineSortingStrategy sortingStrategy;
+
+    /** The phase whose processor is measured. */
+    @Param({ "IMPORT", "SPACE_ALLOCATION", "CYCLE_BREAKING", "LAYERING", "LIFELINE_SORTING",
+            "COORDINATE_CALCULATION", "EXPORT" })
+    public LayoutPhase phase;
+
+    /** Generator for the diagrams, set up once per trial. */
+    private SequenceDiagramGenerator generator;
+    /** The layout context, already processed up to the measured phase. */
+    private LayoutContext context;
+    /** The processor to measure. */
+    private ISequenceLayoutProcessor processor;
+
+
+    /**
+     * Sets up the generator for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void setUpGenerator() {
+        generator = SequenceDiagramGenerator.forShape(shape, coordinateSystem)
+                .withSortingStrategy(sortingStrategy);
+    }
+
+    /**
+     * Generates a fresh diagram and runs all processors up to the measured one on it.
+     */
+    @Setup(Level.Invocation)
+    public void setUpContext() {
+        context = LayoutContext.fromLayoutData(generator.generate());
+        context.kgraph = context.kgraph.getChildren().get(0);
+
+        // Without additional processors, there is exactly one processor per phase
+        List<ISequenceLayoutProcessor> processors = new LayoutPipelineBuilder().build(context);
+        for (int i = 0; i < phase.ordinal(); i++) {
+            processors.get(i).process(context, new BasicProgressMonitor());
+        }
+        processor = processors.get(phase.ordinal());
+    }
+
+    /**
+     * Runs the processor of the measured phase.
+     *
+     * @return the layout context, to keep the JIT from eliminating the processor run.
+     */
+    @Benchmark
+    public LayoutContext process() {
+        processor.process(context, new BasicProgressMonitor());
+        return context;
+    }
+
+}
@@ -0,0 +1,452 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphFactory;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceMetaDataProvider;
+
+/**
+ * Generates random sequence diagrams in the shape the importers of the sequence diagram layouter
+ * expect. A generated diagram consists of a root node containing the surrounding interaction,
+ * which in turn contains lifelines, combined fragments (nested two levels deep) and comments.
+ * Messages are created top-down, so their original vertical order is well-defined. Every lifeline
+ * gets executions that cover blocks of its consecutive messages.
+ *
+ * <p>
+ * The information is attached to the graph the way the respective coordinate system expects it: in
+ * KGraph mode through element IDs, in Papyrus mode through {@link SequenceArea} and
+ * {@link SequenceExecution} objects.
+ * </p>
+ */
+public final class SequenceDiagramGenerator {
+
+    static {
+        // Outside of Eclipse, nobody registers our layout options for us. Without this, list-valued
+        // option defaults cannot be cloned
+        LayoutMetaDataService.getInstance().registerLayoutMetaDataProviders(
+                new SequenceMetaDataProvider());
+    }
+
+    /** Width of generated lifelines. */
+    private static final double LIFELINE_WIDTH = 80;
+    /** Horizontal distance between two generated lifelines. */
+    private static final double LIFELINE_DISTANCE = 120;
+    /** Height of lifeline headers. */
+    private static final double LIFELINE_HEADER = 30;
+    /** Vertical distance between two generated messages. */
+    private static final double MESSAGE_DISTANCE = 20;
+    /** Number of consecutive messages a top-level fragment spans. */
+    private static final int FRAGMENT_LENGTH = 40;
+    /** Every this many messages, a new top-level fragment is started. */
+    private static final int FRAGMENT_PERIOD = 100;
+    /** Every this many messages, a comment is attached to a message. */
+    private static final int COMMENT_PERIOD = 25;
+    /** Number of consecutive messages of a lifeline that are covered by one execution. */
+    private static final int EXECUTION_LENGTH = 4;
+    /** Percentage of messages that are self loops. */
+    private static final int SELF_LOOP_PERCENTAGE = 5;
+
+    /** Number of lifelines to generate. */
+    private final int lifelineCount;
+    /** Number of messages to generate. */
+    private final int messageCount;
+    /** The coordinate system the diagram is generated for. */
+    private final CoordinateSystem coordinateSystem;
+    /** The layering strategy the diagram will be configured for. */
+    private LayeringStrategy layeringStrategy = LayeringStrategy.NETWORK_SIMPLEX;
+    /** The number of messages per partition the diagram will be layered in, 0 for none. */
+    private int layeringPartitionSize = 0;
+    /** The lifeline sorting strategy the diagram will be configured for. */
+    private LifelineSortingStrategy sortingStrategy = LifelineSortingStrategy.INTERACTIVE;
+    /** Seed of the random number generator. Equal seeds produce equal diagrams. */
+    private long seed = 0;
+
+    /** Next free element ID. IDs start at 1 since 0 is the default value of the ID options. */
+    private int nextId;
+
+
+    /**
+     * Creates a new generator for diagrams of the given size.
+     *
+     * @param lifelineCount
+     *            number of lifelines, at least one.
+     * @param messageCount
+     *            number of messages.
+     * @param coordinateSystem
+     *            the coordinate system the diagram is to be laid out in.
+     */
+    public SequenceDiagramGenerator(final int lifelineCount, final int messageCount,
+            final CoordinateSystem coordinateSystem) {
+
+        if (lifelineCount < 1) {
+            throw new IllegalArgumentException("At least one lifeline is required.");
+        }
+
+        this.lifelineCount = lifelineCount;
+        this.messageCount = messageCount;
+        this.coordinateSystem = coordinateSystem;
+    }
+
+    /**
+     * Creates a new generator for diagrams of the given shape, given in the form
+     * {@code <lifelines>x<messages>}, such as {@code 100x1000}.
+     *
+     * @param shape
+     *            the shape string.
+     * @param coordinateSystem
+     *            the coordinate system the diagram is to be laid out in.
+     * @return the generator.
+     */
+    public static SequenceDiagramGenerator forShape(final String shape,
+            final CoordinateSystem coordinateSystem) {
+
+        String[] parts = shape.split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(
+                    "Shape must look like <lifelines>x<messages>: " + shape);
+        }
+
+        return new SequenceDiagramGenerator(Integer.parseInt(parts[0].trim()),
+                Integer.parseInt(parts[1].trim()), coordinateSystem);
+    }
+
+    /**
+     * Sets the layering strategy the generated diagrams are configured for.
+     *
+     * @param strategy
+     *            the layering strategy.
+     * @return this generator.
+     */
+    public SequenceDiagramGenerator withLayeringStrategy(final LayeringStrategy strategy) {
+        this.layeringStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Sets the number of messages per partition the generated diagrams are configured to be
+     * layered in, in parallel.
+     *
+     * @param size
+     *            the partition size, or 0 to layer all messages at once.
+     * @return this generator.
+     */
+    public SequenceDiagramGenerator withLayeringPartitionSize(final int size) {
+        this.layeringPartitionSize = size;
+        return this;
+    }
+
+    /**
+     * Sets the lifeline sorting strategy the generated diagrams are configured for.
+     *
+     * @param strategy
+     *            the sorting strategy.
+     * @return this generator.
+     */
+    public SequenceDiagramGenerator withSortingStrategy(final LifelineSortingStrategy strategy) {
+        this.sortingStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random number generator.
+     *
+     * @param newSeed
+     *            the new seed.
+     * @return this generator.
+     */
+    public SequenceDiagramGenerator withSeed(final long newSeed) {
+        this.seed = newSeed;
+        return this;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Generation
+
+    /**
+     * Generates a new diagram. The returned node is the root of the layout graph and can directly
+     * be passed to the layout provider.
+     *
+     * @return the generated diagram's root node.
+     */
+    public ElkNode generate() {
+        Random random = new Random(seed);
+        nextId = 1;
+
+        ElkNode root = ElkGraphUtil.createGraph();
+        root.setProperty(SequenceDiagramOptions.COORDINATE_SYSTEM, coordinateSystem);
+        root.setProperty(SequenceDiagramOptions.LAYERING_STRATEGY, layeringStrategy);
+        root.setProperty(SequenceDiagramOptions.LAYERING_PARTITION_SIZE, layeringPartitionSize);
+        root.setProperty(SequenceDiagramOptions.LIFELINE_SORTING_STRATEGY, sortingStrategy);
+
+        double diagramHeight = LIFELINE_HEADER + (messageCount + 2) * MESSAGE_DISTANCE;
+
+        ElkNode interaction = ElkGraphUtil.createNode(root);
+        interaction.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.SURROUNDING_INTERACTION);
+        interaction.setDimensions(lifelineCount * LIFELINE_DISTANCE, diagramHeight);
+
+        // Lifelines
+        ElkNode[] lifelines = new ElkNode[lifelineCount];
+        List<List<ElkEdge>> lifelineMessages = Lists.newArrayListWithCapacity(lifelineCount);
+        for (int i = 0; i < lifelineCount; i++) {
+            lifelines[i] = createLifeline(interaction, i, diagramHeight);
+            lifelineMessages.add(Lists.<ElkEdge>newArrayList());
+        }
+
+        // Messages, in top-down order
+        ElkEdge[] messages = new ElkEdge[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            int source = random.nextInt(lifelineCount);
+            int target = source;
+            if (lifelineCount > 1 && random.nextInt(100) >= SELF_LOOP_PERCENTAGE) {
+                target = (source + 1 + random.nextInt(lifelineCount - 1)) % lifelineCount;
+            }
+
+            messages[i] = createMessage(lifelines[source], lifelines[target], i, random);
+            lifelineMessages.get(source).add(messages[i]);
+            if (source != target) {
+                lifelineMessages.get(target).add(messages[i]);
+            }
+        }
+
+        // Decorations
+        for (int i = 0; i < lifelineCount; i++) {
+            createExecutions(lifelines[i], lifelineMessages.get(i));
+        }
+        createFragments(interaction, messages);
+        createComments(interaction, messages);
+
+        return root;
+    }
+
+    /**
+     * Creates the lifeline with the given index.
+     */
+    private ElkNode createLifeline(final ElkNode interaction, final int index,
+            final double height) {
+        ElkNode lifeline = ElkGraphUtil.createNode(interaction);
+        lifeline.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.LIFELINE);
+        lifeline.setProperty(SequenceDiagramOptions.ELEMENT_ID, nextId++);
+        lifeline.setLocation(index * LIFELINE_DISTANCE, 0);
+        lifeline.setDimensions(LIFELINE_WIDTH, height);
+
+        ElkLabel label = ElkGraphUtil.createLabel("L" + index, lifeline);
+        label.setDimensions(LIFELINE_WIDTH / 2, LIFELINE_HEADER / 2);
+
+        return lifeline;
+    }
+
+    /**
+     * Creates the message with the given index between the two lifelines.
+     */
+    private ElkEdge createMessage(final ElkNode source, final ElkNode target, final int index,
+            final Random random) {
+
+        double yPos = LIFELINE_HEADER + (index + 1) * MESSAGE_DISTANCE;
+
+        ElkEdge edge = ElkGraphUtil.createSimpleEdge(source, target);
+        edge.setProperty(SequenceDiagramOptions.ELEMENT_ID, nextId++);
+        edge.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, random.nextBoolean()
+                ? MessageType.SYNCHRONOUS
+                : MessageType.ASYNCHRONOUS);
+
+        ElkEdgeSection section = ElkGraphUtil.createEdgeSection(edge);
+        section.setStartLocation(source.getX() + source.getWidth() / 2, yPos);
+        section.setEndLocation(target.getX() + target.getWidth() / 2, yPos);
+
+        // The Papyrus exporter expects self loops to already come with their two bend points
+        if (source == target) {
+            for (int i = 0; i < 2; i++) {
+                ElkBendPoint bendPoint = ElkGraphFactory.eINSTANCE.createElkBendPoint();
+                bendPoint.set(section.getStartX() + MESSAGE_DISTANCE, yPos);
+                section.getBendPoints().add(bendPoint);
+            }
+        }
+
+        ElkLabel label = ElkGraphUtil.createLabel("m" + index, edge);
+        label.setDimensions(20 + random.nextInt((int) LIFELINE_DISTANCE), MESSAGE_DISTANCE / 2);
+
+        // Area and execution IDs are set later; the defaults are shared instances, so never modify
+        // them in place
+        edge.setProperty(SequenceDiagramOptions.AREA_IDS, Lists.<Integer>newArrayList());
+        edge.setProperty(SequenceDiagramOptions.SOURCE_EXECUTION_IDS,
+                Lists.<Integer>newArrayList());
+        edge.setProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS,
+                Lists.<Integer>newArrayList());
+
+        return edge;
+    }
+
+    /**
+     * Creates executions on the given lifeline, each covering a block of consecutive messages.
+     */
+    private void createExecutions(final ElkNode lifeline, final List<ElkEdge> messages) {
+        List<SequenceExecution> executions = Lists.newArrayList();
+
+        for (int first = 0; first < messages.size(); first += EXECUTION_LENGTH) {
+            int last = Math.min(first + EXECUTION_LENGTH, messages.size()) - 1;
+
+            ElkNode executionNode = ElkGraphUtil.createNode(lifeline);
+            executionNode.setProperty(
+                    SequenceDiagramOptions.NODE_TYPE, NodeType.BEHAVIOUR_EXEC_SPECIFICATION);
+            int executionId = nextId++;
+            executionNode.setProperty(SequenceDiagramOptions.ELEMENT_ID, executionId);
+
+            double top = yPosAt(messages.get(first), lifeline);
+            double bottom = yPosAt(messages.get(last), lifeline);
+            executionNode.setLocation((LIFELINE_WIDTH - 16) / 2, top);
+            executionNode.setDimensions(16, Math.max(bottom - top, MESSAGE_DISTANCE));
+
+            SequenceExecution execution = new SequenceExecution(executionNode);
+            execution.setType(SequenceExecutionType.EXECUTION);
+            executions.add(execution);
+
+            for (int i = first; i <= last; i++) {
+                ElkEdge message = messages.get(i);
+
+                if (coordinateSystem == CoordinateSystem.PAPYRUS) {
+                    // The Papyrus importer replaces edges by their messages
+                    execution.addMessage(message);
+                } else {
+                    if (ElkGraphUtil.getSourceNode(message) == lifeline) {
+                        message.getProperty(SequenceDiagramOptions.SOURCE_EXECUTION_IDS)
+                                .add(executionId);
+                    }
+                    if (ElkGraphUtil.getTargetNode(message) == lifeline) {
+                        message.getProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS)
+                                .add(executionId);
+                    }
+                }
+            }
+        }
+
+        if (coordinateSystem == CoordinateSystem.PAPYRUS) {
+            lifeline.setProperty(SequenceDiagramOptions.EXECUTIONS, executions);
+        }
+    }
+
+    /**
+     * Creates combined fragments over blocks of messages. Each fragment contains a nested fragment.
+     */
+    private void createFragments(final ElkNode interaction, final ElkEdge[] messages) {
+        List<SequenceArea> areas = Lists.newArrayList();
+
+        for (int first = 0; first + FRAGMENT_LENGTH <= messages.length; first += FRAGMENT_PERIOD) {
+            SequenceArea outer = createFragment(interaction, messages, first,
+                    first + FRAGMENT_LENGTH - 1, -1, areas);
+
+            int innerFirst = first + FRAGMENT_LENGTH / 4;
+            int innerLast = first + 3 * FRAGMENT_LENGTH / 4;
+            SequenceArea inner = createFragment(interaction, messages, innerFirst, innerLast,
+                    outer.getLayoutNode().getProperty(SequenceDiagramOptions.ELEMENT_ID), areas);
+            outer.getContainedAreas().add(inner);
+        }
+
+        if (coordinateSystem == CoordinateSystem.PAPYRUS) {
+            interaction.setProperty(SequenceDiagramOptions.AREAS, areas);
+        }
+    }
+
+    /**
+     * Creates a single fragment spanning the whole diagram width and the given messages.
+     */
+    private SequenceArea createFragment(final ElkNode interaction, final ElkEdge[] messages,
+            final int first, final int last, final int parentId, final List<SequenceArea> areas) {
+
+        ElkNode fragmentNode = ElkGraphUtil.createNode(interaction);
+        fragmentNode.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.COMBINED_FRAGMENT);
+        int fragmentId = nextId++;
+        fragmentNode.setProperty(SequenceDiagramOptions.ELEMENT_ID, fragmentId);
+        fragmentNode.setProperty(SequenceDiagramOptions.PARENT_AREA_ID, parentId);
+
+        double top = ElkGraphUtil.firstEdgeSection(messages[first], false, false).getStartY()
+                - MESSAGE_DISTANCE / 2;
+        double bottom = ElkGraphUtil.firstEdgeSection(messages[last], false, false).getStartY()
+                + MESSAGE_DISTANCE / 2;
+        fragmentNode.setLocation(0, top);
+        fragmentNode.setDimensions(interaction.getWidth(), bottom - top);
+        ElkGraphUtil.createLabel("loop", fragmentNode).setDimensions(30, 15);
+
+        SequenceArea area = new SequenceArea(fragmentNode);
+        area.getPosition().x = fragmentNode.getX();
+        area.getPosition().y = fragmentNode.getY();
+        area.getSize().x = fragmentNode.getWidth();
+        area.getSize().y = fragmentNode.getHeight();
+        areas.add(area);
+
+        for (int i = first; i <= last; i++) {
+            messages[i].getProperty(SequenceDiagramOptions.AREA_IDS).add(fragmentId);
+        }
+
+        return area;
+    }
+
+    /**
+     * Attaches comments to every few messages.
+     */
+    private void createComments(final ElkNode interaction, final ElkEdge[] messages) {
+        for (int i = COMMENT_PERIOD / 2; i < messages.length; i += COMMENT_PERIOD) {
+            ElkEdge message = messages[i];
+            ElkEdgeSection messageSection = ElkGraphUtil.firstEdgeSection(message, false, false);
+
+            ElkNode comment = ElkGraphUtil.createNode(interaction);
+            comment.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.COMMENT);
+            comment.setProperty(SequenceDiagramOptions.ELEMENT_ID, nextId++);
+            comment.setProperty(SequenceDiagramOptions.ATTACHED_ELEMENT_TYPE, "Message");
+            comment.setProperty(SequenceDiagramOptions.ATTACHED_OBJECTS,
+                    Lists.<Object>newArrayList(message));
+            comment.setLocation(messageSection.getStartX(), messageSection.getStartY() - 50);
+            comment.setDimensions(100, 40);
+
+            // The connection must not end at a lifeline, or it would be imported as a found message
+            ElkEdge connection = ElkGraphUtil.createSimpleEdge(comment, interaction);
+            ElkEdgeSection connectionSection = ElkGraphUtil.createEdgeSection(connection);
+            connectionSection.setStartLocation(comment.getX() + 50, comment.getY() + 40);
+            connectionSection.setEndLocation(comment.getX() + 50, messageSection.getStartY());
+        }
+    }
+
+    /**
+     * Returns the vertical position at which the given message touches the given lifeline.
+     */
+    private double yPosAt(final ElkEdge message, final ElkNode lifeline) {
+        ElkEdgeSection section = ElkGraphUtil.firstEdgeSection(message, false, false);
+        return ElkGraphUtil.getSourceNode(message) == lifeline
+                ? section.getStartY()
+                : section.getEndY();
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+/**
+ * Receives performance metrics of the layout processors that make up the sequence diagram layout
+ * algorithm. A sink is installed through the
+ * {@link de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions#METRICS_SINK} option.
+ * As long as no sink other than {@link #NONE} is installed, no metrics are collected at all.
+ *
+ * <p>
+ * A sink installed on a graph that is laid out concurrently with other graphs may be called from
+ * different threads. It is however never called concurrently for the same layout run.
+ * </p>
+ *
+ * @see ProcessorMetrics
+ */
+public interface ILayoutMetricsSink {
+
+    /** Sink that does nothing. Installing it disables metrics collection. */
+    ILayoutMetricsSink NONE = new ILayoutMetricsSink() {
+        @Override
+        public void processorFinished(final ProcessorMetrics metrics) {
+            // Nothing to do here
+        }
+    };
+
+    /**
+     * Called after a layout processor has finished its work.
+     *
+     * @param metrics
+     *            the metrics collected for the processor's run.
+     */
+    void processorFinished(ProcessorMetrics metrics);
+
+}
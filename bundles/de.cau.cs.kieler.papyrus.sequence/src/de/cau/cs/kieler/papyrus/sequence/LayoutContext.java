@@ -14,17 +14,14 @@
 package de.cau.cs.kieler.papyrus.sequence;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.eclipse.elk.alg.layered.graph.LGraph;
-import org.eclipse.elk.core.LayoutConfigurator;
 import org.eclipse.elk.graph.ElkNode;
-import org.eclipse.elk.graph.properties.IProperty;
-import org.eclipse.elk.graph.properties.IPropertyHolder;
 
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
 import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
 import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
 import de.cau.cs.kieler.papyrus.sequence.properties.LabelAlignment;
@@ -41,11 +38,13 @@ public final class LayoutContext {
     
     // Layout Graphs
     
-    /** The original KGraph the layout algorithm was called with. */
+    /** The original KGraph the layout algorithm was called with, if any. */
     public ElkNode kgraph;
     /** The {@link SGraph} to be laid out. */
     public SGraph sgraph;
-    /** The {@link LGraph} created from the SGraph. */
+    /** The {@link ConstraintGraph} created from the SGraph. */
+    public ConstraintGraph constraintGraph;
+    /** The {@link LGraph} created from the constraint graph for layering. */
     public LGraph lgraph;
     /** The order of lifelines as determined later in the algorithm. */
     public List<SLifeline> lifelineOrder;
@@ -53,6 +52,8 @@ public final class LayoutContext {
     
     // Layout Settings
     
+    /** The settings the context was initialized with, which the fields below are copied from. */
+    public LayoutSettings settings;
     /** Border spacing. */
     public double borderSpacing;
     /** Vertical spacing between two neighbored layers of messages. */
@@ -71,18 +72,37 @@ public final class LayoutContext {
     public double containmentOffset;
     /** The label alignment strategy. */
     public LabelAlignment labelAlignment;
+    /** The layering strategy. */
+    public LayeringStrategy layeringStrategy;
+    /** The number of messages per partition layered in parallel, 0 to layer all at once. */
+    public int layeringPartitionSize;
     /** The lifeline sorting strategy. */
     public LifelineSortingStrategy sortingStrategy;
     /** Whether to include areas in the lifeline sorting process. Used by some sorters. */
     public boolean groupAreasWhenSorting;
+    /** The time in milliseconds lifeline sorting may spend on improvements, 0 if unlimited. */
+    public int sortingTimeBudget;
+    /** How often lifeline sorting restarts from a different order. */
+    public int sortingRestarts;
+    /** The seed for random decisions. */
+    public int randomSeed;
     /** The coordinate system to use. */
     public CoordinateSystem coordinateSystem;
+    /** Whether lifelines are exported in parallel. */
+    public boolean parallelExport;
+    /** The sink to pass processor metrics to. {@link ILayoutMetricsSink#NONE} if disabled. */
+    public ILayoutMetricsSink metricsSink;
+    /** Whether debug mode is active, which adds information to intermediate graphs. */
+    public boolean debugMode;
+    /** The results of the previous layout run, or {@code null} unless in incremental mode. */
+    public SequenceLayoutCache layoutCache;
     
     // CHECKSTYLEON VisibilityModifier
     
     
     /**
-     * Use {@link #fromLayoutData(KLayoutData)} to obtain a new instance.
+     * Use {@link #fromLayoutData(ElkNode)}, {@link #fromSettings(ElkNode, LayoutSettings)} or
+     * {@link #fromSGraph(SGraph, ConstraintGraph, LayoutSettings)} to obtain a new instance.
      */
     private LayoutContext() {
         
@@ -97,37 +117,57 @@ public final class LayoutContext {
      * @return initialized context object.
      */
     public static LayoutContext fromLayoutData(final ElkNode parentNode) {
+        return fromSettings(parentNode, LayoutSettings.fromLayoutData(parentNode));
+    }
+    
+    /**
+     * Creates a new instance initialized with the given settings. Only the options that refer to
+     * per-run objects are read from the graph. Callers that lay out many graphs with the same
+     * configuration can obtain the settings once and skip reading them for every graph.
+     * 
+     * @param parentNode
+     *            parent node of the graph that is to be laid out.
+     * @param settings
+     *            the settings to lay out the graph with.
+     * @return initialized context object.
+     */
+    public static LayoutContext fromSettings(final ElkNode parentNode,
+            final LayoutSettings settings) {
+        
         LayoutContext context = new LayoutContext();
-        LayoutConfigurator layoutConfig = new LayoutConfigurator();
-        IPropertyHolder layoutData = layoutConfig.configure(parentNode);
+        context.kgraph = parentNode;
+        settings.applyTo(context);
         
-        for(Entry<IProperty<?>, Object> prop: parentNode.getProperties())
-        {
-            IProperty key = prop.getKey();
-            layoutData.setProperty(key, prop.getValue());
+        context.metricsSink = parentNode.getProperty(SequenceDiagramOptions.METRICS_SINK);
+        if (context.metricsSink == null) {
+            context.metricsSink = ILayoutMetricsSink.NONE;
         }
-       
-       
-       
-         
-        context.kgraph = parentNode;
+        context.layoutCache = parentNode.getProperty(SequenceDiagramOptions.LAYOUT_CACHE);
+        
+        return context;
+    }
+    
+    /**
+     * Creates a new instance for an SGraph and its constraint graph that were built without an
+     * ElkGraph, for example by an {@link de.cau.cs.kieler.papyrus.sequence.graph.SGraphBuilder}.
+     * Such contexts have no {@link #kgraph}, no metrics sink and no layout cache.
+     * 
+     * @param sgraph
+     *            the graph to lay out.
+     * @param constraintGraph
+     *            the constraint graph of the SGraph.
+     * @param settings
+     *            the settings to lay out the graph with.
+     * @return initialized context object.
+     */
+    public static LayoutContext fromSGraph(final SGraph sgraph,
+            final ConstraintGraph constraintGraph, final LayoutSettings settings) {
         
-        context.borderSpacing = layoutData.getProperty(SequenceDiagramOptions.SPACING_NODE_NODE);
-        context.messageSpacing = layoutData.getProperty(SequenceDiagramOptions.MESSAGE_SPACING);
-        context.lifelineSpacing = layoutData.getProperty(SequenceDiagramOptions.LIFELINE_SPACING);
-        context.lifelineYPos = layoutData.getProperty(SequenceDiagramOptions.LIFELINE_Y_POS);
-        context.lifelineHeader = layoutData.getProperty(
-                SequenceDiagramOptions.LIFELINE_HEADER_HEIGHT);
-        context.areaHeader = layoutData.getProperty(SequenceDiagramOptions.AREA_HEADER_HEIGHT);
-        context.timeObservationWidth = layoutData.getProperty(
-                SequenceDiagramOptions.TIME_OBSERVATION_WIDTH);
-        context.containmentOffset = layoutData.getProperty(
-                SequenceDiagramOptions.CONTAINMENT_OFFSET);
-        context.labelAlignment = layoutData.getProperty(SequenceDiagramOptions.LABEL_ALIGNMENT);
-        context.sortingStrategy = layoutData.getProperty(
-                SequenceDiagramOptions.LIFELINE_SORTING_STRATEGY);
-        context.groupAreasWhenSorting = layoutData.getProperty(SequenceDiagramOptions.GROUP_AREAS);
-        context.coordinateSystem = layoutData.getProperty(SequenceDiagramOptions.COORDINATE_SYSTEM);
+        LayoutContext context = new LayoutContext();
+        context.sgraph = sgraph;
+        context.constraintGraph = constraintGraph;
+        settings.applyTo(context);
+        context.metricsSink = ILayoutMetricsSink.NONE;
         
         return context;
     }
@@ -0,0 +1,39 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+/**
+ * The phases of the sequence diagram layout algorithm, in the order they are executed. Each phase
+ * is implemented by exactly one processor, which may depend on the layout configuration.
+ *
+ * @see LayoutPipelineBuilder
+ */
+public enum LayoutPhase {
+
+    /** Imports the layout graph into an SGraph and a constraint graph. */
+    IMPORT,
+    /** Allocates vertical space for comments and similar elements. */
+    SPACE_ALLOCATION,
+    /** Breaks cycles in the constraint graph. */
+    CYCLE_BREAKING,
+    /** Assigns messages to layers. */
+    LAYERING,
+    /** Determines the horizontal order of lifelines. */
+    LIFELINE_SORTING,
+    /** Computes the coordinates of all diagram elements. */
+    COORDINATE_CALCULATION,
+    /** Applies the layout back to the layout graph. */
+    EXPORT;
+
+}
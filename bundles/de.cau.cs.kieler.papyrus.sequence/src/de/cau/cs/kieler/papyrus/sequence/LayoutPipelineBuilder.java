@@ -0,0 +1,341 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+
+import de.cau.cs.kieler.papyrus.sequence.p0import.ElkGraphImporter;
+import de.cau.cs.kieler.papyrus.sequence.p0import.PapyrusImporter;
+import de.cau.cs.kieler.papyrus.sequence.p1allocation.SpaceAllocator;
+import de.cau.cs.kieler.papyrus.sequence.p2cycles.SCycleBreaker;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.IncrementalMessageLayerer;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.MessageLayerer;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.TopologicalMessageLayerer;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.ParallelMessageLayerer;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.CrossingMinimizingLifelineSorter;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.IncrementalLifelineSorter;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.InteractiveLifelineSorter;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LayerBasedLifelineSorter;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.ShortMessageLifelineSorter;
+import de.cau.cs.kieler.papyrus.sequence.p5coordinates.ElkGraphCoordinateCalculator;
+import de.cau.cs.kieler.papyrus.sequence.p5coordinates.PapyrusCoordinateCalculator;
+import de.cau.cs.kieler.papyrus.sequence.p6export.ElkGraphExporter;
+import de.cau.cs.kieler.papyrus.sequence.p6export.PapyrusExporter;
+import de.cau.cs.kieler.papyrus.sequence.p6export.SGraphExporter;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+
+/**
+ * Assembles the list of layout processors that, when run in order, implement the sequence diagram
+ * layout algorithm. Besides the processor of each {@link LayoutPhase}, additional processors can be
+ * registered to run before or after a phase. Processors registered for the same spot run in the
+ * order they were registered in.
+ *
+ * <p>
+ * Pipelines are cached and shared between layout runs, which may execute concurrently. Registered
+ * processors must therefore not keep state from one run to the next.
+ * </p>
+ *
+ * @see SequenceDiagramLayoutProvider#SequenceDiagramLayoutProvider(LayoutPipelineBuilder)
+ */
+public final class LayoutPipelineBuilder {
+
+    /** Processors to run before a given phase. */
+    private final ListMultimap<LayoutPhase, ISequenceLayoutProcessor> preProcessors =
+            ArrayListMultimap.create();
+    /** Processors to run after a given phase. */
+    private final ListMultimap<LayoutPhase, ISequenceLayoutProcessor> postProcessors =
+            ArrayListMultimap.create();
+
+
+    /**
+     * Creates a new builder without any additional processors.
+     */
+    public LayoutPipelineBuilder() {
+
+    }
+
+    /**
+     * Creates a new builder with the same additional processors as the given one.
+     *
+     * @param other
+     *            the builder to copy.
+     */
+    public LayoutPipelineBuilder(final LayoutPipelineBuilder other) {
+        preProcessors.putAll(other.preProcessors);
+        postProcessors.putAll(other.postProcessors);
+    }
+
+    /**
+     * Registers a processor to run before the given phase.
+     *
+     * @param phase
+     *            the phase.
+     * @param processor
+     *            the processor to run.
+     * @return this builder.
+     */
+    public LayoutPipelineBuilder addBefore(final LayoutPhase phase,
+            final ISequenceLayoutProcessor processor) {
+
+        preProcessors.put(phase, processor);
+        return this;
+    }
+
+    /**
+     * Registers a processor to run after the given phase.
+     *
+     * @param phase
+     *            the phase.
+     * @param processor
+     *            the processor to run.
+     * @return this builder.
+     */
+    public LayoutPipelineBuilder addAfter(final LayoutPhase phase,
+            final ISequenceLayoutProcessor processor) {
+
+        postProcessors.put(phase, processor);
+        return this;
+    }
+
+    /**
+     * Assembles the pipeline for the given layout context. The pipeline only depends on those of the
+     * context's settings that are part of the {@link PipelineKey} for the context. If the context
+     * has no ElkGraph, its SGraph has been built already and there is no import processor. The
+     * processors registered before or after the import still run.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout
+     *            run.
+     * @return list of layout processors.
+     */
+    public List<ISequenceLayoutProcessor> build(final LayoutContext context) {
+        ImmutableList.Builder<ISequenceLayoutProcessor> processors = ImmutableList.builder();
+
+        for (LayoutPhase phase : LayoutPhase.values()) {
+            processors.addAll(preProcessors.get(phase));
+            ISequenceLayoutProcessor processor = createProcessor(phase, context);
+            if (processor != null) {
+                processors.add(processor);
+            }
+            processors.addAll(postProcessors.get(phase));
+        }
+
+        return processors.build();
+    }
+
+    /**
+     * Creates the processor that implements the given phase.
+     *
+     * @param phase
+     *            the phase.
+     * @param context
+     *            the layout context.
+     * @return the processor, or {@code null} if the phase has nothing to do.
+     */
+    private static ISequenceLayoutProcessor createProcessor(final LayoutPhase phase,
+            final LayoutContext context) {
+
+        switch (phase) {
+        case IMPORT:
+            // Graphs built without an ElkGraph don't need to be imported
+            if (context.kgraph == null) {
+                return null;
+            }
+
+            // The import algorithm depends on the coordinate system that is to be used
+            switch (context.coordinateSystem) {
+            case PAPYRUS:
+                return new PapyrusImporter();
+
+            default:
+                return new ElkGraphImporter();
+            }
+
+        case SPACE_ALLOCATION:
+            return new SpaceAllocator();
+
+        case CYCLE_BREAKING:
+            return new SCycleBreaker();
+
+        case LAYERING:
+            ISequenceLayoutProcessor layerer = createLayerer(context);
+            if (context.layeringPartitionSize > 0) {
+                layerer = new ParallelMessageLayerer(layerer);
+            }
+            return context.layoutCache == null ? layerer : new IncrementalMessageLayerer(layerer);
+
+        case LIFELINE_SORTING:
+            // Interactive sorting follows the user's lifeline positions even in incremental mode
+            ISequenceLayoutProcessor sorter = createSorter(context);
+            return context.layoutCache == null
+                    || context.sortingStrategy == LifelineSortingStrategy.INTERACTIVE
+                    ? sorter : new IncrementalLifelineSorter(sorter);
+
+        case COORDINATE_CALCULATION:
+            switch (context.coordinateSystem) {
+            case PAPYRUS:
+                return new PapyrusCoordinateCalculator();
+
+            default:
+                return new ElkGraphCoordinateCalculator();
+            }
+
+        case EXPORT:
+            // Graphs built without an ElkGraph keep their coordinates
+            if (context.kgraph == null) {
+                return new SGraphExporter();
+            }
+
+            switch (context.coordinateSystem) {
+            case PAPYRUS:
+                return new PapyrusExporter();
+
+            default:
+                return new ElkGraphExporter();
+            }
+
+        default:
+            throw new IllegalArgumentException("Unknown layout phase: " + phase);
+        }
+    }
+
+    /**
+     * Creates the layerer for the context's layering strategy.
+     *
+     * @param context
+     *            the layout context.
+     * @return the layerer.
+     */
+    private static ISequenceLayoutProcessor createLayerer(final LayoutContext context) {
+        switch (context.layeringStrategy) {
+        case LONGEST_PATH:
+            return new TopologicalMessageLayerer(false);
+
+        case LIFELINE_CHAINS:
+            return new TopologicalMessageLayerer(true);
+
+        default:
+            return new MessageLayerer();
+        }
+    }
+
+    /**
+     * Creates the lifeline sorter for the context's sorting strategy.
+     *
+     * @param context
+     *            the layout context.
+     * @return the lifeline sorter.
+     */
+    private static ISequenceLayoutProcessor createSorter(final LayoutContext context) {
+        // Lifeline sorting provides different options
+        switch (context.sortingStrategy) {
+        case LAYER_BASED:
+            return new LayerBasedLifelineSorter();
+
+        case SHORT_MESSAGES:
+            return new ShortMessageLifelineSorter();
+
+        case CROSSING_MINIMIZATION:
+            return new CrossingMinimizingLifelineSorter();
+
+        default:
+            return new InteractiveLifelineSorter();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Pipeline Keys
+
+    /**
+     * Identifies the settings of a layout context that influence which processors are part of the
+     * pipeline. Two contexts with equal keys get the same pipeline. When a setting starts to
+     * influence the pipeline, it has to be added here.
+     */
+    public static final class PipelineKey {
+
+        /** The coordinate system. */
+        private final CoordinateSystem coordinateSystem;
+        /** The layering strategy. */
+        private final LayeringStrategy layeringStrategy;
+        /** Whether messages are layered in partitions, in parallel. */
+        private final boolean partitioned;
+        /** The lifeline sorting strategy. */
+        private final LifelineSortingStrategy sortingStrategy;
+        /** Whether layout is incremental. */
+        private final boolean incremental;
+        /** Whether the graph is imported from an ElkGraph. */
+        private final boolean imported;
+
+        /**
+         * Creates the key for the given layout context.
+         *
+         * @param context
+         *            the layout context.
+         */
+        public PipelineKey(final LayoutContext context) {
+            this.coordinateSystem = context.coordinateSystem;
+            this.layeringStrategy = context.layeringStrategy;
+            this.partitioned = context.layeringPartitionSize > 0;
+            this.sortingStrategy = context.sortingStrategy;
+            this.incremental = context.layoutCache != null;
+            this.imported = context.kgraph != null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof PipelineKey) {
+                PipelineKey other = (PipelineKey) obj;
+                return coordinateSystem == other.coordinateSystem
+                        && layeringStrategy == other.layeringStrategy
+                        && partitioned == other.partitioned
+                        && sortingStrategy == other.sortingStrategy
+                        && incremental == other.incremental
+                        && imported == other.imported;
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(coordinateSystem, layeringStrategy, partitioned, sortingStrategy,
+                    incremental, imported);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "PipelineKey [" + coordinateSystem + ", " + layeringStrategy
+                    + (partitioned ? ", partitioned, " : ", ") + sortingStrategy
+                    + (incremental ? ", incremental" : "")
+                    + (imported ? "" : ", SGraph") + "]";
+        }
+    }
+
+}
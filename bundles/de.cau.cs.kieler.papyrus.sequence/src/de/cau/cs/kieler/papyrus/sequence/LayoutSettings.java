@@ -0,0 +1,213 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.properties.IPropertyHolder;
+
+import com.google.common.base.Objects;
+
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.LabelAlignment;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * The values of the layout options that configure a layout run, read once from a graph. Settings
+ * are immutable and compare equal if all of their values are equal. A single instance can be used
+ * to lay out any number of diagrams, even concurrently.
+ *
+ * <p>
+ * Options that refer to per-run objects, such as the metrics sink or the layout cache, are not
+ * part of the settings. {@link LayoutContext#fromSettings(ElkNode, LayoutSettings)} reads them from
+ * the graph that is laid out.
+ * </p>
+ */
+public final class LayoutSettings {
+
+    /** Border spacing. */
+    private final double borderSpacing;
+    /** Vertical spacing between two neighbored layers of messages. */
+    private final double messageSpacing;
+    /** Horizontal spacing between two neighbored lifelines. */
+    private final double lifelineSpacing;
+    /** The vertical position of lifelines. */
+    private final double lifelineYPos;
+    /** The height of the lifeline's header. */
+    private final double lifelineHeader;
+    /** The height of the header of combined fragments. */
+    private final double areaHeader;
+    /** The width of timing observations. */
+    private final double timeObservationWidth;
+    /** The offset between two nested areas. */
+    private final double containmentOffset;
+    /** The label alignment strategy. */
+    private final LabelAlignment labelAlignment;
+    /** The layering strategy. */
+    private final LayeringStrategy layeringStrategy;
+    /** The number of messages per partition layered in parallel, 0 to layer all at once. */
+    private final int layeringPartitionSize;
+    /** The lifeline sorting strategy. */
+    private final LifelineSortingStrategy sortingStrategy;
+    /** Whether to include areas in the lifeline sorting process. */
+    private final boolean groupAreasWhenSorting;
+    /** The time in milliseconds lifeline sorting may spend on improvements, 0 if unlimited. */
+    private final int sortingTimeBudget;
+    /** How often lifeline sorting restarts from a different order. */
+    private final int sortingRestarts;
+    /** The seed for random decisions. */
+    private final int randomSeed;
+    /** The coordinate system to use. */
+    private final CoordinateSystem coordinateSystem;
+    /** Whether lifelines are exported in parallel. */
+    private final boolean parallelExport;
+    /** Whether debug mode is active. */
+    private final boolean debugMode;
+
+
+    /**
+     * Use {@link #fromLayoutData(ElkNode)} or {@link #fromProperties(IPropertyHolder)} to obtain an
+     * instance.
+     */
+    private LayoutSettings(final IPropertyHolder properties) {
+        borderSpacing = properties.getProperty(SequenceDiagramOptions.SPACING_NODE_NODE);
+        messageSpacing = properties.getProperty(SequenceDiagramOptions.MESSAGE_SPACING);
+        lifelineSpacing = properties.getProperty(SequenceDiagramOptions.LIFELINE_SPACING);
+        lifelineYPos = properties.getProperty(SequenceDiagramOptions.LIFELINE_Y_POS);
+        lifelineHeader = properties.getProperty(SequenceDiagramOptions.LIFELINE_HEADER_HEIGHT);
+        areaHeader = properties.getProperty(SequenceDiagramOptions.AREA_HEADER_HEIGHT);
+        timeObservationWidth = properties.getProperty(
+                SequenceDiagramOptions.TIME_OBSERVATION_WIDTH);
+        containmentOffset = properties.getProperty(SequenceDiagramOptions.CONTAINMENT_OFFSET);
+        labelAlignment = properties.getProperty(SequenceDiagramOptions.LABEL_ALIGNMENT);
+        layeringStrategy = properties.getProperty(SequenceDiagramOptions.LAYERING_STRATEGY);
+        layeringPartitionSize =
+                properties.getProperty(SequenceDiagramOptions.LAYERING_PARTITION_SIZE);
+        sortingStrategy = properties.getProperty(
+                SequenceDiagramOptions.LIFELINE_SORTING_STRATEGY);
+        groupAreasWhenSorting = properties.getProperty(SequenceDiagramOptions.GROUP_AREAS);
+        sortingTimeBudget = properties.getProperty(SequenceDiagramOptions.SORTING_TIME_BUDGET);
+        sortingRestarts = properties.getProperty(SequenceDiagramOptions.SORTING_RESTARTS);
+        randomSeed = properties.getProperty(SequenceDiagramOptions.RANDOM_SEED);
+        coordinateSystem = properties.getProperty(SequenceDiagramOptions.COORDINATE_SYSTEM);
+        parallelExport = properties.getProperty(SequenceDiagramOptions.PARALLEL_EXPORT);
+        debugMode = properties.getProperty(SequenceDiagramOptions.DEBUG_MODE);
+    }
+
+    /**
+     * Returns the settings configured on the given graph. Options that are not set on the graph
+     * have their default values.
+     *
+     * @param parentNode
+     *            parent node of the graph that is to be laid out.
+     * @return the settings.
+     */
+    public static LayoutSettings fromLayoutData(final ElkNode parentNode) {
+        return fromProperties(parentNode);
+    }
+
+    /**
+     * Returns the settings configured on the given property holder. This is used to lay out graphs
+     * that are not given as an ElkGraph. Options that are not set have their default values.
+     *
+     * @param properties
+     *            the holder of the layout options.
+     * @return the settings.
+     */
+    public static LayoutSettings fromProperties(final IPropertyHolder properties) {
+        return new LayoutSettings(properties);
+    }
+
+    /**
+     * Copies the settings to the given context.
+     *
+     * @param context
+     *            the layout context to initialize.
+     */
+    void applyTo(final LayoutContext context) {
+        context.settings = this;
+        context.borderSpacing = borderSpacing;
+        context.messageSpacing = messageSpacing;
+        context.lifelineSpacing = lifelineSpacing;
+        context.lifelineYPos = lifelineYPos;
+        context.lifelineHeader = lifelineHeader;
+        context.areaHeader = areaHeader;
+        context.timeObservationWidth = timeObservationWidth;
+        context.containmentOffset = containmentOffset;
+        context.labelAlignment = labelAlignment;
+        context.layeringStrategy = layeringStrategy;
+        context.layeringPartitionSize = layeringPartitionSize;
+        context.sortingStrategy = sortingStrategy;
+        context.groupAreasWhenSorting = groupAreasWhenSorting;
+        context.sortingTimeBudget = sortingTimeBudget;
+        context.sortingRestarts = sortingRestarts;
+        context.randomSeed = randomSeed;
+        context.coordinateSystem = coordinateSystem;
+        context.parallelExport = parallelExport;
+        context.debugMode = debugMode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof LayoutSettings) {
+            LayoutSettings other = (LayoutSettings) obj;
+            return Double.compare(borderSpacing, other.borderSpacing) == 0
+                    && Double.compare(messageSpacing, other.messageSpacing) == 0
+                    && Double.compare(lifelineSpacing, other.lifelineSpacing) == 0
+                    && Double.compare(lifelineYPos, other.lifelineYPos) == 0
+                    && Double.compare(lifelineHeader, other.lifelineHeader) == 0
+                    && Double.compare(areaHeader, other.areaHeader) == 0
+                    && Double.compare(timeObservationWidth, other.timeObservationWidth) == 0
+                    && Double.compare(containmentOffset, other.containmentOffset) == 0
+                    && labelAlignment == other.labelAlignment
+                    && layeringStrategy == other.layeringStrategy
+                    && layeringPartitionSize == other.layeringPartitionSize
+                    && sortingStrategy == other.sortingStrategy
+                    && groupAreasWhenSorting == other.groupAreasWhenSorting
+                    && sortingTimeBudget == other.sortingTimeBudget
+                    && sortingRestarts == other.sortingRestarts
+                    && randomSeed == other.randomSeed
+                    && coordinateSystem == other.coordinateSystem
+                    && parallelExport == other.parallelExport
+                    && debugMode == other.debugMode;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(borderSpacing, messageSpacing, lifelineSpacing, lifelineYPos,
+                lifelineHeader, areaHeader, timeObservationWidth, containmentOffset,
+                labelAlignment, layeringStrategy, layeringPartitionSize, sortingStrategy,
+                groupAreasWhenSorting, sortingTimeBudget, sortingRestarts, randomSeed,
+                coordinateSystem, parallelExport, debugMode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "LayoutSettings [" + coordinateSystem + ", " + layeringStrategy + ", "
+                + sortingStrategy + ", seed=" + randomSeed + (debugMode ? ", debug" : "") + "]";
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+/**
+ * Performance metrics of a single layout processor run. Element counts describe the layout graphs
+ * as they are after the processor has finished. Times and allocated bytes are {@code -1} if the
+ * Java VM doesn't support measuring them.
+ *
+ * @see ILayoutMetricsSink
+ */
+public final class ProcessorMetrics {
+
+    /** The processor the metrics were collected for. */
+    private final Class<? extends ISequenceLayoutProcessor> processor;
+    /** Elapsed wall clock time in nanoseconds. */
+    private final long wallTime;
+    /** CPU time of the layout thread in nanoseconds. */
+    private final long cpuTime;
+    /** Number of bytes allocated by the layout thread. */
+    private final long allocatedBytes;
+    /** Number of lifelines in the SGraph. */
+    private final int lifelines;
+    /** Number of messages in the SGraph. */
+    private final int messages;
+    /** Number of nodes in the LGraph or, before it exists, the constraint graph. */
+    private final int lnodes;
+    /** Number of edges in the LGraph or, before it exists, the constraint graph. */
+    private final int ledges;
+    /** Number of those nodes that don't represent a message. */
+    private final int dummyNodes;
+
+
+    // CHECKSTYLEOFF ParameterNumber
+
+    /**
+     * Creates a new instance.
+     *
+     * @param processor
+     *            the processor the metrics were collected for.
+     * @param wallTime
+     *            elapsed wall clock time in nanoseconds.
+     * @param cpuTime
+     *            CPU time in nanoseconds, or {@code -1}.
+     * @param allocatedBytes
+     *            allocated bytes, or {@code -1}.
+     * @param lifelines
+     *            number of lifelines.
+     * @param messages
+     *            number of messages.
+     * @param lnodes
+     *            number of LGraph nodes.
+     * @param ledges
+     *            number of LGraph edges.
+     * @param dummyNodes
+     *            number of LGraph dummy nodes.
+     */
+    public ProcessorMetrics(final Class<? extends ISequenceLayoutProcessor> processor,
+            final long wallTime, final long cpuTime, final long allocatedBytes, final int lifelines,
+            final int messages, final int lnodes, final int ledges, final int dummyNodes) {
+
+        this.processor = processor;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.lifelines = lifelines;
+        this.messages = messages;
+        this.lnodes = lnodes;
+        this.ledges = ledges;
+        this.dummyNodes = dummyNodes;
+    }
+
+    // CHECKSTYLEON ParameterNumber
+
+    /**
+     * Returns the processor the metrics were collected for.
+     *
+     * @return the processor class.
+     */
+    public Class<? extends ISequenceLayoutProcessor> getProcessor() {
+        return processor;
+    }
+
+    /**
+     * Returns the elapsed wall clock time.
+     *
+     * @return the wall time in nanoseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Returns the CPU time the layout thread spent in the processor.
+     *
+     * @return the CPU time in nanoseconds, or {@code -1} if not supported.
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Returns the number of bytes the layout thread allocated in the processor.
+     *
+     * @return the allocated bytes, or {@code -1} if not supported.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of lifelines in the SGraph.
+     *
+     * @return the number of lifelines.
+     */
+    public int getLifelines() {
+        return lifelines;
+    }
+
+    /**
+     * Returns the number of messages in the SGraph.
+     *
+     * @return the number of messages.
+     */
+    public int getMessages() {
+        return messages;
+    }
+
+    /**
+     * Returns the number of nodes in the LGraph, including dummy nodes. Before the LGraph is
+     * created, this is the number of nodes in the constraint graph.
+     *
+     * @return the number of nodes.
+     */
+    public int getLNodes() {
+        return lnodes;
+    }
+
+    /**
+     * Returns the number of edges in the LGraph. Before the LGraph is created, this is the number
+     * of edges in the constraint graph.
+     *
+     * @return the number of edges.
+     */
+    public int getLEdges() {
+        return ledges;
+    }
+
+    /**
+     * Returns the number of nodes counted by {@link #getLNodes()} that don't represent a message.
+     *
+     * @return the number of dummy nodes.
+     */
+    public int getDummyNodes() {
+        return dummyNodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return processor.getSimpleName() + " [wall=" + wallTime + "ns, cpu=" + cpuTime
+                + "ns, allocated=" + allocatedBytes + "B, lifelines=" + lifelines + ", messages="
+                + messages + ", lnodes=" + lnodes + ", ledges=" + ledges + ", dummies="
+                + dummyNodes + "]";
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.eclipse.elk.alg.layered.graph.LGraph;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+
+/**
+ * Runs layout processors while collecting {@link ProcessorMetrics} about them. Only used if a
+ * metrics sink is installed, so the cost of measuring is not paid otherwise.
+ *
+ * <p>
+ * Allocated bytes are measured through {@code com.sun.management.ThreadMXBean}, which is not part
+ * of the Java SE API. It is accessed reflectively to keep the bundle working on VMs that don't
+ * provide it.
+ * </p>
+ */
+final class ProcessorMetricsRecorder {
+
+    /** The thread MX bean used to measure CPU time and allocations. */
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    /** The method to query allocated bytes with, or {@code null} if not available. */
+    private static final Method ALLOCATED_BYTES_METHOD = findAllocatedBytesMethod();
+
+    /** The sink to pass the collected metrics to. */
+    private final ILayoutMetricsSink sink;
+
+
+    /**
+     * Creates a new recorder that passes metrics to the given sink.
+     *
+     * @param sink
+     *            the sink.
+     */
+    ProcessorMetricsRecorder(final ILayoutMetricsSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Runs the given processor and passes metrics about the run to the sink.
+     *
+     * @param processor
+     *            the processor to run.
+     * @param context
+     *            the layout context.
+     * @param progressMonitor
+     *            the processor's progress monitor.
+     * @return the collected metrics.
+     */
+    ProcessorMetrics run(final ISequenceLayoutProcessor processor, final LayoutContext context,
+            final IElkProgressMonitor progressMonitor) {
+
+        long threadId = Thread.currentThread().getId();
+        long cpuTimeBefore = cpuTime();
+        long allocatedBefore = allocatedBytes(threadId);
+        long wallTimeBefore = System.nanoTime();
+
+        processor.process(context, progressMonitor);
+
+        long wallTime = System.nanoTime() - wallTimeBefore;
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes(threadId) - allocatedBefore;
+        long cpuTime = cpuTimeBefore < 0 ? -1 : cpuTime() - cpuTimeBefore;
+
+        // Count elements
+        int lifelines = 0;
+        int messages = 0;
+        if (context.sgraph != null) {
+            for (SLifeline lifeline : context.sgraph.getLifelines()) {
+                lifelines++;
+                messages += lifeline.getNumberOfOutgoingMessages();
+
+                // Found messages leave dummy lifelines, which are not part of the graph
+                for (SMessage message : lifeline.getIncomingMessages()) {
+                    if (message.getSource().isDummy()) {
+                        messages++;
+                    }
+                }
+            }
+        }
+
+        int lnodes = 0;
+        int ledges = 0;
+        int dummyNodes = 0;
+        if (context.lgraph != null) {
+            for (LNode node : allNodes(context.lgraph)) {
+                lnodes++;
+                ledges += Iterables.size(node.getOutgoingEdges());
+                if (node.getProperty(InternalProperties.ORIGIN) == null) {
+                    dummyNodes++;
+                }
+            }
+        } else if (context.constraintGraph != null) {
+            ConstraintGraph graph = context.constraintGraph;
+            lnodes = graph.getNodeCount();
+            ledges = graph.getEdgeCount();
+            for (int node = 0; node < lnodes; node++) {
+                if (graph.getMessage(node) == null) {
+                    dummyNodes++;
+                }
+            }
+        }
+
+        ProcessorMetrics metrics = new ProcessorMetrics(processor.getClass(), wallTime, cpuTime,
+                allocated, lifelines, messages, lnodes, ledges, dummyNodes);
+        sink.processorFinished(metrics);
+        return metrics;
+    }
+
+    /**
+     * Returns all nodes of the given graph, regardless of whether they have already been layered.
+     */
+    private static Iterable<LNode> allNodes(final LGraph lgraph) {
+        List<Iterable<LNode>> nodeLists = Lists.newArrayListWithCapacity(
+                lgraph.getLayers().size() + 1);
+        nodeLists.add(lgraph.getLayerlessNodes());
+        for (Layer layer : lgraph.getLayers()) {
+            nodeLists.add(layer.getNodes());
+        }
+        return Iterables.concat(nodeLists);
+    }
+
+    /**
+     * Returns the CPU time of the current thread, or {@code -1} if not supported.
+     */
+    private static long cpuTime() {
+        if (THREAD_BEAN.isCurrentThreadCpuTimeSupported()) {
+            return THREAD_BEAN.getCurrentThreadCpuTime();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated by the given thread so far, or {@code -1} if not
+     * supported.
+     */
+    private static long allocatedBytes(final long threadId) {
+        if (ALLOCATED_BYTES_METHOD == null) {
+            return -1;
+        }
+
+        try {
+            return (Long) ALLOCATED_BYTES_METHOD.invoke(THREAD_BEAN, threadId);
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Looks up the method to query a thread's allocated bytes with, if the VM provides one.
+     */
+    private static Method findAllocatedBytesMethod() {
+        try {
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (beanClass.isInstance(THREAD_BEAN)) {
+                return beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not available; we simply won't measure allocations
+        }
+        return null;
+    }
+
+}
@@ -14,6 +14,8 @@
 package de.cau.cs.kieler.papyrus.sequence;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.elk.core.AbstractLayoutProvider;
 import org.eclipse.elk.core.UnsupportedGraphException;
@@ -22,18 +24,9 @@ import org.eclipse.elk.graph.ElkNode;
 
 import com.google.common.collect.Lists;
 
-import de.cau.cs.kieler.papyrus.sequence.p0import.ElkGraphImporter;
-import de.cau.cs.kieler.papyrus.sequence.p0import.PapyrusImporter;
-import de.cau.cs.kieler.papyrus.sequence.p1allocation.SpaceAllocator;
-import de.cau.cs.kieler.papyrus.sequence.p2cycles.SCycleBreaker;
-import de.cau.cs.kieler.papyrus.sequence.p3layering.MessageLayerer;
-import de.cau.cs.kieler.papyrus.sequence.p4sorting.InteractiveLifelineSorter;
-import de.cau.cs.kieler.papyrus.sequence.p4sorting.LayerBasedLifelineSorter;
-import de.cau.cs.kieler.papyrus.sequence.p4sorting.ShortMessageLifelineSorter;
-import de.cau.cs.kieler.papyrus.sequence.p5coordinates.ElkGraphCoordinateCalculator;
-import de.cau.cs.kieler.papyrus.sequence.p5coordinates.PapyrusCoordinateCalculator;
-import de.cau.cs.kieler.papyrus.sequence.p6export.ElkGraphExporter;
-import de.cau.cs.kieler.papyrus.sequence.p6export.PapyrusExporter;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPipelineBuilder.PipelineKey;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraphBuilder;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
 
 /**
  * Layout algorithm for Papyrus sequence diagrams.
@@ -47,36 +40,109 @@ public final class SequenceDiagramLayoutProvider extends AbstractLayoutProvider
     /** The layout provider's ID. */
     public static final String ID = "de.cau.cs.kieler.papyrus.sequence.layout";
     
+    /** The builder used to assemble processor pipelines. */
+    private final LayoutPipelineBuilder pipelineBuilder;
+    /** Pipelines that have already been assembled. Processors are stateless and can be reused. */
+    private final ConcurrentMap<PipelineKey, List<ISequenceLayoutProcessor>> pipelines =
+            new ConcurrentHashMap<>();
+    
+    
+    /**
+     * Creates a new instance that runs the default layout pipeline.
+     */
+    public SequenceDiagramLayoutProvider() {
+        this(new LayoutPipelineBuilder());
+    }
+    
+    /**
+     * Creates a new instance that runs the pipelines assembled by the given builder. Changes made to
+     * the builder afterwards do not affect the new instance.
+     * 
+     * @param pipelineBuilder
+     *            the builder that assembles the processor pipelines.
+     */
+    public SequenceDiagramLayoutProvider(final LayoutPipelineBuilder pipelineBuilder) {
+        this.pipelineBuilder = new LayoutPipelineBuilder(pipelineBuilder);
+    }
+    
 
     @Override
     public void layout(final ElkNode parentNode, final IElkProgressMonitor progressMonitor) {
 
+        // Initialize our layout context
         LayoutContext context = LayoutContext.fromLayoutData(parentNode);
-        
+
         // Prevent the surrounding diagram from being laid out
         if (parentNode.getParent() == null) {
             ElkNode interactionNode = parentNode.getChildren().get(0);
             context.kgraph = interactionNode;
         }
-        else {
-            // Initialize our layout context
-            context = LayoutContext.fromLayoutData(parentNode);
+        
+        List<ProcessorMetrics> metrics = run(context, progressMonitor);
+        if (metrics != null) {
+            parentNode.setProperty(SequenceDiagramOptions.PROCESSOR_METRICS, metrics);
         }
+    }
+    
+    /**
+     * Lays out a graph that was built from a trace instead of being imported from an ElkGraph. The
+     * resulting coordinates are left in the builder's SGraph, in the executions of its lifelines
+     * and in its areas.
+     * 
+     * @param trace
+     *            the builder the graph was built with.
+     * @param settings
+     *            the settings to lay out the graph with.
+     * @param progressMonitor
+     *            the progress monitor.
+     */
+    public void layout(final SGraphBuilder trace, final LayoutSettings settings,
+            final IElkProgressMonitor progressMonitor) {
+        
+        run(LayoutContext.fromSGraph(trace.getGraph(), trace.getConstraintGraph(), settings),
+                progressMonitor);
+    }
+    
+    /**
+     * Runs the algorithm on the given context.
+     * 
+     * @param context
+     *            the layout context that contains all relevant information for the current layout
+     *            run.
+     * @param progressMonitor
+     *            the progress monitor.
+     * @return the metrics of each processor, or {@code null} if metrics are disabled.
+     */
+    private List<ProcessorMetrics> run(final LayoutContext context,
+            final IElkProgressMonitor progressMonitor) {
+        
         // Assemble and execute the algorithm
         List<ISequenceLayoutProcessor> algorithm = assembleLayoutProcessors(context);
         
         progressMonitor.begin("Sequence Diagram Layouter", algorithm.size());
         
-        for (ISequenceLayoutProcessor processor : algorithm) {
-            processor.process(context, progressMonitor.subTask(1));
+        List<ProcessorMetrics> metrics = null;
+        if (context.metricsSink == ILayoutMetricsSink.NONE) {
+            for (ISequenceLayoutProcessor processor : algorithm) {
+                processor.process(context, progressMonitor.subTask(1));
+            }
+        } else {
+            // Measure each processor and make the results available on the laid out graph
+            ProcessorMetricsRecorder recorder = new ProcessorMetricsRecorder(context.metricsSink);
+            metrics = Lists.newArrayListWithCapacity(algorithm.size());
+            for (ISequenceLayoutProcessor processor : algorithm) {
+                metrics.add(recorder.run(processor, context, progressMonitor.subTask(1)));
+            }
         }
         
         progressMonitor.done();
+        return metrics;
     }
     
     /**
-     * Assembles the list of layout processors that, when run in order, implement the sequence
-     * diagram layout algorithm. The list may be different based on the given layout context.
+     * Returns the list of layout processors that, when run in order, implement the sequence diagram
+     * layout algorithm. The list may be different based on the given layout context. Lists are
+     * assembled once per configuration and reused afterwards.
      * 
      * @param context
      *            the layout context that contains all relevant information for the current layout
@@ -84,49 +150,17 @@ public final class SequenceDiagramLayoutProvider extends AbstractLayoutProvider
      * @return list of layout processors.
      */
     private List<ISequenceLayoutProcessor> assembleLayoutProcessors(final LayoutContext context) {
-        List<ISequenceLayoutProcessor> processors = Lists.newArrayList();
-
-        // The import algorithm depends on the coordinate system that is to be used
-        switch (context.coordinateSystem) {
-        case PAPYRUS:
-            processors.add(new PapyrusImporter());
-            break;
-            
-        default:
-            processors.add(new ElkGraphImporter());
-            break;   
-        }
-        
-        processors.add(new SpaceAllocator());
-        processors.add(new SCycleBreaker());
-        processors.add(new MessageLayerer());
-        
-        // Lifeline sorting provides different options
-        switch (context.sortingStrategy) {
-        case LAYER_BASED:
-            processors.add(new LayerBasedLifelineSorter());
-            break;
-            
-        case SHORT_MESSAGES:
-            processors.add(new ShortMessageLifelineSorter());
-            break;
-            
-        default:
-            processors.add(new InteractiveLifelineSorter());
-            break;
-        }
+        PipelineKey key = new PipelineKey(context);
+        List<ISequenceLayoutProcessor> processors = pipelines.get(key);
         
-        // The rest of the algorithm depends on the coordinate system that is to be used
-        switch (context.coordinateSystem) {
-        case PAPYRUS:
-            processors.add(new PapyrusCoordinateCalculator());
-            processors.add(new PapyrusExporter());
-            break;
+        if (processors == null) {
+            processors = pipelineBuilder.build(context);
             
-        default:
-            processors.add(new ElkGraphCoordinateCalculator());
-            processors.add(new ElkGraphExporter());
-            break;   
+            // Another thread may have been faster
+            List<ISequenceLayoutProcessor> existing = pipelines.putIfAbsent(key, processors);
+            if (existing != null) {
+                processors = existing;
+            }
         }
         
         return processors;
@@ -0,0 +1,182 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.elk.graph.ElkGraphElement;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Keeps the results of the previous layout run of a diagram, which enables incremental layout.
+ * Installing a cache through the {@link SequenceDiagramOptions#LAYOUT_CACHE} option switches the
+ * algorithm to incremental mode. In incremental mode, messages whose neighbors on their lifelines
+ * didn't change since the previous run keep their layer, and only changed messages and the messages
+ * below them are layered again. Unless lifelines are sorted interactively, the order of lifelines is
+ * reused as long as no lifelines were added.
+ *
+ * <p>
+ * Lifelines and messages are recognized by their {@link SequenceDiagramOptions#ELEMENT_KEY}, or by
+ * the identity of their layout graph element if they don't have one. Callers that build a new layout
+ * graph for each run need to set element keys for incremental layout to have any effect. The same
+ * cache must not be used by concurrent layout runs.
+ * </p>
+ */
+public final class SequenceLayoutCache {
+
+    /** What is known about the nodes of the previous constraint graph, by node key. */
+    private Map<Object, CachedNode> nodes = Collections.emptyMap();
+    /** Keys of the lifelines in the previous run's order. */
+    private List<Object> lifelineOrder = Collections.emptyList();
+
+
+    /**
+     * Returns the key that identifies the given layout graph element across layout runs.
+     *
+     * @param element
+     *            a lifeline node or a message edge.
+     * @return the element's {@link SequenceDiagramOptions#ELEMENT_KEY}, or the element itself.
+     */
+    public static Object keyOf(final ElkGraphElement element) {
+        Object key = element.getProperty(SequenceDiagramOptions.ELEMENT_KEY);
+        return key == null ? element : key;
+    }
+
+    /**
+     * Forgets the results of the previous layout run. The next run will be a full one.
+     */
+    public void clear() {
+        nodes = Collections.emptyMap();
+        lifelineOrder = Collections.emptyList();
+    }
+
+    /**
+     * Checks whether there are results of a previous layout run.
+     *
+     * @return {@code true} if the next run can be an incremental one.
+     */
+    public boolean hasLayering() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * Returns what is known about the constraint graph node with the given key.
+     *
+     * @param key
+     *            the node key.
+     * @return the cached node, or {@code null} if the previous run didn't have such a node.
+     */
+    public CachedNode getNode(final Object key) {
+        return nodes.get(key);
+    }
+
+    /**
+     * Replaces the cached constraint graph nodes with those of the current run.
+     *
+     * @param newNodes
+     *            the nodes of the current run, by node key.
+     */
+    public void setNodes(final Map<Object, CachedNode> newNodes) {
+        nodes = ImmutableMap.copyOf(newNodes);
+    }
+
+    /**
+     * Returns the keys of the lifelines in the order of the previous run.
+     *
+     * @return the lifeline keys, empty if unknown.
+     */
+    public List<Object> getLifelineOrder() {
+        return lifelineOrder;
+    }
+
+    /**
+     * Replaces the cached lifeline order with that of the current run.
+     *
+     * @param newOrder
+     *            the keys of the lifelines in their current order.
+     */
+    public void setLifelineOrder(final List<Object> newOrder) {
+        lifelineOrder = ImmutableList.copyOf(newOrder);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Cached Nodes
+
+    /**
+     * The layer of a constraint graph node in a previous layout run and its position in the layer,
+     * along with the keys of its predecessors at that time.
+     */
+    public static final class CachedNode {
+
+        /** The layer the node was placed in. */
+        private final int layer;
+        /** The position of the node among the constraint graph nodes in its layer. */
+        private final int position;
+        /** The keys of the node's predecessors. */
+        private final List<Object> predecessors;
+
+        /**
+         * Creates a new cached node.
+         *
+         * @param layer
+         *            the layer the node was placed in.
+         * @param position
+         *            the position of the node among the constraint graph nodes in its layer.
+         * @param predecessors
+         *            the keys of the node's predecessors.
+         */
+        public CachedNode(final int layer, final int position, final List<Object> predecessors) {
+            this.layer = layer;
+            this.position = position;
+            this.predecessors = ImmutableList.copyOf(predecessors);
+        }
+
+        /**
+         * Returns the layer the node was placed in.
+         *
+         * @return the layer.
+         */
+        public int getLayer() {
+            return layer;
+        }
+
+        /**
+         * Returns the position of the node among the constraint graph nodes in its layer.
+         *
+         * @return the position.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Checks whether the node had the given predecessors, in any order.
+         *
+         * @param keys
+         *            the keys of the node's current predecessors.
+         * @return {@code true} if the predecessors are the same.
+         */
+        public boolean hasPredecessors(final List<Object> keys) {
+            return predecessors.size() == keys.size() && predecessors.containsAll(keys);
+        }
+    }
+
+}
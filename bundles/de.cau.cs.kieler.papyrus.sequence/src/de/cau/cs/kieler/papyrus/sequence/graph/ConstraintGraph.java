@@ -0,0 +1,654 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.graph;
+
+import java.util.Arrays;
+
+import org.eclipse.elk.alg.layered.graph.LEdge;
+import org.eclipse.elk.alg.layered.graph.LGraph;
+import org.eclipse.elk.alg.layered.graph.LLabel;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.LPort;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+
+/**
+ * Compact graph of the ordering constraints between messages. Usually, every node represents a
+ * message and every edge requires its source message to be placed above its target message on the
+ * edge's lifeline. Nodes that don't represent a message are dummy nodes used to reserve space.
+ *
+ * <p>
+ * Nodes and edges are identified by consecutive numbers starting at zero, and all their data is
+ * kept in arrays. This makes the graph a lot smaller than an {@link LGraph}, which is only created
+ * through {@link #toLayeredGraph(boolean, boolean)} once a phase needs one.
+ * </p>
+ *
+ * <p>
+ * Edges have a minimum length, which is the number of layers their target has to be placed below
+ * their source at least. It is one for all edges but those leaving a dummy node that reserves more
+ * than one layer. A single such edge replaces a whole chain of dummy nodes.
+ * </p>
+ *
+ * <p>
+ * Each edge has two ends, its source end {@code 2 * edge} and its target end {@code 2 * edge + 1}.
+ * The ends connected to a node are kept in a list in the order they were connected to the node.
+ * That order carries over to the ports of the layered graph.
+ * </p>
+ */
+public final class ConstraintGraph {
+
+    /** Returned instead of a node, edge or end if there is none. */
+    public static final int NONE = -1;
+    /** Initial capacity used if none is given. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** The number of nodes. */
+    private int nodeCount = 0;
+    /** The message represented by each node, or {@code null} for dummy nodes. */
+    private SMessage[] nodeMessages;
+    /** The lifeline each node belongs to, if it only represents one end of its message. */
+    private SLifeline[] nodeLifelines;
+    /** The first end connected to each node. */
+    private int[] firstEnds;
+    /** The last end connected to each node. */
+    private int[] lastEnds;
+
+    /** The number of edges. */
+    private int edgeCount = 0;
+    /** The node each end is connected to. */
+    private int[] endNodes;
+    /** The next end connected to the same node. */
+    private int[] nextEnds;
+    /** The previous end connected to the same node. */
+    private int[] previousEnds;
+    /** The lifeline each edge belongs to, or {@code null}. */
+    private SLifeline[] edgeLifelines;
+    /** The minimum length of each edge. */
+    private int[] edgeLengths;
+
+    /** Whether layered graphs created from this graph are recorded by the messages. */
+    private boolean linksMessages = true;
+
+
+    /**
+     * Creates an empty graph.
+     */
+    public ConstraintGraph() {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty graph with room for the given number of nodes and edges. More can be added.
+     *
+     * @param nodeCapacity
+     *            the expected number of nodes.
+     * @param edgeCapacity
+     *            the expected number of edges.
+     */
+    public ConstraintGraph(final int nodeCapacity, final int edgeCapacity) {
+        int nodes = Math.max(nodeCapacity, 1);
+        int edges = Math.max(edgeCapacity, 1);
+
+        nodeMessages = new SMessage[nodes];
+        nodeLifelines = new SLifeline[nodes];
+        firstEnds = new int[nodes];
+        lastEnds = new int[nodes];
+
+        endNodes = new int[2 * edges];
+        nextEnds = new int[2 * edges];
+        previousEnds = new int[2 * edges];
+        edgeLifelines = new SLifeline[edges];
+        edgeLengths = new int[edges];
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Nodes
+
+    /**
+     * Adds a node.
+     *
+     * @param message
+     *            the message represented by the node, or {@code null} for a dummy node.
+     * @return the new node.
+     */
+    public int addNode(final SMessage message) {
+        if (nodeCount == nodeMessages.length) {
+            int capacity = 2 * nodeCount;
+            nodeMessages = Arrays.copyOf(nodeMessages, capacity);
+            nodeLifelines = Arrays.copyOf(nodeLifelines, capacity);
+            firstEnds = Arrays.copyOf(firstEnds, capacity);
+            lastEnds = Arrays.copyOf(lastEnds, capacity);
+        }
+
+        int node = nodeCount++;
+        nodeMessages[node] = message;
+        firstEnds[node] = NONE;
+        lastEnds[node] = NONE;
+        return node;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the message represented by the given node.
+     *
+     * @param node
+     *            the node.
+     * @return the message, or {@code null} if the node is a dummy node.
+     */
+    public SMessage getMessage(final int node) {
+        return nodeMessages[node];
+    }
+
+    /**
+     * Returns the lifeline the given node belongs to. Only set for nodes that represent just one of
+     * the two ends of their message.
+     *
+     * @param node
+     *            the node.
+     * @return the lifeline, or {@code null}.
+     */
+    public SLifeline getLifeline(final int node) {
+        return nodeLifelines[node];
+    }
+
+    /**
+     * Sets the lifeline the given node belongs to.
+     *
+     * @param node
+     *            the node.
+     * @param lifeline
+     *            the lifeline.
+     */
+    public void setLifeline(final int node, final SLifeline lifeline) {
+        nodeLifelines[node] = lifeline;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Edges
+
+    /**
+     * Adds an edge of length one between the given nodes. Its ends are connected after all ends
+     * already connected to the nodes.
+     *
+     * @param source
+     *            the source node.
+     * @param target
+     *            the target node.
+     * @param lifeline
+     *            the lifeline the edge belongs to, or {@code null}.
+     * @return the new edge.
+     */
+    public int addEdge(final int source, final int target, final SLifeline lifeline) {
+        if (edgeCount == edgeLifelines.length) {
+            int capacity = 2 * edgeCount;
+            edgeLifelines = Arrays.copyOf(edgeLifelines, capacity);
+            edgeLengths = Arrays.copyOf(edgeLengths, capacity);
+            endNodes = Arrays.copyOf(endNodes, 2 * capacity);
+            nextEnds = Arrays.copyOf(nextEnds, 2 * capacity);
+            previousEnds = Arrays.copyOf(previousEnds, 2 * capacity);
+        }
+
+        int edge = edgeCount++;
+        edgeLifelines[edge] = lifeline;
+        edgeLengths[edge] = 1;
+        connect(sourceEnd(edge), source);
+        connect(targetEnd(edge), target);
+        return edge;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the source node of the given edge.
+     *
+     * @param edge
+     *            the edge.
+     * @return the source node.
+     */
+    public int getSource(final int edge) {
+        return endNodes[sourceEnd(edge)];
+    }
+
+    /**
+     * Returns the target node of the given edge.
+     *
+     * @param edge
+     *            the edge.
+     * @return the target node.
+     */
+    public int getTarget(final int edge) {
+        return endNodes[targetEnd(edge)];
+    }
+
+    /**
+     * Returns the lifeline the given edge belongs to.
+     *
+     * @param edge
+     *            the edge.
+     * @return the lifeline, or {@code null} if the edge doesn't belong to a lifeline.
+     */
+    public SLifeline getEdgeLifeline(final int edge) {
+        return edgeLifelines[edge];
+    }
+
+    /**
+     * Returns the minimum length of the given edge, that is the number of layers its target has to
+     * be placed below its source at least.
+     *
+     * @param edge
+     *            the edge.
+     * @return the minimum length, at least one.
+     */
+    public int getMinLength(final int edge) {
+        return edgeLengths[edge];
+    }
+
+    /**
+     * Sets the minimum length of the given edge.
+     *
+     * @param edge
+     *            the edge.
+     * @param length
+     *            the new minimum length, at least one.
+     */
+    public void setMinLength(final int edge, final int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Edges must have a length of at least one.");
+        }
+        edgeLengths[edge] = length;
+    }
+
+    /**
+     * Connects the given edge's source end to another node, after all ends already connected to it.
+     *
+     * @param edge
+     *            the edge.
+     * @param node
+     *            the new source node.
+     */
+    public void setSource(final int edge, final int node) {
+        disconnect(sourceEnd(edge));
+        connect(sourceEnd(edge), node);
+    }
+
+    /**
+     * Connects the given edge's target end to another node, after all ends already connected to it.
+     *
+     * @param edge
+     *            the edge.
+     * @param node
+     *            the new target node.
+     */
+    public void setTarget(final int edge, final int node) {
+        disconnect(targetEnd(edge));
+        connect(targetEnd(edge), node);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Adjacency
+
+    /**
+     * Returns the first outgoing edge of the given node.
+     *
+     * @param node
+     *            the node.
+     * @return the first outgoing edge, or {@link #NONE}.
+     */
+    public int firstOutgoing(final int node) {
+        return edgeOfNextEnd(firstEnds[node], true);
+    }
+
+    /**
+     * Returns the outgoing edge of the same node that follows the given one.
+     *
+     * @param edge
+     *            an outgoing edge.
+     * @return the next outgoing edge, or {@link #NONE}.
+     */
+    public int nextOutgoing(final int edge) {
+        return edgeOfNextEnd(nextEnds[sourceEnd(edge)], true);
+    }
+
+    /**
+     * Returns the first incoming edge of the given node.
+     *
+     * @param node
+     *            the node.
+     * @return the first incoming edge, or {@link #NONE}.
+     */
+    public int firstIncoming(final int node) {
+        return edgeOfNextEnd(firstEnds[node], false);
+    }
+
+    /**
+     * Returns the incoming edge of the same node that follows the given one.
+     *
+     * @param edge
+     *            an incoming edge.
+     * @return the next incoming edge, or {@link #NONE}.
+     */
+    public int nextIncoming(final int edge) {
+        return edgeOfNextEnd(nextEnds[targetEnd(edge)], false);
+    }
+
+    /**
+     * Returns the first end connected to the given node.
+     *
+     * @param node
+     *            the node.
+     * @return the first end, or {@link #NONE}.
+     */
+    public int firstEnd(final int node) {
+        return firstEnds[node];
+    }
+
+    /**
+     * Returns the end connected to the same node that follows the given one.
+     *
+     * @param end
+     *            an end.
+     * @return the next end, or {@link #NONE}.
+     */
+    public int nextEnd(final int end) {
+        return nextEnds[end];
+    }
+
+    /**
+     * Returns the source end of the given edge.
+     *
+     * @param edge
+     *            the edge.
+     * @return the source end.
+     */
+    public static int sourceEnd(final int edge) {
+        return 2 * edge;
+    }
+
+    /**
+     * Returns the target end of the given edge.
+     *
+     * @param edge
+     *            the edge.
+     * @return the target end.
+     */
+    public static int targetEnd(final int edge) {
+        return 2 * edge + 1;
+    }
+
+    /**
+     * Returns the edge the given end belongs to.
+     *
+     * @param end
+     *            the end.
+     * @return the edge.
+     */
+    public static int edgeOf(final int end) {
+        return end >> 1;
+    }
+
+    /**
+     * Checks whether the given end is the source end of its edge.
+     *
+     * @param end
+     *            the end.
+     * @return {@code true} for source ends, {@code false} for target ends.
+     */
+    public static boolean isSourceEnd(final int end) {
+        return (end & 1) == 0;
+    }
+
+    /**
+     * Starting with the given end, finds the first end of the given kind and returns its edge.
+     */
+    private int edgeOfNextEnd(final int end, final boolean source) {
+        int current = end;
+        while (current != NONE && isSourceEnd(current) != source) {
+            current = nextEnds[current];
+        }
+        return current == NONE ? NONE : edgeOf(current);
+    }
+
+    /**
+     * Appends the given end to the given node's list of ends.
+     */
+    private void connect(final int end, final int node) {
+        endNodes[end] = node;
+        nextEnds[end] = NONE;
+        previousEnds[end] = lastEnds[node];
+
+        if (lastEnds[node] == NONE) {
+            firstEnds[node] = end;
+        } else {
+            nextEnds[lastEnds[node]] = end;
+        }
+        lastEnds[node] = end;
+    }
+
+    /**
+     * Removes the given end from its node's list of ends.
+     */
+    private void disconnect(final int end) {
+        int node = endNodes[end];
+
+        if (previousEnds[end] == NONE) {
+            firstEnds[node] = nextEnds[end];
+        } else {
+            nextEnds[previousEnds[end]] = nextEnds[end];
+        }
+
+        if (nextEnds[end] == NONE) {
+            lastEnds[node] = previousEnds[end];
+        } else {
+            previousEnds[nextEnds[end]] = previousEnds[end];
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Subgraphs
+
+    /**
+     * Creates a graph of the given nodes and the edges between them, which keep their lifeline and
+     * minimum length. Node {@code i} of the new graph corresponds to {@code nodes[i]} of this
+     * graph. Layered graphs created from the new graph are not recorded by the messages, since
+     * their nodes are not the messages' constraint nodes. This leaves the messages untouched, so
+     * subgraphs can be layered concurrently.
+     *
+     * @param nodes
+     *            the nodes to include, each at most once.
+     * @return the new graph.
+     */
+    public ConstraintGraph subgraph(final int[] nodes) {
+        int[] positions = new int[nodeCount];
+        for (int i = 0; i < nodes.length; i++) {
+            positions[nodes[i]] = i;
+        }
+        return subgraph(nodes, positions);
+    }
+
+    /**
+     * Creates a graph of the given nodes like {@link #subgraph(int[])}, given where each node is
+     * found in the array of nodes. Only the positions of the given nodes are read, so one array
+     * can describe several disjoint sets of nodes and be used to create their subgraphs
+     * concurrently.
+     *
+     * @param nodes
+     *            the nodes to include, each at most once.
+     * @param positions
+     *            array of {@link #getNodeCount()} entries that holds the index of each of the given
+     *            nodes in {@code nodes}. It is not modified.
+     * @return the new graph.
+     */
+    public ConstraintGraph subgraph(final int[] nodes, final int[] positions) {
+        ConstraintGraph subgraph = new ConstraintGraph(nodes.length, nodes.length);
+        subgraph.linksMessages = false;
+
+        for (int node : nodes) {
+            int subnode = subgraph.addNode(nodeMessages[node]);
+            subgraph.nodeLifelines[subnode] = nodeLifelines[node];
+        }
+
+        for (int subnode = 0; subnode < nodes.length; subnode++) {
+            int node = nodes[subnode];
+            for (int edge = firstOutgoing(node); edge != NONE; edge = nextOutgoing(edge)) {
+                // Nodes not in the subgraph may have any position
+                int target = getTarget(edge);
+                int subtarget = positions[target];
+                if (subtarget >= 0 && subtarget < nodes.length && nodes[subtarget] == target) {
+                    int subedge = subgraph.addEdge(subnode, subtarget, edgeLifelines[edge]);
+                    subgraph.edgeLengths[subedge] = edgeLengths[edge];
+                }
+            }
+        }
+
+        return subgraph;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Conversion
+
+    /**
+     * Creates a layered graph with the same structure, for phases that need one. Nodes are created
+     * in the order of their numbers and every edge end becomes a port of its own. Message nodes are
+     * recorded as the messages' {@link InternalSequenceProperties#LAYERED_NODE} unless this is a
+     * {@link #subgraph(int[]) subgraph}, and every layered node knows its
+     * {@link InternalSequenceProperties#CONSTRAINT_NODE}. The layered graph is not kept in sync
+     * with this graph.
+     *
+     * <p>
+     * Layered graphs cannot express minimum edge lengths. Layerers that work on the layered graph
+     * need longer edges to be expanded into chains of dummy nodes, which are created right after
+     * the edge's source and don't have a constraint node. Other layerers reserve the layers of
+     * longer edges themselves.
+     * </p>
+     *
+     * @param debugLabels
+     *            whether to label every node with its number, which helps when debugging.
+     * @param expandLongEdges
+     *            whether to expand edges longer than one into chains of dummy nodes.
+     * @return the layered graph.
+     */
+    public LGraph toLayeredGraph(final boolean debugLabels, final boolean expandLongEdges) {
+        LGraph lgraph = new LGraph();
+        LPort[] ports = new LPort[2 * edgeCount];
+        // The ports of the dummy nodes each expanded edge passes through, in pairs of in and out
+        LPort[][] chains = expandLongEdges ? new LPort[edgeCount][] : null;
+
+        for (int node = 0; node < nodeCount; node++) {
+            LNode lnode = new LNode(lgraph);
+            lnode.setProperty(InternalSequenceProperties.CONSTRAINT_NODE, node);
+            if (debugLabels) {
+                lnode.getLabels().add(new LLabel("Node" + node));
+            }
+
+            SMessage message = nodeMessages[node];
+            if (message != null) {
+                lnode.setProperty(InternalProperties.ORIGIN, message);
+                if (linksMessages && message.getProperty(
+                        InternalSequenceProperties.CONSTRAINT_NODE) == node) {
+                    message.setProperty(InternalSequenceProperties.LAYERED_NODE, lnode);
+                }
+            }
+            if (nodeLifelines[node] != null) {
+                lnode.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE,
+                        nodeLifelines[node]);
+            }
+            lgraph.getLayerlessNodes().add(lnode);
+
+            for (int end = firstEnds[node]; end != NONE; end = nextEnds[end]) {
+                LPort port = new LPort();
+                port.setNode(lnode);
+                ports[end] = port;
+            }
+
+            if (expandLongEdges) {
+                for (int end = firstEnds[node]; end != NONE; end = nextEnds[end]) {
+                    int edge = edgeOf(end);
+                    if (isSourceEnd(end) && edgeLengths[edge] > 1) {
+                        chains[edge] = createChain(lgraph, edgeLengths[edge] - 1);
+                    }
+                }
+            }
+        }
+
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (chains == null || chains[edge] == null) {
+                createEdge(ports[sourceEnd(edge)], ports[targetEnd(edge)], edgeLifelines[edge]);
+            } else {
+                LPort[] chain = chains[edge];
+                createEdge(ports[sourceEnd(edge)], chain[0], edgeLifelines[edge]);
+                for (int i = 1; i < chain.length - 1; i += 2) {
+                    createEdge(chain[i], chain[i + 1], edgeLifelines[edge]);
+                }
+                createEdge(chain[chain.length - 1], ports[targetEnd(edge)], edgeLifelines[edge]);
+            }
+        }
+
+        return lgraph;
+    }
+
+    /**
+     * Creates the given number of dummy nodes, each with an incoming and an outgoing port, and
+     * returns their ports.
+     */
+    private static LPort[] createChain(final LGraph lgraph, final int length) {
+        LPort[] chain = new LPort[2 * length];
+        for (int i = 0; i < length; i++) {
+            LNode lnode = new LNode(lgraph);
+            lgraph.getLayerlessNodes().add(lnode);
+
+            for (int j = 2 * i; j < 2 * i + 2; j++) {
+                chain[j] = new LPort();
+                chain[j].setNode(lnode);
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Creates a layered edge between the given ports.
+     */
+    private static void createEdge(final LPort source, final LPort target,
+            final SLifeline lifeline) {
+
+        LEdge ledge = new LEdge();
+        ledge.setSource(source);
+        ledge.setTarget(target);
+
+        if (lifeline != null) {
+            ledge.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE, lifeline);
+        }
+    }
+
+}
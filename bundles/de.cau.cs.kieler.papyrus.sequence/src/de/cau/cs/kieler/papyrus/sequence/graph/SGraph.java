@@ -86,6 +86,26 @@ public final class SGraph extends SGraphElement {
         lifeline.setGraph(null);
     }
 
+    /**
+     * Sorts the messages that were appended to the lifelines through
+     * {@link SLifeline#appendMessage(SMessage)}. This includes the dummy lifelines of lost and found
+     * messages, which are not part of the graph. Importers call this once after adding all messages,
+     * since the lists of messages can't be read before.
+     */
+    public void sortMessages() {
+        for (SLifeline lifeline : lifelines) {
+            lifeline.sortMessages();
+        }
+
+        // Dummy lifelines can only be reached through their messages
+        for (SLifeline lifeline : lifelines) {
+            for (SMessage message : lifeline.getMessages()) {
+                message.getSource().sortMessages();
+                message.getTarget().sortMessages();
+            }
+        }
+    }
+
     /**
      * This is not needed by the layout algorithm. This debug functionality simply prints the names
      * of the lifelines. 
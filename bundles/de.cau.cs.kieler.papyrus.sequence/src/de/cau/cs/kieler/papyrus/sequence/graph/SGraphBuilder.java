@@ -0,0 +1,334 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.graph;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
+
+/**
+ * Builds an SGraph and its constraint graph from a stream of trace events, without an ElkGraph to
+ * import from. Events have to be reported in the order they happened. Every message is placed below
+ * all messages reported before it, so the order of the events is the order of the messages on each
+ * lifeline.
+ *
+ * <p>
+ * The constraint graph is extended with every message, so neither graph has to be traversed again
+ * once the trace has been read. The
+ * {@link de.cau.cs.kieler.papyrus.sequence.SequenceDiagramLayoutProvider} lays out the results
+ * without importing or exporting an ElkGraph and leaves the coordinates in the SGraph elements,
+ * the executions and the areas.
+ * </p>
+ */
+public final class SGraphBuilder {
+
+    /** The graph being built. */
+    private final SGraph sgraph = new SGraph();
+    /** The constraint graph being built. */
+    private final ConstraintGraph constraintGraph = new ConstraintGraph();
+    /** The areas of the graph, in the order they were entered in. */
+    private final List<SequenceArea> areas = Lists.newArrayList();
+    /** The areas that have been entered but not exited yet, innermost last. */
+    private final List<SequenceArea> openAreas = Lists.newArrayList();
+    /** Exited areas without messages, which are placed above the next message. */
+    private final List<SequenceArea> emptyAreas = Lists.newArrayList();
+    /** Dummy lifelines of messages leaving the interaction, which are placed right of it. */
+    private final List<SLifeline> rightDummies = Lists.newArrayList();
+    /** The executions that have been started but not ended yet on each lifeline. */
+    private final SetMultimap<SLifeline, SequenceExecution> openExecutions =
+            LinkedHashMultimap.create();
+    /** The position of the next message. */
+    private double nextYPos = 0;
+
+
+    /**
+     * Creates a builder for an empty graph.
+     */
+    public SGraphBuilder() {
+        sgraph.setProperty(SequenceDiagramOptions.AREAS, areas);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Results
+
+    /**
+     * Returns the graph built from the events reported so far. Messages leaving the interaction are
+     * placed right of all lifelines created so far, so the graph has to be obtained again if more
+     * lifelines are created.
+     *
+     * @return the graph.
+     */
+    public SGraph getGraph() {
+        // Lifelines may be created after such a message, so its slot is only known now
+        int rightSlot = sgraph.getLifelines().size() + 1;
+        for (SLifeline dummy : rightDummies) {
+            dummy.setHorizontalSlot(rightSlot);
+        }
+        return sgraph;
+    }
+
+    /**
+     * Returns the constraint graph of the messages reported so far.
+     *
+     * @return the constraint graph.
+     */
+    public ConstraintGraph getConstraintGraph() {
+        return constraintGraph;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Events
+
+    /**
+     * Reports the creation of a lifeline. Lifelines are ordered by their creation until lifeline
+     * sorting decides otherwise.
+     *
+     * @param name
+     *            the lifeline's name.
+     * @param width
+     *            the lifeline's width.
+     * @return the new lifeline.
+     */
+    public SLifeline createLifeline(final String name, final double width) {
+        SLifeline lifeline = new SLifeline();
+        lifeline.setName(name);
+        lifeline.getPosition().x = sgraph.getLifelines().size();
+        lifeline.getSize().x = width;
+        lifeline.setProperty(SequenceDiagramOptions.EXECUTIONS,
+                Lists.<SequenceExecution>newArrayList());
+
+        sgraph.addLifeline(lifeline);
+        return lifeline;
+    }
+
+    /**
+     * Reports a message. A message without a source comes from outside the interaction, such as a
+     * found message, and a message without a target leaves it, such as a lost message. Messages
+     * without a source or a target get a dummy lifeline in its place, just like when they are
+     * imported from an ElkGraph.
+     *
+     * @param source
+     *            the lifeline that sends the message, or {@code null}.
+     * @param target
+     *            the lifeline that receives the message, or {@code null}.
+     * @param type
+     *            the type of the message, or {@code null}.
+     * @param labelWidth
+     *            the width of the message's label.
+     * @return the new message.
+     * @throws IllegalArgumentException
+     *             if a lifeline was not created by this builder, or if neither is given.
+     */
+    public SMessage sendMessage(final SLifeline source, final SLifeline target,
+            final MessageType type, final double labelWidth) {
+
+        if (source == null && target == null) {
+            throw new IllegalArgumentException("A message needs a source or a target lifeline");
+        }
+        checkLifeline(source);
+        checkLifeline(target);
+
+        // Messages leaving or entering the interaction are drawn to the right or left of it
+        SLifeline sourceLL = source;
+        SLifeline targetLL = target;
+        if (targetLL == null) {
+            targetLL = createDummyLifeline();
+            if (type != MessageType.LOST) {
+                rightDummies.add(targetLL);
+            }
+        } else if (sourceLL == null) {
+            sourceLL = createDummyLifeline();
+            if (type != MessageType.FOUND) {
+                sourceLL.setHorizontalSlot(-1);
+            }
+        }
+
+        SMessage message = new SMessage(sourceLL, targetLL);
+        message.setSourceYPos(nextYPos);
+        message.setTargetYPos(nextYPos);
+        message.setLabelWidth(labelWidth);
+        if (type != null) {
+            message.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, type);
+        }
+        nextYPos++;
+
+        int node = constraintGraph.addNode(message);
+        message.setProperty(InternalSequenceProperties.CONSTRAINT_NODE, node);
+
+        addMessageEnd(sourceLL, message, node);
+        addMessageEnd(targetLL, message, node);
+
+        // The message belongs to all open areas and follows the empty ones exited before it
+        for (SequenceArea area : openAreas) {
+            area.getMessages().add(message);
+            area.getLifelines().add(sourceLL);
+            area.getLifelines().add(targetLL);
+        }
+        for (SequenceArea area : emptyAreas) {
+            area.setNextMessage(message);
+        }
+        emptyAreas.clear();
+
+        return message;
+    }
+
+    /**
+     * Reports the start of an execution on a lifeline. Messages sent or received by the lifeline
+     * until the execution ends are attached to it.
+     *
+     * @param lifeline
+     *            the lifeline.
+     * @param type
+     *            the type of the execution.
+     * @return the new execution.
+     * @throws IllegalArgumentException
+     *             if the lifeline was not created by this builder.
+     */
+    public SequenceExecution startExecution(final SLifeline lifeline,
+            final SequenceExecutionType type) {
+
+        if (lifeline == null) {
+            throw new IllegalArgumentException("An execution needs a lifeline");
+        }
+        checkLifeline(lifeline);
+
+        SequenceExecution execution = new SequenceExecution(null);
+        execution.setType(type);
+        lifeline.getProperty(SequenceDiagramOptions.EXECUTIONS).add(execution);
+        openExecutions.put(lifeline, execution);
+        return execution;
+    }
+
+    /**
+     * Reports the end of an execution.
+     *
+     * @param lifeline
+     *            the lifeline the execution was started on.
+     * @param execution
+     *            the execution.
+     * @throws IllegalArgumentException
+     *             if the execution is not running on the lifeline.
+     */
+    public void endExecution(final SLifeline lifeline, final SequenceExecution execution) {
+        if (!openExecutions.remove(lifeline, execution)) {
+            throw new IllegalArgumentException("The execution is not running on the lifeline");
+        }
+    }
+
+    /**
+     * Reports that a combined fragment or interaction use is entered. Messages reported until the
+     * area is exited belong to it, and so do their lifelines. An area entered while another one is
+     * open is contained in the other one.
+     *
+     * @param lifelines
+     *            the lifelines the area covers in any case, even if it has no messages.
+     * @return the new area.
+     * @throws IllegalArgumentException
+     *             if a lifeline was not created by this builder.
+     */
+    public SequenceArea enterFragment(final Collection<SLifeline> lifelines) {
+        SequenceArea area = new SequenceArea(null);
+        for (SLifeline lifeline : lifelines) {
+            checkLifeline(lifeline);
+            area.getLifelines().add(lifeline);
+        }
+
+        if (!openAreas.isEmpty()) {
+            openAreas.get(openAreas.size() - 1).getContainedAreas().add(area);
+        }
+        areas.add(area);
+        openAreas.add(area);
+        return area;
+    }
+
+    /**
+     * Reports that an area is exited. An area without messages is placed above the next message.
+     *
+     * @param area
+     *            the area.
+     * @throws IllegalArgumentException
+     *             if the area is not open.
+     */
+    public void exitFragment(final SequenceArea area) {
+        if (!openAreas.remove(area)) {
+            throw new IllegalArgumentException(
+                    "The area has not been entered or was exited already");
+        }
+        if (area.getMessages().isEmpty()) {
+            emptyAreas.add(area);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Checks that the given lifeline, if any, was created by this builder.
+     */
+    private void checkLifeline(final SLifeline lifeline) {
+        if (lifeline != null && (lifeline.getGraph() != sgraph || lifeline.isDummy())) {
+            throw new IllegalArgumentException("Unknown lifeline: " + lifeline.getName());
+        }
+    }
+
+    /**
+     * Creates a dummy lifeline for a message that leaves or enters the interaction.
+     */
+    private SLifeline createDummyLifeline() {
+        SLifeline dummy = new SLifeline();
+        dummy.setDummy(true);
+        dummy.setGraph(sgraph);
+        return dummy;
+    }
+
+    /**
+     * Adds a message to one of its lifelines. Unless the lifeline is a dummy, the message is
+     * ordered below the lifeline's previous message and attached to the lifeline's running
+     * executions.
+     */
+    private void addMessageEnd(final SLifeline lifeline, final SMessage message, final int node) {
+        if (!lifeline.isDummy()) {
+            List<SMessage> messages = lifeline.getMessages();
+            SMessage previous = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+
+            // The second end of a self loop is represented by the node of the first one
+            if (previous != message) {
+                if (previous != null) {
+                    constraintGraph.addEdge(
+                            previous.getProperty(InternalSequenceProperties.CONSTRAINT_NODE),
+                            node, lifeline);
+                }
+                for (SequenceExecution execution : openExecutions.get(lifeline)) {
+                    execution.addMessage(message);
+                }
+            }
+        }
+
+        lifeline.addMessage(message);
+    }
+
+}
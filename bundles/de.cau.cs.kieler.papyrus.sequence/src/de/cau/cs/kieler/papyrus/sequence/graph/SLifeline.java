@@ -13,13 +13,12 @@
  */
 package de.cau.cs.kieler.papyrus.sequence.graph;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.eclipse.elk.core.math.KVector;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 /**
@@ -51,9 +50,18 @@ public final class SLifeline extends SGraphElement implements Comparable<SLifeli
     /**
      * The list of connected messages. A lifeline may be the source or the target of a message. Both
      * kind of messages, incoming and outgoing, are collected in this list. This list is sorted
-     * top-down according to the corresponding connection point of the message.
+     * top-down according to the corresponding connection point of the message. Self loops are
+     * contained twice.
      */
     private List<SMessage> messages = Lists.newArrayList();
+    /** The outgoing messages, including self loops, sorted like {@link #messages}. */
+    private List<SMessage> outgoingMessages = Lists.newArrayList();
+    /** The incoming messages, including self loops, sorted like {@link #messages}. */
+    private List<SMessage> incomingMessages = Lists.newArrayList();
+    /** The self loops, sorted like {@link #messages}. */
+    private List<SMessage> selfLoops = Lists.newArrayList();
+    /** Whether messages were appended since the lists were last sorted. */
+    private boolean unsorted = false;
     /** The list of comments that are drawn near to this lifeline. */
     private List<SComment> comments = Lists.newArrayList(); // TODO: Convert to a Set?
     
@@ -98,123 +106,245 @@ public final class SLifeline extends SGraphElement implements Comparable<SLifeli
     /**
      * Add a message to the list of messages. The list of messages is sorted according to their
      * vertical connection point to the lifeline. This method requires that the message's source /
-     * target has already been set which is normally done by the SMessage's constructor.
+     * target has already been set which is normally done by the SMessage's constructor. Self loops
+     * are added twice, once for each of their ends.
      * 
      * @param msg
      *            the message to add
+     * @see #appendMessage(SMessage)
      */
     public void addMessage(final SMessage msg) {
+        sortMessages();
+        
         // Get the position of the message at this lifeline
-        double messageYPos = msg.getSource() == this ? msg.getSourceYPos() : msg.getTargetYPos();
+        double messageYPos = yPosOf(msg);
         
         // Insert the message just before the first message with a greater y position
-        for (int i = 0; i < messages.size(); i++) {
-            // Get the position of the current message in the list
-            SMessage currMsg = messages.get(i);
-            double currYPos =
-                    currMsg.getSource() == this ? currMsg.getSourceYPos() : currMsg.getTargetYPos();
-            
-            // Since messages are already sorted, the place of the first message with greater
-            // position is the right place for the message.
-            if (messageYPos < currYPos) {
-                messages.add(i, msg);
-                return;
+        int index = insertionIndex(messages, messageYPos);
+        
+        // The second end of a self loop was inserted at the same position before and is already
+        // part of the other lists
+        boolean secondEnd = false;
+        if (msg.getSource() == msg.getTarget()) {
+            for (int i = index - 1; i >= 0 && yPosOf(messages.get(i)) == messageYPos; i--) {
+                if (messages.get(i) == msg) {
+                    secondEnd = true;
+                    break;
+                }
             }
         }
         
-        // Add the message at the end if none of the existing messages has greater position
+        messages.add(index, msg);
+        
+        if (!secondEnd) {
+            if (msg.getSource() == this) {
+                outgoingMessages.add(insertionIndex(outgoingMessages, messageYPos), msg);
+            }
+            if (msg.getTarget() == this) {
+                incomingMessages.add(insertionIndex(incomingMessages, messageYPos), msg);
+            }
+            if (msg.getSource() == msg.getTarget()) {
+                selfLoops.add(insertionIndex(selfLoops, messageYPos), msg);
+            }
+        }
+    }
+    
+    /**
+     * Add a message to the end of the list of messages without keeping the list sorted. This is
+     * faster than {@link #addMessage(SMessage)} when adding many messages that are not ordered by
+     * their position. Once all messages are added, {@link #sortMessages()} has to be called before
+     * the lists of messages are read again. The result is the same as if all messages had been
+     * added through {@link #addMessage(SMessage)} in the same order.
+     * 
+     * @param msg
+     *            the message to add
+     */
+    public void appendMessage(final SMessage msg) {
         messages.add(msg);
+        unsorted = true;
     }
-
+    
     /**
-     * Get the list of outgoing messages of the lifeline. The list is sorted top-down according to
-     * the vertical position of the connection points of the messages.
+     * Sorts the messages added through {@link #appendMessage(SMessage)} into the lists of messages.
+     * Does nothing if there are no such messages. The lists of messages can't be read while there
+     * are unsorted messages, so that reading them never modifies them.
      * 
-     * @return an iterable of outgoing messages
+     * @see SGraph#sortMessages()
      */
-    public Iterable<SMessage> getOutgoingMessages() {
-        final SLifeline lifeline = this;
-        return Iterables.filter(messages, new Predicate<SMessage>() {
-            private HashSet<SMessage> selfloops = new HashSet<SMessage>();
-            public boolean apply(final SMessage message) {
-                // Workaround for selfloop messages that are returned twice if just checking the source
-                if (message.getSource() == message.getTarget()) {
-                    if (selfloops.contains(message)) {
-                        return false;
-                    } else {
-                        selfloops.add(message);
-                        return true;
-                    }
-                }
-                return message.getSource() == lifeline;
+    public void sortMessages() {
+        if (!unsorted) {
+            return;
+        }
+        unsorted = false;
+        
+        // A stable sort yields the same order as inserting the messages one after another
+        Collections.sort(messages, new Comparator<SMessage>() {
+            public int compare(final SMessage msg1, final SMessage msg2) {
+                double yPos1 = yPosOf(msg1);
+                double yPos2 = yPosOf(msg2);
+                return yPos1 < yPos2 ? -1 : (yPos1 > yPos2 ? 1 : 0);
             }
         });
+        
+        // Rebuild the other lists from scratch
+        outgoingMessages = Lists.newArrayListWithCapacity(messages.size());
+        incomingMessages = Lists.newArrayListWithCapacity(messages.size());
+        selfLoops = Lists.newArrayList();
+        
+        for (SMessage msg : messages) {
+            if (msg.getSource() == msg.getTarget()) {
+                // Both ends of a self loop have the same position, so the other one may be done
+                if (selfLoopAlreadyAdded(msg)) {
+                    continue;
+                }
+                selfLoops.add(msg);
+            }
+            if (msg.getSource() == this) {
+                outgoingMessages.add(msg);
+            }
+            if (msg.getTarget() == this) {
+                incomingMessages.add(msg);
+            }
+        }
+    }
+    
+    /**
+     * Fails if messages were appended since the lists of messages were last sorted.
+     * 
+     * @throws IllegalStateException
+     *             if the lists are not sorted
+     */
+    private void checkSorted() {
+        if (unsorted) {
+            throw new IllegalStateException("Messages of lifeline " + name
+                    + " were appended but not sorted yet.");
+        }
+    }
+    
+    /**
+     * Checks whether the given self loop is among the last self loops in the list, which are the
+     * ones with the same position.
+     * 
+     * @param msg
+     *            the self loop
+     * @return {@code true} if the self loop has already been added
+     */
+    private boolean selfLoopAlreadyAdded(final SMessage msg) {
+        double yPos = yPosOf(msg);
+        for (int i = selfLoops.size() - 1; i >= 0 && yPosOf(selfLoops.get(i)) == yPos; i--) {
+            if (selfLoops.get(i) == msg) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the vertical position at which the given message is connected to this lifeline.
+     * 
+     * @param msg
+     *            the message
+     * @return the message's source position if it leaves this lifeline, its target position
+     *         otherwise
+     */
+    private double yPosOf(final SMessage msg) {
+        return msg.getSource() == this ? msg.getSourceYPos() : msg.getTargetYPos();
+    }
+    
+    /**
+     * Finds the index at which a message with the given position has to be inserted into the given
+     * sorted list. That is the index of the first message with a greater position.
+     * 
+     * @param list
+     *            a list of messages sorted by their position at this lifeline
+     * @param yPos
+     *            the position of the message to insert
+     * @return the insertion index
+     */
+    private int insertionIndex(final List<SMessage> list, final double yPos) {
+        // Messages are usually added top-down, so check the end first
+        int high = list.size();
+        if (high == 0 || yPosOf(list.get(high - 1)) <= yPos) {
+            return high;
+        }
+        
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (yPosOf(list.get(mid)) <= yPos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     /**
-     * Get the number of outgoing messages.
+     * Get the list of outgoing messages of the lifeline. The list is sorted top-down according to
+     * the vertical position of the connection points of the messages. Self loops are contained
+     * once.
+     * 
+     * @return an unmodifiable list of outgoing messages
+     */
+    public List<SMessage> getOutgoingMessages() {
+        checkSorted();
+        return Collections.unmodifiableList(outgoingMessages);
+    }
+
+    /**
+     * Get the number of outgoing messages, counting self loops once.
      * 
      * @return the number of outgoing messages
      */
     public int getNumberOfOutgoingMessages() {
-        int ret = 0;
-        for (SMessage message : messages) {
-            if (message.getSource() == this) {
-                ret++;
-            }
-        }
-        return ret;
+        checkSorted();
+        return outgoingMessages.size();
     }
 
     /**
      * Get the list of incoming messages of the lifeline. The list is sorted top-down according to
-     * the vertical position of the connection points of the messages.
+     * the vertical position of the connection points of the messages. Self loops are contained
+     * once.
      * 
-     * @return an iterable of incoming messages
+     * @return an unmodifiable list of incoming messages
      */
-    public Iterable<SMessage> getIncomingMessages() {
-        final SLifeline lifeline = this;
-        return Iterables.filter(messages, new Predicate<SMessage>() {
-            private HashSet<SMessage> selfloops = new HashSet<SMessage>();
-            public boolean apply(final SMessage message) {
-                // Workaround for selfloop messages that are returned twice if just checking the target
-                if (message.getSource() == message.getTarget()) {
-                    if (selfloops.contains(message)) {
-                        return false;
-                    } else {
-                        selfloops.add(message);
-                        return true;
-                    }
-                }
-                return message.getTarget() == lifeline;
-            }
-        });
+    public List<SMessage> getIncomingMessages() {
+        checkSorted();
+        return Collections.unmodifiableList(incomingMessages);
     }
 
     /**
-     * Get the number of incoming messages. The list is sorted top-down according to the vertical
-     * position of the connection points of the messages.
+     * Get the number of incoming messages, counting self loops once.
      * 
      * @return the number of incoming messages
      */
     public int getNumberOfIncomingMessages() {
-        int ret = 0;
-        for (SMessage message : messages) {
-            if (message.getTarget() == this) {
-                ret++;
-            }
-        }
-        return ret;
+        checkSorted();
+        return incomingMessages.size();
+    }
+
+    /**
+     * Get the list of self loops of the lifeline. The list is sorted top-down according to the
+     * vertical position of the connection points of the messages.
+     * 
+     * @return an unmodifiable list of self loops
+     */
+    public List<SMessage> getSelfLoops() {
+        checkSorted();
+        return Collections.unmodifiableList(selfLoops);
     }
 
     /**
      * Get the list of all messages connected to the lifeline. The list is sorted top-down according
-     * to the vertical position of the connection points of the messages.
+     * to the vertical position of the connection points of the messages. Use
+     * {@link #addMessage(SMessage)} or {@link #appendMessage(SMessage)} to add messages.
      * 
-     * @return the list of messages
+     * @return an unmodifiable list of messages
      */
     public List<SMessage> getMessages() {
-        return messages;
+        checkSorted();
+        return Collections.unmodifiableList(messages);
     }
 
     /**
@@ -0,0 +1,274 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p0import;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.elk.core.math.KVector;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+
+/**
+ * Index over the rectangles of the areas of a diagram and the horizontal centers of its lifelines,
+ * built once per import. Answers which areas contain a message and which lifelines an area spans
+ * without testing every area or every lifeline.
+ *
+ * <p>
+ * Areas are sorted by their top border. A segment tree over that order keeps the lowest bottom
+ * border of each range of areas, so a query only descends into ranges that contain an area whose
+ * vertical extent includes the query point. Lifelines are sorted by their center. Borders count as
+ * part of an area.
+ * </p>
+ */
+final class AreaIndex {
+
+    /** The areas, in the order they were given in. */
+    private final List<SequenceArea> areas;
+    /** Indices of the areas, sorted by top border. */
+    private final Integer[] areasByTop;
+    /** Top border of each area in {@link #areasByTop} order. */
+    private final double[] tops;
+    /** Segment tree of the lowest bottom border of the areas in {@link #areasByTop} order. */
+    private final double[] bottoms;
+    /** The lifelines, in the order they were given in. */
+    private final List<SLifeline> lifelines;
+    /** Indices of the lifelines, sorted by horizontal center. */
+    private final Integer[] lifelinesByCenter;
+    /** Horizontal center of each lifeline in {@link #lifelinesByCenter} order. */
+    private final double[] centers;
+
+
+    /**
+     * Creates an index over the given areas and lifelines, whose positions and sizes must not change
+     * while the index is in use.
+     *
+     * @param areas
+     *            the areas of the diagram.
+     * @param lifelines
+     *            the lifelines of the diagram.
+     */
+    AreaIndex(final List<SequenceArea> areas, final List<SLifeline> lifelines) {
+        this.areas = areas;
+        this.lifelines = lifelines;
+
+        // Areas by top border, with the bottom borders in a segment tree
+        int areaCount = areas.size();
+        areasByTop = sortedIndices(areaCount, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer area1, final Integer area2) {
+                return Double.compare(
+                        areas.get(area1).getPosition().y, areas.get(area2).getPosition().y);
+            }
+        });
+        tops = new double[areaCount];
+        bottoms = new double[2 * areaCount];
+        for (int i = 0; i < areaCount; i++) {
+            SequenceArea area = areas.get(areasByTop[i]);
+            tops[i] = area.getPosition().y;
+            bottoms[areaCount + i] = area.getPosition().y + area.getSize().y;
+        }
+        for (int i = areaCount - 1; i > 0; i--) {
+            bottoms[i] = Math.max(bottoms[2 * i], bottoms[2 * i + 1]);
+        }
+
+        // Lifelines by center
+        lifelinesByCenter = sortedIndices(lifelines.size(), new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer lifeline1, final Integer lifeline2) {
+                return Double.compare(center(lifelines.get(lifeline1)),
+                        center(lifelines.get(lifeline2)));
+            }
+        });
+        centers = new double[lifelines.size()];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = center(lifelines.get(lifelinesByCenter[i]));
+        }
+    }
+
+    /**
+     * Returns the areas that contain both given points.
+     *
+     * @param point1
+     *            the first point, usually where a message starts.
+     * @param point2
+     *            the second point, usually where a message ends.
+     * @return the areas containing both points, in the order they were given in.
+     */
+    List<SequenceArea> areasContaining(final KVector point1, final KVector point2) {
+        double upperY = Math.min(point1.y, point2.y);
+        double lowerY = Math.max(point1.y, point2.y);
+
+        // Only areas whose top border lies above the upper point can contain it
+        int candidates = upperBound(tops, upperY);
+
+        List<Integer> found = Lists.newArrayList();
+        collectAreas(0, areasByTop.length, candidates, lowerY, found);
+
+        List<SequenceArea> result = Lists.newArrayListWithCapacity(found.size());
+        if (!found.isEmpty()) {
+            Integer[] indices = found.toArray(new Integer[found.size()]);
+            Arrays.sort(indices);
+            for (int index : indices) {
+                SequenceArea area = areas.get(index);
+                if (contains(area, point1) && contains(area, point2)) {
+                    result.add(area);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lifelines whose center lies horizontally within the given area.
+     *
+     * @param area
+     *            the area.
+     * @return the lifelines spanned by the area, in the order they were given in.
+     */
+    List<SLifeline> lifelinesWithin(final SequenceArea area) {
+        double leftEnd = area.getPosition().x;
+        double rightEnd = area.getPosition().x + area.getSize().x;
+
+        int first = lowerBound(centers, leftEnd);
+        int last = upperBound(centers, rightEnd);
+        if (first >= last) {
+            return Lists.newArrayList();
+        }
+
+        Integer[] indices = Arrays.copyOfRange(lifelinesByCenter, first, last);
+        Arrays.sort(indices);
+        List<SLifeline> result = Lists.newArrayListWithCapacity(indices.length);
+        for (int index : indices) {
+            result.add(lifelines.get(index));
+        }
+        return result;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Collects the areas among the first {@code candidates} ones in top border order that extend at
+     * least down to the given y coordinate, looking only at the areas {@code from} to {@code to}
+     * (exclusive).
+     */
+    private void collectAreas(final int from, final int to, final int candidates, final double y,
+            final List<Integer> found) {
+
+        if (from >= candidates || to - from == 0) {
+            return;
+        }
+
+        int count = areasByTop.length;
+        if (to - from == 1) {
+            if (bottoms[count + from] >= y) {
+                found.add(areasByTop[from]);
+            }
+        } else if (maxBottom(from, to) >= y) {
+            int middle = (from + to) / 2;
+            collectAreas(from, middle, candidates, y, found);
+            collectAreas(middle, to, candidates, y, found);
+        }
+    }
+
+    /**
+     * Returns the lowest bottom border of the areas {@code from} to {@code to} (exclusive) in top
+     * border order.
+     */
+    private double maxBottom(final int from, final int to) {
+        int count = areasByTop.length;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int l = from + count, r = to + count; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0) {
+                max = Math.max(max, bottoms[l++]);
+            }
+            if ((r & 1) != 0) {
+                max = Math.max(max, bottoms[--r]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Checks if a given point is inside the borders of a given area.
+     */
+    private static boolean contains(final SequenceArea area, final KVector point) {
+        return point.x >= area.getPosition().x
+                && point.x <= area.getPosition().x + area.getSize().x
+                && point.y >= area.getPosition().y
+                && point.y <= area.getPosition().y + area.getSize().y;
+    }
+
+    /**
+     * Returns the horizontal center of the given lifeline.
+     */
+    private static double center(final SLifeline lifeline) {
+        return lifeline.getPosition().x + lifeline.getSize().x / 2;
+    }
+
+    /**
+     * Returns the indices {@code 0} to {@code count} (exclusive), stably sorted by the given
+     * comparator.
+     */
+    private static Integer[] sortedIndices(final int count, final Comparator<Integer> comparator) {
+        Integer[] indices = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, comparator);
+        return indices;
+    }
+
+    /**
+     * Returns the number of values in the given sorted array that are smaller than the given value.
+     */
+    private static int lowerBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of values in the given sorted array that are not greater than the given
+     * value.
+     */
+    private static int upperBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p0import;
+
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+
+/**
+ * Builds the constraint graph for an SGraph. Used by the importers once the SGraph is complete.
+ */
+final class ConstraintGraphBuilder {
+
+    /**
+     * No instantiation.
+     */
+    private ConstraintGraphBuilder() {
+    }
+
+
+    /**
+     * Builds a constraint graph that contains every message as a node. Edges are representations of
+     * the relative order of the messages.
+     *
+     * @param sgraph
+     *            the given SGraph
+     * @return the constraint graph
+     */
+    static ConstraintGraph createConstraintGraph(final SGraph sgraph) {
+        // Every message end is attached to one lifeline, which gives an upper bound for the number
+        // of edges and, since no message has more than two ends, a lower bound for the nodes
+        int messageEnds = 0;
+        for (SLifeline lifeline : sgraph.getLifelines()) {
+            messageEnds += lifeline.getMessages().size();
+        }
+        ConstraintGraph graph = new ConstraintGraph(messageEnds / 2 + 1, messageEnds);
+
+        // Build a node for every message.
+        for (SLifeline lifeline : sgraph.getLifelines()) {
+            for (SMessage message : lifeline.getOutgoingMessages()) {
+                createNode(graph, message);
+            }
+            // Handle found messages (they have no source lifeline)
+            for (SMessage message : lifeline.getIncomingMessages()) {
+                if (message.getSource().isDummy()) {
+                    createNode(graph, message);
+                }
+            }
+        }
+
+        // Add an edge for every neighbored pair of messages at every lifeline
+        // indicating the relative order of the messages.
+        for (SLifeline lifeline : sgraph.getLifelines()) {
+            int previousNode = ConstraintGraph.NONE;
+            for (SMessage message : lifeline.getMessages()) {
+                int node = message.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+
+                // The two ends of a self loop are represented by the same node
+                if (previousNode != ConstraintGraph.NONE && previousNode != node) {
+                    graph.addEdge(previousNode, node, lifeline);
+                }
+                previousNode = node;
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Creates the node for the given message.
+     *
+     * @param graph
+     *            the constraint graph
+     * @param message
+     *            the message
+     */
+    private static void createNode(final ConstraintGraph graph, final SMessage message) {
+        int node = graph.addNode(message);
+        message.setProperty(InternalSequenceProperties.CONSTRAINT_NODE, node);
+    }
+
+}
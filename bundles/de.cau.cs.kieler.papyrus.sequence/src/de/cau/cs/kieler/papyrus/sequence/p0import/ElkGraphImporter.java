@@ -16,11 +16,6 @@ package de.cau.cs.kieler.papyrus.sequence.p0import;
 import java.util.List;
 import java.util.Map;
 
-import org.eclipse.elk.alg.layered.graph.LEdge;
-import org.eclipse.elk.alg.layered.graph.LGraph;
-import org.eclipse.elk.alg.layered.graph.LLabel;
-import org.eclipse.elk.alg.layered.graph.LNode;
-import org.eclipse.elk.alg.layered.graph.LPort;
 import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 import org.eclipse.elk.graph.ElkConnectableShape;
@@ -66,7 +61,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
         progressMonitor.begin("Graph import", 1);
         
         context.sgraph = importGraph(context.kgraph);
-        context.lgraph = createLayeredGraph(context.sgraph);
+        context.constraintGraph = ConstraintGraphBuilder.createConstraintGraph(context.sgraph);
         
         progressMonitor.done();
     }
@@ -75,14 +70,20 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // SGraph Creation
     
-    /** A map from ElkNodes in the layout graph to the lifelines created for them. */
-    private Map<ElkNode, SLifeline> lifelineMap = Maps.newHashMap();
-    /** A map from ElkEdges in the layout graph to messages created for them in the SGraph. */
-    private Map<ElkEdge, SMessage> messageMap = Maps.newHashMap();
-    /** A map from element IDs to the corresponding executions. */
-    private Map<Integer, SequenceExecution> executionIdMap = Maps.newHashMap();
-    /** A map from element IDs to the corresponding sequence area. */
-    private Map<Integer, SequenceArea> areaIdMap = Maps.newHashMap();
+    /**
+     * Correspondences between the layout graph and the SGraph that are built up during a single
+     * import. One importer may run on several graphs at once, so they can't live in fields.
+     */
+    private static final class ImportState {
+        /** A map from ElkNodes in the layout graph to the lifelines created for them. */
+        private final Map<ElkNode, SLifeline> lifelineMap = Maps.newHashMap();
+        /** A map from ElkEdges in the layout graph to messages created for them in the SGraph. */
+        private final Map<ElkEdge, SMessage> messageMap = Maps.newHashMap();
+        /** A map from element IDs to the corresponding executions. */
+        private final Map<Integer, SequenceExecution> executionIdMap = Maps.newHashMap();
+        /** A map from element IDs to the corresponding sequence area. */
+        private final Map<Integer, SequenceArea> areaIdMap = Maps.newHashMap();
+    }
     
     
     /**
@@ -96,47 +97,54 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
     private SGraph importGraph(final ElkNode topNode) {
         // Create a graph object
         SGraph sgraph = new SGraph();
+        ImportState state = new ImportState();
         
         // Create... well, as it says: sequence areas...
-        createSequenceAreas(topNode, sgraph);
+        createSequenceAreas(topNode, sgraph, state);
 
         // Create lifelines
         for (ElkNode node : topNode.getChildren()) {
             NodeType nodeType = node.getProperty(SequenceDiagramOptions.NODE_TYPE);
             
             if (nodeType == NodeType.LIFELINE) {
-                createLifeline(sgraph, node);
+                createLifeline(sgraph, node, state);
             }
         }
 
-        // Walk through lifelines (create their messages) and comments
+        // Walk through lifelines (create their messages)
         for (ElkNode node : topNode.getChildren()) {
             NodeType nodeType = node.getProperty(
                     SequenceDiagramOptions.NODE_TYPE);
             
             if (nodeType == NodeType.LIFELINE) {
                 // Create SMessages for each of the outgoing edges
-                createOutgoingMessages(sgraph, node);
+                createOutgoingMessages(sgraph, node, state);
 
                 // Handle found messages (incoming messages)
-                createIncomingMessages(sgraph, node);
-            } else if (nodeType == NodeType.COMMENT
+                createIncomingMessages(sgraph, node, state);
+            }
+        }
+
+        // Messages were appended in no particular order, so sort them once per lifeline
+        sgraph.sortMessages();
+
+        // Walk through comments, which may look at the messages of lifelines
+        for (ElkNode node : topNode.getChildren()) {
+            NodeType nodeType = node.getProperty(
+                    SequenceDiagramOptions.NODE_TYPE);
+            
+            if (nodeType == NodeType.COMMENT
                     || nodeType == NodeType.CONSTRAINT
                     || nodeType == NodeType.DURATION_OBSERVATION
                     || nodeType == NodeType.TIME_OBSERVATION) {
                 
-                createCommentLikeNode(sgraph, node);
+                createCommentLikeNode(sgraph, node, state);
             }
         }
 
         // Reset graph size to zero before layouting
         sgraph.getSize().x = 0;
         sgraph.getSize().y = 0;
-        
-        // Clear maps
-        lifelineMap.clear();
-        messageMap.clear();
-        executionIdMap.clear();
 
         return sgraph;
     }
@@ -152,8 +160,11 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
      *            the surrounding interaction node.
      * @param sgraph
      *            the Sequence Graph
+     * @param state
+     *            correspondences built up during the current import
      */
-    private void createSequenceAreas(final ElkNode topNode, final SGraph sgraph) {
+    private void createSequenceAreas(final ElkNode topNode, final SGraph sgraph,
+            final ImportState state) {
         // Initialize the list of areas (fragments and such)
         List<SequenceArea> areas = Lists.newArrayList();
         
@@ -165,7 +176,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             if (nodeType == NodeType.COMBINED_FRAGMENT || nodeType == NodeType.INTERACTION_USE) {
                 SequenceArea area = new SequenceArea(node);
                 areas.add(area);
-                areaIdMap.put(node.getProperty(SequenceDiagramOptions.ELEMENT_ID), area);
+                state.areaIdMap.put(node.getProperty(SequenceDiagramOptions.ELEMENT_ID), area);
             }
         }
         
@@ -178,8 +189,8 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
                 int parentId = node.getProperty(SequenceDiagramOptions.PARENT_AREA_ID);
                 
                 if (parentId != -1) {
-                    SequenceArea parentArea = areaIdMap.get(parentId);
-                    SequenceArea childArea = areaIdMap.get(
+                    SequenceArea parentArea = state.areaIdMap.get(parentId);
+                    SequenceArea childArea = state.areaIdMap.get(
                             node.getProperty(SequenceDiagramOptions.ELEMENT_ID));
                     
                     if (parentArea != null && childArea != null) {
@@ -206,8 +217,11 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
      *            the Sequence Graph
      * @param klifeline
      *            the ElkNode to create a lifeline for
+     * @param state
+     *            correspondences built up during the current import
      */
-    private void createLifeline(final SGraph sgraph, final ElkNode klifeline) {
+    private void createLifeline(final SGraph sgraph, final ElkNode klifeline,
+            final ImportState state) {
         
         
         assert klifeline.getProperty(SequenceDiagramOptions.NODE_TYPE) == NodeType.LIFELINE;
@@ -219,7 +233,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
         }
         
         slifeline.setProperty(InternalProperties.ORIGIN, klifeline);
-        lifelineMap.put(klifeline, slifeline);
+        state.lifelineMap.put(klifeline, slifeline);
         sgraph.addLifeline(slifeline);
 
         // Copy layout information to lifeline
@@ -240,7 +254,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
                 SequenceExecution execution = new SequenceExecution(kchild);
                 execution.setType(SequenceExecutionType.fromNodeType(kchildNodeType));
                 executions.add(execution);
-                executionIdMap.put(
+                state.executionIdMap.put(
                         kchild.getProperty(SequenceDiagramOptions.ELEMENT_ID), execution);
             } else if (kchildNodeType == NodeType.DESTRUCTION_EVENT) {
                 slifeline.setProperty(SequenceDiagramOptions.DESTRUCTION_NODE, kchild);
@@ -252,7 +266,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
         // Check if the lifeline has any empty areas
         List<Integer> areaIds = klifeline.getProperty(SequenceDiagramOptions.AREA_IDS);
         for (Integer areaId : areaIds) {
-            SequenceArea area = areaIdMap.get(areaId);
+            SequenceArea area = state.areaIdMap.get(areaId);
             if (area != null) {
                 area.getLifelines().add(slifeline);
             }
@@ -270,11 +284,14 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
      *            the Sequence Graph
      * @param klifeline
      *            the ElkNode to search its outgoing edges
+     * @param state
+     *            correspondences built up during the current import
      */
-    private void createOutgoingMessages(final SGraph sgraph, final ElkNode klifeline) {
+    private void createOutgoingMessages(final SGraph sgraph, final ElkNode klifeline,
+            final ImportState state) {
         for (ElkEdge edge : klifeline.getOutgoingEdges()) {
-            SLifeline sourceLL = lifelineMap.get(ElkGraphUtil.getSourceNode(edge));
-            SLifeline targetLL = lifelineMap.get(ElkGraphUtil.getTargetNode(edge));
+            SLifeline sourceLL = state.lifelineMap.get(ElkGraphUtil.getSourceNode(edge));
+            SLifeline targetLL = state.lifelineMap.get(ElkGraphUtil.getTargetNode(edge));
 
             // Lost-messages and messages to the surrounding interaction don't have a lifeline, so
             // create dummy lifeline
@@ -303,18 +320,18 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             smessage.setLabelWidth(maxLabelLength);
 
             // Add message to the source and the target lifeline's list of messages
-            sourceLL.addMessage(smessage);
-            targetLL.addMessage(smessage);
+            sourceLL.appendMessage(smessage);
+            targetLL.appendMessage(smessage);
 
             // Put edge and message into the edge map
-            messageMap.put(edge, smessage);
+            state.messageMap.put(edge, smessage);
             
             // Check if the edge connects to executions
             List<Integer> sourceExecutionIds =
                     edge.getProperty(SequenceDiagramOptions.SOURCE_EXECUTION_IDS);
             smessage.setProperty(SequenceDiagramOptions.SOURCE_EXECUTION_IDS, sourceExecutionIds);
             for (Integer execId : sourceExecutionIds) {
-                SequenceExecution sourceExecution = executionIdMap.get(execId);
+                SequenceExecution sourceExecution = state.executionIdMap.get(execId);
                 if (sourceExecution != null) {
                     sourceExecution.addMessage(smessage);
                 }
@@ -324,7 +341,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
                     edge.getProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS);
             smessage.setProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS, sourceExecutionIds);
             for (Integer execId : targetExecutionIds) {
-                SequenceExecution targetExecution = executionIdMap.get(execId);
+                SequenceExecution targetExecution = state.executionIdMap.get(execId);
                 if (targetExecution != null) {
                     targetExecution.addMessage(smessage);
                 }
@@ -349,7 +366,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
 
             // Check if message is in any area
             for (Integer areaId : edge.getProperty(SequenceDiagramOptions.AREA_IDS)) {
-                SequenceArea area = areaIdMap.get(areaId);
+                SequenceArea area = state.areaIdMap.get(areaId);
                 if (area != null) {
                     area.getMessages().add(smessage);
                     area.getLifelines().add(smessage.getSource());
@@ -361,7 +378,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             // Check if this message has an empty area that is to be placed directly above it
             int upperEmptyAreaId = edge.getProperty(
                     SequenceDiagramOptions.UPPER_EMPTY_AREA_ID);
-            SequenceArea upperArea = areaIdMap.get(upperEmptyAreaId);
+            SequenceArea upperArea = state.areaIdMap.get(upperEmptyAreaId);
             if (upperArea != null) {
                 upperArea.setNextMessage(smessage);
             }
@@ -377,12 +394,15 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
      *            the Sequence Graph
      * @param klifeline
      *            the ElkNode to search its incoming edges.
+     * @param state
+     *            correspondences built up during the current import
      */
-    private void createIncomingMessages(final SGraph sgraph, final ElkNode klifeline) {
+    private void createIncomingMessages(final SGraph sgraph, final ElkNode klifeline,
+            final ImportState state) {
         for (ElkEdge kedge : klifeline.getIncomingEdges()) {
            
 
-            SLifeline sourceLL = lifelineMap.get(ElkGraphUtil.getSourceNode(kedge));
+            SLifeline sourceLL = state.lifelineMap.get(ElkGraphUtil.getSourceNode(kedge));
             
             // We are only interested in messages that don't come from a lifeline
             if (sourceLL != null) {
@@ -398,7 +418,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             sdummy.setGraph(sgraph);
             sourceLL = sdummy;
             
-            SLifeline targetLL = lifelineMap.get(ElkGraphUtil.getTargetNode(kedge));
+            SLifeline targetLL = state.lifelineMap.get(ElkGraphUtil.getTargetNode(kedge));
 
             // Create message object
             SMessage smessage = new SMessage(sourceLL, targetLL);
@@ -409,11 +429,11 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             smessage.setTargetYPos(edgeSection.getEndY());
 
             // Add the message to the source and target lifeline's list of messages
-            sourceLL.addMessage(smessage);
-            targetLL.addMessage(smessage);
+            sourceLL.appendMessage(smessage);
+            targetLL.appendMessage(smessage);
 
             // Put edge and message into the edge map
-            messageMap.put(kedge, smessage);
+            state.messageMap.put(kedge, smessage);
 
             // Append the message type of the edge to the message
             MessageType messageType = kedge.getProperty(SequenceDiagramOptions.MESSAGE_TYPE);
@@ -438,7 +458,7 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
                     kedge.getProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS);
             smessage.setProperty(SequenceDiagramOptions.TARGET_EXECUTION_IDS, targetExecutionIds);
             for (Integer execId : targetExecutionIds) {
-                SequenceExecution targetExecution = executionIdMap.get(execId);
+                SequenceExecution targetExecution = state.executionIdMap.get(execId);
                 if (targetExecution != null) {
                     targetExecution.addMessage(smessage);
                 }
@@ -457,8 +477,11 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
      *            the Sequence Graph
      * @param node
      *            the node to create a comment object from
+     * @param state
+     *            correspondences built up during the current import
      */
-    private void createCommentLikeNode(final SGraph sgraph, final ElkNode commentLayout) {
+    private void createCommentLikeNode(final SGraph sgraph, final ElkNode commentLayout,
+            final ImportState state) {
         // Get the node's type
         NodeType nodeType = commentLayout.getProperty(SequenceDiagramOptions.NODE_TYPE);
 
@@ -482,9 +505,9 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
             List<SGraphElement> attTo = comment.getAttachedTo();
             for (Object att : attachedTo) {
                 if (att instanceof ElkNode) {
-                    attTo.add(lifelineMap.get(att));
+                    attTo.add(state.lifelineMap.get(att));
                 } else if (att instanceof ElkEdge) {
-                    attTo.add(messageMap.get(att));
+                    attTo.add(state.messageMap.get(att));
                 }
             }
         }
@@ -543,75 +566,4 @@ public final class ElkGraphImporter implements ISequenceLayoutProcessor {
         sgraph.getComments().add(comment);
     }
     
-    
-    ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // LGraph Creation
-
-    /**
-     * Builds a layered graph that contains every message as a node. Edges are representations of
-     * the relative order of the messages.
-     * 
-     * @param sgraph
-     *            the given SGraph
-     * @param progressMonitor
-     *            the progress monitor
-     * @return the layeredGraph
-     */
-    private LGraph createLayeredGraph(final SGraph sgraph) {
-        LGraph lgraph = new LGraph();
-
-        // Build a node for every message.
-        int i = 0;
-        for (SLifeline lifeline : sgraph.getLifelines()) {
-            for (SMessage message : lifeline.getOutgoingMessages()) {
-                LNode node = new LNode(lgraph);
-                node.getLabels().add(new LLabel("Node" + i++));
-                node.setProperty(InternalProperties.ORIGIN, message);
-                message.setProperty(InternalSequenceProperties.LAYERED_NODE, node);
-                lgraph.getLayerlessNodes().add(node);
-            }
-            // Handle found messages (they have no source lifeline)
-            for (SMessage message : lifeline.getIncomingMessages()) {
-                if (message.getSource().isDummy()) {
-                    LNode node = new LNode(lgraph);
-                    node.getLabels().add(new LLabel("Node" + i++));
-                    node.setProperty(InternalProperties.ORIGIN, message);
-                    message.setProperty(InternalSequenceProperties.LAYERED_NODE, node);
-                    lgraph.getLayerlessNodes().add(node);
-                }
-            }
-        }
-
-        // Add an edge for every neighbored pair of messages at every lifeline
-        // indicating the relative order of the messages.
-        for (SLifeline lifeline : sgraph.getLifelines()) {
-            List<SMessage> messages = lifeline.getMessages();
-            for (int j = 1; j < messages.size(); j++) {
-                // Add an edge from the node belonging to message j-1 to the node belonging to
-                // message j
-                LNode sourceNode = messages.get(j - 1).getProperty(
-                        InternalSequenceProperties.LAYERED_NODE);
-                LNode targetNode = messages.get(j).getProperty(
-                        InternalSequenceProperties.LAYERED_NODE);
-                
-                if (sourceNode != targetNode) {
-                    LPort sourcePort = new LPort();
-                    sourcePort.setNode(sourceNode);
-                    
-                    LPort targetPort = new LPort();
-                    targetPort.setNode(targetNode);
-                    
-                    LEdge edge = new LEdge();
-                    
-                    edge.setSource(sourcePort);
-                    edge.setTarget(targetPort);
-                    
-                    edge.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE, lifeline);
-                }
-            }
-        }
-
-        return lgraph;
-    }
-    
 }
@@ -17,11 +17,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.eclipse.elk.alg.layered.graph.LEdge;
-import org.eclipse.elk.alg.layered.graph.LGraph;
-import org.eclipse.elk.alg.layered.graph.LLabel;
-import org.eclipse.elk.alg.layered.graph.LNode;
-import org.eclipse.elk.alg.layered.graph.LPort;
 import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.math.KVector;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
@@ -64,7 +59,7 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
         progressMonitor.begin("Graph import", 1);
         
         context.sgraph = importGraph(context.kgraph);
-        context.lgraph = createLayeredGraph(context.sgraph);
+        context.constraintGraph = ConstraintGraphBuilder.createConstraintGraph(context.sgraph);
         
         progressMonitor.done();
     }
@@ -98,7 +93,10 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
             createLifeline(sgraph, nodeMap, node);
         }
 
-        // Walk through lifelines (create their messages) and comments
+        // Index the areas once instead of testing every message and lifeline against each of them
+        AreaIndex areaIndex = areas == null ? null : new AreaIndex(areas, sgraph.getLifelines());
+
+        // Walk through lifelines (create their messages)
         for (ElkNode node : topNode.getChildren()) {
             NodeType nodeType = node.getProperty(
                     SequenceDiagramOptions.NODE_TYPE);
@@ -106,11 +104,21 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
                 // Node is a lifeline
 
                 // Create SMessages for each of the outgoing edges
-                createMessages(sgraph, nodeMap, edgeMap, areas, node);
+                createMessages(sgraph, nodeMap, edgeMap, areaIndex, node);
 
                 // Handle found messages (incoming messages)
                 createIncomingMessages(sgraph, nodeMap, edgeMap, node);
-            } else if (nodeType == NodeType.COMMENT
+            }
+        }
+
+        // Messages were appended in no particular order, so sort them once per lifeline
+        sgraph.sortMessages();
+
+        // Walk through comments, which may look at the messages of lifelines
+        for (ElkNode node : topNode.getChildren()) {
+            NodeType nodeType = node.getProperty(
+                    SequenceDiagramOptions.NODE_TYPE);
+            if (nodeType == NodeType.COMMENT
                     || nodeType == NodeType.CONSTRAINT
                     || nodeType == NodeType.DURATION_OBSERVATION
                     || nodeType == NodeType.TIME_OBSERVATION) {
@@ -124,7 +132,7 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
         if (areas != null) {
             for (SequenceArea area : areas) {
                 if (area.getMessages().size() == 0) {
-                    handleEmptyArea(sgraph, area);
+                    handleEmptyArea(areaIndex, area);
                 }
             }
         }
@@ -243,18 +251,14 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
     /**
      * Check, where to place an empty area.
      * 
-     * @param sgraph
-     *            the Sequence Graph
+     * @param areaIndex
+     *            the index over the areas and lifelines of the Sequence Graph
      * @param area
      *            the area
      */
-    private void handleEmptyArea(final SGraph sgraph, final SequenceArea area) {
+    private void handleEmptyArea(final AreaIndex areaIndex, final SequenceArea area) {
         // Check which lifelines are involved
-        for (SLifeline lifeline : sgraph.getLifelines()) {
-            if (isLifelineContained(lifeline, area)) {
-                area.getLifelines().add(lifeline);
-            }
-        }
+        area.getLifelines().addAll(areaIndex.lifelinesWithin(area));
 
         double lowerEnd = area.getPosition().y + area.getSize().y;
         SMessage nextMessage = null;
@@ -303,13 +307,13 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
      *            the map of node-lifeline connections
      * @param edgeMap
      *            the map of edge-message connections
-     * @param areas
-     *            the list of areas
+     * @param areaIndex
+     *            the index over the areas, or {@code null} if there are no areas
      * @param node
      *            the ElkNode to search its outgoing edges
      */
     private void createMessages(final SGraph sgraph, final HashMap<ElkNode, SLifeline> nodeMap,
-            final HashMap<ElkEdge, SMessage> edgeMap, final List<SequenceArea> areas, final ElkNode node) {
+            final HashMap<ElkEdge, SMessage> edgeMap, final AreaIndex areaIndex, final ElkNode node) {
         
         for (ElkEdge edge : node.getOutgoingEdges()) {
             SLifeline sourceLL = nodeMap.get(ElkGraphUtil.getSourceNode(edge));
@@ -344,8 +348,8 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
             message.setLabelWidth(maxLabelLength);
 
             // Add message to the source and the target lifeline's list of messages
-            sourceLL.addMessage(message);
-            targetLL.addMessage(message);
+            sourceLL.appendMessage(message);
+            targetLL.appendMessage(message);
 
             // Put edge and message into the edge map
             edgeMap.put(edge, message);
@@ -391,26 +395,21 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
             }
 
             // check if message is in any area
-            if (areas != null) {
+            if (areaIndex != null) {
                 KVector sourcePoint = new KVector(edgeSection.getStartX(), edgeSection.getStartY());
                 KVector targetPoint = new KVector(edgeSection.getEndX(), edgeSection.getEndY());
-                for (SequenceArea area : areas) {
+                for (SequenceArea area : areaIndex.areasContaining(sourcePoint, targetPoint)) {
+                    area.getMessages().add(message);
+                    area.getLifelines().add(message.getSource());
+                    area.getLifelines().add(message.getTarget());
                     
-                    if (isInArea(sourcePoint, area)
-                            && isInArea(targetPoint, area)) {
-                        
-                        area.getMessages().add(message);
-                        area.getLifelines().add(message.getSource());
-                        area.getLifelines().add(message.getTarget());
-                        
-                        for (SequenceArea subArea : area.getSubAreas()) {
-                            if (isInArea(sourcePoint, subArea)
-                                    && isInArea(targetPoint, subArea)) {
-                                
-                                subArea.getMessages().add(message);
-                                subArea.getLifelines().add(message.getSource());
-                                subArea.getLifelines().add(message.getTarget());
-                            }
+                    for (SequenceArea subArea : area.getSubAreas()) {
+                        if (isInArea(sourcePoint, subArea)
+                                && isInArea(targetPoint, subArea)) {
+                            
+                            subArea.getMessages().add(message);
+                            subArea.getLifelines().add(message.getSource());
+                            subArea.getLifelines().add(message.getTarget());
                         }
                     }
                 }
@@ -456,8 +455,8 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
                 message.setTargetYPos(edgeSection.getEndY());
 
                 // Add the message to the source and target lifeline's list of messages
-                sourceLL.addMessage(message);
-                targetLL.addMessage(message);
+                sourceLL.appendMessage(message);
+                targetLL.appendMessage(message);
 
                 // Put edge and message into the edge map
                 edgeMap.put(edge, message);
@@ -552,23 +551,6 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
         }
     }
 
-    /**
-     * Checks, if a given lifeline's center is horizontally within an area.
-     * 
-     * @param lifeline
-     *            the lifeline
-     * @param area
-     *            the area
-     * @return true, if the lifeline is inside the area, false otherwise
-     */
-    private boolean isLifelineContained(final SLifeline lifeline, final SequenceArea area) {
-        double lifelineCenter = lifeline.getPosition().x + lifeline.getSize().x / 2;
-        double leftEnd = area.getPosition().x;
-        double rightEnd = area.getPosition().x + area.getSize().x;
-
-        return (lifelineCenter >= leftEnd && lifelineCenter <= rightEnd);
-    }
-
     /**
      * Checks if a given KPoint is inside the borders of a given SequenceArea.
      * 
@@ -598,75 +580,4 @@ public final class PapyrusImporter implements ISequenceLayoutProcessor {
         return true;
     }
     
-    
-    ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // LGraph Creation
-
-    /**
-     * Builds a layered graph that contains every message as a node. Edges are representations of
-     * the relative order of the messages.
-     * 
-     * @param sgraph
-     *            the given SGraph
-     * @param progressMonitor
-     *            the progress monitor
-     * @return the layeredGraph
-     */
-    private LGraph createLayeredGraph(final SGraph sgraph) {
-        LGraph lgraph = new LGraph();
-
-        // Build a node for every message.
-        int i = 0;
-        for (SLifeline lifeline : sgraph.getLifelines()) {
-            for (SMessage message : lifeline.getOutgoingMessages()) {
-                LNode node = new LNode(lgraph);
-                node.getLabels().add(new LLabel("Node" + i++));
-                node.setProperty(InternalProperties.ORIGIN, message);
-                message.setProperty(InternalSequenceProperties.LAYERED_NODE, node);
-                lgraph.getLayerlessNodes().add(node);
-            }
-            // Handle found messages (they have no source lifeline)
-            for (SMessage message : lifeline.getIncomingMessages()) {
-                if (message.getSource().isDummy()) {
-                    LNode node = new LNode(lgraph);
-                    node.getLabels().add(new LLabel("Node" + i++));
-                    node.setProperty(InternalProperties.ORIGIN, message);
-                    message.setProperty(InternalSequenceProperties.LAYERED_NODE, node);
-                    lgraph.getLayerlessNodes().add(node);
-                }
-            }
-        }
-
-        // Add an edge for every neighbored pair of messages at every lifeline
-        // indicating the relative order of the messages.
-        for (SLifeline lifeline : sgraph.getLifelines()) {
-            List<SMessage> messages = lifeline.getMessages();
-            for (int j = 1; j < messages.size(); j++) {
-                // Add an edge from the node belonging to message j-1 to the node belonging to
-                // message j
-                LNode sourceNode = messages.get(j - 1).getProperty(
-                        InternalSequenceProperties.LAYERED_NODE);
-                LNode targetNode = messages.get(j).getProperty(
-                        InternalSequenceProperties.LAYERED_NODE);
-                
-                if (sourceNode != targetNode) {
-                    LPort sourcePort = new LPort();
-                    sourcePort.setNode(sourceNode);
-                    
-                    LPort targetPort = new LPort();
-                    targetPort.setNode(targetNode);
-                    
-                    LEdge edge = new LEdge();
-                    
-                    edge.setSource(sourcePort);
-                    edge.setTarget(targetPort);
-                    
-                    edge.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE, lifeline);
-                }
-            }
-        }
-
-        return lgraph;
-    }
-    
 }
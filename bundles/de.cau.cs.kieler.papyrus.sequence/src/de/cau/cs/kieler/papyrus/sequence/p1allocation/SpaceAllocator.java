@@ -13,18 +13,13 @@
  */
 package de.cau.cs.kieler.papyrus.sequence.p1allocation;
 
-import java.util.LinkedList;
 import java.util.List;
 
-import org.eclipse.elk.alg.layered.graph.LEdge;
-import org.eclipse.elk.alg.layered.graph.LGraph;
-import org.eclipse.elk.alg.layered.graph.LNode;
-import org.eclipse.elk.alg.layered.graph.LPort;
-import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 
 import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
 import de.cau.cs.kieler.papyrus.sequence.graph.SGraphElement;
 import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
@@ -34,10 +29,16 @@ import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
 import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
 
 /**
- * Allocates vertical space for various objects by introducing dummy nodes in the LGraph. Space is
+ * Allocates vertical space for various objects by introducing dummy nodes in the constraint graph. Space is
  * required wherever messages cannot be allowed to be placed. This includes space required for message
  * comments or for headers of combined fragments.
  * 
+ * <p>
+ * However many layers an object needs, it only gets a single dummy node. The dummy node's edge to the
+ * node it reserves space for is as long as the number of layers needed, which keeps tall comments from
+ * inflating the graph.
+ * </p>
+ * 
  * @author grh
  * @author cds
  */
@@ -79,7 +80,7 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
             // Find the uppermost message contained in the combined fragment. In Papyrus mode, we do
             // that using message y coordinates. In KGraph mode, there's not really a good solution
             // for finding the best message (actually, I'm not even convinced that the solution in
-            // Papyrus mode always works). There, we simply try to select a source in the layered
+            // Papyrus mode always works). There, we simply try to select a source in the constraint
             // subgraph induced by the set of nodes whose messages are part of the fragment
             SMessage uppermostMessage = null;
             
@@ -93,18 +94,21 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
                     }
                 }
             } else {
-                // Run through the messages and find a source in the layered subgraph induced by the
-                // nodes that are messages in this area
+                // Run through the messages and find a source in the constraint subgraph induced by
+                // the nodes that are messages in this area
+                ConstraintGraph graph = context.constraintGraph;
                 for (Object msgObj : area.getMessages()) {
                     SMessage msg = (SMessage) msgObj;
                     
-                    // Find out if any of the messages predecessors in the layered graph are part of
-                    // the fragment. If not, we have found our best guess for the uppermost message
-                    LNode msgNode = msg.getProperty(InternalSequenceProperties.LAYERED_NODE);
+                    // Find out if any of the messages predecessors in the constraint graph are part
+                    // of the fragment. If not, we have found our best guess for the uppermost message
+                    int msgNode = msg.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
                     boolean isUppermost = true;
-                    for (LEdge incomingEdge : msgNode.getIncomingEdges()) {
-                        Object predecessor = incomingEdge.getSource().getNode().getProperty(
-                                InternalProperties.ORIGIN);
+                    for (int incomingEdge = graph.firstIncoming(msgNode);
+                            incomingEdge != ConstraintGraph.NONE;
+                            incomingEdge = graph.nextIncoming(incomingEdge)) {
+                        
+                        Object predecessor = graph.getMessage(graph.getSource(incomingEdge));
                         
                         if (area.getMessages().contains(predecessor)) {
                             isUppermost = false;
@@ -121,8 +125,8 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
             
             // If we were able to find an uppermost message, insert a dummy node to reserve space
             if (uppermostMessage != null) {
-                LNode node = uppermostMessage.getProperty(InternalSequenceProperties.LAYERED_NODE);
-                createLGraphDummyNode(context.lgraph, node, true);
+                int node = uppermostMessage.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+                createDummyNode(context.constraintGraph, node, true, 1);
             }
         }
     }
@@ -144,15 +148,15 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
             }
             
             if (attachedMess != null) {
-                // Get height of the comment and calculate number of dummy nodes needed
+                // Get height of the comment and calculate number of layers needed
                 double height = comment.getSize().y;
-                int dummys = (int) Math.ceil(height / context.messageSpacing);
+                int layers = (int) Math.ceil(height / context.messageSpacing);
                 
-                // Add dummy nodes in the layered graph
-                LNode lnode = attachedMess.getProperty(InternalSequenceProperties.LAYERED_NODE);
-                if (lnode != null) {
-                    for (int i = 0; i < dummys; i++) {
-                        createLGraphDummyNode(context.lgraph, lnode, true);
+                // Add a dummy node in the constraint graph
+                int node = attachedMess.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+                if (node != ConstraintGraph.NONE) {
+                    if (layers > 0) {
+                        createDummyNode(context.constraintGraph, node, true, layers);
                     }
                     comment.setMessage(attachedMess);
                     attachedMess.getComments().add(comment);
@@ -162,7 +166,7 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
     }
 
     /**
-     * Add dummy nodes to the layered graph in order to allocate space for empty areas.
+     * Add dummy nodes to the constraint graph in order to allocate space for empty areas.
      * 
      * @param context
      *            the layout context that contains all relevant information for the current layout run.
@@ -174,13 +178,11 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
                 if (area.getMessages().size() == 0) {
                     Object nextMess = area.getNextMessage();
                     if (nextMess != null) {
-                        LNode node = ((SMessage) nextMess)
-                                .getProperty(InternalSequenceProperties.LAYERED_NODE);
-                        if (node != null) {
-                            // Create two dummy nodes before node to have enough space for the empty
-                            // area
-                            createLGraphDummyNode(context.lgraph, node, true);
-                            createLGraphDummyNode(context.lgraph, node, true);
+                        int node = ((SMessage) nextMess)
+                                .getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+                        if (node != ConstraintGraph.NONE) {
+                            // Reserve two layers before node to have enough space for the empty area
+                            createDummyNode(context.constraintGraph, node, true, 2);
                         }
                     }
                 }
@@ -193,60 +195,48 @@ public final class SpaceAllocator implements ISequenceLayoutProcessor {
     // Utility Methods
 
     /**
-     * Creates a dummy node in the layered graph, that is placed near the given node. Every
-     * connected edge of the original node is redirected to the dummy node.
+     * Creates a dummy node in the constraint graph, that is placed near the given node. Every
+     * connected edge of the original node is redirected to the dummy node. The edge between the node
+     * and the dummy node reserves the given number of layers, which takes the place of as many dummy
+     * nodes in a row.
      * 
-     * @param lgraph
-     *            the layered graph
+     * @param graph
+     *            the constraint graph
      * @param node
      *            the node, that gets a predecessor
      * @param beforeNode
      *            if true, the dummy will be inserted before the node, behind the node otherwise
+     * @param layers
+     *            the number of layers to reserve, at least one
      */
-    private void createLGraphDummyNode(final LGraph lgraph, final LNode node, final boolean beforeNode) {
-        LNode dummy = new LNode(lgraph);
-        
-        LPort dummyIn = new LPort();
-        dummyIn.setNode(dummy);
+    private void createDummyNode(final ConstraintGraph graph, final int node,
+            final boolean beforeNode, final int layers) {
         
-        LPort dummyOut = new LPort();
-        dummyOut.setNode(dummy);
-        
-        LPort newPort = new LPort();
-        newPort.setNode(node);
-
-        LEdge dummyEdge = new LEdge();
+        int dummy = graph.addNode(null);
 
-        // To avoid concurrent modification, two lists are needed
+        // Moving an edge unlinks it from the node, so remember its successor beforehand
         if (beforeNode) {
-            List<LEdge> incomingEdges = new LinkedList<LEdge>();
-            
-            for (LEdge edge : node.getIncomingEdges()) {
-                incomingEdges.add(edge);
+            int edge = graph.firstIncoming(node);
+            while (edge != ConstraintGraph.NONE) {
+                int nextEdge = graph.nextIncoming(edge);
+                graph.setTarget(edge, dummy);
+                edge = nextEdge;
             }
             
-            for (LEdge edge : incomingEdges) {
-                edge.setTarget(dummyIn);
-            }
-            
-            dummyEdge.setSource(dummyOut);
-            dummyEdge.setTarget(newPort);
+            int dummyEdge = graph.addEdge(dummy, node, null);
+            graph.setMinLength(dummyEdge, layers);
         } else {
-            List<LEdge> outgoingEdges = new LinkedList<LEdge>();
-            
-            for (LEdge edge : node.getOutgoingEdges()) {
-                outgoingEdges.add(edge);
-            }
+            // The dummy edge is connected first to keep the order of the dummy's edges
+            int dummyEdge = graph.addEdge(node, dummy, null);
+            graph.setMinLength(dummyEdge, layers);
             
-            for (LEdge edge : outgoingEdges) {
-                edge.setSource(dummyOut);
+            int edge = graph.firstOutgoing(node);
+            while (edge != dummyEdge) {
+                int nextEdge = graph.nextOutgoing(edge);
+                graph.setSource(edge, dummy);
+                edge = nextEdge;
             }
-            
-            dummyEdge.setTarget(dummyIn);
-            dummyEdge.setSource(newPort);
         }
-        
-        lgraph.getLayerlessNodes().add(dummy);
     }
 
 }
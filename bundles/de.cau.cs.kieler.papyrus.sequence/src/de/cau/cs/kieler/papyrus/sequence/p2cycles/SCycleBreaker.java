@@ -13,52 +13,43 @@
  */
 package de.cau.cs.kieler.papyrus.sequence.p2cycles;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
-import org.eclipse.elk.alg.layered.graph.LEdge;
-import org.eclipse.elk.alg.layered.graph.LGraph;
-import org.eclipse.elk.alg.layered.graph.LNode;
 import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 import org.eclipse.elk.graph.ElkEdge;
 import org.eclipse.elk.graph.ElkEdgeSection;
 import org.eclipse.elk.graph.util.ElkGraphUtil;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
-
 import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
 import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
-import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
 
 /**
- * Heuristic implementation of cycle breaking. Breaks the cycles in the layered graph of the layout
+ * Heuristic implementation of cycle breaking. Breaks the cycles in the constraint graph of the layout
  * context. The cycle breakers of the KLay Layered algorithm break cycles by reversing edges. That's not
  * what we want here. Instead, we break cycles by splitting one of the two end points of an edge that
  * would otherwise be reversed. While a node usually represents both the start and end point of a
  * message, split nodes only represent one of the end points each. With that, the corresponding message
  * is not drawn horizontally anymore.
  * 
+ * <p>
+ * For every cycle, the node whose message starts uppermost is split. Cycles are found by computing
+ * strongly connected components with an iterative version of Tarjan's algorithm. The uppermost node
+ * of each non-trivial component is uppermost on every cycle through it. After setting it aside,
+ * the rest of the component is searched again to find the cycles that don't pass through it. Since
+ * components are usually small, this runs in time linear in the size of the graph in practice.
+ * </p>
+ * 
  * @author grh
  * @kieler.design proposed grh
  * @kieler.rating proposed yellow grh
  */
 public final class SCycleBreaker implements ISequenceLayoutProcessor {
-    /** A node with this ID was not visited yet. */
-    private static final int NOT_VISITED = 0;
-    /** A node with this ID was already visited, but not as part of the current path. */
-    private static final int VISITED_OTHER_PATH = 1;
-    /** A node with this ID was already visited on the current path. */
-    private static final int VISITED_CURRENT_PATH = 2;
-    
-    /** The list of nodes that have to be split. */
-    private Set<LNode> split;
-    /** The list of nodes that were already visited in the current iteration. */
-    private List<LNode> chain;
     
 
     /**
@@ -68,25 +59,12 @@ public final class SCycleBreaker implements ISequenceLayoutProcessor {
     public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
         progressMonitor.begin("Cycle Breaking", 1);
 
-        // The set of edges to be split after the cycle detecting phase
-        split = Sets.newHashSet();
-        chain = Lists.newArrayListWithCapacity(context.lgraph.getLayerlessNodes().size());
-
-        // Use node IDs to indicate if a node was already visited
-        for (LNode node : context.lgraph.getLayerlessNodes()) {
-            node.id = NOT_VISITED;
-        }
-
-        // Start a dfs only when the node was not visited by any other earlier dfs
-        for (LNode node : context.lgraph.getLayerlessNodes()) {
-            if (node.id == NOT_VISITED) {
-                dfs(node);
-            }
-        }
+        ConstraintGraph graph = context.constraintGraph;
+        int[] split = new ComponentSearch(graph).findNodesToSplit();
 
-        // split all nodes in the hashSet
-        for (LNode node : split) {
-            splitNode(context.lgraph, node);
+        // Split all nodes found to be uppermost on a cycle
+        for (int node : split) {
+            splitNode(graph, node);
         }
 
         progressMonitor.done();
@@ -97,88 +75,290 @@ public final class SCycleBreaker implements ISequenceLayoutProcessor {
      * Split the given node into two nodes for each of the corresponding lifelines. Rearrange edges
      * in order to have only edges showing the order at one lifeline.
      * 
+     * @param graph
+     *            the constraint graph
      * @param node
      *            the node to be split
      */
-    private void splitNode(final LGraph lgraph, final LNode node) {
-        // Create new LNode in the LayeredGraph
-        LNode newNode = new LNode(lgraph);
-        lgraph.getLayerlessNodes().add(newNode);
+    private void splitNode(final ConstraintGraph graph, final int node) {
+        // Create new node in the constraint graph
+        SMessage message = graph.getMessage(node);
+        int newNode = graph.addNode(message);
 
-        SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
         SLifeline sourceLL = message.getSource();
         SLifeline targetLL = message.getTarget();
-        Iterator<LEdge> oEdges = node.getConnectedEdges().iterator();
-        while (oEdges.hasNext()) {
-            LEdge edge = oEdges.next();
-            SLifeline belongsTo = edge.getProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE);
-            if (belongsTo == targetLL) {
+        int end = graph.firstEnd(node);
+        while (end != ConstraintGraph.NONE) {
+            int nextEnd = graph.nextEnd(end);
+            int edge = ConstraintGraph.edgeOf(end);
+            if (graph.getEdgeLifeline(edge) == targetLL) {
                 // if edge belongs to targetLifeline, rebase it to newNode
-                if (edge.getSource().getNode() == node) {
-                    edge.getSource().setNode(newNode);
-                } else if (edge.getTarget().getNode() == node) {
-                    edge.getTarget().setNode(newNode);
+                if (ConstraintGraph.isSourceEnd(end)) {
+                    graph.setSource(edge, newNode);
+                } else {
+                    graph.setTarget(edge, newNode);
                 }
             }
             // if edge belongs to sourceLifeline, leave it as it was
+            end = nextEnd;
         }
-        node.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE, sourceLL);
-        newNode.setProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE, targetLL);
-        newNode.setProperty(InternalProperties.ORIGIN, message);
+        graph.setLifeline(node, sourceLL);
+        graph.setLifeline(newNode, targetLL);
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Component Search
+
     /**
-     * Process a depth first search starting with the given node and check for cycles.
-     * 
-     * @param node
-     *            the node to start with
+     * Finds the nodes to be split by repeatedly computing strongly connected components. The
+     * successors of all nodes are copied into arrays first, so that the search can run over
+     * contiguous memory.
      */
-    private void dfs(final LNode node) {
-        if (node.id == VISITED_CURRENT_PATH) {
-            // This node was already visited in current path
-            // Find uppermost LNode in current chain and add it to split
-            addUppermostNode(node);
-        } else {
-            // This node has not been visited in current path
-            chain.add(node);
-            // Mark as visited
-            node.id = VISITED_CURRENT_PATH;
-
-            // Process successors
-            for (LEdge edge : node.getOutgoingEdges()) {
-                dfs(edge.getTarget().getNode());
+    private static final class ComponentSearch {
+        /** Index value of nodes not visited yet by the current search. */
+        private static final int NOT_VISITED = -1;
+
+        /** The constraint graph. */
+        private final ConstraintGraph graph;
+        /** Where each node's successors start in {@link #successors}, plus the total at the end. */
+        private final int[] successorStart;
+        /** The successors of all nodes, one after another. */
+        private final int[] successors;
+        /** Source y positions of the nodes' messages, computed when first needed. */
+        private final double[] sourceYPos;
+
+        /** The search each node takes part in. Other nodes are ignored by the current search. */
+        private final int[] searchOf;
+        /** The order in which nodes were visited by the current search. */
+        private final int[] index;
+        /** The lowest index reachable from each node in the current search. */
+        private final int[] lowLink;
+        /** Whether a node is on the stack of the current search. */
+        private final boolean[] onStack;
+        /** Tarjan's stack of visited nodes not yet assigned to a component. */
+        private final int[] stack;
+        /** The nodes of the current depth first search path. */
+        private final int[] path;
+        /** The position of the next successor to process for each node on the path. */
+        private final int[] pathCursor;
+
+        /** Number of entries on {@link #stack}. */
+        private int stackSize = 0;
+        /** Next index to assign in the current search. */
+        private int nextIndex = 0;
+        /** Groups of nodes that still have to be searched for components. */
+        private final Deque<int[]> pending = new ArrayDeque<int[]>();
+        /** The nodes to be split, in the order they were found in. */
+        private int[] split;
+        /** Number of entries in {@link #split}. */
+        private int splitCount = 0;
+
+
+        /**
+         * Copies the successors of the given graph's nodes into arrays.
+         * 
+         * @param graph
+         *            the constraint graph.
+         */
+        ComponentSearch(final ConstraintGraph graph) {
+            this.graph = graph;
+            int nodeCount = graph.getNodeCount();
+
+            successorStart = new int[nodeCount + 1];
+            successors = new int[graph.getEdgeCount()];
+            int next = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                successorStart[node] = next;
+                for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                        edge = graph.nextOutgoing(edge)) {
+                    successors[next++] = graph.getTarget(edge);
+                }
             }
-            // Mark as visited in previous path
-            node.id = VISITED_OTHER_PATH;
-            chain.remove(chain.size() - 1);
+            successorStart[nodeCount] = next;
+
+            sourceYPos = new double[nodeCount];
+            Arrays.fill(sourceYPos, Double.NaN);
+            searchOf = new int[nodeCount];
+            index = new int[nodeCount];
+            lowLink = new int[nodeCount];
+            onStack = new boolean[nodeCount];
+            stack = new int[nodeCount];
+            path = new int[nodeCount];
+            pathCursor = new int[nodeCount];
+            split = new int[nodeCount];
         }
-    }
 
-    /**
-     * Find uppermost LNode in the current cyclic chain and add it to the set of LNodes to be split.
-     * 
-     * @param foundNode
-     *            the uppermost node in the current chain
-     */
-    private void addUppermostNode(final LNode foundNode) {
-        LNode uppermost = foundNode;
-        double uppermostPos = Float.MAX_VALUE;
-        int foundIndex = chain.indexOf(foundNode);
-        for (int i = foundIndex; i < chain.size(); i++) {
-            LNode node = chain.get(i);
-            SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
-            ElkEdge edge = (ElkEdge) message.getProperty(InternalProperties.ORIGIN);
-            
-            // Compare only sourcePositions since messages can only lead downwards or horizontal
-            ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
-            
-            double sourceYPos = edgeSection.getStartY();
-            if (sourceYPos < uppermostPos) {
-                uppermostPos = sourceYPos;
-                uppermost = node;
+        /**
+         * Finds the nodes to be split. For each cycle, this is the node whose message starts
+         * uppermost.
+         * 
+         * @return the nodes to be split.
+         */
+        int[] findNodesToSplit() {
+            int[] allNodes = new int[graph.getNodeCount()];
+            for (int i = 0; i < allNodes.length; i++) {
+                allNodes[i] = i;
+            }
+            pending.push(allNodes);
+
+            // Searches are numbered starting at one, since zero marks nodes not part of any search
+            int search = 0;
+            while (!pending.isEmpty()) {
+                int[] group = pending.pop();
+                search++;
+
+                for (int node : group) {
+                    searchOf[node] = search;
+                    index[node] = NOT_VISITED;
+                }
+                nextIndex = 0;
+
+                for (int node : group) {
+                    if (index[node] == NOT_VISITED) {
+                        strongConnect(node, search);
+                    }
+                }
+            }
+
+            return Arrays.copyOf(split, splitCount);
+        }
+
+        /**
+         * Finds the strongly connected components reachable from the given node without using
+         * recursion.
+         * 
+         * @param start
+         *            the node to start the depth first search with.
+         * @param search
+         *            the current search.
+         */
+        private void strongConnect(final int start, final int search) {
+            visit(start);
+            int depth = 0;
+            path[0] = start;
+            pathCursor[0] = successorStart[start];
+
+            while (depth >= 0) {
+                int node = path[depth];
+
+                if (pathCursor[depth] < successorStart[node + 1]) {
+                    int successor = successors[pathCursor[depth]++];
+
+                    if (searchOf[successor] != search) {
+                        // Not part of the current search
+                        continue;
+                    } else if (index[successor] == NOT_VISITED) {
+                        visit(successor);
+                        depth++;
+                        path[depth] = successor;
+                        pathCursor[depth] = successorStart[successor];
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+
+                } else {
+                    // All successors are done
+                    if (lowLink[node] == index[node]) {
+                        popComponent(node);
+                    }
+
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = path[depth];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Assigns the next index to the given node and pushes it onto the stack.
+         * 
+         * @param node
+         *            the node.
+         */
+        private void visit(final int node) {
+            index[node] = nextIndex;
+            lowLink[node] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = node;
+            onStack[node] = true;
+        }
+
+        /**
+         * Pops the component with the given root off the stack. If it contains cycles, its
+         * uppermost node is split and the rest of the component is scheduled to be searched again.
+         * 
+         * @param root
+         *            the root of the component.
+         */
+        private void popComponent(final int root) {
+            int end = stackSize;
+            do {
+                stackSize--;
+                onStack[stack[stackSize]] = false;
+            } while (stack[stackSize] != root);
+
+            // Components of a single node are acyclic since nodes don't have edges to themselves
+            if (end - stackSize < 2) {
+                return;
+            }
+
+            // Find the uppermost node; those without a message can't be split
+            int uppermost = -1;
+            double uppermostPos = Double.POSITIVE_INFINITY;
+            for (int i = stackSize; i < end; i++) {
+                double pos = sourceYPos(stack[i]);
+                if (pos < uppermostPos) {
+                    uppermostPos = pos;
+                    uppermost = stack[i];
+                }
+            }
+
+            if (uppermost >= 0) {
+                split[splitCount++] = uppermost;
+
+                // Search the remaining nodes for cycles that don't pass through the split node
+                int[] rest = new int[end - stackSize - 1];
+                int next = 0;
+                for (int i = stackSize; i < end; i++) {
+                    if (stack[i] != uppermost) {
+                        rest[next++] = stack[i];
+                    }
+                }
+                pending.push(rest);
+            }
+        }
+
+        /**
+         * Returns the y position the given node's message starts at.
+         * 
+         * @param node
+         *            the node.
+         * @return the source y position, or positive infinity if the node doesn't represent a
+         *         message.
+         */
+        private double sourceYPos(final int node) {
+            if (Double.isNaN(sourceYPos[node])) {
+                SMessage message = graph.getMessage(node);
+                if (message == null) {
+                    sourceYPos[node] = Double.POSITIVE_INFINITY;
+                } else {
+                    // Compare only source positions since messages can only lead downwards or
+                    // horizontal. Messages that weren't imported from an ElkGraph know theirs.
+                    Object origin = message.getProperty(InternalProperties.ORIGIN);
+                    if (origin instanceof ElkEdge) {
+                        ElkEdgeSection edgeSection =
+                                ElkGraphUtil.firstEdgeSection((ElkEdge) origin, false, false);
+                        sourceYPos[node] = edgeSection.getStartY();
+                    } else {
+                        sourceYPos[node] = message.getSourceYPos();
+                    }
+                }
             }
+            return sourceYPos[node];
         }
-        split.add(uppermost);
     }
     
 }
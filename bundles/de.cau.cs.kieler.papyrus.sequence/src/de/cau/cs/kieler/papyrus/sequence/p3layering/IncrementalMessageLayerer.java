@@ -0,0 +1,354 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p3layering;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.elk.alg.layered.graph.LGraph;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkGraphElement;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutCache;
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutCache.CachedNode;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+
+/**
+ * Layers messages incrementally, based on the layering of the previous layout run kept in the
+ * layout context's {@link SequenceLayoutCache}. If there is no previous layering, the layering is
+ * computed by the layerer of the configured {@link LayeringStrategy}.
+ *
+ * <p>
+ * A node of the constraint graph has changed if it is new or if its predecessors are not the same
+ * as in the previous run. This is the case for inserted messages and for messages whose
+ * predecessors on their lifelines were inserted, removed or reordered. Changed nodes and all nodes
+ * reachable from them are layered again like {@link LayeringStrategy#LIFELINE_CHAINS} would.
+ * All other nodes keep their layer and their order in it, since their part of the graph is the
+ * same as before.
+ * </p>
+ *
+ * <p>
+ * Nodes are recognized across layout runs by keys. Message nodes use the key of their message. The
+ * second node of a message split during cycle breaking uses a key derived from it. Dummy nodes
+ * reserve space above their successor, which they are identified by along with the amount of
+ * space they reserve.
+ * </p>
+ */
+public final class IncrementalMessageLayerer implements ISequenceLayoutProcessor {
+
+    /** The layerer used if there is no previous layering. */
+    private final ISequenceLayoutProcessor fullLayerer;
+
+
+    /**
+     * Creates a new incremental layerer.
+     *
+     * @param fullLayerer
+     *            the layerer used if there is no previous layering.
+     */
+    public IncrementalMessageLayerer(final ISequenceLayoutProcessor fullLayerer) {
+        this.fullLayerer = fullLayerer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Incremental layering", 2);
+
+        SequenceLayoutCache cache = context.layoutCache;
+        ConstraintGraph graph = context.constraintGraph;
+        int[] order = TopologicalMessageLayerer.topologicalOrder(graph);
+        Object[] keys = nodeKeys(graph, order);
+
+        if (cache.hasLayering()) {
+            int[] fixedLayers = unchangedLayers(graph, order, keys, cache);
+            int[] layers = TopologicalMessageLayerer.computeLayers(graph, order, true, fixedLayers);
+
+            context.lgraph = graph.toLayeredGraph(context.debugMode, false);
+            TopologicalMessageLayerer.applyLayers(graph, context.lgraph, layers);
+            restoreOrderInLayers(context.lgraph, fixedLayers, keys, cache);
+            progressMonitor.worked(1);
+        } else {
+            fullLayerer.process(context, progressMonitor.subTask(1));
+        }
+
+        rememberLayering(context, keys, cache);
+
+        progressMonitor.done();
+    }
+
+    /**
+     * Computes the key of each node of the constraint graph.
+     *
+     * @param graph
+     *            the constraint graph
+     * @param order
+     *            the nodes in topological order
+     * @return the key of each node, or {@code null} for nodes that cannot be recognized or whose
+     *         key is not unique
+     */
+    private Object[] nodeKeys(final ConstraintGraph graph, final int[] order) {
+        Object[] keys = new Object[graph.getNodeCount()];
+
+        // Dummy nodes are identified by their successor, so go bottom-up
+        for (int i = order.length - 1; i >= 0; i--) {
+            int node = order[i];
+            SMessage message = graph.getMessage(node);
+
+            if (message != null) {
+                // Messages that weren't imported from an edge can't be recognized
+                Object origin = message.getProperty(InternalProperties.ORIGIN);
+                if (!(origin instanceof ElkGraphElement)) {
+                    continue;
+                }
+
+                Object key = SequenceLayoutCache.keyOf((ElkGraphElement) origin);
+                if (message.getProperty(InternalSequenceProperties.CONSTRAINT_NODE) == node) {
+                    keys[node] = key;
+                } else {
+                    keys[node] = new NodeKey(key, true, 0);
+                }
+            } else {
+                int edge = graph.firstOutgoing(node);
+                if (edge != ConstraintGraph.NONE && keys[graph.getTarget(edge)] != null) {
+                    keys[node] = new NodeKey(keys[graph.getTarget(edge)], false,
+                            graph.getMinLength(edge));
+                }
+            }
+        }
+
+        // Keys must be unique for cached layers to be attributed to the right node
+        Map<Object, Integer> firstNodes = Maps.newHashMapWithExpectedSize(keys.length);
+        List<Integer> duplicates = Lists.newArrayList();
+        for (int node = 0; node < keys.length; node++) {
+            if (keys[node] != null) {
+                Integer first = firstNodes.put(keys[node], node);
+                if (first != null) {
+                    duplicates.add(first);
+                    duplicates.add(node);
+                }
+            }
+        }
+        for (int node : duplicates) {
+            keys[node] = null;
+        }
+
+        return keys;
+    }
+
+    /**
+     * Determines which nodes have changed and returns the previous layer of all nodes that neither
+     * changed nor are reachable from a changed node.
+     *
+     * @param graph
+     *            the constraint graph
+     * @param order
+     *            the nodes in topological order
+     * @param keys
+     *            the key of each node
+     * @param cache
+     *            the results of the previous layout run
+     * @return the previous layer of each unchanged node, {@code -1} for all other nodes
+     */
+    private int[] unchangedLayers(final ConstraintGraph graph, final int[] order,
+            final Object[] keys, final SequenceLayoutCache cache) {
+
+        int[] layers = new int[graph.getNodeCount()];
+        boolean[] changed = new boolean[graph.getNodeCount()];
+
+        for (int node : order) {
+            CachedNode cached = keys[node] == null ? null : cache.getNode(keys[node]);
+            if (cached == null || !cached.hasPredecessors(predecessorKeys(graph, node, keys))) {
+                changed[node] = true;
+            }
+
+            if (changed[node]) {
+                layers[node] = -1;
+                for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                        edge = graph.nextOutgoing(edge)) {
+
+                    changed[graph.getTarget(edge)] = true;
+                }
+            } else {
+                layers[node] = cached.getLayer();
+            }
+        }
+
+        return layers;
+    }
+
+    /**
+     * Orders the nodes in each layer like the previous run did, since the coordinate calculation
+     * places the messages of a layer in that order. Nodes that didn't keep their layer follow the
+     * others in the order of their numbers.
+     *
+     * @param lgraph
+     *            the layered graph
+     * @param fixedLayers
+     *            the previous layer of each unchanged node, {@code -1} for all other nodes
+     * @param keys
+     *            the key of each node
+     * @param cache
+     *            the results of the previous layout run
+     */
+    private void restoreOrderInLayers(final LGraph lgraph, final int[] fixedLayers,
+            final Object[] keys, final SequenceLayoutCache cache) {
+
+        final int[] positions = new int[fixedLayers.length];
+        for (int node = 0; node < fixedLayers.length; node++) {
+            positions[node] = fixedLayers[node] >= 0
+                    ? cache.getNode(keys[node]).getPosition() : Integer.MAX_VALUE;
+        }
+
+        // The sort is stable, so the remaining nodes stay in the order of their numbers
+        Comparator<LNode> previousOrder = new Comparator<LNode>() {
+            @Override
+            public int compare(final LNode node1, final LNode node2) {
+                return Integer.compare(
+                        positions[node1.getProperty(InternalSequenceProperties.CONSTRAINT_NODE)],
+                        positions[node2.getProperty(InternalSequenceProperties.CONSTRAINT_NODE)]);
+            }
+        };
+        for (Layer layer : lgraph.getLayers()) {
+            Collections.sort(layer.getNodes(), previousOrder);
+        }
+    }
+
+    /**
+     * Stores the layer, the position in the layer and the predecessors of every recognizable node
+     * in the cache, replacing the results of the previous run.
+     *
+     * @param context
+     *            the layout context, already layered
+     * @param keys
+     *            the key of each node
+     * @param cache
+     *            the cache to update
+     */
+    private void rememberLayering(final LayoutContext context, final Object[] keys,
+            final SequenceLayoutCache cache) {
+
+        ConstraintGraph graph = context.constraintGraph;
+        Map<Object, CachedNode> nodes = Maps.newHashMapWithExpectedSize(keys.length);
+
+        List<Layer> layers = context.lgraph.getLayers();
+        for (int layer = 0; layer < layers.size(); layer++) {
+            int position = 0;
+            for (LNode lnode : layers.get(layer).getNodes()) {
+                // Dummy nodes of expanded long edges are not part of the constraint graph
+                int node = lnode.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+                if (node == ConstraintGraph.NONE) {
+                    continue;
+                }
+
+                List<Object> predecessors = predecessorKeys(graph, node, keys);
+
+                // Nodes that cannot be recognized, or whose predecessors cannot, will count as
+                // changed in the next run anyway
+                if (keys[node] != null && !predecessors.contains(null)) {
+                    nodes.put(keys[node], new CachedNode(layer, position, predecessors));
+                }
+                position++;
+            }
+        }
+
+        cache.setNodes(nodes);
+    }
+
+    /**
+     * Returns the keys of the given node's predecessors.
+     */
+    private static List<Object> predecessorKeys(final ConstraintGraph graph, final int node,
+            final Object[] keys) {
+
+        List<Object> predecessors = Lists.newArrayListWithCapacity(2);
+        for (int edge = graph.firstIncoming(node); edge != ConstraintGraph.NONE;
+                edge = graph.nextIncoming(edge)) {
+
+            predecessors.add(keys[graph.getSource(edge)]);
+        }
+        return predecessors;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Node Keys
+
+    /**
+     * Key of a node derived from the key of another node: the second node of a split message
+     * derives its key from the message, a dummy node from its successor.
+     */
+    private static final class NodeKey {
+
+        /** The key this key is derived from. */
+        private final Object base;
+        /** Whether this is the key of a split node rather than a dummy node. */
+        private final boolean split;
+        /** The number of layers a dummy node reserves, or zero for split nodes. */
+        private final int length;
+
+        /**
+         * Creates a new derived key.
+         *
+         * @param base
+         *            the key this key is derived from.
+         * @param split
+         *            whether this is the key of a split node rather than a dummy node.
+         * @param length
+         *            the number of layers a dummy node reserves, or zero for split nodes.
+         */
+        NodeKey(final Object base, final boolean split, final int length) {
+            this.base = base;
+            this.split = split;
+            this.length = length;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof NodeKey) {
+                NodeKey other = (NodeKey) obj;
+                return split == other.split && length == other.length
+                        && base.equals(other.base);
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(base, split, length);
+        }
+    }
+
+}
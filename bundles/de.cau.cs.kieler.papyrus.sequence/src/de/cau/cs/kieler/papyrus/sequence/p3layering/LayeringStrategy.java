@@ -0,0 +1,54 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p3layering;
+
+/**
+ * Definition of available layering strategies for the sequence diagram layouter. Layering decides
+ * the vertical order of messages.
+ */
+public enum LayeringStrategy {
+
+    /**
+     * Minimize the total length of lifeline segments between consecutive messages with KLay
+     * Layered's network simplex layerer. Produces compact diagrams, but becomes slow on large ones.
+     */
+    NETWORK_SIMPLEX,
+
+    /**
+     * Place every message as high as its predecessors allow. Runs in linear time and uses as few
+     * layers as possible, but messages that start a lifeline's chain of messages may end up far
+     * above their successors.
+     */
+    LONGEST_PATH,
+
+    /**
+     * Start like {@link #LONGEST_PATH}, then move messages down towards their successors along the
+     * lifelines wherever that shortens the lifeline segments between messages. Runs in linear time
+     * and approximates {@link #NETWORK_SIMPLEX}.
+     */
+    LIFELINE_CHAINS;
+
+
+    /**
+     * Returns the enumeration value related to the given ordinal.
+     * 
+     * @param i
+     *            ordinal value
+     * @return the related enumeration value
+     */
+    public static LayeringStrategy valueOf(final int i) {
+        return values()[i];
+    }
+
+}
@@ -23,7 +23,8 @@ import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
  * Uses KLay Layered's {@link NetworkSimplexLayerer} to compute a layering for the messages in the
  * LGraph representation of a sequence diagram. This simply delegates to the network simplex layerer,
  * but needs to be in its own class because the network simplex layerer doesn't implement out layout
- * processor interface.
+ * processor interface. The LGraph is created from the constraint graph right before layering, since
+ * this is the first phase to need it.
  * 
  * @author cds
  */
@@ -34,6 +35,9 @@ public final class MessageLayerer implements ISequenceLayoutProcessor {
      */
     @Override
     public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        // The network simplex layerer only knows edges of length one
+        context.lgraph = context.constraintGraph.toLayeredGraph(context.debugMode, true);
+        
         NetworkSimplexLayerer layerer = new NetworkSimplexLayerer();
         layerer.process(context.lgraph, progressMonitor);
     }
@@ -0,0 +1,242 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p3layering;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+
+/**
+ * Layers very long diagrams in parallel, in partitions of consecutive messages. The nodes of the
+ * constraint graph are split into partitions in topological order, each with at least
+ * {@link LayoutContext#layeringPartitionSize} message nodes. Partitions are only split where no
+ * edge longer than one crosses the split, so every edge between two partitions is satisfied by
+ * placing the later partition below the earlier one. Each partition is layered on its own by the
+ * layerer of the configured {@link LayeringStrategy}, and its layers are placed below those of the
+ * partitions before it.
+ *
+ * <p>
+ * The partitions are layered in parallel on the common {@link ForkJoinPool}. Since a partition is
+ * layered without knowing its neighbors, the layering is only as compact as the layerer makes it
+ * within each partition. Only layering is split up: the layered graph handed to the later phases
+ * covers the whole diagram, so lifelines are sorted and coordinates are calculated as usual.
+ * </p>
+ */
+public final class ParallelMessageLayerer implements ISequenceLayoutProcessor {
+
+    /** The layerer used for each partition. */
+    private final ISequenceLayoutProcessor partitionLayerer;
+
+
+    /**
+     * Creates a new parallel layerer.
+     *
+     * @param partitionLayerer
+     *            the layerer used for each partition. Must not depend on state kept between runs,
+     *            since it runs on several partitions at once.
+     */
+    public ParallelMessageLayerer(final ISequenceLayoutProcessor partitionLayerer) {
+        this.partitionLayerer = partitionLayerer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        ConstraintGraph graph = context.constraintGraph;
+        List<int[]> partitions = splitIntoPartitions(graph,
+                TopologicalMessageLayerer.topologicalOrder(graph), context.layeringPartitionSize);
+
+        progressMonitor.begin("Parallel layering", partitions.size());
+
+        // Diagrams that fit into a single partition are layered as usual
+        if (partitions.size() < 2) {
+            partitionLayerer.process(context, progressMonitor.subTask(1));
+            progressMonitor.done();
+            return;
+        }
+
+        // The partitions don't overlap, so one array holds the position of every node in its
+        // partition
+        int[] positions = new int[graph.getNodeCount()];
+        for (int[] nodes : partitions) {
+            for (int i = 0; i < nodes.length; i++) {
+                positions[nodes[i]] = i;
+            }
+        }
+
+        List<Partition> tasks = Lists.newArrayListWithCapacity(partitions.size());
+        for (int[] nodes : partitions) {
+            Partition partition = new Partition(partitionLayerer, context, nodes, positions);
+            tasks.add(partition);
+            ForkJoinPool.commonPool().execute(partition);
+        }
+
+        // Stack the partitions' layers in the order of the partitions
+        int[] layers = new int[graph.getNodeCount()];
+        int offset = 0;
+        for (Partition partition : tasks) {
+            int[] partitionLayers = partition.join();
+            int layerCount = 0;
+            for (int i = 0; i < partitionLayers.length; i++) {
+                layers[partition.nodes[i]] = offset + partitionLayers[i];
+                layerCount = Math.max(layerCount, partitionLayers[i] + 1);
+            }
+            offset += layerCount;
+            progressMonitor.worked(1);
+        }
+
+        context.lgraph = graph.toLayeredGraph(context.debugMode, false);
+        TopologicalMessageLayerer.applyLayers(graph, context.lgraph, layers);
+
+        progressMonitor.done();
+    }
+
+    /**
+     * Splits the nodes into partitions of consecutive nodes in the given order. A partition is
+     * closed once it contains enough message nodes and no edge longer than one leaves it.
+     *
+     * @param graph
+     *            the constraint graph
+     * @param order
+     *            the nodes in topological order
+     * @param partitionSize
+     *            the minimum number of message nodes per partition, except for the last one
+     * @return the nodes of each partition, in the given order
+     */
+    private static List<int[]> splitIntoPartitions(final ConstraintGraph graph,
+            final int[] order, final int partitionSize) {
+
+        List<int[]> partitions = Lists.newArrayList();
+        int partitionStart = 0;
+        int messageCount = 0;
+        int openLongEdges = 0;
+
+        for (int i = 0; i < order.length; i++) {
+            int node = order[i];
+
+            // Long edges stay open from their source to their target
+            for (int edge = graph.firstIncoming(node); edge != ConstraintGraph.NONE;
+                    edge = graph.nextIncoming(edge)) {
+
+                if (graph.getMinLength(edge) > 1) {
+                    openLongEdges--;
+                }
+            }
+            for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                    edge = graph.nextOutgoing(edge)) {
+
+                if (graph.getMinLength(edge) > 1) {
+                    openLongEdges++;
+                }
+            }
+
+            if (graph.getMessage(node) != null) {
+                messageCount++;
+            }
+            if (messageCount >= partitionSize && openLongEdges == 0) {
+                partitions.add(Arrays.copyOfRange(order, partitionStart, i + 1));
+                partitionStart = i + 1;
+                messageCount = 0;
+            }
+        }
+
+        if (partitionStart < order.length) {
+            partitions.add(Arrays.copyOfRange(order, partitionStart, order.length));
+        }
+        return partitions;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Partitions
+
+    /**
+     * Layers the subgraph of a partition. Its result is the layer of each of the partition's nodes,
+     * counted from the partition's first layer.
+     */
+    private static final class Partition extends RecursiveTask<int[]> {
+        /** Serialization is not used. */
+        private static final long serialVersionUID = 1L;
+
+        /** The layerer to layer the partition with. */
+        private final ISequenceLayoutProcessor layerer;
+        /** The context of the whole diagram. */
+        private final LayoutContext context;
+        /** The partition's nodes in the constraint graph of the whole diagram. */
+        private final int[] nodes;
+        /** The position of every node of the whole diagram in its partition. */
+        private final int[] positions;
+
+
+        /**
+         * Creates a task that layers the given partition.
+         *
+         * @param layerer
+         *            the layerer to layer the partition with.
+         * @param context
+         *            the context of the whole diagram.
+         * @param nodes
+         *            the partition's nodes in the constraint graph of the whole diagram.
+         * @param positions
+         *            the position of every node of the whole diagram in its partition.
+         */
+        Partition(final ISequenceLayoutProcessor layerer, final LayoutContext context,
+                final int[] nodes, final int[] positions) {
+
+            this.layerer = layerer;
+            this.context = context;
+            this.nodes = nodes;
+            this.positions = positions;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected int[] compute() {
+            LayoutContext partitionContext = LayoutContext.fromSGraph(context.sgraph,
+                    context.constraintGraph.subgraph(nodes, positions), context.settings);
+            layerer.process(partitionContext, new BasicProgressMonitor());
+
+            // Dummy nodes of expanded long edges are not part of the partition's constraint graph
+            int[] layers = new int[nodes.length];
+            List<Layer> partitionLayers = partitionContext.lgraph.getLayers();
+            for (int layer = 0; layer < partitionLayers.size(); layer++) {
+                for (LNode lnode : partitionLayers.get(layer).getNodes()) {
+                    int node = lnode.getProperty(InternalSequenceProperties.CONSTRAINT_NODE);
+                    if (node != ConstraintGraph.NONE) {
+                        layers[node] = layer;
+                    }
+                }
+            }
+            return layers;
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p3layering;
+
+import java.util.List;
+
+import org.eclipse.elk.alg.layered.graph.LGraph;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+
+/**
+ * Computes a layering for the messages directly on the constraint graph in time linear in its size.
+ * Implements the {@link LayeringStrategy#LONGEST_PATH} and {@link LayeringStrategy#LIFELINE_CHAINS}
+ * strategies.
+ * 
+ * <p>
+ * Nodes are first visited in topological order and each placed as far below its predecessors as
+ * the lengths of its incoming edges require. Then, nodes are visited in reverse topological order
+ * and moved down as far as their successors allow if that doesn't lengthen the lifeline segments.
+ * This is always done for dummy nodes, since they are meant to reserve space directly above their
+ * successor.
+ * With {@link LayeringStrategy#LIFELINE_CHAINS}, it is also done for nodes that have more outgoing
+ * than incoming edges: each of their outgoing edges gets shorter by the same amount each of their
+ * incoming edges gets longer. Since every edge is the segment of a lifeline between two consecutive
+ * messages, each lifeline's chain of messages stays as compact as possible. Layers left empty are
+ * removed, except for those reserved by edges longer than one.
+ * </p>
+ */
+public final class TopologicalMessageLayerer implements ISequenceLayoutProcessor {
+
+    /** Whether message nodes are moved towards their successors as well. */
+    private final boolean compactChains;
+
+
+    /**
+     * Creates a new layerer.
+     * 
+     * @param compactChains
+     *            {@code true} to move message nodes towards their successors where that shortens
+     *            lifeline segments, {@code false} to only move dummy nodes.
+     */
+    public TopologicalMessageLayerer(final boolean compactChains) {
+        this.compactChains = compactChains;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Topological layering", 1);
+
+        ConstraintGraph graph = context.constraintGraph;
+        int[] order = topologicalOrder(graph);
+        int[] layers = computeLayers(graph, order, compactChains, null);
+
+        context.lgraph = graph.toLayeredGraph(context.debugMode, false);
+        applyLayers(graph, context.lgraph, layers);
+
+        progressMonitor.done();
+    }
+
+    /**
+     * Computes the layer of each node as described in the class comment. Nodes can be given fixed
+     * layers, in which case they are neither placed nor moved. Fixed layers must already be below
+     * those of the nodes' predecessors, and the predecessors must have fixed layers as well.
+     * 
+     * @param graph
+     *            the constraint graph
+     * @param order
+     *            the nodes in topological order
+     * @param compactChains
+     *            whether message nodes are moved towards their successors as well
+     * @param fixedLayers
+     *            the fixed layer of each node, or a negative value for nodes to be placed. May be
+     *            {@code null} if no node has a fixed layer.
+     * @return the layer of each node. Some layers may be empty.
+     */
+    static int[] computeLayers(final ConstraintGraph graph, final int[] order,
+            final boolean compactChains, final int[] fixedLayers) {
+
+        int nodeCount = graph.getNodeCount();
+        int[] inDegree = new int[nodeCount];
+        int[] outDegree = new int[nodeCount];
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            outDegree[graph.getSource(edge)]++;
+            inDegree[graph.getTarget(edge)]++;
+        }
+
+        int[] layers = new int[nodeCount];
+        boolean[] fixed = new boolean[nodeCount];
+        if (fixedLayers != null) {
+            for (int node = 0; node < nodeCount; node++) {
+                fixed[node] = fixedLayers[node] >= 0;
+                layers[node] = Math.max(fixedLayers[node], 0);
+            }
+        }
+
+        // Place every node below all of its predecessors
+        for (int node : order) {
+            for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                    edge = graph.nextOutgoing(edge)) {
+
+                int target = graph.getTarget(edge);
+                if (!fixed[target]) {
+                    layers[target] = Math.max(layers[target],
+                            layers[node] + graph.getMinLength(edge));
+                }
+            }
+        }
+
+        // Move nodes down towards their successors, which have already reached their final layer
+        for (int i = order.length - 1; i >= 0; i--) {
+            int node = order[i];
+            boolean isDummy = graph.getMessage(node) == null;
+            if (!fixed[node] && outDegree[node] > 0
+                    && (isDummy || compactChains && outDegree[node] > inDegree[node])) {
+
+                int lowestLayer = Integer.MAX_VALUE;
+                for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                        edge = graph.nextOutgoing(edge)) {
+
+                    int target = graph.getTarget(edge);
+                    lowestLayer = Math.min(lowestLayer,
+                            layers[target] - graph.getMinLength(edge));
+                }
+                layers[node] = lowestLayer;
+            }
+        }
+
+        return layers;
+    }
+
+    /**
+     * Computes a topological order of the graph's nodes. Nodes without predecessors come first, in
+     * the order of their numbers.
+     * 
+     * @param graph
+     *            the constraint graph
+     * @return the nodes in topological order
+     */
+    static int[] topologicalOrder(final ConstraintGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] remaining = new int[nodeCount];
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            remaining[graph.getTarget(edge)]++;
+        }
+
+        // The order doubles as the queue of nodes whose predecessors have all been ordered
+        int[] order = new int[nodeCount];
+        int tail = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (remaining[node] == 0) {
+                order[tail++] = node;
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            for (int edge = graph.firstOutgoing(order[head]); edge != ConstraintGraph.NONE;
+                    edge = graph.nextOutgoing(edge)) {
+
+                int target = graph.getTarget(edge);
+                if (--remaining[target] == 0) {
+                    order[tail++] = target;
+                }
+            }
+        }
+
+        if (tail < nodeCount) {
+            throw new IllegalStateException("The constraint graph still contains cycles.");
+        }
+        return order;
+    }
+
+    /**
+     * Moves the nodes of the given layered graph into their layers, skipping layers that would stay
+     * empty. The layers directly above the target of an edge longer than one are kept even if
+     * empty, since the edge reserves them. Nodes are expected in the order of their numbers in the
+     * constraint graph.
+     * 
+     * @param graph
+     *            the constraint graph
+     * @param lgraph
+     *            the layered graph created from the constraint graph without expanding long edges
+     * @param layers
+     *            the layer of each node
+     */
+    static void applyLayers(final ConstraintGraph graph, final LGraph lgraph, final int[] layers) {
+        int layerCount = 0;
+        for (int layer : layers) {
+            layerCount = Math.max(layerCount, layer + 1);
+        }
+
+        boolean[] used = new boolean[layerCount];
+        for (int layer : layers) {
+            used[layer] = true;
+        }
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            int target = layers[graph.getTarget(edge)];
+            int firstReserved = Math.max(target - graph.getMinLength(edge) + 1, 0);
+            for (int layer = firstReserved; layer < target; layer++) {
+                used[layer] = true;
+            }
+        }
+
+        Layer[] layerObjects = new Layer[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            if (used[i]) {
+                layerObjects[i] = new Layer(lgraph);
+                lgraph.getLayers().add(layerObjects[i]);
+            }
+        }
+
+        List<LNode> nodes = lgraph.getLayerlessNodes();
+        for (int node = 0; node < nodes.size(); node++) {
+            nodes.get(node).setLayer(layerObjects[layers[node]]);
+        }
+        nodes.clear();
+    }
+
+}
@@ -0,0 +1,516 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p4sorting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Lifeline sorting algorithm that minimizes the number of lifelines crossed by messages. A message
+ * between two lifelines crosses every lifeline placed between them, which makes this the same as
+ * minimizing the total length of messages. Messages from and to the surrounding interaction cross
+ * every lifeline between their lifeline and the left or right border of the diagram, respectively.
+ *
+ * <p>
+ * The order is improved by barycenter passes followed by sifting, which moves one lifeline at a
+ * time to its best position. This is done several times, starting from the lifelines' current
+ * order and from random orders, and the best result is kept. The restarts run in parallel on the
+ * common {@link ForkJoinPool}. If a time budget is configured, the improvement stops once it is
+ * used up, in which case the result depends on the speed of the machine.
+ * </p>
+ */
+public final class CrossingMinimizingLifelineSorter implements ISequenceLayoutProcessor {
+
+    /** The maximum number of barycenter passes per restart. */
+    private static final int MAX_BARYCENTER_PASSES = 10;
+    /** The maximum number of sifting passes per restart. */
+    private static final int MAX_SIFTING_PASSES = 20;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Crossing minimizing lifeline sorting", 1);
+
+        // Start with the lifelines in their current order
+        List<SLifeline> lifelines = Lists.newArrayList(context.sgraph.getLifelines());
+        Collections.sort(lifelines);
+
+        ArrangementProblem problem = new ArrangementProblem(lifelines);
+        long deadline = context.sortingTimeBudget > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(context.sortingTimeBudget)
+                : Long.MAX_VALUE;
+
+        // Restarts after the first one start from random orders
+        int restartCount = Math.max(context.sortingRestarts, 1);
+        List<Restart> restarts = Lists.newArrayListWithCapacity(restartCount);
+        for (int i = 0; i < restartCount; i++) {
+            restarts.add(new Restart(problem, context.randomSeed + i, i > 0, deadline));
+        }
+
+        if (restarts.size() > 1 && lifelines.size() > 2) {
+            for (Restart restart : restarts) {
+                ForkJoinPool.commonPool().execute(restart);
+            }
+        } else {
+            restarts = restarts.subList(0, 1);
+            restarts.get(0).invoke();
+        }
+
+        // Keep the best order, preferring earlier restarts
+        int[] bestOrder = null;
+        long bestCost = Long.MAX_VALUE;
+        for (ForkJoinTask<int[]> restart : restarts) {
+            int[] order = restart.join();
+            long cost = problem.cost(order);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestOrder = order;
+            }
+        }
+
+        List<SLifeline> sortedLifelines = Lists.newArrayListWithCapacity(lifelines.size());
+        for (int i = 0; i < bestOrder.length; i++) {
+            SLifeline lifeline = lifelines.get(bestOrder[i]);
+            lifeline.setHorizontalSlot(i);
+            sortedLifelines.add(lifeline);
+        }
+        context.lifelineOrder = sortedLifelines;
+
+        progressMonitor.done();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Arrangement Problem
+
+    /**
+     * The weighted graph of lifelines the order is computed for. Lifelines are referred to by their
+     * index in the list the problem was created from, and orders are arrays of such indices. The
+     * problem is never modified after its creation and is shared by all restarts.
+     */
+    private static final class ArrangementProblem {
+        /** The number of lifelines. */
+        private final int size;
+        /** Where each lifeline's neighbors start in {@link #neighbors}, indexed by lifeline. */
+        private final int[] neighborStart;
+        /** The neighbors of all lifelines. */
+        private final int[] neighbors;
+        /** The number of messages between a lifeline and the corresponding neighbor. */
+        private final int[] weights;
+        /** The total number of messages to neighbors, indexed by lifeline. */
+        private final int[] degrees;
+        /**
+         * By how much the cost grows with each position a lifeline moves to the right, due to
+         * messages from the left and to the right border of the diagram.
+         */
+        private final int[] borderWeights;
+
+        /**
+         * Creates the problem for the given lifelines.
+         *
+         * @param lifelines
+         *            the lifelines to sort.
+         */
+        ArrangementProblem(final List<SLifeline> lifelines) {
+            size = lifelines.size();
+            Map<SLifeline, Integer> indices = Maps.newHashMapWithExpectedSize(size);
+            for (int i = 0; i < size; i++) {
+                indices.put(lifelines.get(i), i);
+            }
+
+            // Count the messages between each pair of lifelines
+            List<Map<Integer, int[]>> adjacency = Lists.newArrayListWithCapacity(size);
+            borderWeights = new int[size];
+            for (int i = 0; i < size; i++) {
+                adjacency.add(Maps.<Integer, int[]>newHashMap());
+            }
+
+            for (int i = 0; i < size; i++) {
+                SLifeline lifeline = lifelines.get(i);
+                for (SMessage message : lifeline.getOutgoingMessages()) {
+                    Integer target = indices.get(message.getTarget());
+                    if (target == null) {
+                        // Lost messages end next to their lifeline, all others at the right border
+                        if (message.getProperty(SequenceDiagramOptions.MESSAGE_TYPE)
+                                != MessageType.LOST) {
+                            borderWeights[i]--;
+                        }
+                    } else if (target != i) {
+                        addWeight(adjacency.get(i), target);
+                        addWeight(adjacency.get(target), i);
+                    }
+                }
+
+                for (SMessage message : lifeline.getIncomingMessages()) {
+                    // Found messages start next to their lifeline, all others at the left border
+                    if (!indices.containsKey(message.getSource())
+                            && message.getProperty(SequenceDiagramOptions.MESSAGE_TYPE)
+                                != MessageType.FOUND) {
+                        borderWeights[i]++;
+                    }
+                }
+            }
+
+            // Compress the adjacency into arrays
+            neighborStart = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                neighborStart[i + 1] = neighborStart[i] + adjacency.get(i).size();
+            }
+            neighbors = new int[neighborStart[size]];
+            weights = new int[neighborStart[size]];
+            degrees = new int[size];
+            for (int i = 0; i < size; i++) {
+                int next = neighborStart[i];
+                for (Map.Entry<Integer, int[]> entry : adjacency.get(i).entrySet()) {
+                    neighbors[next] = entry.getKey();
+                    weights[next] = entry.getValue()[0];
+                    degrees[i] += weights[next];
+                    next++;
+                }
+            }
+        }
+
+        /**
+         * Increments the weight of the edge to the given neighbor.
+         */
+        private static void addWeight(final Map<Integer, int[]> edges, final int neighbor) {
+            int[] weight = edges.get(neighbor);
+            if (weight == null) {
+                edges.put(neighbor, new int[] {1});
+            } else {
+                weight[0]++;
+            }
+        }
+
+        /**
+         * Computes the cost of the given order, up to a constant.
+         *
+         * @param order
+         *            the lifelines from left to right.
+         * @return the number of lifelines crossed by messages, up to a constant.
+         */
+        long cost(final int[] order) {
+            int[] positions = positionsOf(order);
+            long cost = 0;
+            for (int v = 0; v < size; v++) {
+                cost += (long) borderWeights[v] * positions[v];
+                for (int e = neighborStart[v]; e < neighborStart[v + 1]; e++) {
+                    // Every edge is seen from both of its ends
+                    if (neighbors[e] > v) {
+                        cost += (long) weights[e] * Math.abs(positions[v] - positions[neighbors[e]]);
+                    }
+                }
+            }
+            return cost;
+        }
+
+        /**
+         * Computes the position of each lifeline in the given order.
+         */
+        int[] positionsOf(final int[] order) {
+            int[] positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[order[i]] = i;
+            }
+            return positions;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Restarts
+
+    /**
+     * A single run of the improvement heuristics, starting from a given order.
+     */
+    private static final class Restart extends RecursiveTask<int[]> {
+        /** Serialization is not used. */
+        private static final long serialVersionUID = 1L;
+
+        /** The problem to solve. */
+        private final ArrangementProblem problem;
+        /** The random number generator that decides the sifting order and the start order. */
+        private final Random random;
+        /** Whether to start from a random order instead of the given one. */
+        private final boolean shuffle;
+        /** The {@link System#nanoTime()} after which to stop improving. */
+        private final long deadline;
+
+        /** The current order. */
+        private int[] order;
+        /** The current position of each lifeline. */
+        private int[] positions;
+        /**
+         * The total weight of edges to neighbors placed to the left of each lifeline in the current
+         * order.
+         */
+        private int[] leftWeights;
+
+        /**
+         * Creates a new restart.
+         *
+         * @param problem
+         *            the problem to solve.
+         * @param seed
+         *            the random seed.
+         * @param shuffle
+         *            whether to start from a random order instead of the given one.
+         * @param deadline
+         *            the {@link System#nanoTime()} after which to stop improving.
+         */
+        Restart(final ArrangementProblem problem, final long seed, final boolean shuffle,
+                final long deadline) {
+            this.problem = problem;
+            this.random = new Random(seed);
+            this.shuffle = shuffle;
+            this.deadline = deadline;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected int[] compute() {
+            order = new int[problem.size];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            if (shuffle) {
+                for (int i = order.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+            }
+
+            long cost = problem.cost(order);
+            for (int pass = 0; pass < MAX_BARYCENTER_PASSES && !isOverBudget(); pass++) {
+                int[] candidate = barycenterOrder();
+                long candidateCost = problem.cost(candidate);
+                if (candidateCost >= cost) {
+                    break;
+                }
+                order = candidate;
+                cost = candidateCost;
+            }
+
+            positions = problem.positionsOf(order);
+            computeLeftWeights();
+            for (int pass = 0; pass < MAX_SIFTING_PASSES && !isOverBudget(); pass++) {
+                if (!siftingPass()) {
+                    break;
+                }
+            }
+
+            return order;
+        }
+
+        /**
+         * Checks whether the time budget is used up.
+         */
+        private boolean isOverBudget() {
+            return System.nanoTime() - deadline > 0;
+        }
+
+        /**
+         * Sorts the lifelines by the average position of their neighbors. Lifelines without
+         * neighbors keep their position.
+         */
+        private int[] barycenterOrder() {
+            int[] currentPositions = problem.positionsOf(order);
+            final double[] barycenters = new double[problem.size];
+            Integer[] newOrder = new Integer[problem.size];
+            for (int v = 0; v < problem.size; v++) {
+                newOrder[v] = order[v];
+
+                if (problem.degrees[v] == 0) {
+                    barycenters[v] = currentPositions[v];
+                } else {
+                    double sum = 0;
+                    for (int e = problem.neighborStart[v]; e < problem.neighborStart[v + 1]; e++) {
+                        sum += (double) problem.weights[e] * currentPositions[problem.neighbors[e]];
+                    }
+                    barycenters[v] = sum / problem.degrees[v];
+                }
+            }
+
+            // The sort is stable, so lifelines with equal barycenters keep their order
+            Arrays.sort(newOrder, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer v1, final Integer v2) {
+                    return Double.compare(barycenters[v1], barycenters[v2]);
+                }
+            });
+
+            int[] result = new int[problem.size];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = newOrder[i];
+            }
+            return result;
+        }
+
+        /**
+         * Computes the left weights for the current order.
+         */
+        private void computeLeftWeights() {
+            leftWeights = new int[problem.size];
+            for (int v = 0; v < problem.size; v++) {
+                for (int e = problem.neighborStart[v]; e < problem.neighborStart[v + 1]; e++) {
+                    if (positions[problem.neighbors[e]] < positions[v]) {
+                        leftWeights[v] += problem.weights[e];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sifts every lifeline once, in random order.
+         *
+         * @return whether the order was improved.
+         */
+        private boolean siftingPass() {
+            int[] siftingOrder = order.clone();
+            for (int i = siftingOrder.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = siftingOrder[i];
+                siftingOrder[i] = siftingOrder[j];
+                siftingOrder[j] = tmp;
+            }
+
+            boolean improved = false;
+            int[] edgeWeights = new int[problem.size];
+            for (int v : siftingOrder) {
+                if (isOverBudget()) {
+                    break;
+                }
+                improved |= sift(v, edgeWeights);
+            }
+            return improved;
+        }
+
+        /**
+         * Moves the given lifeline to the position where it causes the fewest crossings.
+         *
+         * @param v
+         *            the lifeline to move.
+         * @param edgeWeights
+         *            array of zeros used to look up the weight of edges to the lifeline, which is
+         *            left filled with zeros.
+         * @return whether the lifeline was moved.
+         */
+        private boolean sift(final int v, final int[] edgeWeights) {
+            for (int e = problem.neighborStart[v]; e < problem.neighborStart[v + 1]; e++) {
+                edgeWeights[problem.neighbors[e]] = problem.weights[e];
+            }
+
+            // Move the lifeline from the leftmost position to the right, one swap at a time. A swap
+            // with u only changes the length of messages between either of them and the others
+            int current = positions[v];
+            long delta = 0;
+            long bestDelta = 0;
+            int bestPosition = 0;
+            long currentDelta = 0;
+            int vLeftWeight = 0;
+            int bestLeftWeight = 0;
+
+            int position = 0;
+            for (int u : order) {
+                if (u == v) {
+                    continue;
+                }
+
+                if (position == current) {
+                    currentDelta = delta;
+                }
+
+                int uLeftWeight = leftWeights[u] - (current < positions[u] ? edgeWeights[u] : 0);
+                int uRightWeight = problem.degrees[u] - edgeWeights[u] - uLeftWeight;
+                int vRightWeight = problem.degrees[v] - vLeftWeight - edgeWeights[u];
+
+                delta += vLeftWeight - vRightWeight + uRightWeight - uLeftWeight
+                        + problem.borderWeights[v] - problem.borderWeights[u];
+                vLeftWeight += edgeWeights[u];
+                position++;
+
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestPosition = position;
+                    bestLeftWeight = vLeftWeight;
+                }
+            }
+            if (position == current) {
+                currentDelta = delta;
+            }
+
+            boolean moved = bestDelta < currentDelta;
+            if (moved) {
+                moveTo(v, bestPosition, edgeWeights);
+                leftWeights[v] = bestLeftWeight;
+            }
+
+            for (int e = problem.neighborStart[v]; e < problem.neighborStart[v + 1]; e++) {
+                edgeWeights[problem.neighbors[e]] = 0;
+            }
+            return moved;
+        }
+
+        /**
+         * Moves a lifeline to a new position, updating the left weights of its neighbors.
+         */
+        private void moveTo(final int v, final int target, final int[] edgeWeights) {
+            int current = positions[v];
+            if (current < target) {
+                // Everything in between shifts left, and now has v on its right
+                for (int i = current; i < target; i++) {
+                    order[i] = order[i + 1];
+                    positions[order[i]] = i;
+                    leftWeights[order[i]] -= edgeWeights[order[i]];
+                }
+            } else {
+                // Everything in between shifts right, and now has v on its left
+                for (int i = current; i > target; i--) {
+                    order[i] = order[i - 1];
+                    positions[order[i]] = i;
+                    leftWeights[order[i]] += edgeWeights[order[i]];
+                }
+            }
+            order[target] = v;
+            positions[v] = target;
+        }
+    }
+
+}
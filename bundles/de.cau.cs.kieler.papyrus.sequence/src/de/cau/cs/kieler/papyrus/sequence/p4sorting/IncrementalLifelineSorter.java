@@ -0,0 +1,217 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p4sorting;
+
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkGraphElement;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutCache;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraphElement;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+
+/**
+ * Lifeline sorting algorithm that keeps the order of the previous layout run kept in the layout
+ * context's {@link SequenceLayoutCache}. Lifelines that were removed since are simply left out. If
+ * there is no previous order or if lifelines were added, the lifelines are sorted by the sorter of
+ * the configured {@link LifelineSortingStrategy}.
+ *
+ * <p>
+ * Some sorters also place the dummy lifelines of lost and found messages. Those have no node of
+ * their own and are recognized by the message they belong to. If the previous order contains dummy
+ * lifelines, dummy lifelines of new lost or found messages count as added lifelines.
+ * </p>
+ */
+public final class IncrementalLifelineSorter implements ISequenceLayoutProcessor {
+
+    /** The sorter used if the previous order cannot be reused. */
+    private final ISequenceLayoutProcessor fullSorter;
+
+
+    /**
+     * Creates a new incremental lifeline sorter.
+     *
+     * @param fullSorter
+     *            the sorter used if the previous order cannot be reused.
+     */
+    public IncrementalLifelineSorter(final ISequenceLayoutProcessor fullSorter) {
+        this.fullSorter = fullSorter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Incremental lifeline sorting", 1);
+
+        SequenceLayoutCache cache = context.layoutCache;
+        List<Object> previousOrder = cache.getLifelineOrder();
+
+        // Index the previous order; it is ambiguous if several lifelines shared a key
+        Map<Object, Integer> slotOfKey = Maps.newHashMapWithExpectedSize(previousOrder.size());
+        boolean reusable = !previousOrder.isEmpty();
+        boolean withDummies = false;
+        for (int slot = 0; slot < previousOrder.size() && reusable; slot++) {
+            reusable = slotOfKey.put(previousOrder.get(slot), slot) == null;
+            withDummies |= previousOrder.get(slot) instanceof DummyKey;
+        }
+
+        // Find each lifeline's position in the previous order
+        List<SLifeline> lifelines = context.sgraph.getLifelines();
+        if (withDummies) {
+            lifelines = withDummyLifelines(lifelines);
+        }
+        int[] previousSlots = new int[lifelines.size()];
+        for (int i = 0; i < lifelines.size() && reusable; i++) {
+            Integer slot = slotOfKey.get(keyOf(lifelines.get(i)));
+            reusable = slot != null;
+            if (reusable) {
+                previousSlots[i] = slot;
+            }
+        }
+
+        if (reusable) {
+            // Bucket the lifelines by their previous slot, which are unique if the keys are
+            SLifeline[] slots = new SLifeline[previousOrder.size()];
+            for (int i = 0; i < lifelines.size(); i++) {
+                slots[previousSlots[i]] = lifelines.get(i);
+            }
+
+            List<SLifeline> sortedLifelines = Lists.newArrayListWithCapacity(lifelines.size());
+            for (SLifeline lifeline : slots) {
+                if (lifeline != null) {
+                    lifeline.setHorizontalSlot(sortedLifelines.size());
+                    sortedLifelines.add(lifeline);
+                }
+            }
+
+            if (sortedLifelines.size() == lifelines.size()) {
+                context.lifelineOrder = sortedLifelines;
+            } else {
+                // Several lifelines share a key, so the previous order is ambiguous
+                reusable = false;
+            }
+        }
+
+        if (!reusable) {
+            fullSorter.process(context, progressMonitor.subTask(1));
+        }
+
+        // Remember the order for the next run
+        List<Object> order = Lists.newArrayListWithCapacity(context.lifelineOrder.size());
+        for (SLifeline lifeline : context.lifelineOrder) {
+            // Lifelines without a key can't be found in the next run, which then sorts from scratch
+            Object key = keyOf(lifeline);
+            if (key != null) {
+                order.add(key);
+            }
+        }
+        cache.setLifelineOrder(order);
+
+        progressMonitor.done();
+    }
+
+    /**
+     * Returns the given lifelines along with the dummy lifelines of their lost and found messages.
+     */
+    private static List<SLifeline> withDummyLifelines(final List<SLifeline> lifelines) {
+        List<SLifeline> allLifelines = Lists.newArrayList(lifelines);
+        for (SLifeline lifeline : lifelines) {
+            for (SMessage message : lifeline.getOutgoingMessages()) {
+                if (message.getTarget().isDummy()) {
+                    allLifelines.add(message.getTarget());
+                }
+            }
+            for (SMessage message : lifeline.getIncomingMessages()) {
+                if (message.getSource().isDummy()) {
+                    allLifelines.add(message.getSource());
+                }
+            }
+        }
+        return allLifelines;
+    }
+
+    /**
+     * Returns the key that identifies the given lifeline across layout runs, or {@code null} if it
+     * cannot be recognized. Dummy lifelines are identified by the message they belong to.
+     */
+    private static Object keyOf(final SLifeline lifeline) {
+        if (lifeline.isDummy()) {
+            List<SMessage> messages = lifeline.getMessages();
+            Object key = messages.isEmpty() ? null : originKeyOf(messages.get(0));
+            return key == null ? null : new DummyKey(key);
+        }
+        return originKeyOf(lifeline);
+    }
+
+    /**
+     * Returns the key of the layout graph element the given lifeline or message was imported from,
+     * or {@code null} if it wasn't imported from one.
+     */
+    private static Object originKeyOf(final SGraphElement element) {
+        Object origin = element.getProperty(InternalProperties.ORIGIN);
+        return origin instanceof ElkGraphElement
+                ? SequenceLayoutCache.keyOf((ElkGraphElement) origin) : null;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Dummy Keys
+
+    /**
+     * Key of a dummy lifeline, derived from the key of its lost or found message.
+     */
+    private static final class DummyKey {
+
+        /** The key of the dummy lifeline's message. */
+        private final Object messageKey;
+
+        /**
+         * Creates a new dummy lifeline key.
+         *
+         * @param messageKey
+         *            the key of the dummy lifeline's message.
+         */
+        DummyKey(final Object messageKey) {
+            this.messageKey = messageKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof DummyKey && messageKey.equals(((DummyKey) obj).messageKey);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return messageKey.hashCode();
+        }
+    }
+
+}
@@ -13,8 +13,12 @@
  */
 package de.cau.cs.kieler.papyrus.sequence.p4sorting;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.elk.alg.layered.graph.LGraph;
 import org.eclipse.elk.alg.layered.graph.LNode;
@@ -23,6 +27,7 @@ import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
@@ -38,12 +43,54 @@ import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
  * @kieler.rating proposed yellow grh
  */
 public final class LayerBasedLifelineSorter implements ISequenceLayoutProcessor {
-    /** The next position a lifeline will be placed in. */
-    private int nextPosition;
-    /** List of lifelines to be processed. */
-    private List<SLifeline> unprocessedLifelines = Lists.newArrayList();
-    /** List of lifelines that have already been sorted. */
-    private List<SLifeline> sortedLifelines;
+    
+    /** Orders messages by the layer they are in. */
+    private static final Comparator<SMessage> LAYER_ORDER = new Comparator<SMessage>() {
+        @Override
+        public int compare(final SMessage msg1, final SMessage msg2) {
+            return Integer.compare(msg1.getMessageLayer(), msg2.getMessageLayer());
+        }
+    };
+    
+    /** Orders messages by the in/out relation of their source lifeline, best first. */
+    private static final Comparator<SMessage> RELATION_ORDER = new Comparator<SMessage>() {
+        @Override
+        public int compare(final SMessage msg1, final SMessage msg2) {
+            return Integer.compare(relation(msg2.getSource()), relation(msg1.getSource()));
+        }
+    };
+    
+    /**
+     * The progress of a single sorting run.
+     */
+    private static final class SortingState {
+        /** The next position a lifeline will be placed in. */
+        private int nextPosition = 0;
+        /** List of lifelines that have already been sorted. */
+        private final List<SLifeline> sortedLifelines = Lists.newArrayList();
+        /**
+         * Index of each lifeline. The diagram's lifelines come first, followed by dummy lifelines
+         * in the order they are encountered.
+         */
+        private final Map<SLifeline, Integer> lifelineIndices = Maps.newHashMap();
+        /** The number of lifelines in the diagram, not counting dummy lifelines. */
+        private int lifelineCount;
+        /** The indices of lifelines that have already been sorted. */
+        private final BitSet sortedIndices = new BitSet();
+        /** Layers before this index contain no messages whose source is not sorted yet. */
+        private int nextLayer = -1;
+        /**
+         * Messages in the layer at {@link #nextLayer} whose source is one of the diagram's
+         * lifelines, in the order they would be chosen as uppermost message.
+         */
+        private List<SMessage> layerCandidates = Collections.emptyList();
+        /** Candidates before this index have a sorted source lifeline. */
+        private int nextCandidate = 0;
+        /** Outgoing messages of each lifeline ordered by layer, by lifeline index. */
+        private final List<List<SMessage>> outgoingMessages = Lists.newArrayList();
+        /** Outgoing messages before these indices have a sorted target lifeline, by lifeline index. */
+        private int[] nextOutgoing = new int[0];
+    }
 
     
     /**
@@ -53,46 +100,48 @@ public final class LayerBasedLifelineSorter implements ISequenceLayoutProcessor
     public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
         progressMonitor.begin("Layer based lifeline sorting", 1);
 
-        unprocessedLifelines.addAll(context.sgraph.getLifelines());
-        sortedLifelines = new LinkedList<SLifeline>();
-
         if (context.lgraph.getLayers().size() == 0) {
             // Abort, if no layers are set (e.g. outer node)
-            context.lifelineOrder = unprocessedLifelines;
+            context.lifelineOrder = Lists.newArrayList(context.sgraph.getLifelines());
             return;
         }
 
+        SortingState state = new SortingState();
+        for (SLifeline lifeline : context.sgraph.getLifelines()) {
+            indexOf(lifeline, state);
+        }
+        state.lifelineCount = state.lifelineIndices.size();
+
         // Add the layerIndex Property to messages
         addLayerToMessages(context.lgraph);
 
-        nextPosition = 0;
-
-        while (!unprocessedLifelines.isEmpty()) {
+        while (state.sortedIndices.nextClearBit(0) < state.lifelineCount) {
             // Find the message with the uppermost position whose source has not been set
-            SMessage uppermostMessage = findUppermostMessage(context.lgraph);
+            SMessage uppermostMessage = findUppermostMessage(context.lgraph, state);
             if (uppermostMessage == null) {
                 // Left lifelines are not connected by any message => assign positions arbitrarily
-                assignToNextPosition(unprocessedLifelines.get(0));
+                int unprocessed = state.sortedIndices.nextClearBit(0);
+                assignToNextPosition(context.sgraph.getLifelines().get(unprocessed), state);
                 continue;
             }
             SLifeline x = uppermostMessage.getSource();
 
             // Append Lifeline to the ordered lifelines list
-            assignToNextPosition(x);
+            assignToNextPosition(x, state);
 
             do {
                 // The target of this lifeline is set to next position
                 x = uppermostMessage.getTarget();
 
                 // Append Lifeline to the ordered lifelines list
-                assignToNextPosition(x);
+                assignToNextPosition(x, state);
 
                 // Find the uppermost outgoing message of the next lifeline
-                uppermostMessage = findUppermostOutgoingMessage(context.lgraph, x);
+                uppermostMessage = findUppermostOutgoingMessage(context.lgraph, x, state);
             } while (uppermostMessage != null);
         }
         
-        context.lifelineOrder = sortedLifelines;
+        context.lifelineOrder = state.sortedLifelines;
 
         progressMonitor.done();
     }
@@ -102,16 +151,60 @@ public final class LayerBasedLifelineSorter implements ISequenceLayoutProcessor
      * 
      * @param lifeline
      *            the next lifeline to be placed
+     * @param state
+     *            the state of the current sorting run
      */
-    private void assignToNextPosition(final SLifeline lifeline) {
-        if (!sortedLifelines.contains(lifeline)) {
-            sortedLifelines.add(lifeline);
-            lifeline.setHorizontalSlot(nextPosition);
-            nextPosition++;
-            unprocessedLifelines.remove(lifeline);
+    private void assignToNextPosition(final SLifeline lifeline, final SortingState state) {
+        int index = indexOf(lifeline, state);
+        if (!state.sortedIndices.get(index)) {
+            state.sortedIndices.set(index);
+            state.sortedLifelines.add(lifeline);
+            lifeline.setHorizontalSlot(state.nextPosition);
+            state.nextPosition++;
         }
     }
 
+    /**
+     * Returns the index of the given lifeline, assigning the next free one if it has none yet.
+     * 
+     * @param lifeline
+     *            the lifeline
+     * @param state
+     *            the state of the current sorting run
+     * @return the lifeline's index
+     */
+    private static int indexOf(final SLifeline lifeline, final SortingState state) {
+        Integer index = state.lifelineIndices.get(lifeline);
+        if (index == null) {
+            index = state.lifelineIndices.size();
+            state.lifelineIndices.put(lifeline, index);
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether the given lifeline is one of the diagram's lifelines that has not been sorted
+     * yet.
+     * 
+     * @param lifeline
+     *            the lifeline, may be {@code null}
+     * @param state
+     *            the state of the current sorting run
+     * @return {@code true} if the lifeline still needs to be sorted
+     */
+    private static boolean isUnprocessed(final SLifeline lifeline, final SortingState state) {
+        Integer index = state.lifelineIndices.get(lifeline);
+        return index != null && index < state.lifelineCount && !state.sortedIndices.get(index);
+    }
+
+    /**
+     * Returns the relation of outgoing to incoming messages of the given lifeline. More outgoing
+     * messages are desirable.
+     */
+    private static int relation(final SLifeline lifeline) {
+        return lifeline.getNumberOfOutgoingMessages() - lifeline.getNumberOfIncomingMessages();
+    }
+
     /**
      * Annotate the messages with a layer number.
      * 
@@ -137,39 +230,43 @@ public final class LayerBasedLifelineSorter implements ISequenceLayoutProcessor
      * 
      * @param lgraph
      *            the layered graph
+     * @param state
+     *            the state of the current sorting run
      * @return the uppermost message
      */
-    private SMessage findUppermostMessage(final LGraph lgraph) {
-        List<LNode> candidates = new LinkedList<LNode>();
-        for (Layer layer : lgraph.getLayers()) {
-            for (LNode node : layer.getNodes()) {
-                SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
-                if (message != null && unprocessedLifelines.contains(message.getSource())) {
-                    candidates.add(node);
-                }
+    private SMessage findUppermostMessage(final LGraph lgraph, final SortingState state) {
+        List<Layer> layers = lgraph.getLayers();
+        
+        // Sources never become unsorted again, so candidates can be skipped for good
+        while (true) {
+            List<SMessage> candidates = state.layerCandidates;
+            while (state.nextCandidate < candidates.size()
+                    && !isUnprocessed(candidates.get(state.nextCandidate).getSource(), state)) {
+                state.nextCandidate++;
             }
-            if (candidates.size() == 1) {
-                // If there is only one candidate, return it
-                return (SMessage) candidates.get(0).getProperty(InternalProperties.ORIGIN);
-            } else if (!candidates.isEmpty()) {
-                // If there are more candidates, check, which ones source has the best in/out
-                // relation
-                SMessage bestOne = (SMessage) candidates.get(0).getProperty(InternalProperties.ORIGIN);
-                int bestRelation = Integer.MIN_VALUE;
-                for (LNode node : candidates) {
-                    SMessage candidate = (SMessage) node.getProperty(InternalProperties.ORIGIN);
-                    int relation = candidate.getSource().getNumberOfOutgoingMessages()
-                            - candidate.getSource().getNumberOfIncomingMessages();
-                    if (relation > bestRelation) {
-                        bestRelation = relation;
-                        bestOne = candidate;
-                    }
+            if (state.nextCandidate < candidates.size()) {
+                return candidates.get(state.nextCandidate);
+            }
+            
+            state.nextLayer++;
+            if (state.nextLayer >= layers.size()) {
+                // The left lifelines are not connected by any message
+                return null;
+            }
+            
+            // If there are more candidates in a layer, choose the one whose source has the best
+            // in/out relation. The sort is stable, so ties are resolved by node order
+            candidates = Lists.newArrayList();
+            for (LNode node : layers.get(state.nextLayer).getNodes()) {
+                SMessage candidate = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                if (candidate != null && isUnprocessed(candidate.getSource(), state)) {
+                    candidates.add(candidate);
                 }
-                return bestOne;
             }
+            Collections.sort(candidates, RELATION_ORDER);
+            state.layerCandidates = candidates;
+            state.nextCandidate = 0;
         }
-        // The left lifelines are not connected by any message
-        return null;
     }
 
     /**
@@ -180,20 +277,39 @@ public final class LayerBasedLifelineSorter implements ISequenceLayoutProcessor
      *            the layered graph
      * @param lifeline
      *            the current lifeline
+     * @param state
+     *            the state of the current sorting run
      * @return the uppermost outgoing message
      */
-    private SMessage findUppermostOutgoingMessage(final LGraph lgraph, final SLifeline lifeline) {
-        SMessage uppermostMessage = null;
-        int bestLayer = lgraph.getLayers().size();
-        for (SMessage outgoingMessage : lifeline.getOutgoingMessages()) {
-            if (outgoingMessage.getMessageLayer() < bestLayer) {
-                // check if target lifeline was already set
-                if (unprocessedLifelines.contains(outgoingMessage.getTarget())) {
-                    uppermostMessage = outgoingMessage;
-                    bestLayer = outgoingMessage.getMessageLayer();
-                }
-            }
+    private SMessage findUppermostOutgoingMessage(final LGraph lgraph, final SLifeline lifeline,
+            final SortingState state) {
+        
+        int index = indexOf(lifeline, state);
+        while (state.outgoingMessages.size() <= index) {
+            state.outgoingMessages.add(null);
+        }
+        if (state.nextOutgoing.length <= index) {
+            state.nextOutgoing = Arrays.copyOf(state.nextOutgoing,
+                    Math.max(index + 1, 2 * state.nextOutgoing.length));
         }
-        return uppermostMessage;
+        
+        List<SMessage> messages = state.outgoingMessages.get(index);
+        if (messages == null) {
+            // The sort is stable, so messages in the same layer keep their order
+            messages = Lists.newArrayList(lifeline.getOutgoingMessages());
+            Collections.sort(messages, LAYER_ORDER);
+            state.outgoingMessages.set(index, messages);
+        }
+        
+        // Targets never become unsorted again, so skipped messages can be dropped for good
+        int next = state.nextOutgoing[index];
+        int layerCount = lgraph.getLayers().size();
+        while (next < messages.size() && (messages.get(next).getMessageLayer() >= layerCount
+                || !isUnprocessed(messages.get(next).getTarget(), state))) {
+            next++;
+        }
+        state.nextOutgoing[index] = next;
+        
+        return next < messages.size() ? messages.get(next) : null;
     }
 }
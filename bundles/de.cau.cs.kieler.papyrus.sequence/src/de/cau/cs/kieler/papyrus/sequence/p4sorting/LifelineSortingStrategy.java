@@ -32,7 +32,14 @@ public enum LifelineSortingStrategy {
      * Sort the lifelines according to McAllisters solution for the linear arrangement problem that
      * minimizes the total length of messages.
      */
-    SHORT_MESSAGES;
+    SHORT_MESSAGES,
+    
+    /**
+     * Sort the lifelines such that messages cross as few lifelines as possible, using barycenter
+     * and sifting heuristics with several restarts. Takes longer than the other strategies, unless
+     * a time budget is configured.
+     */
+    CROSSING_MINIMIZATION;
 
     
     /**
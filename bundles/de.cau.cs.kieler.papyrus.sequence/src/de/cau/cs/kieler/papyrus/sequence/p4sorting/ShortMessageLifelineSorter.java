@@ -14,8 +14,8 @@
 package de.cau.cs.kieler.papyrus.sequence.p4sorting;
 
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.elk.alg.layered.graph.LGraph;
 import org.eclipse.elk.alg.layered.graph.LNode;
@@ -24,6 +24,7 @@ import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 
 import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
 
 import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
@@ -47,10 +48,6 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
 
     /** Option that indicates, if the starting node is searched by layering attributes. */
     private boolean layerBased = true;
-    /** List of nodes that are already placed by the algorithm. */
-    private List<EDLSNode> placedNodes;
-    /** The map of lifeline <-> node correspondences. */
-    private HashBiMap<SLifeline, EDLSNode> correspondences;
 
     
     /**
@@ -60,34 +57,45 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
     public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
         progressMonitor.begin("Equal distribution lifeline sorting", 1);
 
-        // Create the simple graph representation that this algorithm works with.
-        createEDLSNodes(context);
+        // Create the simple graph representation that this algorithm works with. The map holds the
+        // lifeline <-> node correspondences.
+        HashBiMap<SLifeline, EDLSNode> correspondences = createEDLSNodes(context);
 
         // Initialize list of nodes that are already placed. Nodes will be inserted one by one here.
-        placedNodes = new LinkedList<EDLSNode>();
+        List<EDLSNode> placedNodes = Lists.newArrayListWithCapacity(correspondences.size());
 
         // Calculate the starting node in a first step
         EDLSNode first;
         if (layerBased) {
-            first = layerBasedFirstNode(context.sgraph, context.lgraph);
+            first = layerBasedFirstNode(context.sgraph, context.lgraph, correspondences);
         } else {
-            first = degreeBasedFirstNode(context.sgraph, context.lgraph);
+            first = degreeBasedFirstNode(context.sgraph, context.lgraph, correspondences);
         }
         placedNodes.add(first);
+
+        // The remaining nodes are queued by their selection factor
+        SelectionQueue queue = new SelectionQueue(correspondences.size());
+        for (EDLSNode node : correspondences.values()) {
+            if (!node.isPlaced()) {
+                queue.add(node);
+            }
+        }
+
         // Update the TL-values for connected nodes
-        first.incrementNeighborsTL();
+        first.incrementNeighborsTL(queue);
 
         // Calculate following nodes one after another
-        for (int i = 2; i <= context.sgraph.getLifelines().size(); i++) {
-            EDLSNode next = calculateNextNode(context.sgraph);
+        while (!queue.isEmpty()) {
+            EDLSNode next = queue.poll();
+            next.setPlaced(true);
             placedNodes.add(next);
             // Update the TL-value for connected nodes
-            next.incrementNeighborsTL();
+            next.incrementNeighborsTL(queue);
         }
 
         // Get the corresponding lifelines
         int i = 0;
-        List<SLifeline> lifelines = new LinkedList<SLifeline>();
+        List<SLifeline> lifelines = Lists.newArrayListWithCapacity(placedNodes.size());
         for (EDLSNode node : placedNodes) {
             SLifeline lifeline = correspondences.inverse().get(node);
             lifelines.add(lifeline);
@@ -97,17 +105,13 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
 
         // Return the list of lifelines in the calculated order
         context.lifelineOrder = lifelines;
-
-        // Free memory
-        placedNodes = null;
-        correspondences = null;
         
         progressMonitor.done();
     }
     
 
     /**
-     * Set the layer-based option.
+     * Set the layer-based option. Must not be changed while the sorter is in use.
      * 
      * @param layerBased
      *            the new value for the layer-based option
@@ -121,13 +125,14 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
      * 
      * @param context
      *            the layout context that contains all relevant information for the current layout run.
+     * @return the map of lifeline <-> node correspondences.
      */
-    private void createEDLSNodes(final LayoutContext context) {
+    private HashBiMap<SLifeline, EDLSNode> createEDLSNodes(final LayoutContext context) {
         // List of lifelines
         List<SLifeline> lifelines = context.sgraph.getLifelines();
 
         // Initialize correspondences list
-        correspondences = HashBiMap.create(lifelines.size());
+        HashBiMap<SLifeline, EDLSNode> correspondences = HashBiMap.create(lifelines.size());
 
         // Create nodes
         for (SLifeline lifeline : lifelines) {
@@ -207,6 +212,13 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
                 }
             }
         }
+
+        // Edge weights are final now
+        for (EDLSNode node : correspondences.values()) {
+            node.updateWeightedDegree();
+        }
+        
+        return correspondences;
     }
 
     /**
@@ -217,9 +229,12 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
      *            the sequence graph
      * @param lgraph
      *            the layered graph
+     * @param correspondences
+     *            the map of lifeline <-> node correspondences
      * @return the node that should be placed in first position
      */
-    private EDLSNode degreeBasedFirstNode(final SGraph sgraph, final LGraph lgraph) {
+    private EDLSNode degreeBasedFirstNode(final SGraph sgraph, final LGraph lgraph,
+            final HashBiMap<SLifeline, EDLSNode> correspondences) {
         // Search the node with the lowest weighted degree
         int minDegree = Integer.MAX_VALUE;
         EDLSNode candidate = null;
@@ -241,21 +256,38 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
      *            the sequence graph
      * @param lgraph
      *            the layered graph
+     * @param correspondences
+     *            the map of lifeline <-> node correspondences
      * @return the node that should be placed in first location
      */
-    private EDLSNode layerBasedFirstNode(final SGraph sgraph, final LGraph lgraph) {
-        List<Layer> layers = lgraph.getLayers();
-        Layer firstLayer = layers.get(0);
-        List<LNode> nodes = firstLayer.getNodes();
-        if (nodes.size() > 1) {
+    private EDLSNode layerBasedFirstNode(final SGraph sgraph, final LGraph lgraph,
+            final HashBiMap<SLifeline, EDLSNode> correspondences) {
+        // Dummy nodes don't represent messages, so look at the uppermost layer with messages
+        List<SMessage> messages = Lists.newArrayList();
+        for (Layer layer : lgraph.getLayers()) {
+            for (LNode node : layer.getNodes()) {
+                SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+            if (!messages.isEmpty()) {
+                break;
+            }
+        }
+        
+        if (messages.size() > 1) {
             // If there is more than one message in the first layer, return the one with the lowest
             // weighted node degree
             EDLSNode candidate = null;
             int bestDegree = Integer.MAX_VALUE;
-            for (LNode node : nodes) {
-                SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+            for (SMessage message : messages) {
                 SLifeline sourceLifeline = message.getSource();
                 EDLSNode cand = correspondences.get(sourceLifeline);
+                if (cand == null) {
+                    // Found messages have no source lifeline
+                    cand = correspondences.get(message.getTarget());
+                }
                 if (cand.getWeightedDegree() < bestDegree) {
                     bestDegree = cand.getWeightedDegree();
                     candidate = cand;
@@ -266,7 +298,7 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
         } else {
             // If there is just one message in the first layer, return the node corresponding to its
             // source lifeline
-            SMessage message = (SMessage) nodes.get(0).getProperty(InternalProperties.ORIGIN);
+            SMessage message = messages.get(0);
             SLifeline sourceLifeline = message.getSource();
             EDLSNode candidate = correspondences.get(sourceLifeline);
             if (candidate == null) {
@@ -278,38 +310,6 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
         }
     }
 
-    /**
-     * Calculate the next node to be set.
-     * 
-     * @param sgraph
-     *            the sequence graph
-     * @return the node that should be placed in the next position
-     */
-    private EDLSNode calculateNextNode(final SGraph sgraph) {
-        int minSF = Integer.MAX_VALUE;
-        EDLSNode candidate = null;
-        for (EDLSNode node : correspondences.values()) {
-            if (!node.isPlaced()) {
-                // Calculate the selection factor as proposed by McAllister
-                int sf = node.getWeightedDegree() - 2 * node.getTl();
-                // If the selection factor is smaller than the ones of other nodes, this is the next
-                // node
-                if (sf < minSF) {
-                    minSF = sf;
-                    candidate = node;
-                } else if (sf == minSF) {
-                    // If the factor is equal, choose the one that is more connected to aready
-                    // placed nodes than the other
-                    if (candidate.getTl() < node.getTl()) {
-                        candidate = node;
-                    }
-                }
-            }
-        }
-        candidate.setPlaced(true);
-        return candidate;
-    }
-    
     
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // EDSLNode Class
@@ -333,6 +333,12 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
         private int tl = 0;
         /** Indicates, if the node was already placed. */
         private boolean placed = false;
+        /** The sum of the weights of connected edges. */
+        private int weightedDegree = 0;
+        /** The order in which the node was added to the selection queue, which decides ties. */
+        private int index;
+        /** Current position in the selection queue's heap, or -1 if the node is not queued. */
+        private int heapPosition = -1;
 
         /** Constructor. */
         public EDLSNode() {
@@ -357,17 +363,32 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
         /**
          * Increment the sum of the edge-weights for neighbored nodes. This is necessary, if this
          * node was placed in the last step.
+         * 
+         * @param queue
+         *            the queue of unplaced nodes, which is updated accordingly
          */
-        public void incrementNeighborsTL() {
-            for (EDLSNode node : edges.keySet()) {
+        public void incrementNeighborsTL(final SelectionQueue queue) {
+            for (Map.Entry<EDLSNode, Integer> edge : edges.entrySet()) {
                 // If a connected node is node placed yet, its TL-value has to be incremented by the
                 // connecting edge's weight
+                EDLSNode node = edge.getKey();
                 if (!node.isPlaced()) {
-                    node.setTl(node.getTl() + edges.get(node));
+                    node.setTl(node.getTl() + edge.getValue());
+                    queue.update(node);
                 }
             }
         }
 
+        /**
+         * Calculate the selection factor as proposed by McAllister. Nodes with a smaller selection
+         * factor are placed first.
+         * 
+         * @return the selection factor
+         */
+        public int getSelectionFactor() {
+            return weightedDegree - 2 * tl;
+        }
+
         /**
          * @return the placed value
          */
@@ -390,11 +411,153 @@ public final class ShortMessageLifelineSorter implements ISequenceLayoutProcesso
          * @return the weighted degree for the node
          */
         public int getWeightedDegree() {
-            int ret = 0;
+            return weightedDegree;
+        }
+
+        /**
+         * Recompute the weighted degree. Must be called whenever edge weights change.
+         */
+        public void updateWeightedDegree() {
+            weightedDegree = 0;
             for (int value : edges.values()) {
-                ret += value;
+                weightedDegree += value;
+            }
+        }
+    }
+    
+    
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Selection Queue Class
+
+    /**
+     * Indexed binary heap of unplaced nodes that yields the next node to be placed. That is the node
+     * with the smallest selection factor. If the factor is equal, the one that is more connected to
+     * already placed nodes comes first, and after that the one that was added first. The selection
+     * factor of a queued node may only decrease, and the queue must be told whenever it does.
+     */
+    private static final class SelectionQueue {
+        /** The heap of queued nodes. */
+        private final EDLSNode[] heap;
+        /** The number of queued nodes. */
+        private int size = 0;
+        /** The number of nodes ever added. */
+        private int added = 0;
+
+        /**
+         * Creates a new queue.
+         * 
+         * @param capacity
+         *            the number of nodes that will be added at most
+         */
+        SelectionQueue(final int capacity) {
+            heap = new EDLSNode[capacity];
+        }
+
+        /**
+         * @return whether the queue is empty
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Adds a node to the queue.
+         * 
+         * @param node
+         *            the node to add
+         */
+        public void add(final EDLSNode node) {
+            node.index = added++;
+            heap[size] = node;
+            node.heapPosition = size;
+            size++;
+            siftUp(node.heapPosition);
+        }
+
+        /**
+         * Removes the node to be placed next from the queue.
+         * 
+         * @return the node
+         */
+        public EDLSNode poll() {
+            EDLSNode first = heap[0];
+            first.heapPosition = -1;
+
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                heap[0].heapPosition = 0;
+                siftDown(0);
+            }
+            heap[size] = null;
+
+            return first;
+        }
+
+        /**
+         * Moves a node whose selection factor has decreased to its new position.
+         * 
+         * @param node
+         *            the queued node
+         */
+        public void update(final EDLSNode node) {
+            siftUp(node.heapPosition);
+        }
+
+        /**
+         * Checks whether the first node is to be placed before the second one.
+         */
+        private static boolean precedes(final EDLSNode node1, final EDLSNode node2) {
+            int sf1 = node1.getSelectionFactor();
+            int sf2 = node2.getSelectionFactor();
+            if (sf1 != sf2) {
+                return sf1 < sf2;
+            } else if (node1.getTl() != node2.getTl()) {
+                return node1.getTl() > node2.getTl();
+            } else {
+                return node1.index < node2.index;
+            }
+        }
+
+        /**
+         * Moves the node at the given heap position up until the heap condition holds.
+         */
+        private void siftUp(final int position) {
+            EDLSNode node = heap[position];
+            int pos = position;
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (!precedes(node, heap[parent])) {
+                    break;
+                }
+                heap[pos] = heap[parent];
+                heap[pos].heapPosition = pos;
+                pos = parent;
+            }
+            heap[pos] = node;
+            node.heapPosition = pos;
+        }
+
+        /**
+         * Moves the node at the given heap position down until the heap condition holds.
+         */
+        private void siftDown(final int position) {
+            EDLSNode node = heap[position];
+            int pos = position;
+            while (2 * pos + 1 < size) {
+                int child = 2 * pos + 1;
+                if (child + 1 < size && precedes(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!precedes(heap[child], node)) {
+                    break;
+                }
+                heap[pos] = heap[child];
+                heap[pos].heapPosition = pos;
+                pos = child;
             }
-            return ret;
+            heap[pos] = node;
+            node.heapPosition = pos;
         }
     }
     
@@ -0,0 +1,743 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p5coordinates;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutConstants;
+import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraphElement;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Calculates coordinates for the objects of a sequence diagram. Messages, lifelines, comments and
+ * areas are placed the same way for every coordinate system. Subclasses adapt the results to what
+ * the exporter of their coordinate system expects: the height of lifelines, the position of the
+ * first lifeline, and the bounds of area nodes.
+ */
+public abstract class AbstractCoordinateCalculator implements ISequenceLayoutProcessor {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Calculate coordinates", 1);
+
+        // Initialize graph size
+        context.sgraph.getSize().x = 0;
+        context.sgraph.getSize().y = 0;
+
+        // Assign vertical position to SMessages
+        calculateMessageYCoords(context);
+
+        // Arrange comments that are connected to a message or lifeline
+        arrangeConnectedComments(context);
+
+        // The height of all "normal-sized" (not affected by create or delete messages) lifelines
+        double lifelinesHeight = calculateLifelinesHeight(context);
+
+        // Position of the next lifeline (at first, of the first lifeline)
+        double xPos = calculateFirstLifelinePosition(context);
+
+        // Set position for lifelines/nodes
+        for (SLifeline lifeline : context.lifelineOrder) {
+            // Dummy lifelines don't need any layout
+            if (lifeline.isDummy()) {
+                continue;
+            }
+
+            // Calculate the spacing between this lifeline and its successor. Place comments.
+            double thisLifelinesSpacing = calculateLifelineSpacing(context, xPos, lifeline);
+
+            // Set position and height for the lifeline. This may be overridden if there are create-
+            // or delete-messages involved.
+            lifeline.getPosition().y = context.lifelineYPos;
+            lifeline.getPosition().x = xPos;
+            lifeline.getSize().y = lifelinesHeight;
+
+            // Apply maximum comment width to new xPos
+            xPos += lifeline.getSize().x + thisLifelinesSpacing;
+
+            // Reset the graph's horizontal size
+            if (context.sgraph.getSize().x < xPos) {
+                context.sgraph.getSize().x = xPos;
+            }
+        }
+
+        finishLifelinePlacement(context);
+
+        // Arrange unconnected comments (after the last lifeline)
+        arrangeUnconnectedComments(context);
+
+        // Handle areas (interactions / combined fragments / interaction operands)
+        List<SequenceArea> areas = context.sgraph.getProperty(SequenceDiagramOptions.AREAS);
+        calculateAreaPosition(context, areas);
+
+        progressMonitor.done();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Coordinate System Adapters
+
+    /**
+     * Calculates the height of lifelines that are not affected by create or delete messages. Called
+     * once the vertical positions of all messages are known, which are reflected by the graph's
+     * height. Implementations may adjust the graph's height.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @return the height of the lifelines.
+     */
+    protected abstract double calculateLifelinesHeight(LayoutContext context);
+
+    /**
+     * Calculates the x coordinate of the first non-dummy lifeline.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @return the first lifeline's x coordinate.
+     */
+    protected abstract double calculateFirstLifelinePosition(LayoutContext context);
+
+    /**
+     * Called once all lifelines are placed, before unconnected comments are placed next to the last
+     * lifeline. Implementations may adjust the graph's width. Does nothing by default.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    protected void finishLifelinePlacement(final LayoutContext context) {
+    }
+
+    /**
+     * Called before areas are placed. Implementations may determine which areas contain which other
+     * areas. Does nothing by default.
+     *
+     * @param areas
+     *            the list of areas in the graph, never {@code null}.
+     */
+    protected void prepareAreas(final List<SequenceArea> areas) {
+    }
+
+    /**
+     * Sets the bounds of an area's layout node, and positions its label if necessary. The area's
+     * own position and size have already been calculated as the bounding box of its messages or
+     * lifelines.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @param area
+     *            the area to place.
+     * @param containmentSpacing
+     *            the offset that keeps the area's border from overlapping those of contained areas.
+     */
+    protected abstract void placeAreaNode(LayoutContext context, SequenceArea area,
+            int containmentSpacing);
+
+    /**
+     * Converts a coordinate calculated for the node of an interaction operand, or of the area that
+     * contains operands, before it is applied. Returns the coordinate unchanged by default.
+     *
+     * @param coordinate
+     *            the calculated coordinate.
+     * @return the coordinate to apply.
+     */
+    protected double operandCoordinate(final double coordinate) {
+        return coordinate;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Messages
+
+    /**
+     * Apply the layering to the SGraph and check for message overlappings.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    private void calculateMessageYCoords(final LayoutContext context) {
+        // Position of first layer of messages
+        double layerpos = context.lifelineYPos + context.lifelineHeader + context.messageSpacing;
+
+        // Iterate the layers of nodes that represent messages
+        for (Layer layer : context.lgraph.getLayers()) {
+            List<LNode> nodes = layer.getNodes();
+            MessageOverlapIndex overlapIndex = new MessageOverlapIndex(nodes);
+
+            // Iterate the nodes of the layer
+            for (int nodeIndex = 0; nodeIndex < nodes.size(); nodeIndex++) {
+                LNode node = nodes.get(nodeIndex);
+
+                // Get the corresponding message and skip dummy nodes (which don't have a message)
+                SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                if (message == null) {
+                    continue;
+                }
+
+                // Check if the node was split (in that case, each parts of the split node have their
+                // corresponding lifeline set)
+                SLifeline lifeline = node.getProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE);
+                if (lifeline != null) {
+                    if (message.getTarget() == lifeline) {
+                        message.setTargetYPos(layerpos);
+                    } else {
+                        message.setSourceYPos(layerpos);
+                    }
+                    continue;
+                }
+
+                // Skip the message if its position was already fully set
+                if (message.isLayerPositionSet()) {
+                    continue;
+                }
+
+                // If the message crosses at least one lifeline, check for overlappings with the
+                // first message in the layer that is either placed already or a short one
+                if (!overlapIndex.isShort(nodeIndex)) {
+                    int otherIndex = overlapIndex.findBlockingNode(nodeIndex);
+                    if (otherIndex >= 0) {
+                        LNode otherNode = nodes.get(otherIndex);
+                        SMessage otherMessage =
+                                (SMessage) otherNode.getProperty(InternalProperties.ORIGIN);
+
+                        if (!otherMessage.isLayerPositionSet()) {
+                            // If the other message has not been placed yet, it is a short one and
+                            // will be placed here
+                            otherMessage.setLayerYPos(layerpos);
+                        }
+
+                        // The current message has to be placed in another layer
+                        layerpos += context.messageSpacing;
+                    }
+                }
+
+                // Set the vertical position of the message
+                message.setLayerYPos(layerpos);
+                overlapIndex.positionSet(nodeIndex);
+
+                // Handle selfloops
+                if (message.getSource() == message.getTarget()) {
+                    message.setSourceYPos(layerpos - context.messageSpacing / 2);
+                }
+            }
+
+            // Advance to the next message routing slot
+            layerpos += context.messageSpacing;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Comments
+
+    /**
+     * Preprocessor that does some organizing stuff for connected comment objects.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    private void arrangeConnectedComments(final LayoutContext context) {
+        // Lifelines by horizontal slot, built once the first comment needs it
+        Map<Integer, SLifeline> lifelinesBySlot = null;
+
+        for (SComment comment : context.sgraph.getComments()) {
+            SMessage message = null;
+            SLifeline lifeline = null;
+            // Get random connected message and lifeline if existing
+            // This may be optimized if there is more than one connection
+            for (SGraphElement element : comment.getAttachedTo()) {
+                if (element instanceof SMessage) {
+                    message = (SMessage) element;
+                } else if (element instanceof SLifeline) {
+                    lifeline = (SLifeline) element;
+                }
+            }
+
+            comment.setMessage(message);
+            comment.setLifeline(lifeline);
+
+            /* If the comment is attached to a message, determine if it should be drawn near the
+             * beginning or near the end of the message. If the comment is attached to a message and
+             * one of the message's lifelines, it should be drawn near that lifeline (this is the
+             * case for time observations for example).
+             */
+            if (message != null) {
+                SLifeline right, left;
+                if (message.getSource().getHorizontalSlot() < message.getTarget()
+                        .getHorizontalSlot()) {
+                    // Message leads rightwards
+                    right = message.getTarget();
+                    left = message.getSource();
+                } else {
+                    // Message leads leftwards or is self-loop
+                    right = message.getSource();
+                    left = message.getTarget();
+                }
+                if (lifeline == right) {
+                    // Find lifeline left to "right" and attach comment to that lifeline because
+                    // comments are drawn right of the connected lifeline.
+                    if (lifelinesBySlot == null) {
+                        lifelinesBySlot = indexLifelinesBySlot(context);
+                    }
+                    SLifeline leftNeighbor = lifelinesBySlot.get(right.getHorizontalSlot() - 1);
+                    if (leftNeighbor != null) {
+                        comment.setLifeline(leftNeighbor);
+                    }
+                } else {
+                    comment.setLifeline(left);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps horizontal slots to the first lifeline of the graph that occupies them.
+     */
+    private Map<Integer, SLifeline> indexLifelinesBySlot(final LayoutContext context) {
+        List<SLifeline> lifelines = context.sgraph.getLifelines();
+        Map<Integer, SLifeline> lifelinesBySlot = Maps.newHashMapWithExpectedSize(lifelines.size());
+        for (SLifeline lifeline : lifelines) {
+            lifelinesBySlot.putIfAbsent(lifeline.getHorizontalSlot(), lifeline);
+        }
+        return lifelinesBySlot;
+    }
+
+    /**
+     * Calculate positions for comments that are not connected to any element. They will be drawn
+     * after the last lifeline.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    private void arrangeUnconnectedComments(final LayoutContext context) {
+        // The width of the widest comment that has to be placed after the last lifeline
+        double commentMaxExtraWidth = 0;
+        // The vertical position of the next comment that is drawn after the last lifeline
+        double commentNextYPos = context.lifelineHeader + context.lifelineYPos;
+
+        for (SComment comment : context.sgraph.getComments()) {
+            if (comment.getMessage() == null) {
+                // Unconnected comments
+                if (comment.getSize().x > commentMaxExtraWidth) {
+                    commentMaxExtraWidth = comment.getSize().x;
+                }
+
+                // Set position of unconnected comments next to the last lifeline
+                comment.getPosition().x = context.sgraph.getSize().x;
+                comment.getPosition().y = commentNextYPos;
+                commentNextYPos += comment.getSize().y + context.messageSpacing;
+            }
+        }
+
+        if (commentMaxExtraWidth > 0) {
+            context.sgraph.getSize().x += context.lifelineSpacing + commentMaxExtraWidth;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Lifelines
+
+    /**
+     * Calculate the spacing between the current lifeline and its successor. This is done by
+     * considering the width of the comments between them and by the width of the widest label
+     * attached to a message between them.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @param xPos
+     *            the horizontal position where the last lifeline was placed
+     * @param lifeline
+     *            the current lifeline
+     * @return the width of the widest comment
+     */
+    private double calculateLifelineSpacing(final LayoutContext context, final double xPos,
+            final SLifeline lifeline) {
+
+        // Initialize spacing with the normal lifeline spacing or with half the normal spacing if the
+        // current lifeline is a dummy
+        double spacing = lifeline.isDummy() ? context.lifelineSpacing / 2 : context.lifelineSpacing;
+
+        // Check, if there are labels longer than the available space
+        for (SMessage message : lifeline.getIncomingMessages()) {
+            if (message.getLabelWidth() > spacing + lifeline.getSize().x) {
+                spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
+                        - lifeline.getSize().x;
+            }
+        }
+
+        for (SMessage message : lifeline.getOutgoingMessages()) {
+            if (message.getLabelWidth() > spacing + lifeline.getSize().x) {
+                spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
+                        - lifeline.getSize().x;
+            }
+
+            // Labels of create messages should not overlap the target's header
+            if (message.getProperty(SequenceDiagramOptions.MESSAGE_TYPE) == MessageType.CREATE) {
+                if (message.getLabelWidth() + SequenceLayoutConstants.LABELMARGIN
+                        > spacing + lifeline.getSize().x / 2) {
+
+                    spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
+                            - message.getTarget().getSize().x / 2;
+                }
+            }
+
+            // Selfloops need a little more space
+            if (message.getSource() == message.getTarget()) {
+                if (message.getLabelWidth() + SequenceLayoutConstants.LABELMARGIN
+                        + context.messageSpacing / 2 > spacing + lifeline.getSize().x / 2) {
+
+                    spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
+                            - lifeline.getSize().x / 2;
+                }
+            }
+        }
+
+        // Get the list of comments attached to the current lifeline
+        List<SComment> comments = lifeline.getComments();
+
+        // Return if there are no comments attached
+        if (comments == null || comments.isEmpty()) {
+            return spacing;
+        }
+
+        // Check maximum size of comments attached to the lifeline
+        for (SComment comment : comments) {
+            if (comment.getSize().x > spacing) {
+                spacing = comment.getSize().x;
+            }
+        }
+
+        // HashMap that organizes which comment belongs to which message. This is important
+        // if there are more than one comments at a message.
+        HashMap<SMessage, SComment> hash = new HashMap<SMessage, SComment>(comments.size());
+        for (SComment comment : comments) {
+            if (comment.getLifeline() == lifeline) {
+                SMessage message = comment.getMessage();
+
+                // Place comment in the center of the message if it is smaller than
+                // lifelineSpacing
+                double commentXPos = xPos + lifeline.getSize().x;
+                if (comment.getSize().x < spacing) {
+                    commentXPos += (spacing - comment.getSize().x) / 2;
+                }
+
+                // Place comment above the message
+                double commentYPos = message.getSourceYPos() + context.lifelineHeader
+                        + context.lifelineYPos - (comment.getSize().y + context.messageSpacing);
+
+                comment.getPosition().x = commentXPos;
+                comment.getPosition().y = commentYPos;
+
+                if (hash.containsKey(message)) {
+                    // Handle conflicts (reset yPos if necessary)
+                    SComment upper = comment;
+                    SComment lower = hash.get(message);
+                    NodeType nodeType = comment.getProperty(SequenceDiagramOptions.NODE_TYPE);
+
+                    // If comment is Observation, place it nearer to the message
+                    if (nodeType == NodeType.DURATION_OBSERVATION
+                            || nodeType == NodeType.TIME_OBSERVATION) {
+
+                        upper = lower;
+                        lower = comment;
+                    }
+
+                    // Place lower comment first
+                    commentYPos = message.getSourceYPos() + context.lifelineHeader
+                            + context.lifelineYPos - (lower.getSize().y + context.messageSpacing);
+                    lower.getPosition().y = commentYPos;
+
+                    // Place upper comment near to lower one
+                    double uYpos = lower.getPosition().y - upper.getSize().y
+                            - context.messageSpacing / 2;
+                    upper.getPosition().y = uYpos;
+                } else {
+                    hash.put(message, comment);
+                }
+            }
+        }
+
+        return spacing;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Areas
+
+    /**
+     * Calculate the position of the areas (interactionUse, combined fragment).
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @param areas
+     *            the list of areas in the graph
+     */
+    private void calculateAreaPosition(final LayoutContext context, final List<SequenceArea> areas) {
+        if (areas == null || areas.isEmpty()) {
+            return;
+        }
+
+        prepareAreas(areas);
+
+        // Compute the containment depth and the message bounds of all areas once
+        measureAreas(areas);
+
+        // Set size and position of area
+        for (SequenceArea area : areas) {
+            if (area.getMessages().isEmpty()) {
+                setAreaPositionByLifelinesAndMessage(context, area);
+            }
+
+            // If there are contained areas, an offset has to be calculated in order not to have
+            // overlapping borders
+            int containmentSpacing = (int) (area.getContainmentDepth() * context.containmentOffset);
+
+            // Areas that weren't imported from an ElkGraph have no node to place
+            if (area.getLayoutNode() == null) {
+                continue;
+            }
+
+            placeAreaNode(context, area, containmentSpacing);
+
+            // Handle interaction operands
+            // TODO Review this
+            if (area.getSubAreas().size() > 0) {
+                ElkNode areaNode = area.getLayoutNode();
+
+                // Reset area yPos and height if subAreas exists (to have a "header" that isn't
+                // occupied by any subArea)
+                areaNode.setY(operandCoordinate(area.getPosition().y - context.messageSpacing / 2));
+                areaNode.setHeight(operandCoordinate(
+                        area.getSize().y + context.messageSpacing + context.lifelineHeader));
+
+                double lastPos = 0;
+                ElkNode lastLayout = null;
+                for (SequenceArea subArea : area.getSubAreas()) {
+                    ElkNode subAreaNode = subArea.getLayoutNode();
+
+                    subAreaNode.setX(0);
+                    subAreaNode.setWidth(operandCoordinate(area.getSize().x
+                            + SequenceLayoutConstants.FOURTY + context.lifelineSpacing - 2));
+
+                    if (subArea.getMessages().size() > 0) {
+                        // Set y-position by the area's messages
+                        subAreaNode.setY(operandCoordinate(subArea.getPosition().y
+                                - area.getPosition().y + context.lifelineHeader
+                                - context.messageSpacing / 2));
+                    } else {
+                        // Calculate and set y-position by the available space
+                        subAreaNode.setY(operandCoordinate(lastPos));
+                        // FIXME if subarea is empty, it appears first in the list
+                    }
+
+                    // Reset last subArea's height to fit
+                    if (lastLayout != null) {
+                        lastLayout.setHeight(subAreaNode.getY() - lastLayout.getY());
+                    }
+                    lastPos = subAreaNode.getY() + subAreaNode.getHeight();
+                    lastLayout = subAreaNode;
+                }
+                // Reset last subArea's height to fit
+                if (lastLayout != null) {
+                    lastLayout.setHeight(operandCoordinate(
+                            areaNode.getHeight() - lastLayout.getY() - context.areaHeader));
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the containment depth of every area and its contained areas, and the bounding box
+     * of the messages of every area and sub-area that contains messages. Each area is only looked
+     * at once, no matter how many areas contain it.
+     *
+     * @param areas
+     *            the list of areas in the graph
+     */
+    private void measureAreas(final List<SequenceArea> areas) {
+        Map<SequenceArea, Integer> depths = Maps.newIdentityHashMap();
+        Set<SequenceArea> measured = Sets.newIdentityHashSet();
+
+        for (SequenceArea area : areas) {
+            containmentDepth(area, depths);
+
+            if (!area.getMessages().isEmpty() && measured.add(area)) {
+                setAreaPositionByMessages(area);
+            }
+            for (SequenceArea subArea : area.getSubAreas()) {
+                if (!subArea.getMessages().isEmpty() && measured.add(subArea)) {
+                    setAreaPositionByMessages(subArea);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the maximum depth of the hierarchy of areas contained in the given area and stores
+     * it in the area, unless it is already known.
+     *
+     * @param area
+     *            the {@link SequenceArea}
+     * @param depths
+     *            the depths computed so far
+     * @return the maximum depth of hierarchy
+     */
+    private int containmentDepth(final SequenceArea area, final Map<SequenceArea, Integer> depths) {
+        Integer knownDepth = depths.get(area);
+        if (knownDepth != null) {
+            return knownDepth;
+        }
+
+        int depth = 0;
+        for (SequenceArea containedArea : area.getContainedAreas()) {
+            depth = Math.max(depth, containmentDepth(containedArea, depths) + 1);
+        }
+
+        depths.put(area, depth);
+        area.setContainmentDepth(depth);
+        return depth;
+    }
+
+    /**
+     * Searches all the contained edges and sets the area's position and size such that it is a
+     * bounding box for the contained messages.
+     *
+     * @param area
+     *            the SequenceArea
+     */
+    private void setAreaPositionByMessages(final SequenceArea area) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = 0;
+        double maxY = 0;
+
+        // Compute the bounding box of all contained messages
+        for (Object messObj : area.getMessages()) {
+            if (messObj instanceof SMessage) {
+                // Compute new y coordinates
+                SMessage message = (SMessage) messObj;
+
+                double sourceYPos = message.getSourceYPos();
+                minY = Math.min(minY, sourceYPos);
+                maxY = Math.max(maxY, sourceYPos);
+
+                double targetYPos = message.getTargetYPos();
+                minY = Math.min(minY, targetYPos);
+                maxY = Math.max(maxY, targetYPos);
+
+                // Compute new x coordinates
+                SLifeline sourceLL = message.getSource();
+                double sourceXPos = sourceLL.getPosition().x + sourceLL.getSize().x / 2;
+                minX = Math.min(minX, sourceXPos);
+                maxX = Math.max(maxX, sourceXPos);
+
+                SLifeline targetLL = message.getTarget();
+                double targetXPos = targetLL.getPosition().x + targetLL.getSize().x / 2;
+                minX = Math.min(minX, targetXPos);
+                maxX = Math.max(maxX, targetXPos);
+            }
+        }
+
+        area.getPosition().x = minX;
+        area.getPosition().y = minY;
+        area.getSize().x = maxX - minX;
+        area.getSize().y = maxY - minY;
+    }
+
+    /**
+     * Sets the areas position such that it is a bounding box for the involved lifelines in x
+     * direction and above the next message.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout
+     *            run.
+     * @param area
+     *            the sequence area
+     */
+    private void setAreaPositionByLifelinesAndMessage(final LayoutContext context,
+            final SequenceArea area) {
+
+        // Set xPos and width according to the involved lifelines
+        double minXPos = Double.MAX_VALUE;
+        double maxXPos = 0;
+
+        for (Object lifelineObj : area.getLifelines()) {
+            SLifeline lifeline = (SLifeline) lifelineObj;
+            ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
+
+            // Lifelines that weren't imported from an ElkGraph have been placed already
+            double lifelineCenter = node != null
+                    ? node.getX() + node.getWidth() / 2
+                    : lifeline.getPosition().x + lifeline.getSize().x / 2;
+
+            minXPos = Math.min(minXPos, lifelineCenter);
+            maxXPos = Math.max(maxXPos, lifelineCenter);
+        }
+
+        area.getPosition().x = minXPos;
+        area.getSize().x = maxXPos - minXPos;
+
+        // Set yPos and height according to the next message's yPos
+        if (area.getNextMessage() != null) {
+            Object messageObj = area.getNextMessage();
+            SMessage message = (SMessage) messageObj;
+            ElkEdge edge = (ElkEdge) message.getProperty(InternalProperties.ORIGIN);
+
+            double messageYPos;
+            boolean downwards;
+            if (edge != null) {
+                ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
+                downwards = edgeSection.getStartY() < edgeSection.getEndY();
+            } else {
+                downwards = message.getSourceYPos() < message.getTargetYPos();
+            }
+            if (downwards) {
+                messageYPos = message.getSourceYPos();
+            } else {
+                messageYPos = message.getTargetYPos();
+            }
+
+            area.getSize().y = context.messageSpacing;
+            area.getPosition().y = messageYPos - area.getSize().y - context.messageSpacing;
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p5coordinates;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+
+/**
+ * Finds overlapping messages in a layer of the layered graph, which the coordinate calculators use
+ * to decide whether a message that crosses lifelines has to be moved to a routing slot of its own.
+ * Two messages overlap if an end of one lies strictly between the horizontal slots of the ends of
+ * the other.
+ *
+ * <p>
+ * Only messages that block other messages are indexed: short messages, which connect neighboring
+ * lifelines or are self loops, and messages whose position has already been set. The ends of those
+ * messages are kept in a segment tree over the layer's slots, and so are the slots strictly between
+ * their ends. A query thus finds the first blocking message in the layer's node order in
+ * logarithmic time instead of checking every node of the layer. Dummy nodes don't represent
+ * messages and are ignored.
+ * </p>
+ */
+final class MessageOverlapIndex {
+
+    /** Node index of slots and ranges no blocking message is indexed for. */
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /** The messages represented by the layer's nodes, {@code null} for dummy nodes. */
+    private final SMessage[] messages;
+    /** The lower slot of each node's message. */
+    private final int[] lowerSlots;
+    /** The upper slot of each node's message. */
+    private final int[] upperSlots;
+    /** Whether each node's message is already indexed. */
+    private final boolean[] indexed;
+    /** The distinct slots of the layer's messages, in ascending order. */
+    private final int[] slots;
+    /** Segment tree of the first indexed node with an end in each slot. */
+    private final int[] firstEnds;
+    /** Segment tree of the first indexed node spanning each slot, kept at canonical ranges. */
+    private final int[] firstSpans;
+
+
+    /**
+     * Creates an index for the given layer and adds all messages that block other messages.
+     *
+     * @param nodes
+     *            the nodes of the layer.
+     */
+    MessageOverlapIndex(final List<LNode> nodes) {
+        int nodeCount = nodes.size();
+        messages = new SMessage[nodeCount];
+        lowerSlots = new int[nodeCount];
+        upperSlots = new int[nodeCount];
+        indexed = new boolean[nodeCount];
+
+        int[] allSlots = new int[2 * nodeCount];
+        int slotCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            SMessage message = (SMessage) nodes.get(node).getProperty(InternalProperties.ORIGIN);
+            if (message != null) {
+                int sourceSlot = message.getSource().getHorizontalSlot();
+                int targetSlot = message.getTarget().getHorizontalSlot();
+                messages[node] = message;
+                lowerSlots[node] = Math.min(sourceSlot, targetSlot);
+                upperSlots[node] = Math.max(sourceSlot, targetSlot);
+                allSlots[slotCount++] = sourceSlot;
+                allSlots[slotCount++] = targetSlot;
+            }
+        }
+
+        // Compress the slots to those actually used in this layer
+        Arrays.sort(allSlots, 0, slotCount);
+        int distinctCount = 0;
+        for (int i = 0; i < slotCount; i++) {
+            if (distinctCount == 0 || allSlots[i] != allSlots[distinctCount - 1]) {
+                allSlots[distinctCount++] = allSlots[i];
+            }
+        }
+        slots = Arrays.copyOf(allSlots, distinctCount);
+
+        firstEnds = new int[2 * distinctCount];
+        firstSpans = new int[2 * distinctCount];
+        Arrays.fill(firstEnds, NONE);
+        Arrays.fill(firstSpans, NONE);
+
+        for (int node = 0; node < nodeCount; node++) {
+            if (messages[node] != null
+                    && (isShort(node) || messages[node].isLayerPositionSet())) {
+                add(node);
+            }
+        }
+    }
+
+    /**
+     * Returns the first node in the layer whose message overlaps the given node's message and
+     * either is short or has its position set already.
+     *
+     * @param node
+     *            index of a message node of the layer.
+     * @return index of the overlapping node, or {@code -1} if there is none.
+     */
+    int findBlockingNode(final int node) {
+        int lower = slotIndex(lowerSlots[node]);
+        int upper = slotIndex(upperSlots[node]);
+
+        // Messages with an end strictly between this message's ends, and messages that span one of
+        // this message's ends
+        int first = rangeMin(firstEnds, lower + 1, upper - 1);
+        first = Math.min(first, pointMin(firstSpans, lower));
+        first = Math.min(first, pointMin(firstSpans, upper));
+
+        return first == NONE ? -1 : first;
+    }
+
+    /**
+     * Tells the index that the position of the given node's message was set, which makes it block
+     * other messages.
+     *
+     * @param node
+     *            index of a message node of the layer.
+     */
+    void positionSet(final int node) {
+        if (!indexed[node]) {
+            add(node);
+        }
+    }
+
+    /**
+     * Checks whether the given node's message is a short one.
+     *
+     * @param node
+     *            index of a message node of the layer.
+     * @return {@code true} if the message connects neighboring lifelines or is a self loop.
+     */
+    boolean isShort(final int node) {
+        return upperSlots[node] - lowerSlots[node] <= 1;
+    }
+
+    /**
+     * Adds the given node's message to the index.
+     */
+    private void add(final int node) {
+        indexed[node] = true;
+
+        int lower = slotIndex(lowerSlots[node]);
+        int upper = slotIndex(upperSlots[node]);
+        pointUpdate(firstEnds, lower, node);
+        pointUpdate(firstEnds, upper, node);
+        rangeUpdate(firstSpans, lower + 1, upper - 1, node);
+    }
+
+    /**
+     * Returns the position of the given slot among the layer's slots.
+     */
+    private int slotIndex(final int slot) {
+        return Arrays.binarySearch(slots, slot);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Segment Trees
+
+    /**
+     * Lowers the value of a leaf of the given tree to the given node, if that is smaller.
+     */
+    private void pointUpdate(final int[] tree, final int leaf, final int node) {
+        for (int i = leaf + slots.length; i > 0; i >>= 1) {
+            tree[i] = Math.min(tree[i], node);
+        }
+    }
+
+    /**
+     * Returns the smallest value of the leaves {@code from} to {@code to} of the given tree.
+     */
+    private int rangeMin(final int[] tree, final int from, final int to) {
+        int min = NONE;
+        for (int l = from + slots.length, r = to + slots.length + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0) {
+                min = Math.min(min, tree[l++]);
+            }
+            if ((r & 1) != 0) {
+                min = Math.min(min, tree[--r]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Lowers the values of the leaves {@code from} to {@code to} of the given tree to the given
+     * node by updating the canonical ranges that cover them.
+     */
+    private void rangeUpdate(final int[] tree, final int from, final int to, final int node) {
+        for (int l = from + slots.length, r = to + slots.length + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0) {
+                tree[l] = Math.min(tree[l], node);
+                l++;
+            }
+            if ((r & 1) != 0) {
+                --r;
+                tree[r] = Math.min(tree[r], node);
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a leaf of the given tree, which is the smallest value of all canonical
+     * ranges containing it.
+     */
+    private int pointMin(final int[] tree, final int leaf) {
+        int min = NONE;
+        for (int i = leaf + slots.length; i > 0; i >>= 1) {
+            min = Math.min(min, tree[i]);
+        }
+        return min;
+    }
+
+}
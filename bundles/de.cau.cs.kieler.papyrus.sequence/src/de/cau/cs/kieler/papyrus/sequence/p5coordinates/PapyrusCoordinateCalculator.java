@@ -13,30 +13,19 @@
  */
 package de.cau.cs.kieler.papyrus.sequence.p5coordinates;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
-import org.eclipse.elk.alg.layered.graph.LNode;
-import org.eclipse.elk.alg.layered.options.InternalProperties;
-import org.eclipse.elk.core.util.IElkProgressMonitor;
-import org.eclipse.elk.graph.ElkEdge;
-import org.eclipse.elk.graph.ElkEdgeSection;
 import org.eclipse.elk.graph.ElkNode;
-import org.eclipse.elk.graph.util.ElkGraphUtil;
 
-import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
 import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutConstants;
-import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
-import de.cau.cs.kieler.papyrus.sequence.graph.SGraphElement;
-import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
-import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
-import de.cau.cs.kieler.papyrus.sequence.p6export.PapyrusExporter;
-import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
-import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
-import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
-import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
 
 /**
  * Calculates coordinates for all objects in a sequence diagram. The coordinates are calculated such
@@ -44,647 +33,149 @@ import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
  * them.
  * 
  * <p>
- * The division between this coordinate calculator and the {@link ElkGraphCoordinateCalculator} is
- * mighty unfortunate. At some point, the {@link PapyrusExporter} should be changed to work with the
- * results produced by the {@link ElkGraphCoordinateCalculator}.
+ * Most of the work is done by the {@link AbstractCoordinateCalculator}. This class only adapts the
+ * height of lifelines and the bounds of areas to the way Papyrus stores coordinates.
  * </p>
  * 
  * @author grh
  */
-public class PapyrusCoordinateCalculator implements ISequenceLayoutProcessor {
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
-        progressMonitor.begin("Calculate coordinates", 1);
-        
-        // Initialize graph size
-        context.sgraph.getSize().x = 0;
-        context.sgraph.getSize().y = 0;
-
-        // Assign vertical position to SMessages
-        calculateMessageYCoords(context);
-
-        // Arrange comments that are connected to a message or lifeline
-        arrangeConnectedComments(context);
-
-        // Position of the next lifeline (at first, of the first lifeline)
-        double xPos = context.borderSpacing;
-
-        // The height of all "normal-sized" (not affected by create or delete messages) lifelines
-        double lifelinesHeight =
-                context.lifelineHeader + context.sgraph.getSize().y + context.messageSpacing;
-
-        // Set position for lifelines/nodes
-        for (SLifeline lifeline : context.lifelineOrder) {
-            // Dummy lifelines don't need any layout
-            if (lifeline.isDummy()) {
-                continue;
-            }
-
-            // Calculate the spacing between this lifeline and its successor. Place comments.
-            double thisLifelinesSpacing = calculateLifelineSpacing(context, xPos, lifeline);
-
-            // Set position and height for the lifeline. This may be overridden if there are create-
-            // or delete-messages involved.
-            lifeline.getPosition().y = context.lifelineYPos;
-            lifeline.getPosition().x = xPos;
-            lifeline.getSize().y = lifelinesHeight;
-
-            // Apply maximum comment width to new xPos
-            xPos += lifeline.getSize().x + thisLifelinesSpacing;
-            // Reset the graph's horizontal size
-            if (context.sgraph.getSize().x < xPos) {
-                context.sgraph.getSize().x = xPos;
-            }
-        }
-
-        // Arrange unconnected comments (after the last lifeline)
-        arrangeUnconnectedComments(context);
-
-        // Handle areas (interactions / combined fragments / interaction operands)
-        List<SequenceArea> areas = context.sgraph.getProperty(SequenceDiagramOptions.AREAS);
-        // Check containments (hierarchy) of areas
-        checkAreaContainment(areas);
-        // Calculate the areas positions
-        calculateAreaPosition(context, areas);
-
-        progressMonitor.done();
-    }
-    
-    
-    ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // Messages
-
-    /**
-     * Apply the layering to the SGraph and check for message overlappings.
-     * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout run.
-     */
-    private void calculateMessageYCoords(final LayoutContext context) {
-        // Position of first layer of messages
-        double layerpos = context.lifelineYPos + context.lifelineHeader + context.messageSpacing;
-
-        // Iterate the layers of nodes that represent messages
-        for (int i = 0; i < context.lgraph.getLayers().size(); i++) {
-            // Iterate the nodes of the layer
-            for (LNode node : context.lgraph.getLayers().get(i).getNodes()) {
-                // Get the corresponding message
-                SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
-
-                // Skip dummyNodes
-                if (message == null) {
-                    continue;
-                }
-
-                SLifeline lifeline = node.getProperty(InternalSequenceProperties.BELONGS_TO_LIFELINE);
-                
-                // This property is set only for split messages
-                if (lifeline != null) {
-                    // Consider messages that have different layers for source and target
-                    // nodes/heights
-                    if (message.getTarget() == lifeline) {
-                        message.setTargetYPos(layerpos);
-                    } else {
-                        message.setSourceYPos(layerpos);
-                    }
-                    continue;
-                }
-
-                if (message.isLayerPositionSet()) {
-                    // Skip iteration message if it was already set
-                    continue;
-                }
-
-                int sourceXPos = message.getSource().getHorizontalSlot();
-                int targetXPos = message.getTarget().getHorizontalSlot();
-
-                // If the message crosses at least one lifeline, check for overlappings
-                if (Math.abs(sourceXPos - targetXPos) > 1) {
-                    // Check overlappings with any other node in the layer
-                    for (LNode otherNode : context.lgraph.getLayers().get(i).getNodes()) {
-                        // Get the corresponding message
-                        SMessage otherMessage =
-                                (SMessage) otherNode.getProperty(InternalProperties.ORIGIN);
-                        try {
-                            int otherSourcePos = otherMessage.getSource().getHorizontalSlot();
-                            int otherTargetPos = otherMessage.getTarget().getHorizontalSlot();
+public class PapyrusCoordinateCalculator extends AbstractCoordinateCalculator {
 
-                            // If the other message starts or ends between the start and the end
-                            // of the tested message, there is an overlapping
-                            if (doMessagesOverlap(sourceXPos, targetXPos, otherSourcePos,
-                                    otherTargetPos)) {
-                                
-                                if (otherMessage.isLayerPositionSet()) {
-                                    // If the other message was already set, this message has to
-                                    // be placed in another layer
-                                    layerpos += context.messageSpacing;
-                                    break;
-                                } else if (Math.abs(otherSourcePos - otherTargetPos) <= 1) {
-                                    // If the other message was not set and it is a short one,
-                                    // the other message has to be set here
-                                    otherMessage.setLayerYPos(layerpos);
-                                    layerpos += context.messageSpacing;
-                                    break;
-                                }
-                            }
-                        } catch (NullPointerException n) {
-                            // Ignore
-                        }
-
-                    }
-                }
-                // Set the vertical position of the message
-                message.setLayerYPos(layerpos);
-
-                // Handle selfloops
-                if (message.getSource() == message.getTarget()) {
-                    message.setSourceYPos(layerpos - context.messageSpacing / 2);
-                }
-            }
-            layerpos += context.messageSpacing;
+    /** Orders areas by their top border. */
+    private static final Comparator<SequenceArea> TOP_ORDER = new Comparator<SequenceArea>() {
+        @Override
+        public int compare(final SequenceArea area1, final SequenceArea area2) {
+            return Double.compare(area1.getPosition().y, area2.getPosition().y);
         }
-    }
+    };
 
     /**
-     * Check if two messages are overlap.
-     * 
-     * @param msg1source
-     *            the source position of the first message
-     * @param msg1target
-     *            the target position of the first message
-     * @param msg2source
-     *            the source position of the second message
-     * @param msg2target
-     *            the target position of the second message
-     * @return {@code true} if the messages are overlapping
+     * {@inheritDoc}
      */
-    private boolean doMessagesOverlap(final int msg1source, final int msg1target,
-            final int msg2source, final int msg2target) {
-
-        return isBetween(msg1source, msg2source, msg2target)
-                || isBetween(msg1target, msg2source, msg2target)
-                || isBetween(msg2source, msg1source, msg1target)
-                || isBetween(msg2target, msg1source, msg1target);
+    @Override
+    protected double calculateLifelinesHeight(final LayoutContext context) {
+        return context.lifelineHeader + context.sgraph.getSize().y + context.messageSpacing;
     }
 
     /**
-     * Checks if {@code bound1 < x < bound2}.
-     * 
-     * @param x the value to check.
-     * @param bound1 lower bound.
-     * @param bound2 upper bound.
-     * @return {@code true} if x is between bound1 and bound2.
+     * {@inheritDoc}
      */
-    private boolean isBetween(final int x, final int bound1, final int bound2) {
-        // x is between 1 and 2 if it is not smaller than both or greater than both
-        return !((x <= bound1 && x <= bound2) || (x >= bound1 && x >= bound2));
+    @Override
+    protected double calculateFirstLifelinePosition(final LayoutContext context) {
+        return context.borderSpacing;
     }
     
     
     ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // Comments
+    // Areas
 
     /**
-     * Preprocessor that does some organizing stuff for connected comment objects.
+     * Check the hierarchy of areas. This is necessary to avoid overlapping borders.
      * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout run.
-     */
-    private void arrangeConnectedComments(final LayoutContext context) {
-        for (SComment comment : context.sgraph.getComments()) {
-            SMessage message = null;
-            SLifeline lifeline = null;
-            // Get random connected message and lifeline if existing
-            // This may be optimized if there is more than one connection
-            for (SGraphElement element : comment.getAttachedTo()) {
-                if (element instanceof SMessage) {
-                    message = (SMessage) element;
-                } else if (element instanceof SLifeline) {
-                    lifeline = (SLifeline) element;
-                }
-            }
-
-            comment.setMessage(message);
-            comment.setLifeline(lifeline);
-
-            /* If the comment is attached to a message, determine if it should be drawn near the
-             * beginning or near the end of the message. If the comment is attached to a message and
-             * one of the message's lifelines, it should be drawn near that lifeline (this is the
-             * case for time observations for example).
-             */
-            if (message != null) {
-                SLifeline right, left;
-                if (message.getSource().getHorizontalSlot() < message.getTarget()
-                        .getHorizontalSlot()) {
-                    // Message leads rightwards
-                    right = message.getTarget();
-                    left = message.getSource();
-                } else {
-                    // Message leads leftwards or is self-loop
-                    right = message.getSource();
-                    left = message.getTarget();
-                }
-                if (lifeline == right) {
-                    // Find lifeline left to "right" and attach comment to that lifeline because
-                    // comments are drawn right of the connected lifeline.
-                    int position = right.getHorizontalSlot();
-                    for (SLifeline ll : context.sgraph.getLifelines()) {
-                        if (ll.getHorizontalSlot() == position - 1) {
-                            comment.setLifeline(ll);
-                            break;
-                        }
-                    }
-                } else {
-                    comment.setLifeline(left);
-                }
-            }
-        }
-    }
-
-    /**
-     * Calculate positions for comments that are not connected to any element. They will be drawn
-     * after the last lifeline.
+     * <p>
+     * An area contains another area if its upper left corner is more upper and left than the other
+     * area's corner and if it has all of the other area's messages. Only the areas that have the
+     * rarest of the other area's messages are compared to it. Areas without messages are compared
+     * to all areas whose top border lies above their own.
+     * </p>
      * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout run.
+     * @param areas
+     *            the list of areas
      */
-    private void arrangeUnconnectedComments(final LayoutContext context) {
-        // The width of the widest comment that has to be placed after the last lifeline
-        double commentMaxExtraWidth = 0;
-        // The vertical position of the next comment that is drawn after the last lifeline
-        double commentNextYPos = context.lifelineHeader + context.lifelineYPos;
-
-        for (SComment comment : context.sgraph.getComments()) {
-            if (comment.getMessage() == null) {
-                // Unconnected comments
-                if (comment.getSize().x > commentMaxExtraWidth) {
-                    commentMaxExtraWidth = comment.getSize().x;
-                }
-                
-                // Set position of unconnected comments next to the last lifeline
-                comment.getPosition().x = context.sgraph.getSize().x;
-                comment.getPosition().y = commentNextYPos;
-                commentNextYPos += comment.getSize().y + context.messageSpacing;
-            }
+    @Override
+    protected void prepareAreas(final List<SequenceArea> areas) {
+        SequenceArea[] areasByTop = areas.toArray(new SequenceArea[areas.size()]);
+        Arrays.sort(areasByTop, TOP_ORDER);
+        double[] tops = new double[areasByTop.length];
+        for (int i = 0; i < areasByTop.length; i++) {
+            tops[i] = areasByTop[i].getPosition().y;
         }
 
-        if (commentMaxExtraWidth > 0) {
-            context.sgraph.getSize().x += context.lifelineSpacing + commentMaxExtraWidth;
-        }
-    }
-    
-    
-    ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // Lifelines
-
-    /**
-     * Calculate the spacing between the current lifeline and its successor. This is done by
-     * considering the width of the comments between them and by the width of the widest label
-     * attached to a message between them.
-     * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout run.
-     * @param xPos
-     *            the horizontal position where the last lifeline was placed
-     * @param lifeline
-     *            the current lifeline
-     * @return the width of the widest comment
-     */
-    private double calculateLifelineSpacing(final LayoutContext context, final double xPos,
-            final SLifeline lifeline) {
-        
-        // Initialize spacing with the normal lifeline spacing
-        double spacing = context.lifelineSpacing;
-
-        // Check, if there are labels longer than the available space
-        for (SMessage message : lifeline.getIncomingMessages()) {
-            if (message.getLabelWidth() > spacing + lifeline.getSize().x) {
-                spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
-                        - lifeline.getSize().x;
-            }
-        }
-        for (SMessage message : lifeline.getOutgoingMessages()) {
-            if (message.getLabelWidth() > spacing + lifeline.getSize().x) {
-                spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
-                        - lifeline.getSize().x;
-            }
-            // Labels of create messages should not overlap the target's header
-            if (message.getProperty(SequenceDiagramOptions.MESSAGE_TYPE) == MessageType.CREATE) {
-                if (message.getLabelWidth() + SequenceLayoutConstants.LABELMARGIN
-                        > spacing + lifeline.getSize().x / 2) {
-                    
-                    spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
-                            - message.getTarget().getSize().x / 2;
+        Map<Object, List<SequenceArea>> areasByMessage = Maps.newHashMap();
+        for (SequenceArea area : areas) {
+            for (Object message : area.getMessages()) {
+                List<SequenceArea> areasWithMessage = areasByMessage.get(message);
+                if (areasWithMessage == null) {
+                    areasWithMessage = Lists.newArrayList();
+                    areasByMessage.put(message, areasWithMessage);
                 }
-            } 
-            // Selfloops need a little more space
-            if (message.getSource() == message.getTarget()) {
-                if (message.getLabelWidth() + SequenceLayoutConstants.LABELMARGIN
-                        + context.messageSpacing / 2 > spacing + lifeline.getSize().x / 2) {
-                    
-                    spacing = SequenceLayoutConstants.LABELMARGIN + message.getLabelWidth()
-                            - lifeline.getSize().x / 2;
-                }
-            }
-        }
-
-        // Get the list of comments attached to the current lifeline
-        List<SComment> comments = lifeline.getComments();
-
-        // Return if there are no comments attached
-        if (comments == null) {
-            return spacing;
-        }
-
-        // Check maximum size of comments attached to the lifeline
-        for (SComment comment : comments) {
-            if (comment.getSize().x > spacing) {
-                spacing = comment.getSize().x;
+                areasWithMessage.add(area);
             }
         }
 
-        // HashMap that organizes which comment belongs to which message. This is important
-        // if there are more than one comments at a message.
-        HashMap<SMessage, SComment> hash = new HashMap<SMessage, SComment>(comments.size());
-        for (SComment comment : comments) {
-            if (comment.getLifeline() == lifeline) {
-                SMessage message = comment.getMessage();
-
-                // Place comment in the center of the message if it is smaller than
-                // lifelineSpacing
-                double commentXPos = xPos + lifeline.getSize().x;
-                if (comment.getSize().x < spacing) {
-                    commentXPos += (spacing - comment.getSize().x) / 2;
+        // Visit the contained areas in list order to fill each area's list in that order
+        for (SequenceArea otherArea : areas) {
+            if (otherArea.getMessages().isEmpty()) {
+                int last = lowerBound(tops, otherArea.getPosition().y);
+                for (int i = 0; i < last; i++) {
+                    addIfContained(areasByTop[i], otherArea);
                 }
-
-                // Place comment above the message
-                double commentYPos = message.getSourceYPos() + context.lifelineHeader
-                        + context.lifelineYPos - (comment.getSize().y + context.messageSpacing);
-
-                comment.getPosition().x = commentXPos;
-                comment.getPosition().y = commentYPos;
-
-                if (hash.containsKey(message)) {
-                    // Handle conflicts (reset yPos if necessary)
-                    SComment upper = comment;
-                    SComment lower = hash.get(message);
-                    NodeType nodeType = comment.getProperty(SequenceDiagramOptions.NODE_TYPE);
-                    
-                    // If comment is Observation, place it nearer to the message
-                    if (nodeType == NodeType.DURATION_OBSERVATION
-                            || nodeType == NodeType.TIME_OBSERVATION) {
-                        
-                        upper = lower;
-                        lower = comment;
+            } else {
+                List<SequenceArea> candidates = null;
+                for (Object message : otherArea.getMessages()) {
+                    List<SequenceArea> areasWithMessage = areasByMessage.get(message);
+                    if (candidates == null || areasWithMessage.size() < candidates.size()) {
+                        candidates = areasWithMessage;
                     }
-
-                    // Place lower comment first
-                    commentYPos = message.getSourceYPos() + context.lifelineHeader + context.lifelineYPos
-                            - (lower.getSize().y + context.messageSpacing);
-                    lower.getPosition().y = commentYPos;
-
-                    // Place upper comment near to lower one
-                    double uYpos = lower.getPosition().y - upper.getSize().y
-                            - context.messageSpacing / 2;
-                    upper.getPosition().y = uYpos;
-                } else {
-                    hash.put(message, comment);
                 }
-            }
-        }
-        return spacing;
-    }
-    
-    
-    ///////////////////////////////////////////////////////////////////////////////////////////////////
-    // Areas
-
-    /**
-     * Check the hierarchy of areas. This is necessary to avoid overlapping borders.
-     * 
-     * @param areas
-     *            the list of areas
-     */
-    private void checkAreaContainment(final List<SequenceArea> areas) {
-        if (areas != null) {
-            for (SequenceArea area : areas) {
-                for (SequenceArea otherArea : areas) {
-                    if (area != otherArea && area.getMessages().containsAll(otherArea.getMessages())) {
-                        // Check if upper left corner is more upper and left than the other
-                        // area's corner
-                        if (area.getPosition().y < otherArea.getPosition().y
-                                && area.getPosition().x < otherArea.getPosition().x) {
-                            
-                            area.getContainedAreas().add(otherArea);
-                        }
-                    }
+                for (SequenceArea area : candidates) {
+                    addIfContained(area, otherArea);
                 }
             }
         }
     }
 
     /**
-     * Calculate the position of the areas (interactionUse, combined fragment).
-     * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout run.
-     * @param areas
-     *            the list of areas in the graph
+     * Adds the other area to the areas contained in the given area if the other area is contained.
      */
-    private void calculateAreaPosition(final LayoutContext context, final List<SequenceArea> areas) {
-        if (areas != null) {
-            // Set size and position of area
-            for (SequenceArea area : areas) {
-                if (area.getMessages().size() > 0) {
-                    setAreaPositionByMessages(area);
-                } else {
-                    setAreaPositionByLifelinesAndMessage(context, area);
-                }
-                ElkNode areaNode = (ElkNode) area.getLayoutNode();
-                
-
-                // Check if there are contained areas
-                int containmentDepth = checkHierarchy(area);
-                // If so, an offset has to be calculated in order not to have overlapping borders
-                int containmentSpacing = (int) (containmentDepth * context.containmentOffset);
-
-                areaNode.setX(area.getPosition().x - SequenceLayoutConstants.TWENTY
-                        - context.lifelineSpacing / 2 - containmentSpacing);
-                areaNode.setWidth(area.getSize().x + SequenceLayoutConstants.FOURTY
-                        + context.lifelineSpacing + 2 * containmentSpacing);
-
-                areaNode.setY(area.getPosition().y + context.lifelineHeader
-                        - context.messageSpacing / 2 - containmentSpacing);
-                areaNode.setHeight(area.getSize().y + context.messageSpacing 
-                        + 2 * containmentSpacing);
-
-                // Handle interaction operands
-                if (area.getSubAreas().size() > 0) {
-                    // Reset area yPos and height if subAreas exists (to have a "header" that isn't
-                    // occupied by any subArea)
-                    areaNode.setY(area.getPosition().y - context.messageSpacing / 2);
-                    areaNode.setHeight(area.getSize().y + context.messageSpacing + context.lifelineHeader);
-
-                    double lastPos = 0;
-                    ElkNode lastLayout = null;
-                    for (SequenceArea subArea : area.getSubAreas()) {
-                        ElkNode subAreaNode = (ElkNode) subArea.getLayoutNode();
-
-                        subAreaNode.setX(0);
-                        subAreaNode.setWidth(area.getSize().x
-                                + SequenceLayoutConstants.FOURTY + context.lifelineSpacing - 2);
-                        
-                        if (subArea.getMessages().size() > 0) {
-                            // Calculate and set y-position by the area's messages
-                            setAreaPositionByMessages(subArea);
-                            subAreaNode.setY(subArea.getPosition().y
-                                    - area.getPosition().y + context.lifelineHeader
-                                    - context.messageSpacing / 2);
-                        } else {
-                            // Calculate and set y-position by the available space
-                            subAreaNode.setY(lastPos);
-                            // FIXME if subarea is empty, it appears first in the list
-                        }
-
-                        // Reset last subArea's height to fit
-                        if (lastLayout != null) {
-                            lastLayout.setHeight(subAreaNode.getY() - lastLayout.getY());
-                        }
-                        lastPos = subAreaNode.getY() + subAreaNode.getHeight();
-                        lastLayout = subAreaNode;
-                    }
-                    // Reset last subArea's height to fit
-                    if (lastLayout != null) {
-                        lastLayout.setHeight(
-                                areaNode.getHeight() - lastLayout.getY() - context.areaHeader);
-                    }
-                }
-            }
+    private static void addIfContained(final SequenceArea area, final SequenceArea otherArea) {
+        // Check if upper left corner is more upper and left than the other area's corner
+        // before comparing the messages, which is by far the more expensive test
+        if (area != otherArea
+                && area.getPosition().y < otherArea.getPosition().y
+                && area.getPosition().x < otherArea.getPosition().x
+                && area.getMessages().size() >= otherArea.getMessages().size()
+                && area.getMessages().containsAll(otherArea.getMessages())) {
+            
+            area.getContainedAreas().add(otherArea);
         }
     }
 
     /**
-     * Searches all the contained edges and sets the area's position and size such that it is a
-     * bounding box for the contained messages.
-     * 
-     * @param area
-     *            the SequenceArea
-     * @param factor
-     *            the edgeYpos factor, that is necessary to compute the real position of the
-     *            SMessage
+     * Returns the number of values in the given sorted array that are less than the given value.
      */
-    private void setAreaPositionByMessages(final SequenceArea area) {
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = 0;
-        double maxY = 0;
-        
-        // Compute the bounding box of all contained messages
-        for (Object messObj : area.getMessages()) {
-            if (messObj instanceof SMessage) {
-                // Compute new y coordinates
-                SMessage message = (SMessage) messObj;
-                
-                double sourceYPos = message.getSourceYPos();
-                minY = Math.min(minY, sourceYPos);
-                maxY = Math.max(maxY, sourceYPos);
-                
-                double targetYPos = message.getTargetYPos();
-                minY = Math.min(minY, targetYPos);
-                maxY = Math.max(maxY, targetYPos);
-                
-                // Compute new x coordinates
-                SLifeline sourceLL = message.getSource();
-                double sourceXPos = sourceLL.getPosition().x + sourceLL.getSize().x / 2;
-                minX = Math.min(minX, sourceXPos);
-                maxX = Math.max(maxX, sourceXPos);
-                
-                SLifeline targetLL = message.getTarget();
-                double targetXPos = targetLL.getPosition().x + targetLL.getSize().x / 2;
-                minX = Math.min(minX, targetXPos);
-                maxX = Math.max(maxX, targetXPos);
+    private static int lowerBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
         }
-        
-        area.getPosition().x = minX;
-        area.getPosition().y = minY;
-        area.getSize().x = maxX - minX;
-        area.getSize().y = maxY - minY;
+        return low;
     }
 
     /**
-     * Sets the areas position such that it is a bounding box for the involved lifelines in x
-     * direction and above the next message.
-     * 
-     * @param context
-     *            the layout context that contains all relevant information for the current layout
-     *            run.
-     * @param area
-     *            the sequence area
+     * {@inheritDoc}
      */
-    private void setAreaPositionByLifelinesAndMessage(final LayoutContext context,
-            final SequenceArea area) {
-        
-        // Set xPos and width according to the involved lifelines
-        double minXPos = Double.MAX_VALUE;
-        double maxXPos = 0;
-        
-        for (Object lifelineObj : area.getLifelines()) {
-            SLifeline lifeline = (SLifeline) lifelineObj;
-            ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
-           
-            double lifelineCenter = node.getX() + node.getWidth() / 2;
-            
-            minXPos = Math.min(minXPos, lifelineCenter);
-            maxXPos = Math.max(maxXPos, lifelineCenter);
-        }
+    @Override
+    protected void placeAreaNode(final LayoutContext context, final SequenceArea area,
+            final int containmentSpacing) {
         
-        area.getPosition().x = minXPos;
-        area.getSize().x = maxXPos - minXPos;
+        ElkNode areaNode = area.getLayoutNode();
 
-        // Set yPos and height according to the next message's yPos
-        if (area.getNextMessage() != null) {
-            Object messageObj = area.getNextMessage();
-            SMessage message = (SMessage) messageObj;
-            ElkEdge edge = (ElkEdge) message.getProperty(InternalProperties.ORIGIN);
-            
-            double messageYPos;
-            ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
-            if (edgeSection.getStartY() < edgeSection.getEndY()) {
-                messageYPos = message.getSourceYPos();
-            } else {
-                messageYPos = message.getTargetYPos();
-            }
-            
-            area.getSize().y = context.messageSpacing;
-            area.getPosition().y = messageYPos - area.getSize().y - context.messageSpacing;
-        }
-    }
+        areaNode.setX(area.getPosition().x - SequenceLayoutConstants.TWENTY
+                - context.lifelineSpacing / 2 - containmentSpacing);
+        areaNode.setWidth(area.getSize().x + SequenceLayoutConstants.FOURTY
+                + context.lifelineSpacing + 2 * containmentSpacing);
 
-    /**
-     * Check recursively if an area has contained areas and return the maximum depth.
-     * 
-     * @param area
-     *            the {@link SequenceArea}
-     * @return the maximum depth of hierarchy
-     */
-    private int checkHierarchy(final SequenceArea area) {
-        if (area.getContainedAreas().size() > 0) {
-            int maxLevel = 0;
-            for (SequenceArea subArea : area.getContainedAreas()) {
-                int level = checkHierarchy(subArea);
-                if (level > maxLevel) {
-                    maxLevel = level;
-                }
-            }
-            return maxLevel + 1;
-        } else {
-            return 0;
-        }
+        areaNode.setY(area.getPosition().y + context.lifelineHeader
+                - context.messageSpacing / 2 - containmentSpacing);
+        areaNode.setHeight(area.getSize().y + context.messageSpacing 
+                + 2 * containmentSpacing);
     }
 
 }
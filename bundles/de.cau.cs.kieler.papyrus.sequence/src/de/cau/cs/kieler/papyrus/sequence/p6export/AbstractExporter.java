@@ -0,0 +1,355 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p6export;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
+
+/**
+ * Applies the layout results back to the original graph. Every non-dummy lifeline is exported along
+ * with its messages and executions, then comments are placed and finally the surrounding interaction.
+ * Subclasses export lifelines and the surrounding interaction the way the coordinate system they are
+ * written for expects. If {@link LayoutContext#parallelExport} is set, lifelines are exported in
+ * parallel on the common {@link ForkJoinPool}.
+ */
+public abstract class AbstractExporter implements ISequenceLayoutProcessor {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
+        progressMonitor.begin("Applying Layout Results", 1);
+
+        // Dummy lifelines don't need any layout
+        List<SLifeline> lifelines = Lists.newArrayListWithCapacity(context.lifelineOrder.size());
+        for (SLifeline lifeline : context.lifelineOrder) {
+            if (!lifeline.isDummy()) {
+                lifelines.add(lifeline);
+            }
+        }
+
+        // Set position for lifelines/nodes
+        prepareExport(context);
+        if (context.parallelExport && lifelines.size() > 1) {
+            ForkJoinPool.commonPool().invoke(new LifelineExport(context, lifelines));
+        } else {
+            for (SLifeline lifeline : lifelines) {
+                ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
+                exportLifeline(context, lifeline, node);
+            }
+        }
+
+        // Place all comments
+        placeComments(context.sgraph);
+
+        // Set size and position of surrounding interaction
+        exportInteraction(context);
+
+        progressMonitor.done();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Coordinate System Adapters
+
+    /**
+     * Prepares the layout graph for the lifelines to be exported. If
+     * {@link LayoutContext#parallelExport} is set, lifelines are exported concurrently afterwards,
+     * so anything they share has to be set up here. Does nothing by default.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    protected void prepareExport(final LayoutContext context) {
+        // Nothing to prepare
+    }
+
+    /**
+     * Applies the coordinates of a lifeline and of its messages, executions and destruction to the
+     * layout graph. A message is exported by both of its lifelines. Each lifeline only changes the
+     * end of the message that is attached to it, so that lifelines can be exported concurrently.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @param lifeline
+     *            the lifeline to export, which is not a dummy lifeline.
+     * @param node
+     *            the lifeline's layout node, or {@code null} if the graph was not imported from an
+     *            ElkGraph.
+     */
+    protected abstract void exportLifeline(LayoutContext context, SLifeline lifeline,
+            ElkNode node);
+
+    /**
+     * Sets the position and size of the surrounding interaction. Called after all lifelines and
+     * comments were exported.
+     *
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     */
+    protected abstract void exportInteraction(LayoutContext context);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Executions
+
+    /**
+     * Computes how deeply each execution of a lifeline is nested in the others. An execution is
+     * nested in every other execution that starts strictly above it and ends below it. Executions
+     * are swept from top to bottom while a Fenwick tree counts the bottom borders of those already
+     * passed, so this takes O(n log n) instead of comparing every pair of executions.
+     *
+     * @param executions
+     *            the executions of a lifeline.
+     * @param sameEndNests
+     *            whether an execution is also nested in another that ends at the same position.
+     * @return the number of executions each execution is nested in, in the order of the list.
+     */
+    protected static int[] nestingDepths(final List<SequenceExecution> executions,
+            final boolean sameEndNests) {
+
+        final int count = executions.size();
+        final double[] tops = new double[count];
+        double[] bottoms = new double[count];
+        for (int i = 0; i < count; i++) {
+            SequenceExecution execution = executions.get(i);
+            tops[i] = execution.getPosition().y;
+            bottoms[i] = execution.getPosition().y + execution.getSize().y;
+        }
+
+        // Bottom borders in ascending order, to be counted by the Fenwick tree
+        double[] sortedBottoms = bottoms.clone();
+        Arrays.sort(sortedBottoms);
+        int[] tree = new int[count + 1];
+        int passed = 0;
+
+        Integer[] byTop = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byTop[i] = i;
+        }
+        Arrays.sort(byTop, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer execution1, final Integer execution2) {
+                return Double.compare(tops[execution1], tops[execution2]);
+            }
+        });
+
+        int[] depths = new int[count];
+        int groupStart = 0;
+        while (groupStart < count) {
+            // Executions starting at the same position are not nested in each other
+            int groupEnd = groupStart + 1;
+            while (groupEnd < count && tops[byTop[groupEnd]] == tops[byTop[groupStart]]) {
+                groupEnd++;
+            }
+
+            for (int i = groupStart; i < groupEnd; i++) {
+                int execution = byTop[i];
+                if (!Double.isNaN(tops[execution]) && !Double.isNaN(bottoms[execution])) {
+                    int lowerEnds = sameEndNests
+                            ? lowerBound(sortedBottoms, bottoms[execution])
+                            : upperBound(sortedBottoms, bottoms[execution]);
+                    depths[execution] = passed - countBelow(tree, lowerEnds);
+                }
+            }
+
+            for (int i = groupStart; i < groupEnd; i++) {
+                int execution = byTop[i];
+                if (!Double.isNaN(tops[execution]) && !Double.isNaN(bottoms[execution])) {
+                    for (int j = lowerBound(sortedBottoms, bottoms[execution]) + 1; j <= count;
+                            j += j & -j) {
+                        tree[j]++;
+                    }
+                    passed++;
+                }
+            }
+
+            groupStart = groupEnd;
+        }
+
+        return depths;
+    }
+
+    /**
+     * Returns how many of the values counted by the given Fenwick tree are at one of the first
+     * {@code index} positions.
+     */
+    private static int countBelow(final int[] tree, final int index) {
+        int result = 0;
+        for (int j = index; j > 0; j -= j & -j) {
+            result += tree[j];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of values in the given sorted array that are smaller than the given value.
+     */
+    private static int lowerBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of values in the given sorted array that are not greater than the given
+     * value.
+     */
+    private static int upperBound(final double[] values, final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Parallel Export
+
+    /**
+     * Exports a range of lifelines, splitting it in halves that are exported in parallel until
+     * only single lifelines are left.
+     */
+    private final class LifelineExport extends RecursiveAction {
+        /** Serialization is not used. */
+        private static final long serialVersionUID = 1L;
+
+        /** The layout context of the current layout run. */
+        private final LayoutContext context;
+        /** The lifelines to export. */
+        private final List<SLifeline> lifelines;
+
+
+        /**
+         * Creates a task that exports the given lifelines.
+         *
+         * @param context
+         *            the layout context of the current layout run.
+         * @param lifelines
+         *            the lifelines to export, none of which is a dummy lifeline.
+         */
+        LifelineExport(final LayoutContext context, final List<SLifeline> lifelines) {
+            this.context = context;
+            this.lifelines = lifelines;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (lifelines.size() == 1) {
+                SLifeline lifeline = lifelines.get(0);
+                ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
+                exportLifeline(context, lifeline, node);
+            } else {
+                int middle = lifelines.size() / 2;
+                invokeAll(new LifelineExport(context, lifelines.subList(0, middle)),
+                        new LifelineExport(context, lifelines.subList(middle, lifelines.size())));
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Comments
+
+    /**
+     * Place the comment objects (comments, constraints) according to their calculated coordinates.
+     *
+     * @param graph
+     *            the Sequence Graph
+     */
+    private void placeComments(final SGraph graph) {
+        for (SComment comment : graph.getComments()) {
+            Object origin = comment.getProperty(InternalProperties.ORIGIN);
+            ElkNode commentLayout = ((ElkNode) origin);
+            commentLayout.setX(comment.getPosition().x);
+            commentLayout.setY(comment.getPosition().y);
+            if (comment.getMessage() != null) {
+                // Connected comments
+
+                // Set coordinates for the connection of the comment
+                double edgeSourceXPos, edgeSourceYPos, edgeTargetXPos, edgeTargetYPos;
+                String attachedElement = comment.getProperty(
+                        SequenceDiagramOptions.ATTACHED_ELEMENT_TYPE);
+                if (attachedElement.toLowerCase().startsWith("lifeline")
+                        || attachedElement.toLowerCase().contains("execution")) {
+
+                    // Connections to lifelines or executions are drawn horizontally
+                    SLifeline lifeline = comment.getLifeline();
+                    edgeSourceXPos = comment.getPosition().x;
+                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y / 2;
+                    edgeTargetXPos = lifeline.getPosition().x + lifeline.getSize().x / 2;
+                    edgeTargetYPos = edgeSourceYPos;
+                } else {
+                    // Connections to messages are drawn vertically
+                    edgeSourceXPos = comment.getPosition().x + comment.getSize().x / 2;
+                    edgeTargetXPos = edgeSourceXPos;
+                    ElkEdge edge = (ElkEdge) comment.getMessage().getProperty(InternalProperties.ORIGIN);
+                    ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
+
+                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y;
+                    edgeTargetYPos = (edgeSection.getEndY() + edgeSection.getStartY()) / 2;
+                }
+
+                // Apply connection coordinates to layout
+                ElkEdge commentEdge = comment.getProperty(
+                        InternalSequenceProperties.COMMENT_CONNECTION);
+                ElkEdgeSection commentEdgeSection =
+                        ElkGraphUtil.firstEdgeSection(commentEdge, false, false);
+                commentEdgeSection.setStartLocation(edgeSourceXPos, edgeSourceYPos);
+                commentEdgeSection.setEndLocation(edgeTargetXPos, edgeTargetYPos);
+            }
+        }
+    }
+
+}
@@ -18,7 +18,6 @@ import java.util.List;
 import org.eclipse.elk.alg.layered.options.InternalProperties;
 import org.eclipse.elk.core.math.KVector;
 import org.eclipse.elk.core.util.ElkUtil;
-import org.eclipse.elk.core.util.IElkProgressMonitor;
 import org.eclipse.elk.graph.ElkBendPoint;
 import org.eclipse.elk.graph.ElkEdge;
 import org.eclipse.elk.graph.ElkEdgeSection;
@@ -30,17 +29,13 @@ import org.eclipse.elk.graph.util.ElkGraphUtil;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
-import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
 import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutConstants;
-import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
-import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
 import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
 import de.cau.cs.kieler.papyrus.sequence.properties.LabelAlignment;
 import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
-import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
 
@@ -49,56 +44,62 @@ import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
  * 
  * @author cds
  */
-public final class ElkGraphExporter implements ISequenceLayoutProcessor {
+public final class ElkGraphExporter extends AbstractExporter {
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
-        progressMonitor.begin("Applying Layout Results", 1);
-        
-        // Set position for lifelines/nodes
+    protected void prepareExport(final LayoutContext context) {
+        // Clear the sections of all edges once, since both of their lifelines add to them later
         for (SLifeline lifeline : context.lifelineOrder) {
-            // Dummy lifelines don't need any layout
-            if (lifeline.isDummy()) {
-                continue;
-            }
-
-            ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
-
-            // Handle messages of the lifeline and their labels
-            double lowestMessageCoordinate = applyMessageCoordinates(context, lifeline);
-
-            // Apply execution coordinates and adjust positions of messages attached to these executions
-            applyExecutionCoordinates(context, lifeline);
-
-            // Place destruction if existing (this may change the lifeline's height, since the
-            // desctruction event will be placed directly below the last incident message)
-            ElkNode destruction = lifeline.getProperty(SequenceDiagramOptions.DESTRUCTION_NODE);
-            if (destruction != null) {
-                // Calculate the lifeline's new height
-                double heightDelta = lowestMessageCoordinate + context.messageSpacing
-                        - (lifeline.getPosition().y + lifeline.getSize().y);
-                lifeline.getSize().y += heightDelta;
-                
-                
-                double destructionXPos = lifeline.getSize().x / 2 - destruction.getWidth() / 2;
-                double destructionYPos = lifeline.getSize().y - destruction.getHeight();
-                destruction.setX(destructionXPos);
-                destruction.setY(destructionYPos);
+            for (SMessage message : lifeline.getMessages()) {
+                ElkEdge edge = (ElkEdge) message.getProperty(InternalProperties.ORIGIN);
+                ElkGraphUtil.firstEdgeSection(edge, true, true);
             }
+        }
+    }
 
-            // Set position and height for the lifeline.
-            node.setY(lifeline.getPosition().y);
-            node.setX(lifeline.getPosition().x);
-            node.setHeight(lifeline.getSize().y);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void exportLifeline(final LayoutContext context, final SLifeline lifeline,
+            final ElkNode node) {
+        
+        // Handle messages of the lifeline and their labels
+        double lowestMessageCoordinate = applyMessageCoordinates(context, lifeline);
+
+        // Apply execution coordinates and adjust positions of messages attached to these executions
+        applyExecutionCoordinates(context, lifeline);
+
+        // Place destruction if existing (this may change the lifeline's height, since the
+        // desctruction event will be placed directly below the last incident message)
+        ElkNode destruction = lifeline.getProperty(SequenceDiagramOptions.DESTRUCTION_NODE);
+        if (destruction != null) {
+            // Calculate the lifeline's new height
+            double heightDelta = lowestMessageCoordinate + context.messageSpacing
+                    - (lifeline.getPosition().y + lifeline.getSize().y);
+            lifeline.getSize().y += heightDelta;
+            
+            
+            double destructionXPos = lifeline.getSize().x / 2 - destruction.getWidth() / 2;
+            double destructionYPos = lifeline.getSize().y - destruction.getHeight();
+            destruction.setX(destructionXPos);
+            destruction.setY(destructionYPos);
         }
 
-        // Place all comments
-        placeComments(context.sgraph);
+        // Set position and height for the lifeline.
+        node.setY(lifeline.getPosition().y);
+        node.setX(lifeline.getPosition().x);
+        node.setHeight(lifeline.getSize().y);
+    }
 
-        // Set size and position of surrounding interaction
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void exportInteraction(final LayoutContext context) {
         ElkUtil.resizeNode(context.kgraph,
                 context.sgraph.getSize().x + 10,
                 context.sgraph.getSize().y + 40,
@@ -108,7 +109,6 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
         
         context.kgraph.setX(context.borderSpacing);
         context.kgraph.setY(context.borderSpacing);
-        progressMonitor.done();
     }
     
     
@@ -164,10 +164,8 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
         // Compute the horizontal center of the lifeline to be used later
         double llCenter = lifeline.getPosition().x + lifeline.getSize().x / 2;
         
-        // Clear the bend points of all edges (this is safe to do here since we will only be adding
-        // bend points for self loops, which we encounter first as outgoing messages, so we're not
-        // clearing bend points set by the incoming message handling)
-        ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, true, true);
+        // The section has been cleared before any lifeline was exported
+        ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
         
         // Apply source point position
         edgeSection.setStartY(message.getSourceYPos());
@@ -252,7 +250,7 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
         double llCenter = lifeline.getPosition().x + lifeline.getSize().x / 2;
         
         // Apply target point position
-        ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, true, true);
+        ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
         edgeSection.setEndY(message.getTargetYPos());
         edgeSection.setEndX(llCenter);
         
@@ -327,7 +325,7 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
         if (message.getSource() == message.getTarget()) {
             ElkBendPoint bendPoint = ElkGraphFactory.eINSTANCE.createElkBendPoint();
             bendPoint.setX(llCenter + context.messageSpacing / 2);
-            bendPoint.setY(edgeSection.getStartY());
+            bendPoint.setY(edgeSection.getEndY());
             edgeSection.getBendPoints().add(bendPoint);
         }
     }
@@ -615,30 +613,20 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
 
         // If there are multiple executions, some may have to be shifted horizontally if they overlap
         if (executions.size() > 1) {
-            for (SequenceExecution execution : executions) {
+            // Executions ending at the same position count as nested: in KGraph mode, several
+            // executions can end at the same message
+            int[] slots = nestingDepths(executions, true);
+            
+            for (int i = 0; i < executions.size(); i++) {
+                SequenceExecution execution = executions.get(i);
                 if (execution.getType() == SequenceExecutionType.DURATION
                         || execution.getType() == SequenceExecutionType.TIME_CONSTRAINT) {
                     
                     continue;
                 }
                 
-                int slot = 0;
-                for (SequenceExecution otherExecution : executions) {
-                    if (execution != otherExecution) {
-                        // The "less OR EQUAL" when calculating "bottomOverlaps" is significant here:
-                        // in KGraph mode, several executions can end at the same message
-                        boolean topOverlaps = execution.getPosition().y > otherExecution.getPosition().y;
-                        boolean bottomOverlaps = execution.getPosition().y + execution.getSize().y
-                                <= otherExecution.getPosition().y + otherExecution.getSize().y;
-                        
-                        if (topOverlaps && bottomOverlaps) {
-                            slot++;
-                        }
-                    }
-                }
-                
                 // Shift execution position
-                execution.getPosition().x += slot * SequenceLayoutConstants.EXECUCTION_WIDTH / 2;
+                execution.getPosition().x += slots[i] * SequenceLayoutConstants.EXECUCTION_WIDTH / 2;
             }
         }
 
@@ -812,65 +800,13 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
     }
     
     
-    /////////////////////////////////////////////////////////////////////////////////////////////////
-    // Comments
-
-    /**
-     * Place the comment objects (comments, constraints) according to their calculated coordinates.
-     * 
-     * @param graph
-     *            the Sequence Graph
-     */
-    private void placeComments(final SGraph graph) {
-        for (SComment comment : graph.getComments()) {
-            Object origin = comment.getProperty(InternalProperties.ORIGIN);
-            ElkNode commentLayout = ((ElkNode) origin);
-            commentLayout.setX(comment.getPosition().x);
-            commentLayout.setY(comment.getPosition().y);
-            if (comment.getMessage() != null) {
-                // Connected comments
-
-                // Set coordinates for the connection of the comment
-                double edgeSourceXPos, edgeSourceYPos, edgeTargetXPos, edgeTargetYPos;
-                String attachedElement = comment.getProperty(
-                        SequenceDiagramOptions.ATTACHED_ELEMENT_TYPE);
-                if (attachedElement.toLowerCase().startsWith("lifeline")
-                        || attachedElement.toLowerCase().contains("execution")) {
-                    
-                    // Connections to lifelines or executions are drawn horizontally
-                    SLifeline lifeline = comment.getLifeline();
-                    edgeSourceXPos = comment.getPosition().x;
-                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y / 2;
-                    edgeTargetXPos = lifeline.getPosition().x + lifeline.getSize().x / 2;
-                    edgeTargetYPos = edgeSourceYPos;
-                } else {
-                    // Connections to messages are drawn vertically
-                    edgeSourceXPos = comment.getPosition().x + comment.getSize().x / 2;
-                    edgeTargetXPos = edgeSourceXPos;
-                    ElkEdge edge = (ElkEdge) comment.getMessage().getProperty(InternalProperties.ORIGIN);
-                    ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
-                    
-                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y;
-                    edgeTargetYPos = (edgeSection.getEndY() + edgeSection.getStartY()) / 2;
-                }
-
-                // Apply connection coordinates to layout
-                ElkEdge edge = comment.getProperty(
-                        InternalSequenceProperties.COMMENT_CONNECTION);
-                ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
-                edgeSection.setStartLocation(edgeSourceXPos, edgeSourceYPos);
-                edgeSection.setEndLocation(edgeTargetXPos, edgeTargetYPos);
-            }
-        }
-    }
-    
-    
     /////////////////////////////////////////////////////////////////////////////////////////////////
     // Utility Methods
     
     /**
      * Ensures that the context's SGraph's width is wide enough to accomodate an element that
-     * extends to the given x coordinate.
+     * extends to the given x coordinate. Lifelines that are exported in parallel all widen the
+     * graph, and since only the widest element counts, the order they do so in does not matter.
      * 
      * @param context
      *            the layout context.
@@ -880,7 +816,9 @@ public final class ElkGraphExporter implements ISequenceLayoutProcessor {
      */
     private void ensureGraphIsWideEnough(final LayoutContext context, final double rightmostElement) {
         KVector graphSize = context.sgraph.getSize();
-        graphSize.x = Math.max(graphSize.x, rightmostElement + context.borderSpacing);
+        synchronized (graphSize) {
+            graphSize.x = Math.max(graphSize.x, rightmostElement + context.borderSpacing);
+        }
     }
 
 }
@@ -16,7 +16,6 @@ package de.cau.cs.kieler.papyrus.sequence.p6export;
 import java.util.List;
 
 import org.eclipse.elk.alg.layered.options.InternalProperties;
-import org.eclipse.elk.core.util.IElkProgressMonitor;
 import org.eclipse.elk.graph.ElkBendPoint;
 import org.eclipse.elk.graph.ElkEdge;
 import org.eclipse.elk.graph.ElkEdgeSection;
@@ -24,17 +23,12 @@ import org.eclipse.elk.graph.ElkLabel;
 import org.eclipse.elk.graph.ElkNode;
 import org.eclipse.elk.graph.util.ElkGraphUtil;
 
-import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
 import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
 import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutConstants;
-import de.cau.cs.kieler.papyrus.sequence.graph.SComment;
-import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
 import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
 import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
 import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
-import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
-import de.cau.cs.kieler.papyrus.sequence.properties.InternalSequenceProperties;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
 import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
 
@@ -45,72 +39,62 @@ import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
  * @author grh
  * @author cds
  */
-public final class PapyrusExporter implements ISequenceLayoutProcessor {
+public final class PapyrusExporter extends AbstractExporter {
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void process(final LayoutContext context, final IElkProgressMonitor progressMonitor) {
-        progressMonitor.begin("Applying Layout Results", 1);
+    protected void exportLifeline(final LayoutContext context, final SLifeline lifeline,
+            final ElkNode node) {
         
-        // The height of the diagram (the surrounding interaction)
-        double diagramHeight = context.sgraph.getSize().y + context.messageSpacing
-                + context.lifelineHeader + context.lifelineYPos + 60;
-        
-        // Set position for lifelines/nodes
-        for (SLifeline lifeline : context.lifelineOrder) {
-            // Dummy lifelines don't need any layout
-            if (lifeline.isDummy()) {
-                continue;
-            }
-
-            ElkNode node = (ElkNode) lifeline.getProperty(InternalProperties.ORIGIN);
+        // Handle messages of the lifeline and their labels
+        List<SequenceExecution> executions = lifeline.getProperty(
+                SequenceDiagramOptions.EXECUTIONS);
+        applyMessageCoordinates(context, calculateDiagramHeight(context), lifeline, executions);
+
+        // Apply execution coordinates and adjust positions of messages attached to these
+        // executions.
+        applyExecutionCoordinates(context, lifeline);
+
+        // Set position and height for the lifeline.
+        node.setY(lifeline.getPosition().y);
+        node.setX(lifeline.getPosition().x);
+        node.setHeight(lifeline.getSize().y);
+
+        // Place destruction if existing
+        ElkNode destruction = lifeline.getProperty(SequenceDiagramOptions.DESTRUCTION_NODE);
+        if (destruction != null) {
             
-
-            if (node.getProperty(SequenceDiagramOptions.NODE_TYPE)
-                    == NodeType.SURROUNDING_INTERACTION) {
-                
-                // This is the surrounding node
-                break;
-            }
-
-            // Handle messages of the lifeline and their labels
-            List<SequenceExecution> executions = lifeline.getProperty(
-                    SequenceDiagramOptions.EXECUTIONS);
-            applyMessageCoordinates(context, diagramHeight, lifeline, executions);
-
-            // Apply execution coordinates and adjust positions of messages attached to these
-            // executions.
-            applyExecutionCoordinates(context, lifeline);
-
-            // Set position and height for the lifeline.
-            node.setY(lifeline.getPosition().y);
-            node.setX(lifeline.getPosition().x);
-            node.setHeight(lifeline.getSize().y);
-
-            // Place destruction if existing
-            ElkNode destruction = lifeline.getProperty(SequenceDiagramOptions.DESTRUCTION_NODE);
-            if (destruction != null) {
-                
-                double destructionXPos = node.getWidth() / 2 - destruction.getWidth() / 2;
-                double destructionYPos = node.getHeight() - destruction.getHeight();
-                destruction.setX(destructionXPos);
-                destruction.setY(destructionYPos);
-            }
+            double destructionXPos = node.getWidth() / 2 - destruction.getWidth() / 2;
+            double destructionYPos = node.getHeight() - destruction.getHeight();
+            destruction.setX(destructionXPos);
+            destruction.setY(destructionYPos);
         }
+    }
 
-        // Place all comments
-        placeComments(context.sgraph);
-
-        // Set position and size of surrounding interaction
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void exportInteraction(final LayoutContext context) {
         ElkNode parentLayout = context.kgraph;
         parentLayout.setWidth(context.sgraph.getSize().x);
-        parentLayout.setHeight(diagramHeight);
+        parentLayout.setHeight(calculateDiagramHeight(context));
         parentLayout.setX(context.borderSpacing);
         parentLayout.setY(context.borderSpacing);
-        
-        progressMonitor.done();
+    }
+
+    /**
+     * Calculates the height of the diagram, which is the height of the surrounding interaction.
+     * 
+     * @param context
+     *            the layout context that contains all relevant information for the current layout run.
+     * @return the diagram's height.
+     */
+    private double calculateDiagramHeight(final LayoutContext context) {
+        return context.sgraph.getSize().y + context.messageSpacing
+                + context.lifelineHeader + context.lifelineYPos + 60;
     }
     
 
@@ -541,22 +525,15 @@ public final class PapyrusExporter implements ISequenceLayoutProcessor {
 
         if (executions.size() > 1) {
             // reset xPos if execution is attached to another execution
-            for (SequenceExecution execution : executions) {
+            int[] positions = nestingDepths(executions, false);
+            for (int i = 0; i < executions.size(); i++) {
+                SequenceExecution execution = executions.get(i);
                 if (execution.getType() == SequenceExecutionType.DURATION
                         || execution.getType() == SequenceExecutionType.TIME_CONSTRAINT) {
                     continue;
                 }
                 
-                int pos = 0;
-                for (SequenceExecution otherExecution : executions) {
-                    if (execution != otherExecution) {
-                        if (execution.getPosition().y > otherExecution.getPosition().y
-                                && execution.getPosition().y + execution.getSize().y < otherExecution
-                                        .getPosition().y + otherExecution.getSize().y) {
-                            pos++;
-                        }
-                    }
-                }
+                int pos = positions[i];
                 if (pos > 0) {
                     execution.getPosition().x = execution.getPosition().x + pos * executionWidth
                             / 2;
@@ -579,53 +556,4 @@ public final class PapyrusExporter implements ISequenceLayoutProcessor {
         }
     }
 
-    /**
-     * Place the comment objects (comments, constraints) according to their calculated coordinates.
-     * 
-     * @param graph
-     *            the Sequence Graph
-     */
-    private void placeComments(final SGraph graph) {
-        for (SComment comment : graph.getComments()) {
-            Object origin = comment.getProperty(InternalProperties.ORIGIN);
-            ElkNode commentLayout = ((ElkNode) origin);
-            commentLayout.setX(comment.getPosition().x);
-            commentLayout.setY(comment.getPosition().y);
-            if (comment.getMessage() != null) {
-                // Connected comments
-
-                // Set coordinates for the connection of the comment
-                double edgeSourceXPos, edgeSourceYPos, edgeTargetXPos, edgeTargetYPos;
-                String attachedElement = comment.getProperty(
-                        SequenceDiagramOptions.ATTACHED_ELEMENT_TYPE);
-                if (attachedElement.toLowerCase().startsWith("lifeline")
-                        || attachedElement.toLowerCase().contains("execution")) {
-                    
-                    // Connections to lifelines or executions are drawn horizontally
-                    SLifeline lifeline = comment.getLifeline();
-                    edgeSourceXPos = comment.getPosition().x;
-                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y / 2;
-                    edgeTargetXPos = lifeline.getPosition().x + lifeline.getSize().x / 2;
-                    edgeTargetYPos = edgeSourceYPos;
-                } else {
-                    // Connections to messages are drawn vertically
-                    edgeSourceXPos = comment.getPosition().x + comment.getSize().x / 2;
-                    edgeTargetXPos = edgeSourceXPos;
-                    ElkEdge edge = (ElkEdge) comment.getMessage().getProperty(InternalProperties.ORIGIN);
-                    ElkEdgeSection edgeSection = ElkGraphUtil.firstEdgeSection(edge, false, false);
-                    
-                    edgeSourceYPos = comment.getPosition().y + comment.getSize().y;
-                    edgeTargetYPos = (edgeSection.getEndY() + edgeSection.getStartY()) / 2;
-                }
-
-                // Apply connection coordinates to layout
-                ElkEdge commentEdge = comment.getProperty(
-                        InternalSequenceProperties.COMMENT_CONNECTION);
-                ElkEdgeSection commentEdgeSection = ElkGraphUtil.firstEdgeSection(commentEdge, false, false);
-                commentEdgeSection.setStartLocation(edgeSourceXPos, edgeSourceYPos);
-                commentEdgeSection.setEndLocation(edgeTargetXPos, edgeTargetYPos);
-            }
-        }
-    }
-
 }
@@ -0,0 +1,137 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p6export;
+
+import java.util.List;
+
+import org.eclipse.elk.graph.ElkNode;
+
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutConstants;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecution;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceExecutionType;
+
+/**
+ * Finishes the layout of an SGraph that was built without an ElkGraph, such as one built by an
+ * {@link de.cau.cs.kieler.papyrus.sequence.graph.SGraphBuilder}. There is nothing to apply the
+ * results to, so they stay in the SGraph. This exporter only computes what the other exporters
+ * compute while applying them: the bounds of executions, and the vertical extent of lifelines
+ * that are created or deleted by a message. All coordinates use the standard KGraph coordinate
+ * system, except that executions are placed relative to the graph instead of their lifeline.
+ * Comments are not supported.
+ */
+public final class SGraphExporter extends AbstractExporter {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void exportLifeline(final LayoutContext context, final SLifeline lifeline,
+            final ElkNode node) {
+
+        for (SMessage message : lifeline.getIncomingMessages()) {
+            MessageType messageType = message.getProperty(SequenceDiagramOptions.MESSAGE_TYPE);
+            if (messageType == MessageType.CREATE) {
+                // The lifeline starts at the create message
+                double delta = message.getTargetYPos() - context.lifelineHeader / 2
+                        - lifeline.getPosition().y;
+                lifeline.getPosition().y += delta;
+                lifeline.getSize().y -= delta;
+            } else if (messageType == MessageType.DELETE) {
+                // The lifeline ends at the delete message
+                if (lifeline.getPosition().y + lifeline.getSize().y > message.getTargetYPos()) {
+                    lifeline.getSize().y = message.getTargetYPos() - lifeline.getPosition().y;
+                }
+            }
+        }
+
+        List<SequenceExecution> executions = lifeline.getProperty(
+                SequenceDiagramOptions.EXECUTIONS);
+        if (executions != null && !executions.isEmpty()) {
+            arrangeExecutions(lifeline, executions);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void exportInteraction(final LayoutContext context) {
+        // The graph's size has been calculated already
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Executions
+
+    /**
+     * Sets the bounds of the executions of a lifeline. Each execution spans the messages attached to
+     * it and is shifted to the right for each execution it is nested in.
+     *
+     * @param lifeline
+     *            the lifeline.
+     * @param executions
+     *            the lifeline's executions.
+     */
+    private void arrangeExecutions(final SLifeline lifeline,
+            final List<SequenceExecution> executions) {
+
+        for (SequenceExecution execution : executions) {
+            double top = Double.POSITIVE_INFINITY;
+            double bottom = Double.NEGATIVE_INFINITY;
+            for (Object messageObj : execution.getMessages()) {
+                SMessage message = (SMessage) messageObj;
+                if (message.getSource() == lifeline) {
+                    top = Math.min(top, message.getSourceYPos());
+                    bottom = Math.max(bottom, message.getSourceYPos());
+                }
+                if (message.getTarget() == lifeline) {
+                    top = Math.min(top, message.getTargetYPos());
+                    bottom = Math.max(bottom, message.getTargetYPos());
+                }
+            }
+
+            // Executions without messages are placed at the bottom of their lifeline
+            if (top > bottom) {
+                top = lifeline.getPosition().y + lifeline.getSize().y
+                        - SequenceLayoutConstants.MIN_EXECUTION_HEIGHT;
+                bottom = top;
+            }
+
+            execution.getPosition().x = lifeline.getPosition().x
+                    + (lifeline.getSize().x - SequenceLayoutConstants.EXECUCTION_WIDTH) / 2;
+            execution.getPosition().y = top;
+            execution.getSize().x = SequenceLayoutConstants.EXECUCTION_WIDTH;
+            execution.getSize().y = Math.max(bottom - top,
+                    SequenceLayoutConstants.MIN_EXECUTION_HEIGHT);
+        }
+
+        // Nested executions are shifted so that they don't hide the ones they are nested in
+        if (executions.size() > 1) {
+            int[] depths = nestingDepths(executions, true);
+            for (int i = 0; i < executions.size(); i++) {
+                SequenceExecution execution = executions.get(i);
+                if (execution.getType() == SequenceExecutionType.EXECUTION) {
+                    execution.getPosition().x +=
+                            depths[i] * SequenceLayoutConstants.EXECUCTION_WIDTH / 2;
+                }
+            }
+        }
+    }
+
+}
@@ -33,6 +33,10 @@ public final class InternalSequenceProperties {
     public static final IProperty<LNode> LAYERED_NODE = new Property<LNode>(
             "de.cau.cs.kieler.papyrus.sequence.layeredNode");
 
+    /** The node in the constraint graph that corresponds to a message or layered graph node. */
+    public static final IProperty<Integer> CONSTRAINT_NODE = new Property<Integer>(
+            "de.cau.cs.kieler.papyrus.sequence.constraintNode", -1);
+
     /** The ElkEdge that connects the comment to another element of the diagram. */
     public static final IProperty<ElkEdge> COMMENT_CONNECTION = new Property<ElkEdge>(
             "de.cau.cs.kieler.papyrus.sequence.commentConnection");
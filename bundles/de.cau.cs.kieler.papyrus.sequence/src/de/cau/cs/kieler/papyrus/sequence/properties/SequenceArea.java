@@ -53,6 +53,8 @@ public final class SequenceArea {
     private KVector size = new KVector();
     /** The position of the area. */
     private KVector position = new KVector();
+    /** The depth of the hierarchy of areas contained in this area. */
+    private int containmentDepth;
     
     
     /**
@@ -137,6 +139,26 @@ public final class SequenceArea {
         return containedAreas;
     }
 
+    /**
+     * Get the depth of the hierarchy of areas contained in this area, as determined by the last
+     * coordinate calculation. An area that does not contain other areas has a depth of zero.
+     * 
+     * @return the containment depth
+     */
+    public int getContainmentDepth() {
+        return containmentDepth;
+    }
+
+    /**
+     * Set the depth of the hierarchy of areas contained in this area.
+     * 
+     * @param containmentDepth
+     *            the new containment depth
+     */
+    public void setContainmentDepth(final int containmentDepth) {
+        this.containmentDepth = containmentDepth;
+    }
+
     /**
      * Get the message that is next to the area if the area does not contain any messages.
      * 
@@ -51,7 +51,7 @@ public final class SequenceExecution {
      * to an original ElkNode that the size and position will eventually be transferred to.
      * 
      * @param origin
-     *            the origin this object is created for
+     *            the origin this object is created for, or {@code null} if there is none
      */
     public SequenceExecution(final ElkNode origin) {
         this.origin = origin;
@@ -127,7 +127,8 @@ public final class SequenceExecution {
      * {@inheritDoc}
      */
     public String toString() {
-        return "Origin: " + origin.getClass().getSimpleName() + ", Messages: " + messages
+        return "Origin: " + (origin == null ? null : origin.getClass().getSimpleName())
+                + ", Messages: " + messages
                 + ", Pos: (" + getPosition().x + "/" + getPosition().y + "), Size: (" + getSize().x + "/"
                 + getSize().y + ")";
     }
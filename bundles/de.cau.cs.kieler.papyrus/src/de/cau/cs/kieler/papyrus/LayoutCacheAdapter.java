@@ -0,0 +1,70 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.gmf.runtime.notation.View;
+
+import de.cau.cs.kieler.papyrus.sequence.SequenceLayoutCache;
+
+/**
+ * Keeps the layout cache of a layout root on its notation view. The cache refers to the views of
+ * the layout root's children, so it must not be reachable from anywhere but the view itself:
+ * that way, the cache is collected along with the diagram. Closing the editor unloads the
+ * diagram's resource, which removes the adapter and drops the cache right away.
+ */
+final class LayoutCacheAdapter extends AdapterImpl {
+
+    /** The results of previous layout runs of the view. */
+    private final SequenceLayoutCache cache = new SequenceLayoutCache();
+
+
+    /**
+     * Returns the layout cache of the given layout root view, installing a new one if there is
+     * none yet. Layout graphs are built on the UI thread, so this is never called concurrently.
+     *
+     * @param view
+     *            the notation view of the layout root.
+     * @return the view's layout cache.
+     */
+    static SequenceLayoutCache cacheOf(final View view) {
+        LayoutCacheAdapter adapter = (LayoutCacheAdapter) EcoreUtil.getExistingAdapter(view,
+                LayoutCacheAdapter.class);
+        if (adapter == null) {
+            adapter = new LayoutCacheAdapter();
+            view.eAdapters().add(adapter);
+        }
+        return adapter.cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAdapterForType(final Object type) {
+        return type == LayoutCacheAdapter.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unsetTarget(final Notifier oldTarget) {
+        super.unsetTarget(oldTarget);
+        cache.clear();
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.draw2d.geometry.PointList;
+import org.eclipse.gmf.runtime.diagram.ui.editparts.ConnectionEditPart;
+import org.eclipse.gmf.runtime.diagram.ui.editparts.ShapeNodeEditPart;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The messages connected to a lifeline, sorted by the vertical position at which they are
+ * connected to it. Outgoing messages are connected at their first point, incoming messages at their
+ * last point. Reading the points of connection figures is expensive, so they are read once when the
+ * index is built instead of once for every comment or execution that looks for messages.
+ *
+ * <p>
+ * Among messages connected at the same position, the one the lifeline lists first wins, and
+ * outgoing messages win over incoming ones. This is the order in which the lifeline's connections
+ * used to be searched one by one.
+ * </p>
+ */
+final class LifelineConnectionIndex {
+
+    /** The lifeline's outgoing messages. */
+    private final Connections sources;
+    /** The lifeline's incoming messages. */
+    private final Connections targets;
+
+
+    /**
+     * Creates an index of the messages currently connected to the given lifeline.
+     *
+     * @param lifeline
+     *            the lifeline.
+     */
+    LifelineConnectionIndex(final ShapeNodeEditPart lifeline) {
+        sources = new Connections(lifeline.getSourceConnections(), true);
+        targets = new Connections(lifeline.getTargetConnections(), false);
+    }
+
+    /**
+     * Finds the nearest message that is located below a given point or the lowermost message if
+     * there is no message below the given point. Outgoing messages connected at the point count as
+     * below it, incoming ones don't. Messages above the point are only considered if they are
+     * connected below {@code 0}.
+     *
+     * @param skipConnection
+     *            the connection that is not considered in the search
+     * @param yPos
+     *            the point
+     * @return the nearest message, or {@code null} if there is none
+     */
+    ConnectionEditPart findMessageBelowPoint(final ConnectionEditPart skipConnection,
+            final float yPos) {
+
+        // Uppermost message below the point
+        int source = sources.first(sources.lowerBound(yPos), skipConnection);
+        int target = targets.first(targets.upperBound(yPos), skipConnection);
+        if (target >= 0 && (source < 0 || targets.position(target) < sources.position(source))) {
+            return targets.get(target);
+        } else if (source >= 0) {
+            return sources.get(source);
+        }
+
+        // Lowermost message above the point
+        source = sources.lastGroup(sources.lowerBound(yPos), skipConnection);
+        target = targets.lastGroup(targets.upperBound(yPos), skipConnection);
+        int low = source >= 0 ? Math.max(sources.position(source), 0) : 0;
+        if (target >= 0 && targets.position(target) > low) {
+            return targets.get(target);
+        } else if (source >= 0 && sources.position(source) > 0) {
+            return sources.get(source);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the messages connected to the lifeline between the given positions, inclusively.
+     *
+     * @param from
+     *            the upper position
+     * @param to
+     *            the lower position
+     * @return the outgoing messages in the order the lifeline lists them, followed by the incoming
+     *         messages in the same order
+     */
+    List<ConnectionEditPart> findMessagesBetween(final int from, final int to) {
+        List<ConnectionEditPart> result = Lists.newArrayList();
+        sources.addBetween(from, to, result);
+        targets.addBetween(from, to, result);
+        return result;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Connections
+
+    /**
+     * The outgoing or incoming messages of a lifeline, sorted by the position they are connected
+     * at. Messages connected at the same position keep the order the lifeline lists them in.
+     */
+    private static final class Connections {
+
+        /** The messages in the order the lifeline lists them. */
+        private final ConnectionEditPart[] listed;
+        /** Indices into {@link #listed}, sorted by position. */
+        private final int[] order;
+        /** The positions of the messages in {@link #order}, in ascending order. */
+        private final int[] positions;
+
+
+        /**
+         * Reads the positions of the given connections.
+         *
+         * @param connections
+         *            the source or target connections of a lifeline.
+         * @param outgoing
+         *            whether these are the source connections, which are connected to the lifeline
+         *            at their first point rather than their last.
+         */
+        Connections(final List<?> connections, final boolean outgoing) {
+            List<ConnectionEditPart> messages = Lists.newArrayListWithCapacity(connections.size());
+            for (Object connection : connections) {
+                if (connection instanceof ConnectionEditPart) {
+                    messages.add((ConnectionEditPart) connection);
+                }
+            }
+            listed = messages.toArray(new ConnectionEditPart[messages.size()]);
+
+            final int[] listedPositions = new int[listed.length];
+            Integer[] sorted = new Integer[listed.length];
+            for (int i = 0; i < listed.length; i++) {
+                PointList points = listed[i].getConnectionFigure().getPoints();
+                listedPositions[i] = outgoing ? points.getFirstPoint().y : points.getLastPoint().y;
+                sorted[i] = i;
+            }
+
+            // The sort is stable, so messages at the same position keep their order
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer message1, final Integer message2) {
+                    return Integer.compare(listedPositions[message1], listedPositions[message2]);
+                }
+            });
+
+            order = new int[listed.length];
+            positions = new int[listed.length];
+            for (int i = 0; i < listed.length; i++) {
+                order[i] = sorted[i];
+                positions[i] = listedPositions[sorted[i]];
+            }
+        }
+
+        /**
+         * Returns the message at the given index in position order.
+         */
+        ConnectionEditPart get(final int index) {
+            return listed[order[index]];
+        }
+
+        /**
+         * Returns the position of the message at the given index in position order.
+         */
+        int position(final int index) {
+            return positions[index];
+        }
+
+        /**
+         * Returns the first index in position order, starting at the given one, whose message is
+         * not the one to skip, or {@code -1} if there is none.
+         */
+        int first(final int start, final ConnectionEditPart skip) {
+            int index = start;
+            while (index < listed.length && get(index) == skip) {
+                index++;
+            }
+            return index < listed.length ? index : -1;
+        }
+
+        /**
+         * Considering only the messages before the given index in position order, returns the
+         * first one connected at the lowermost position, not counting the message to skip.
+         * Returns {@code -1} if there is none.
+         */
+        int lastGroup(final int end, final ConnectionEditPart skip) {
+            int last = end - 1;
+            while (last >= 0 && get(last) == skip) {
+                last--;
+            }
+            if (last < 0) {
+                return -1;
+            }
+
+            int index = lowerBound(positions[last]);
+            while (get(index) == skip) {
+                index++;
+            }
+            return index;
+        }
+
+        /**
+         * Adds the messages connected between the given positions, inclusively, to the result in
+         * the order the lifeline lists them.
+         */
+        void addBetween(final int from, final int to, final List<ConnectionEditPart> result) {
+            int first = lowerBound(from);
+            int last = upperBound(to);
+            if (first >= last) {
+                return;
+            }
+
+            int[] found = Arrays.copyOfRange(order, first, last);
+            Arrays.sort(found);
+            for (int message : found) {
+                result.add(listed[message]);
+            }
+        }
+
+        /**
+         * Returns the number of messages connected above the given position.
+         */
+        int lowerBound(final float position) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[middle] < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the number of messages connected above or at the given position.
+         */
+        int upperBound(final float position) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[middle] <= position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+}
@@ -48,6 +48,7 @@ import org.eclipse.gmf.runtime.diagram.ui.editparts.ShapeNodeEditPart;
 import org.eclipse.gmf.runtime.diagram.ui.figures.ResizableCompartmentFigure;
 import org.eclipse.gmf.runtime.diagram.ui.parts.DiagramEditor;
 import org.eclipse.gmf.runtime.draw2d.ui.figures.WrappingLabel;
+import org.eclipse.gmf.runtime.notation.View;
 import org.eclipse.gmf.runtime.notation.impl.EdgeImpl;
 import org.eclipse.gmf.runtime.notation.impl.ShapeImpl;
 import org.eclipse.papyrus.infra.ui.editor.IMultiDiagramEditor;
@@ -110,6 +111,11 @@ public class PapyrusSequenceDiagramLayoutConnector extends GmfDiagramLayoutConne
     
     /** Maps Papyrus node types that are basically Strings to proper message type enumeration values. */
     private static final Map<String, MessageType> PAPYRUS_MESSAGE_TYPES = Maps.newHashMap();
+    
+    /** The connections of each lifeline, indexed when first needed while building a layout graph. */
+    private static final IProperty<Map<ShapeNodeEditPart, LifelineConnectionIndex>>
+            CONNECTION_INDICES = new Property<Map<ShapeNodeEditPart, LifelineConnectionIndex>>(
+                    "de.cau.cs.kieler.papyrus.connectionIndices");
 
     
     
@@ -253,6 +259,8 @@ public class PapyrusSequenceDiagramLayoutConnector extends GmfDiagramLayoutConne
         
         LayoutMapping mapping = new LayoutMapping((IWorkbenchPart) workbenchPart);
         mapping.setProperty(CONNECTIONS, new LinkedList<ConnectionEditPart>());
+        mapping.setProperty(CONNECTION_INDICES,
+                Maps.<ShapeNodeEditPart, LifelineConnectionIndex>newHashMap());
 
         // set the parent element
         mapping.setParentElement(layoutRootPart);
@@ -289,10 +297,41 @@ public class PapyrusSequenceDiagramLayoutConnector extends GmfDiagramLayoutConne
 
         // copy annotations from KShapeLayout to VolatileLayoutConfig
         copyAnnotations(mapping, topNode);
+        
+        // enable incremental layout across layout runs of the same diagram
+        setLayoutCache(mapping, topNode, layoutRootPart);
 
         return mapping;
     }
 
+    /**
+     * Installs the layout cache of the given layout root on the layout graph. The cache is kept on the
+     * layout root's notation view. Since the layout graph is built anew for each layout run, its
+     * elements are identified by their notation views.
+     * 
+     * @param mapping
+     *            the layout mapping
+     * @param topNode
+     *            the layout graph
+     * @param layoutRootPart
+     *            the layout root edit part
+     */
+    private void setLayoutCache(final LayoutMapping mapping, final ElkNode topNode,
+            final IGraphicalEditPart layoutRootPart) {
+        
+        topNode.setProperty(SequenceDiagramOptions.LAYOUT_CACHE,
+                LayoutCacheAdapter.cacheOf(layoutRootPart.getNotationView()));
+        
+        for (Map.Entry<ElkGraphElement, Object> entry : mapping.getGraphMap().entrySet()) {
+            if (entry.getValue() instanceof IGraphicalEditPart) {
+                View view = ((IGraphicalEditPart) entry.getValue()).getNotationView();
+                if (view != null) {
+                    entry.getKey().setProperty(SequenceDiagramOptions.ELEMENT_KEY, view);
+                }
+            }
+        }
+    }
+
     /**
      * Copy the annotations to the static config.
      * 
@@ -621,8 +660,9 @@ public class PapyrusSequenceDiagramLayoutConnector extends GmfDiagramLayoutConne
                 // If target is lifeline, attach to the nearest message
                 if (connedit.getTarget() instanceof ShapeNodeEditPart) {
                     float yPos = connedit.getConnectionFigure().getPoints().getLastPoint().y();
-                    ConnectionEditPart nearestMessage = findMessageBelowPoint(
-                            (ShapeNodeEditPart) connedit.getTarget(), connedit, yPos);
+                    ConnectionEditPart nearestMessage = connectionIndex(mapping,
+                            (ShapeNodeEditPart) connedit.getTarget())
+                            .findMessageBelowPoint(connedit, yPos);
                     if (nearestMessage != null) {
                         attachedTo.add(nearestMessage);
                     }
@@ -708,99 +748,35 @@ public class PapyrusSequenceDiagramLayoutConnector extends GmfDiagramLayoutConne
             // get position of messages and compare to duration
             int from = executionBounds.y();
             int to = executionBounds.y() + executionBounds.height();
-            for (Object connObj : lifelineEditPart.getSourceConnections()) {
-                if (connObj instanceof ConnectionEditPart) {
-                    ConnectionEditPart conn = (ConnectionEditPart) connObj;
-                    int point = conn.getConnectionFigure().getPoints().getFirstPoint().y;
-                    if (point <= to + 2 && point >= from - 2) {
-                        execution.addMessage(conn);
-                    }
-                }
-            }
-            for (Object connObj : lifelineEditPart.getTargetConnections()) {
-                if (connObj instanceof ConnectionEditPart) {
-                    ConnectionEditPart conn = (ConnectionEditPart) connObj;
-                    int point = conn.getConnectionFigure().getPoints().getLastPoint().y;
-                    if (point <= to + 2 && point >= from - 2) {
-                        execution.addMessage(conn);
-                    }
-                }
+            for (ConnectionEditPart conn : connectionIndex(mapping, lifelineEditPart)
+                    .findMessagesBetween(from - 2, to + 2)) {
+                
+                execution.addMessage(conn);
             }
         }
     }
 
     /**
-     * Finds the nearest message that is located below a given point or the lowermost message if
-     * there is no message below the given point.
+     * Returns the index of the messages connected to the given lifeline, building it if this is
+     * the first time it is needed while building the current layout graph.
      * 
+     * @param mapping
+     *            the layout mapping
      * @param lifeline
-     *            the lifeline, whose messages are searched
-     * @param skipConnection
-     *            the connection that is not considered in the search
-     * @param yPos
-     *            the point
-     * @return the ConnectionEditPart of the searched message
+     *            the lifeline
+     * @return the index of the lifeline's messages
      */
-    private ConnectionEditPart findMessageBelowPoint(final ShapeNodeEditPart lifeline,
-            final ConnectionEditPart skipConnection, final float yPos) {
-        float minDiff = Float.MAX_VALUE;
-        float low = 0;
-        ConnectionEditPart next = null;
-        ConnectionEditPart lowest = null;
-        for (Object connection : lifeline.getSourceConnections()) {
-            if (connection instanceof ConnectionEditPart) {
-                ConnectionEditPart connect = (ConnectionEditPart) connection;
-                if (connect == skipConnection) {
-                    continue;
-                }
-                float connectionYPos = connect.getConnectionFigure().getPoints().getFirstPoint()
-                        .y();
-
-                if (connectionYPos >= yPos) {
-                    // Message is below comment
-                    float currentDiff = Math.abs(connectionYPos - yPos);
-                    if (currentDiff < minDiff) {
-                        minDiff = currentDiff;
-                        next = connect;
-                    }
-                } else {
-                    // Message is above comment
-                    if (connectionYPos > low) {
-                        low = connectionYPos;
-                        lowest = connect;
-                    }
-                }
-            }
-        }
-        for (Object connection : lifeline.getTargetConnections()) {
-            if (connection instanceof ConnectionEditPart) {
-                ConnectionEditPart connect = (ConnectionEditPart) connection;
-                if (connect == skipConnection) {
-                    continue;
-                }
-                float connectionYPos = connect.getConnectionFigure().getPoints().getLastPoint().y();
-
-                if (connectionYPos > yPos) {
-                    // Message is below comment
-                    float currentDiff = Math.abs(connectionYPos - yPos);
-                    if (currentDiff < minDiff) {
-                        minDiff = currentDiff;
-                        next = connect;
-                    }
-                } else {
-                    // Message is above comment
-                    if (connectionYPos > low) {
-                        low = connectionYPos;
-                        lowest = connect;
-                    }
-                }
-            }
-        }
-        if (next != null) {
-            return next;
-        } else {
-            return lowest;
+    private LifelineConnectionIndex connectionIndex(final LayoutMapping mapping,
+            final ShapeNodeEditPart lifeline) {
+        
+        Map<ShapeNodeEditPart, LifelineConnectionIndex> indices =
+                mapping.getProperty(CONNECTION_INDICES);
+        LifelineConnectionIndex index = indices.get(lifeline);
+        if (index == null) {
+            index = new LifelineConnectionIndex(lifeline);
+            indices.put(lifeline, index);
         }
+        return index;
     }
 
     /**
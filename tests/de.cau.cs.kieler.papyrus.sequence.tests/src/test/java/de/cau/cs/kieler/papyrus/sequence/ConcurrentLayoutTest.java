@@ -0,0 +1,128 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkNode;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.benchmarks.SequenceDiagramGenerator;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Lays out many diagrams at once with a single {@link SequenceDiagramLayoutProvider}, whose
+ * processor pipelines are then shared between threads, and compares the results to those of
+ * diagrams laid out one at a time by providers of their own. The diagrams cover every coordinate
+ * system, layering and sorting strategy, parallel layering, parallel export and incremental
+ * layout, so that each kind of pipeline is shared.
+ */
+public class ConcurrentLayoutTest {
+
+    /** The number of diagrams to lay out. */
+    private static final int DIAGRAMS = 480;
+    /**
+     * The number of consecutive diagrams that are configured the same way. They are laid out by the
+     * same pipeline, mostly at the same time.
+     */
+    private static final int DIAGRAMS_PER_CONFIGURATION = 20;
+    /** The number of threads laying out diagrams at once. */
+    private static final int THREADS = 8;
+
+
+    /**
+     * Checks that concurrent layouts with a shared provider give the same results as serial ones.
+     *
+     * @throws Exception
+     *             if a layout fails.
+     */
+    @Test
+    public void testSharedProviderMatchesSerialLayout() throws Exception {
+        String[] expected = new String[DIAGRAMS];
+        for (int i = 0; i < DIAGRAMS; i++) {
+            ElkNode diagram = generate(i);
+            new SequenceDiagramLayoutProvider().layout(diagram, new BasicProgressMonitor());
+            expected[i] = LayoutFingerprint.of(diagram);
+        }
+
+        final SequenceDiagramLayoutProvider provider = new SequenceDiagramLayoutProvider();
+        List<Future<String>> actual = Lists.newArrayListWithCapacity(DIAGRAMS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < DIAGRAMS; i++) {
+                final int index = i;
+                actual.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        ElkNode diagram = generate(index);
+                        provider.layout(diagram, new BasicProgressMonitor());
+                        return LayoutFingerprint.of(diagram);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < DIAGRAMS; i++) {
+                assertEquals("Diagram " + i, expected[i], actual.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates the diagram with the given index. Equal indices give equal diagrams.
+     */
+    private static ElkNode generate(final int index) {
+        CoordinateSystem[] coordinateSystems = CoordinateSystem.values();
+        LifelineSortingStrategy[] sortingStrategies = LifelineSortingStrategy.values();
+        LayeringStrategy[] layeringStrategies = LayeringStrategy.values();
+
+        int configuration = index / DIAGRAMS_PER_CONFIGURATION;
+        int variant = configuration;
+        CoordinateSystem coordinateSystem = coordinateSystems[variant % coordinateSystems.length];
+        variant /= coordinateSystems.length;
+        LifelineSortingStrategy sortingStrategy =
+                sortingStrategies[variant % sortingStrategies.length];
+        variant /= sortingStrategies.length;
+        LayeringStrategy layeringStrategy = layeringStrategies[variant % layeringStrategies.length];
+
+        String shape = (2 + index % 7) + "x" + (5 + (index * 7) % 70);
+        ElkNode diagram = SequenceDiagramGenerator.forShape(shape, coordinateSystem)
+                .withSortingStrategy(sortingStrategy)
+                .withLayeringStrategy(layeringStrategy)
+                .withLayeringPartitionSize(configuration % 5 == 0 ? 10 : 0)
+                .withSeed(index)
+                .generate();
+
+        diagram.setProperty(SequenceDiagramOptions.PARALLEL_EXPORT, configuration % 3 == 0);
+        if (configuration % 4 == 1) {
+            diagram.setProperty(SequenceDiagramOptions.LAYOUT_CACHE, new SequenceLayoutCache());
+        }
+
+        return diagram;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.benchmarks.SequenceDiagramGenerator;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Lays out diagrams with lost and found messages twice with a {@link SequenceLayoutCache}, so that
+ * the second run reuses the lifeline order and layering of the first one. Both runs must give the
+ * same layout as a run without a cache.
+ */
+public class IncrementalLayoutTest {
+
+    /** The number of diagrams to lay out. */
+    private static final int DIAGRAMS = 120;
+    /** One in this many messages becomes a lost or a found message. */
+    private static final int LOST_FOUND_RATIO = 8;
+
+
+    /**
+     * Checks that the dummy lifelines of lost and found messages don't keep the layer based sorter's
+     * lifeline order from being cached and reused.
+     */
+    @Test
+    public void testLayerBasedOrderWithLostAndFoundMessages() {
+        int withLostOrFound = 0;
+
+        for (int i = 0; i < DIAGRAMS; i++) {
+            ElkNode uncached = generate(i);
+            new SequenceDiagramLayoutProvider().layout(uncached, new BasicProgressMonitor());
+            String expected = LayoutFingerprint.of(uncached);
+
+            // Like an editor, build a new graph with the same element keys for every run
+            SequenceLayoutCache cache = new SequenceLayoutCache();
+            for (int run = 0; run < 2; run++) {
+                ElkNode cached = generate(i);
+                cached.setProperty(SequenceDiagramOptions.LAYOUT_CACHE, cache);
+                new SequenceDiagramLayoutProvider().layout(cached, new BasicProgressMonitor());
+                assertEquals("Diagram " + i + ", run " + run, expected,
+                        LayoutFingerprint.of(cached));
+            }
+            assertFalse(cache.getLifelineOrder().isEmpty());
+
+            if (hasLostOrFoundMessages(uncached.getChildren().get(0))) {
+                withLostOrFound++;
+            }
+        }
+
+        // Make sure lost and found messages are covered
+        assertTrue(withLostOrFound > DIAGRAMS / 2);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Generates the diagram with the given index, sorted by the layer based sorter, and turns some
+     * of its messages between two lifelines into lost or found messages. Equal indices give equal
+     * diagrams, whose lifelines and messages have equal element keys.
+     */
+    private static ElkNode generate(final int index) {
+        Random random = new Random(index);
+        String shape = (2 + random.nextInt(8)) + "x" + (10 + random.nextInt(60));
+        ElkNode diagram = SequenceDiagramGenerator
+                .forShape(shape, index % 2 == 0 ? CoordinateSystem.KGRAPH
+                        : CoordinateSystem.PAPYRUS)
+                .withLayeringStrategy(
+                        LayeringStrategy.values()[index % LayeringStrategy.values().length])
+                .withSortingStrategy(LifelineSortingStrategy.LAYER_BASED)
+                .withSeed(index)
+                .generate();
+
+        ElkNode interaction = diagram.getChildren().get(0);
+        List<ElkEdge> messages = Lists.newArrayList();
+        for (ElkNode child : interaction.getChildren()) {
+            if (child.getProperty(SequenceDiagramOptions.NODE_TYPE) == NodeType.LIFELINE) {
+                child.setProperty(SequenceDiagramOptions.ELEMENT_KEY, "lifeline" + messages.size());
+                messages.addAll(child.getOutgoingEdges());
+            }
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            ElkEdge message = messages.get(i);
+            message.setProperty(SequenceDiagramOptions.ELEMENT_KEY, "message" + i);
+            if (message.getSources().get(0) != message.getTargets().get(0)) {
+                int choice = random.nextInt(2 * LOST_FOUND_RATIO);
+                if (choice == 0) {
+                    message.getTargets().set(0, interaction);
+                    message.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, MessageType.LOST);
+                } else if (choice == 1) {
+                    message.getSources().set(0, interaction);
+                    message.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, MessageType.FOUND);
+                }
+            }
+        }
+
+        return diagram;
+    }
+
+    /**
+     * Checks whether the given interaction has lost or found messages.
+     */
+    private static boolean hasLostOrFoundMessages(final ElkNode interaction) {
+        for (ElkEdge edge : interaction.getContainedEdges()) {
+            MessageType type = edge.getProperty(SequenceDiagramOptions.MESSAGE_TYPE);
+            if (type == MessageType.LOST || type == MessageType.FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
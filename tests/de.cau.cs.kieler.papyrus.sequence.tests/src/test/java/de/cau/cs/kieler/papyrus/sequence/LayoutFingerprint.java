@@ -0,0 +1,127 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.eclipse.emf.ecore.EObject;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Describes the layout of a graph as a string, so that layouts can be compared with each other. The
+ * description lists the bounds of every shape and the route of every edge section, in the order
+ * the graph contains them. Two graphs built the same way have the same description exactly if
+ * their layouts are identical.
+ */
+final class LayoutFingerprint {
+
+    /**
+     * Not to be instantiated.
+     */
+    private LayoutFingerprint() {
+    }
+
+    /**
+     * Describes the layout of the given graph.
+     *
+     * @param root
+     *            the graph's root node.
+     * @return the description.
+     */
+    static String of(final ElkNode root) {
+        StringBuilder builder = new StringBuilder();
+
+        for (double[] coordinates : coordinatesOf(root)) {
+            builder.append(coordinates[0]).append(',').append(coordinates[1]).append(',')
+                    .append(coordinates[2]).append(',').append(coordinates[3]);
+            for (int i = 4; i < coordinates.length; i += 2) {
+                builder.append('/').append(coordinates[i]).append(',').append(coordinates[i + 1]);
+            }
+            builder.append(';');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns a short checksum of the layout of the given graph. The checksum is computed from the
+     * exact bits of the coordinates rather than from their description, whose formatting differs
+     * between Java versions, so it can be stored.
+     *
+     * @param root
+     *            the graph's root node.
+     * @return the CRC-32 of the coordinates and the number of shapes and edge sections, in
+     *         hexadecimal.
+     */
+    static String checksum(final ElkNode root) {
+        List<double[]> layout = coordinatesOf(root);
+
+        CRC32 crc = new CRC32();
+        for (double[] coordinates : layout) {
+            ByteBuffer buffer =
+                    ByteBuffer.allocate(Integer.BYTES + coordinates.length * Long.BYTES);
+            buffer.putInt(coordinates.length);
+            for (double coordinate : coordinates) {
+                buffer.putLong(Double.doubleToLongBits(coordinate));
+            }
+            crc.update(buffer.array());
+        }
+        return String.format("%08x:%x", crc.getValue(), layout.size());
+    }
+
+    /**
+     * Collects the coordinates of every shape and edge section of the given graph. Shapes are
+     * described by their position and size, edge sections by their start and end point followed by
+     * their bend points.
+     */
+    private static List<double[]> coordinatesOf(final ElkNode root) {
+        List<double[]> layout = Lists.newArrayList();
+
+        Iterator<EObject> contents = ElkGraphUtil.propertiesSkippingIteratorFor(root, true);
+        while (contents.hasNext()) {
+            EObject object = contents.next();
+
+            if (object instanceof ElkShape) {
+                ElkShape shape = (ElkShape) object;
+                layout.add(new double[] {
+                        shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight() });
+            } else if (object instanceof ElkEdgeSection) {
+                ElkEdgeSection section = (ElkEdgeSection) object;
+                double[] coordinates = new double[4 + 2 * section.getBendPoints().size()];
+                coordinates[0] = section.getStartX();
+                coordinates[1] = section.getStartY();
+                coordinates[2] = section.getEndX();
+                coordinates[3] = section.getEndY();
+                int i = 4;
+                for (ElkBendPoint bendPoint : section.getBendPoints()) {
+                    coordinates[i++] = bendPoint.getX();
+                    coordinates[i++] = bendPoint.getY();
+                }
+                layout.add(coordinates);
+            }
+        }
+
+        return layout;
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cau.cs.kieler.papyrus.sequence.benchmarks.SequenceDiagramGenerator;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Compares the layouts of generated diagrams to checksums of their layouts stored in
+ * {@code layouts.txt}. The diagrams cover every coordinate system, sorting and layering strategy,
+ * parallel layering and parallel export. Half of them also have interaction operands and comments
+ * attached to several elements, lifelines or executions. Changes that are not meant to change
+ * layouts must keep all checksums.
+ *
+ * <p>If a change is meant to change layouts, run {@link #main(String[])} and replace
+ * {@code layouts.txt} with its output.</p>
+ */
+public class LayoutRegressionTest {
+
+    /** The name of the resource with the expected checksums. */
+    private static final String LAYOUTS = "layouts.txt";
+    /** The number of diagrams to lay out. */
+    private static final int DIAGRAMS = 2400;
+    /** The maximum number of differing layouts to list when the test fails. */
+    private static final int MAX_REPORTED = 10;
+
+
+    /**
+     * Checks that every diagram is laid out as recorded.
+     *
+     * @throws IOException
+     *             if the expected checksums cannot be read.
+     */
+    @Test
+    public void testLayoutsMatchRecordedChecksums() throws IOException {
+        Map<String, String> expected = readChecksums();
+        assertEquals(DIAGRAMS, expected.size());
+
+        List<String> differing = Lists.newArrayList();
+        for (int i = 0; i < DIAGRAMS; i++) {
+            String name = nameOf(i);
+            if (!layOut(i).equals(expected.get(name))) {
+                differing.add(name);
+            }
+        }
+
+        assertTrue(differing.size() + " of " + DIAGRAMS + " layouts differ, e.g. "
+                + differing.subList(0, Math.min(MAX_REPORTED, differing.size())),
+                differing.isEmpty());
+    }
+
+    /**
+     * Prints the checksums of the current layouts in the format of {@code layouts.txt}.
+     *
+     * @param args
+     *            ignored.
+     */
+    public static void main(final String[] args) {
+        for (int i = 0; i < DIAGRAMS; i++) {
+            System.out.println(layOut(i) + " " + nameOf(i));
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Diagrams
+
+    /**
+     * Returns the name of the diagram with the given index, which lists how it is configured.
+     */
+    private static String nameOf(final int index) {
+        StringBuilder name = new StringBuilder();
+        name.append(index).append(' ').append(coordinateSystemOf(index)).append('/')
+                .append(sortingStrategyOf(index)).append('/').append(layeringStrategyOf(index))
+                .append(' ').append(shapeOf(index));
+        if (isDecorated(index)) {
+            name.append(" decorated");
+        }
+        if (isPartitioned(index)) {
+            name.append(" partitioned");
+        }
+        if (isExportedInParallel(index)) {
+            name.append(" parallel");
+        }
+        return name.toString();
+    }
+
+    /**
+     * Generates and lays out the diagram with the given index.
+     *
+     * @return the checksum of the layout, or the exception thrown by the layout.
+     */
+    private static String layOut(final int index) {
+        ElkNode diagram = SequenceDiagramGenerator
+                .forShape(shapeOf(index), coordinateSystemOf(index))
+                .withSortingStrategy(sortingStrategyOf(index))
+                .withLayeringStrategy(layeringStrategyOf(index))
+                .withLayeringPartitionSize(isPartitioned(index) ? 10 : 0)
+                .withSeed(index)
+                .generate();
+        if (isDecorated(index)) {
+            decorate(diagram.getChildren().get(0), new Random(index));
+        }
+
+        diagram.setProperty(SequenceDiagramOptions.PARALLEL_EXPORT, isExportedInParallel(index));
+
+        try {
+            new SequenceDiagramLayoutProvider().layout(diagram, new BasicProgressMonitor());
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+        return LayoutFingerprint.checksum(diagram);
+    }
+
+    /**
+     * Returns the coordinate system of the diagram with the given index.
+     */
+    private static CoordinateSystem coordinateSystemOf(final int index) {
+        CoordinateSystem[] values = CoordinateSystem.values();
+        return values[index % values.length];
+    }
+
+    /**
+     * Returns the lifeline sorting strategy of the diagram with the given index.
+     */
+    private static LifelineSortingStrategy sortingStrategyOf(final int index) {
+        LifelineSortingStrategy[] values = LifelineSortingStrategy.values();
+        return values[index / CoordinateSystem.values().length % values.length];
+    }
+
+    /**
+     * Returns the layering strategy of the diagram with the given index.
+     */
+    private static LayeringStrategy layeringStrategyOf(final int index) {
+        LayeringStrategy[] values = LayeringStrategy.values();
+        return values[index / CoordinateSystem.values().length
+                / LifelineSortingStrategy.values().length % values.length];
+    }
+
+    /**
+     * Returns the number of lifelines and messages of the diagram with the given index.
+     */
+    private static String shapeOf(final int index) {
+        return (2 + index % 13) + "x" + (10 + (index * 7) % 150);
+    }
+
+    /**
+     * Checks whether the diagram with the given index is decorated.
+     */
+    private static boolean isDecorated(final int index) {
+        // Every configuration of strategies is laid out with and without decorations
+        int configurations = CoordinateSystem.values().length
+                * LifelineSortingStrategy.values().length * LayeringStrategy.values().length;
+        return index / configurations % 2 == 1;
+    }
+
+    /**
+     * Checks whether the diagram with the given index is layered in partitions.
+     */
+    private static boolean isPartitioned(final int index) {
+        return index % 7 == 0;
+    }
+
+    /**
+     * Checks whether the lifelines of the diagram with the given index are exported in parallel.
+     */
+    private static boolean isExportedInParallel(final int index) {
+        return index % 5 == 0;
+    }
+
+    /**
+     * Adds what the generator leaves out to the given interaction: comments attached to more than
+     * one element, to lifelines or to executions, time observations, and interaction operands that
+     * split combined fragments in two.
+     */
+    private static void decorate(final ElkNode interaction, final Random random) {
+        List<ElkNode> comments = Lists.newArrayList();
+        for (ElkNode child : interaction.getChildren()) {
+            if (child.getProperty(SequenceDiagramOptions.NODE_TYPE) == NodeType.COMMENT) {
+                comments.add(child);
+            }
+        }
+
+        for (ElkNode comment : comments) {
+            List<Object> attachedObjects =
+                    comment.getProperty(SequenceDiagramOptions.ATTACHED_OBJECTS);
+            ElkEdge message = (ElkEdge) attachedObjects.get(0);
+            int variant = random.nextInt(4);
+            if (variant == 0) {
+                attachedObjects.add(ElkGraphUtil.getTargetNode(message));
+            } else if (variant == 1) {
+                attachedObjects.add(ElkGraphUtil.getSourceNode(message));
+            }
+            if (random.nextBoolean()) {
+                comment.setProperty(SequenceDiagramOptions.ATTACHED_ELEMENT_TYPE,
+                        variant < 2 && random.nextBoolean() ? "Lifeline"
+                                : "ExecutionSpecification");
+            }
+            if (random.nextInt(3) == 0) {
+                comment.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.TIME_OBSERVATION);
+            }
+        }
+
+        List<SequenceArea> areas = interaction.getProperty(SequenceDiagramOptions.AREAS);
+        if (areas != null) {
+            for (SequenceArea area : Lists.newArrayList(areas)) {
+                if (random.nextBoolean()) {
+                    addOperands(area);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the combined fragment of the given area into two interaction operands.
+     */
+    private static void addOperands(final SequenceArea area) {
+        ElkNode fragment = area.getLayoutNode();
+        double height = fragment.getHeight() / 2;
+
+        for (int i = 0; i < 2; i++) {
+            ElkNode operand = ElkGraphUtil.createNode(fragment);
+            operand.setProperty(SequenceDiagramOptions.NODE_TYPE, NodeType.INTERACTION_OPERAND);
+            operand.setLocation(0, i * height);
+            operand.setDimensions(fragment.getWidth(), height);
+
+            SequenceArea subArea = new SequenceArea(operand);
+            subArea.getPosition().x = fragment.getX();
+            subArea.getPosition().y = fragment.getY() + i * height;
+            subArea.getSize().x = fragment.getWidth();
+            subArea.getSize().y = height;
+            area.getSubAreas().add(subArea);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Recorded Checksums
+
+    /**
+     * Reads the expected checksums, by diagram name.
+     */
+    private static Map<String, String> readChecksums() throws IOException {
+        Map<String, String> checksums = Maps.newHashMap();
+
+        InputStream stream = LayoutRegressionTest.class.getResourceAsStream(LAYOUTS);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                checksums.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+        }
+
+        return checksums;
+    }
+
+}
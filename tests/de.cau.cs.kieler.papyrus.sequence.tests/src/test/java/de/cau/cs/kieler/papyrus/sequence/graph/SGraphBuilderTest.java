@@ -0,0 +1,62 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.graph;
+
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.properties.MapPropertyHolder;
+import org.junit.Test;
+
+import de.cau.cs.kieler.papyrus.sequence.LayoutSettings;
+import de.cau.cs.kieler.papyrus.sequence.SequenceDiagramLayoutProvider;
+import de.cau.cs.kieler.papyrus.sequence.p4sorting.LifelineSortingStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Tests the {@link SGraphBuilder}.
+ */
+public class SGraphBuilderTest {
+
+    /**
+     * Lays out a trace whose lifelines are mostly created after a message that leaves the
+     * interaction. The message must still end right of all lifelines.
+     */
+    @Test
+    public void testLifelineCreatedAfterMessageLeavingInteraction() {
+        SGraphBuilder trace = new SGraphBuilder();
+        SLifeline first = trace.createLifeline("first", 40);
+        SMessage leaving = trace.sendMessage(first, null, null, 10);
+
+        SLifeline previous = first;
+        for (int i = 0; i < 3; i++) {
+            SLifeline lifeline = trace.createLifeline("later" + i, 40);
+            trace.sendMessage(previous, lifeline, null, 10);
+            previous = lifeline;
+        }
+
+        MapPropertyHolder properties = new MapPropertyHolder();
+        properties.setProperty(SequenceDiagramOptions.LIFELINE_SORTING_STRATEGY,
+                LifelineSortingStrategy.INTERACTIVE);
+        new SequenceDiagramLayoutProvider().layout(trace, LayoutSettings.fromProperties(properties),
+                new BasicProgressMonitor());
+
+        SLifeline dummy = leaving.getTarget();
+        for (SLifeline lifeline : trace.getGraph().getLifelines()) {
+            assertTrue(lifeline.getName(),
+                    lifeline.getHorizontalSlot() < dummy.getHorizontalSlot());
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p2cycles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.properties.MapPropertyHolder;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.LayoutSettings;
+import de.cau.cs.kieler.papyrus.sequence.graph.ConstraintGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraph;
+import de.cau.cs.kieler.papyrus.sequence.graph.SGraphBuilder;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+
+/**
+ * Tests the {@link SCycleBreaker} on very long message chains and compares the nodes it splits on
+ * random cyclic graphs to those split by a frozen copy of the recursive search it replaced.
+ */
+public class SCycleBreakerTest {
+
+    /** The number of messages of the long chains. */
+    private static final int LONG_CHAIN = 100000;
+    /** The number of random graphs to compare. */
+    private static final int RANDOM_GRAPHS = 3000;
+
+
+    /**
+     * Breaks the cycles of a trace of a single lifeline sending a long series of messages to
+     * itself. The messages form one long chain without cycles.
+     */
+    @Test
+    public void testLongSingleLifelineTrace() {
+        SGraphBuilder trace = new SGraphBuilder();
+        SLifeline lifeline = trace.createLifeline("l", 40);
+        for (int i = 0; i < LONG_CHAIN; i++) {
+            trace.sendMessage(lifeline, lifeline, null, 10);
+        }
+
+        ConstraintGraph graph = trace.getConstraintGraph();
+        breakCycles(trace.getGraph(), graph);
+
+        assertEquals(LONG_CHAIN, graph.getNodeCount());
+    }
+
+    /**
+     * Breaks a single cycle through a long message chain. Only the uppermost message is split.
+     */
+    @Test
+    public void testLongCycle() {
+        SGraph sgraph = new SGraph();
+        SLifeline first = createLifeline(sgraph);
+        SLifeline second = createLifeline(sgraph);
+
+        ConstraintGraph graph = new ConstraintGraph();
+        for (int i = 0; i < LONG_CHAIN; i++) {
+            SMessage message = new SMessage(first, second);
+            message.setSourceYPos(LONG_CHAIN - i);
+            graph.addNode(message);
+            if (i > 0) {
+                graph.addEdge(i - 1, i, first);
+            }
+        }
+        graph.addEdge(LONG_CHAIN - 1, 0, second);
+
+        breakCycles(sgraph, graph);
+
+        assertEquals(LONG_CHAIN + 1, graph.getNodeCount());
+        assertEquals(graph.getMessage(LONG_CHAIN - 1), graph.getMessage(LONG_CHAIN));
+        assertEquals(LONG_CHAIN, graph.getSource(graph.getEdgeCount() - 1));
+    }
+
+    /**
+     * Checks that the cycle breaker splits the same nodes as the recursive search it replaced, on
+     * random graphs with many cycles.
+     */
+    @Test
+    public void testSplitsMatchRecursiveSearch() {
+        int cyclic = 0;
+
+        for (int seed = 0; seed < RANDOM_GRAPHS; seed++) {
+            Random random = new Random(seed);
+            int nodeCount = 3 + seed % 11;
+            int edgeCount = nodeCount + seed % 13;
+            SGraph sgraph = new SGraph();
+            ConstraintGraph graph = randomGraph(sgraph, random, nodeCount, edgeCount);
+
+            Set<Integer> expected = RecursiveSearch.findNodesToSplit(graph);
+            if (!expected.isEmpty()) {
+                cyclic++;
+            }
+
+            breakCycles(sgraph, graph);
+
+            // Each split node's message got a new node of its own
+            Map<SMessage, Integer> nodeOfMessage = Maps.newHashMap();
+            for (int node = 0; node < nodeCount; node++) {
+                nodeOfMessage.put(graph.getMessage(node), node);
+            }
+            Set<Integer> actual = Sets.newHashSet();
+            for (int node = nodeCount; node < graph.getNodeCount(); node++) {
+                actual.add(nodeOfMessage.get(graph.getMessage(node)));
+            }
+
+            assertEquals("Graph " + seed, expected, actual);
+        }
+
+        // Make sure the comparison isn't trivial
+        assertTrue(cyclic > RANDOM_GRAPHS / 2);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Runs the cycle breaker on the given constraint graph.
+     */
+    private static void breakCycles(final SGraph sgraph, final ConstraintGraph graph) {
+        LayoutContext context = LayoutContext.fromSGraph(sgraph, graph,
+                LayoutSettings.fromProperties(new MapPropertyHolder()));
+        new SCycleBreaker().process(context, new BasicProgressMonitor());
+    }
+
+    /**
+     * Adds a new lifeline to the given graph.
+     */
+    private static SLifeline createLifeline(final SGraph sgraph) {
+        SLifeline lifeline = new SLifeline();
+        sgraph.addLifeline(lifeline);
+        return lifeline;
+    }
+
+    /**
+     * Creates a graph of messages between two lifelines that start at distinct positions, connected
+     * by random edges.
+     */
+    private static ConstraintGraph randomGraph(final SGraph sgraph, final Random random,
+            final int nodeCount, final int edgeCount) {
+
+        SLifeline first = createLifeline(sgraph);
+        SLifeline second = createLifeline(sgraph);
+
+        List<Integer> positions = Lists.newArrayListWithCapacity(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            positions.add(i * 10);
+        }
+        Collections.shuffle(positions, random);
+
+        ConstraintGraph graph = new ConstraintGraph();
+        for (int i = 0; i < nodeCount; i++) {
+            SMessage message = new SMessage(first, second);
+            message.setSourceYPos(positions.get(i));
+            graph.addNode(message);
+        }
+
+        for (int i = 0; i < edgeCount; i++) {
+            int source = random.nextInt(nodeCount);
+            int target = random.nextInt(nodeCount);
+            if (source != target) {
+                graph.addEdge(source, target, random.nextBoolean() ? first : second);
+            }
+        }
+
+        return graph;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Recursive Search
+
+    /**
+     * The cycle search that {@link SCycleBreaker} used before it was made iterative, adapted to the
+     * constraint graph. It follows every path through the graph, which takes exponential time, and
+     * splits the node whose message starts uppermost on every cycle it closes.
+     */
+    private static final class RecursiveSearch {
+        /** A node was not visited yet. */
+        private static final int NOT_VISITED = 0;
+        /** A node was already visited, but not as part of the current path. */
+        private static final int VISITED_OTHER_PATH = 1;
+        /** A node was already visited on the current path. */
+        private static final int VISITED_CURRENT_PATH = 2;
+
+        /** The constraint graph. */
+        private final ConstraintGraph graph;
+        /** The state of each node. */
+        private final int[] state;
+        /** The nodes on the current path. */
+        private final List<Integer> chain = Lists.newArrayList();
+        /** The nodes to be split. */
+        private final Set<Integer> split = Sets.newHashSet();
+
+
+        /**
+         * Creates a search of the given graph.
+         */
+        private RecursiveSearch(final ConstraintGraph graph) {
+            this.graph = graph;
+            this.state = new int[graph.getNodeCount()];
+        }
+
+        /**
+         * Finds the nodes to be split in the given graph.
+         */
+        static Set<Integer> findNodesToSplit(final ConstraintGraph graph) {
+            RecursiveSearch search = new RecursiveSearch(graph);
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                if (search.state[node] == NOT_VISITED) {
+                    search.dfs(node);
+                }
+            }
+            return search.split;
+        }
+
+        /**
+         * Follows all paths starting at the given node.
+         */
+        private void dfs(final int node) {
+            if (state[node] == VISITED_CURRENT_PATH) {
+                addUppermostNode(node);
+            } else {
+                chain.add(node);
+                state[node] = VISITED_CURRENT_PATH;
+
+                for (int edge = graph.firstOutgoing(node); edge != ConstraintGraph.NONE;
+                        edge = graph.nextOutgoing(edge)) {
+                    dfs(graph.getTarget(edge));
+                }
+
+                state[node] = VISITED_OTHER_PATH;
+                chain.remove(chain.size() - 1);
+            }
+        }
+
+        /**
+         * Splits the uppermost node of the cycle closed at the given node.
+         */
+        private void addUppermostNode(final int foundNode) {
+            int uppermost = foundNode;
+            double uppermostPos = Float.MAX_VALUE;
+            for (int i = chain.indexOf(foundNode); i < chain.size(); i++) {
+                int node = chain.get(i);
+                double sourceYPos = graph.getMessage(node).getSourceYPos();
+                if (sourceYPos < uppermostPos) {
+                    uppermostPos = sourceYPos;
+                    uppermost = node;
+                }
+            }
+            split.add(uppermost);
+        }
+    }
+
+}
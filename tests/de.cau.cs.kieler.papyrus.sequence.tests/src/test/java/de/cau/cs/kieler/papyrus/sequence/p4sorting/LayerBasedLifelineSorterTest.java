@@ -0,0 +1,298 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p4sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.elk.alg.layered.graph.LGraph;
+import org.eclipse.elk.alg.layered.graph.LNode;
+import org.eclipse.elk.alg.layered.graph.Layer;
+import org.eclipse.elk.alg.layered.options.InternalProperties;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkNode;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.ISequenceLayoutProcessor;
+import de.cau.cs.kieler.papyrus.sequence.LayoutContext;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPhase;
+import de.cau.cs.kieler.papyrus.sequence.LayoutPipelineBuilder;
+import de.cau.cs.kieler.papyrus.sequence.benchmarks.SequenceDiagramGenerator;
+import de.cau.cs.kieler.papyrus.sequence.graph.SLifeline;
+import de.cau.cs.kieler.papyrus.sequence.graph.SMessage;
+import de.cau.cs.kieler.papyrus.sequence.p3layering.LayeringStrategy;
+import de.cau.cs.kieler.papyrus.sequence.properties.CoordinateSystem;
+import de.cau.cs.kieler.papyrus.sequence.properties.MessageType;
+import de.cau.cs.kieler.papyrus.sequence.properties.NodeType;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceDiagramOptions;
+
+/**
+ * Compares the lifeline orders of the {@link LayerBasedLifelineSorter} on random diagrams to those
+ * of a frozen copy of the sorter before it tracked unsorted lifelines by index. Some of the
+ * diagrams contain lost and found messages, whose dummy lifelines the sorter has to skip.
+ */
+public class LayerBasedLifelineSorterTest {
+
+    /** The number of random diagrams to compare. */
+    private static final int DIAGRAMS = 500;
+    /** One in this many messages of every other diagram becomes a lost or a found message. */
+    private static final int LOST_FOUND_RATIO = 10;
+
+
+    /**
+     * Checks that both sorters assign the same slots to the same lifelines.
+     */
+    @Test
+    public void testOrderMatchesOriginalSorter() {
+        int withDummies = 0;
+
+        for (int seed = 0; seed < DIAGRAMS; seed++) {
+            Random random = new Random(seed);
+            String shape = (2 + random.nextInt(30)) + "x" + (1 + random.nextInt(300));
+            ElkNode diagram = SequenceDiagramGenerator
+                    .forShape(shape, seed % 2 == 0 ? CoordinateSystem.KGRAPH
+                            : CoordinateSystem.PAPYRUS)
+                    .withLayeringStrategy(
+                            LayeringStrategy.values()[seed % LayeringStrategy.values().length])
+                    .withSortingStrategy(LifelineSortingStrategy.LAYER_BASED)
+                    .withSeed(seed)
+                    .generate();
+            ElkNode interaction = diagram.getChildren().get(0);
+            if (seed % 2 == 0) {
+                addLostAndFoundMessages(interaction, random);
+            }
+
+            LayoutContext context = prepareSorting(diagram, interaction);
+            new OriginalSorter().process(context, new BasicProgressMonitor());
+            String expected = describeOrder(context.lifelineOrder);
+            new LayerBasedLifelineSorter().process(context, new BasicProgressMonitor());
+            String actual = describeOrder(context.lifelineOrder);
+
+            assertEquals("Diagram " + seed + " (" + shape + ")", expected, actual);
+            if (expected.contains("dummy")) {
+                withDummies++;
+            }
+        }
+
+        // Make sure the dummy lifelines of lost and found messages are covered
+        assertTrue(withDummies > 0);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Turns some of the messages between two lifelines into lost or found messages.
+     */
+    private static void addLostAndFoundMessages(final ElkNode interaction, final Random random) {
+        List<ElkEdge> messages = Lists.newArrayList();
+        for (ElkNode child : interaction.getChildren()) {
+            if (child.getProperty(SequenceDiagramOptions.NODE_TYPE) == NodeType.LIFELINE) {
+                messages.addAll(child.getOutgoingEdges());
+            }
+        }
+
+        for (ElkEdge message : messages) {
+            if (message.getSources().get(0) != message.getTargets().get(0)) {
+                int choice = random.nextInt(2 * LOST_FOUND_RATIO);
+                if (choice == 0) {
+                    message.getTargets().set(0, interaction);
+                    message.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, MessageType.LOST);
+                } else if (choice == 1) {
+                    message.getSources().set(0, interaction);
+                    message.setProperty(SequenceDiagramOptions.MESSAGE_TYPE, MessageType.FOUND);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the layout pipeline of the given diagram up to lifeline sorting.
+     */
+    private static LayoutContext prepareSorting(final ElkNode diagram, final ElkNode interaction) {
+        LayoutContext context = LayoutContext.fromLayoutData(diagram);
+        context.kgraph = interaction;
+
+        List<ISequenceLayoutProcessor> pipeline = new LayoutPipelineBuilder().build(context);
+        for (int i = 0; i < LayoutPhase.LIFELINE_SORTING.ordinal(); i++) {
+            pipeline.get(i).process(context, new BasicProgressMonitor());
+        }
+        return context;
+    }
+
+    /**
+     * Describes the given lifeline order along with the slot assigned to each lifeline.
+     */
+    private static String describeOrder(final List<SLifeline> lifelines) {
+        StringBuilder builder = new StringBuilder();
+        for (SLifeline lifeline : lifelines) {
+            builder.append(lifeline.isDummy() ? "dummy" : lifeline.getName()).append('@')
+                    .append(lifeline.getHorizontalSlot()).append(' ');
+        }
+        return builder.toString();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Original Sorter
+
+    /**
+     * The {@link LayerBasedLifelineSorter} as it was before it tracked unsorted lifelines by index.
+     * It searches lists of unsorted and sorted lifelines, which takes quadratic time.
+     */
+    private static final class OriginalSorter implements ISequenceLayoutProcessor {
+
+        /** The next position a lifeline will be placed in. */
+        private int nextPosition = 0;
+        /** List of lifelines to be processed. */
+        private final List<SLifeline> unprocessedLifelines = Lists.newArrayList();
+        /** List of lifelines that have already been sorted. */
+        private final List<SLifeline> sortedLifelines = new LinkedList<SLifeline>();
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void process(final LayoutContext context,
+                final IElkProgressMonitor progressMonitor) {
+
+            unprocessedLifelines.addAll(context.sgraph.getLifelines());
+
+            if (context.lgraph.getLayers().size() == 0) {
+                // Abort, if no layers are set (e.g. outer node)
+                context.lifelineOrder = unprocessedLifelines;
+                return;
+            }
+
+            // Add the layerIndex Property to messages
+            addLayerToMessages(context.lgraph);
+
+            while (!unprocessedLifelines.isEmpty()) {
+                // Find the message with the uppermost position whose source has not been set
+                SMessage uppermostMessage = findUppermostMessage(context.lgraph);
+                if (uppermostMessage == null) {
+                    // Left lifelines are not connected by any message
+                    assignToNextPosition(unprocessedLifelines.get(0));
+                    continue;
+                }
+                SLifeline x = uppermostMessage.getSource();
+                assignToNextPosition(x);
+
+                do {
+                    // The target of this lifeline is set to next position
+                    x = uppermostMessage.getTarget();
+                    assignToNextPosition(x);
+
+                    // Find the uppermost outgoing message of the next lifeline
+                    uppermostMessage = findUppermostOutgoingMessage(context.lgraph, x);
+                } while (uppermostMessage != null);
+            }
+
+            context.lifelineOrder = sortedLifelines;
+        }
+
+        /**
+         * Place the given lifeline to the next position.
+         */
+        private void assignToNextPosition(final SLifeline lifeline) {
+            if (!sortedLifelines.contains(lifeline)) {
+                sortedLifelines.add(lifeline);
+                lifeline.setHorizontalSlot(nextPosition);
+                nextPosition++;
+                unprocessedLifelines.remove(lifeline);
+            }
+        }
+
+        /**
+         * Annotate the messages with a layer number.
+         */
+        private void addLayerToMessages(final LGraph lgraph) {
+            for (Layer layer : lgraph.getLayers()) {
+                int layerIndex = layer.getIndex();
+                for (LNode node : layer.getNodes()) {
+                    SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                    if (message != null) {
+                        message.setMessageLayer(layerIndex);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Select the message in the uppermost layer whose source is unsorted. If there are
+         * different messages in that layer, select the one whose source has the best
+         * incoming/outgoing relation.
+         */
+        private SMessage findUppermostMessage(final LGraph lgraph) {
+            List<LNode> candidates = new LinkedList<LNode>();
+            for (Layer layer : lgraph.getLayers()) {
+                for (LNode node : layer.getNodes()) {
+                    SMessage message = (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                    if (message != null && unprocessedLifelines.contains(message.getSource())) {
+                        candidates.add(node);
+                    }
+                }
+                if (candidates.size() == 1) {
+                    return (SMessage) candidates.get(0).getProperty(InternalProperties.ORIGIN);
+                } else if (!candidates.isEmpty()) {
+                    SMessage bestOne =
+                            (SMessage) candidates.get(0).getProperty(InternalProperties.ORIGIN);
+                    int bestRelation = Integer.MIN_VALUE;
+                    for (LNode node : candidates) {
+                        SMessage candidate =
+                                (SMessage) node.getProperty(InternalProperties.ORIGIN);
+                        int relation = candidate.getSource().getNumberOfOutgoingMessages()
+                                - candidate.getSource().getNumberOfIncomingMessages();
+                        if (relation > bestRelation) {
+                            bestRelation = relation;
+                            bestOne = candidate;
+                        }
+                    }
+                    return bestOne;
+                }
+            }
+            // The left lifelines are not connected by any message
+            return null;
+        }
+
+        /**
+         * Find the uppermost message of the given lifeline that is pointing at a lifeline that was
+         * not already set.
+         */
+        private SMessage findUppermostOutgoingMessage(final LGraph lgraph,
+                final SLifeline lifeline) {
+            SMessage uppermostMessage = null;
+            int bestLayer = lgraph.getLayers().size();
+            for (SMessage outgoingMessage : lifeline.getOutgoingMessages()) {
+                if (outgoingMessage.getMessageLayer() < bestLayer
+                        && unprocessedLifelines.contains(outgoingMessage.getTarget())) {
+                    uppermostMessage = outgoingMessage;
+                    bestLayer = outgoingMessage.getMessageLayer();
+                }
+            }
+            return uppermostMessage;
+        }
+    }
+
+}
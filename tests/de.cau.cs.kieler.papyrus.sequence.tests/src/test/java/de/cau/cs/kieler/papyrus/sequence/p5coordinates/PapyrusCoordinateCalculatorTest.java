@@ -0,0 +1,193 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.p5coordinates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceArea;
+
+/**
+ * Compares the area containment found by {@link PapyrusCoordinateCalculator#prepareAreas(List)}
+ * on random hierarchies of nested areas to the containment found by comparing all pairs of areas,
+ * as the calculator did before it looked candidates up by their messages. The hierarchies are mixed
+ * with loose areas that overlap others or lie anywhere, some of them without messages.
+ */
+public class PapyrusCoordinateCalculatorTest {
+
+    /** The number of random hierarchies to compare. */
+    private static final int HIERARCHIES = 500;
+    /** The maximum depth of the hierarchies. */
+    private static final int MAX_DEPTH = 4;
+    /** The maximum number of areas directly nested in another one. */
+    private static final int MAX_CHILDREN = 4;
+    /** The maximum number of loose areas added to a hierarchy. */
+    private static final int MAX_LOOSE = 6;
+
+
+    /**
+     * Checks that each area is found to contain the same areas.
+     */
+    @Test
+    public void testContainmentMatchesAllPairs() {
+        int containments = 0;
+
+        for (int seed = 0; seed < HIERARCHIES; seed++) {
+            Random random = new Random(seed);
+            List<SequenceArea> expectedAreas = Lists.newArrayList();
+            createAreas(random, 0, 0, 1000, 1000, MAX_DEPTH, expectedAreas);
+            createLooseAreas(random, expectedAreas);
+            Collections.shuffle(expectedAreas, random);
+            List<SequenceArea> actualAreas = copy(expectedAreas);
+
+            allPairs(expectedAreas);
+            new PapyrusCoordinateCalculator().prepareAreas(actualAreas);
+
+            for (int i = 0; i < expectedAreas.size(); i++) {
+                assertEquals("Hierarchy " + seed + ", area " + i,
+                        indicesOf(expectedAreas.get(i).getContainedAreas(), expectedAreas),
+                        indicesOf(actualAreas.get(i).getContainedAreas(), actualAreas));
+                containments += expectedAreas.get(i).getContainedAreas().size();
+            }
+        }
+
+        // Make sure the comparison isn't trivial
+        assertTrue(containments > HIERARCHIES);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Utility Methods
+
+    /**
+     * Creates an area with the given bounds and a random hierarchy of areas nested in it. Each area
+     * has a message of its own and contains the messages of its nested areas. Nested areas are
+     * stacked vertically and lie strictly inside their parent.
+     *
+     * @return the messages of the new area.
+     */
+    private static Set<Object> createAreas(final Random random, final double x, final double y,
+            final double width, final double height, final int depth,
+            final List<SequenceArea> areas) {
+
+        SequenceArea area = new SequenceArea(ElkGraphUtil.createNode(null));
+        area.getPosition().x = x;
+        area.getPosition().y = y;
+        area.getSize().x = width;
+        area.getSize().y = height;
+        area.getMessages().add(new Object());
+        areas.add(area);
+
+        if (depth > 0) {
+            int children = random.nextInt(MAX_CHILDREN + 1);
+            double slotHeight = height / (children + 1);
+            for (int i = 0; i < children; i++) {
+                // Leave a margin on every side, so that rounding can't move a border outside
+                double insetX = width * (1 + random.nextDouble()) / 8;
+                double insetY = slotHeight * (1 + random.nextDouble()) / 8;
+                double childWidth = (width - 2 * insetX) * (1 - random.nextDouble() / 2);
+                double childHeight = (slotHeight - 2 * insetY) * (1 - random.nextDouble() / 2);
+                area.getMessages().addAll(createAreas(random, x + insetX,
+                        y + i * slotHeight + insetY, childWidth, childHeight, depth - 1, areas));
+            }
+        }
+
+        return area.getMessages();
+    }
+
+    /**
+     * Adds areas at random positions that take random messages of the given areas, or none at all.
+     * They are rarely nested in the areas whose messages they take.
+     */
+    private static void createLooseAreas(final Random random, final List<SequenceArea> areas) {
+        List<Object> messages = Lists.newArrayList();
+        for (SequenceArea area : areas) {
+            messages.addAll(area.getMessages());
+        }
+
+        int looseAreas = random.nextInt(MAX_LOOSE + 1);
+        for (int i = 0; i < looseAreas; i++) {
+            SequenceArea area = new SequenceArea(ElkGraphUtil.createNode(null));
+            area.getPosition().x = random.nextInt(1000);
+            area.getPosition().y = random.nextInt(1000);
+            area.getSize().x = 1 + random.nextInt(500);
+            area.getSize().y = 1 + random.nextInt(500);
+            int areaMessages = random.nextInt(3);
+            for (int j = 0; j < areaMessages; j++) {
+                area.getMessages().add(messages.get(random.nextInt(messages.size())));
+            }
+            areas.add(area);
+        }
+    }
+
+    /**
+     * Copies the bounds and messages of the given areas into new areas.
+     */
+    private static List<SequenceArea> copy(final List<SequenceArea> areas) {
+        List<SequenceArea> copies = Lists.newArrayListWithCapacity(areas.size());
+        for (SequenceArea area : areas) {
+            SequenceArea copy = new SequenceArea(area.getLayoutNode());
+            copy.getPosition().x = area.getPosition().x;
+            copy.getPosition().y = area.getPosition().y;
+            copy.getSize().x = area.getSize().x;
+            copy.getSize().y = area.getSize().y;
+            copy.getMessages().addAll(area.getMessages());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Returns the indices of the given areas in the given list.
+     */
+    private static Set<Integer> indicesOf(final List<SequenceArea> areas,
+            final List<SequenceArea> all) {
+
+        Set<Integer> indices = Sets.newHashSet();
+        for (SequenceArea area : areas) {
+            indices.add(all.indexOf(area));
+        }
+        return indices;
+    }
+
+    /**
+     * Finds the areas contained in each area by comparing all pairs of areas.
+     */
+    private static void allPairs(final List<SequenceArea> areas) {
+        for (SequenceArea area : areas) {
+            for (SequenceArea otherArea : areas) {
+                if (area != otherArea
+                        && area.getPosition().y < otherArea.getPosition().y
+                        && area.getPosition().x < otherArea.getPosition().x
+                        && area.getMessages().size() >= otherArea.getMessages().size()
+                        && area.getMessages().containsAll(otherArea.getMessages())) {
+
+                    area.getContainedAreas().add(otherArea);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,517 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://www.informatik.uni-kiel.de/rtsys/kieler/
+ *
+ * Copyright 2026 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ * See the file epl-v10.html for the license text.
+ */
+package de.cau.cs.kieler.papyrus.sequence.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.core.util.persistence.ElkGraphResourceFactory;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkGraphPackage;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.papyrus.sequence.SequenceDiagramLayoutProvider;
+import de.cau.cs.kieler.papyrus.sequence.properties.SequenceMetaDataProvider;
+
+/**
+ * Lays out a directory of serialized sequence diagrams without a running Eclipse platform. Every
+ * {@code .elkg} (and, if the ELK text format is available on the class path, {@code .elkt}) file
+ * in the input directory is loaded, laid out with the {@link SequenceDiagramLayoutProvider} and
+ * written to the output directory under the same name. A {@code timings.csv} file in the output
+ * directory lists the load, layout and save times of each diagram.
+ *
+ * <p>
+ * Diagrams are laid out on a fixed number of worker threads. Each diagram is loaded into its own
+ * resource set, so the workers share nothing but the layout meta data. Usage:
+ * </p>
+ *
+ * <pre>
+ * java -jar batch-layout.jar [-threads n] input output
+ * </pre>
+ *
+ * <p>
+ * Serialized graphs only contain layout options that can be parsed from strings. Diagrams
+ * therefore have to use the KGraph coordinate system; the Papyrus mode relies on diagram objects
+ * attached to the graph.
+ * </p>
+ */
+public final class BatchLayout {
+
+    /** Name of the file the timings are written to. */
+    public static final String TIMINGS_FILE = "timings.csv";
+
+    /** File extension of graphs serialized as XMI. */
+    private static final String ELKG_EXTENSION = "elkg";
+    /** File extension of graphs serialized in the ELK text format. */
+    private static final String ELKT_EXTENSION = "elkt";
+    /** Xtext setup of the ELK text format, which is optional. */
+    private static final String ELKT_SETUP_CLASS =
+            "org.eclipse.elk.graph.text.ElkGraphStandaloneSetup";
+    /** Factor to convert nanoseconds to milliseconds. */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /** Exit code if at least one diagram could not be laid out. */
+    private static final int EXIT_FAILURES = 1;
+    /** Exit code if the command line was invalid. */
+    private static final int EXIT_USAGE = 2;
+
+    /** Whether the static EMF and ELK registries have been initialized. */
+    private static boolean initialized = false;
+    /** Whether {@code .elkt} files can be read and written. */
+    private static boolean elktSupported = false;
+
+    /** Number of worker threads. */
+    private final int threads;
+    /** The layout provider shared by all workers, so that processor pipelines are reused. */
+    private final SequenceDiagramLayoutProvider layoutProvider = new SequenceDiagramLayoutProvider();
+
+
+    /**
+     * Creates a new batch layout that uses the given number of worker threads.
+     *
+     * @param threads
+     *            the number of worker threads, at least one.
+     */
+    public BatchLayout(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is required.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Entry point of the command line tool.
+     *
+     * @param args
+     *            the command line arguments.
+     */
+    public static void main(final String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> dirs = Lists.newArrayList();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("-threads".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    usage();
+                    return;
+                }
+            } else {
+                dirs.add(args[i]);
+            }
+        }
+
+        if (dirs.size() != 2 || threads < 1) {
+            usage();
+            return;
+        }
+
+        try {
+            List<Result> results = new BatchLayout(threads).run(
+                    new File(dirs.get(0)), new File(dirs.get(1)));
+
+            int failures = 0;
+            for (Result result : results) {
+                if (!result.isSuccessful()) {
+                    failures++;
+                    System.err.println(result.getFile().getName() + ": " + result.getError());
+                }
+            }
+            System.out.println("Laid out " + (results.size() - failures) + " of " + results.size()
+                    + " diagrams.");
+
+            if (failures > 0) {
+                System.exit(EXIT_FAILURES);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(EXIT_FAILURES);
+        }
+    }
+
+    /**
+     * Prints usage information and exits.
+     */
+    private static void usage() {
+        System.err.println("Usage: BatchLayout [-threads n] <input directory> <output directory>");
+        System.exit(EXIT_USAGE);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Batch Processing
+
+    /**
+     * Lays out all diagrams in the input directory and writes them, along with the timings file, to
+     * the output directory. Diagrams that fail to load, lay out or save are reported in the results
+     * and don't stop the others from being processed. Only errors the virtual machine cannot
+     * recover from, such as running out of memory, stop the batch. They are thrown once the timings
+     * of the diagrams processed so far have been written.
+     *
+     * @param inputDir
+     *            directory to read diagrams from.
+     * @param outputDir
+     *            directory to write laid out diagrams and timings to. Created if necessary.
+     * @return one result per diagram, in the order of the diagrams' file names.
+     * @throws IOException
+     *             if the input directory cannot be read or the output directory or timings file
+     *             cannot be written.
+     */
+    public List<Result> run(final File inputDir, final File outputDir) throws IOException {
+        initialize();
+
+        File[] inputs = inputDir.listFiles();
+        if (inputs == null) {
+            throw new IOException("Cannot read input directory " + inputDir);
+        }
+        Arrays.sort(inputs);
+        Files.createDirectories(outputDir.toPath());
+
+        // Submit all diagrams to the workers
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<File> submitted = Lists.newArrayList();
+        List<Future<Result>> futures = Lists.newArrayList();
+        List<Result> results = Lists.newArrayListWithCapacity(inputs.length);
+        try {
+            for (final File input : inputs) {
+                String extension = extensionOf(input);
+                if (input.isFile()
+                        && (ELKG_EXTENSION.equals(extension) || ELKT_EXTENSION.equals(extension))) {
+
+                    final File output = new File(outputDir, input.getName());
+                    submitted.add(input);
+                    futures.add(executor.submit(new Callable<Result>() {
+                        @Override
+                        public Result call() {
+                            return layout(input, output);
+                        }
+                    }));
+                }
+            }
+
+            // Collect the results in submission order
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // layout(...) catches everything but virtual machine errors
+                    Result result = new Result(submitted.get(i));
+                    result.error = describe(e.getCause());
+                    results.add(result);
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for layouts to finish", e);
+        } finally {
+            executor.shutdownNow();
+            writeTimings(results, new File(outputDir, TIMINGS_FILE));
+        }
+    }
+
+    /**
+     * Loads, lays out and saves a single diagram.
+     *
+     * @param input
+     *            the file to load the diagram from.
+     * @param output
+     *            the file to save the laid out diagram to.
+     * @return the result.
+     */
+    private Result layout(final File input, final File output) {
+        Result result = new Result(input);
+
+        if (ELKT_EXTENSION.equals(extensionOf(input)) && !elktSupported) {
+            result.error = "The ELK text format is not available on the class path";
+            return result;
+        }
+
+        try {
+            // Load
+            long start = System.nanoTime();
+            ResourceSet resourceSet = new ResourceSetImpl();
+            Resource inputResource = resourceSet.getResource(
+                    URI.createFileURI(input.getAbsolutePath()), true);
+            if (inputResource.getContents().isEmpty()
+                    || !(inputResource.getContents().get(0) instanceof ElkNode)) {
+
+                result.error = "The file does not contain an ELK graph";
+                return result;
+            }
+            ElkNode root = (ElkNode) inputResource.getContents().get(0);
+            result.loadTime = System.nanoTime() - start;
+
+            countElements(root, result);
+
+            // Lay out
+            start = System.nanoTime();
+            layoutProvider.layout(root, new BasicProgressMonitor());
+            result.layoutTime = System.nanoTime() - start;
+
+            // Save
+            start = System.nanoTime();
+            Resource outputResource = resourceSet.createResource(
+                    URI.createFileURI(output.getAbsolutePath()));
+            outputResource.getContents().add(root);
+            outputResource.save(Collections.emptyMap());
+            result.saveTime = System.nanoTime() - start;
+
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            // EMF wraps loading problems into runtime exceptions, and a diagram can also fail
+            // with other errors, such as assertion or linkage errors
+            result.error = describe(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Describes the given problem for the timings file.
+     */
+    private static String describe(final Throwable throwable) {
+        return throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+    }
+
+    /**
+     * Counts the nodes and edges of the given graph and stores them in the result.
+     */
+    private static void countElements(final ElkNode root, final Result result) {
+        Iterator<EObject> contents = ElkGraphUtil.propertiesSkippingIteratorFor(root, true);
+        while (contents.hasNext()) {
+            EObject element = contents.next();
+            if (element instanceof ElkNode) {
+                result.nodes++;
+            } else if (element instanceof ElkEdge) {
+                result.edges++;
+            }
+        }
+    }
+
+    /**
+     * Writes the timings of the given results to a CSV file.
+     */
+    private static void writeTimings(final List<Result> results, final File file)
+            throws IOException {
+
+        try (PrintWriter writer = new PrintWriter(
+                Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+
+            writer.println("file,nodes,edges,load_ms,layout_ms,save_ms,error");
+            for (Result result : results) {
+                writer.println(String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.3f,%.3f,%s",
+                        csvEscape(result.getFile().getName()),
+                        result.getNodes(),
+                        result.getEdges(),
+                        result.getLoadTime() / NANOS_PER_MILLI,
+                        result.getLayoutTime() / NANOS_PER_MILLI,
+                        result.getSaveTime() / NANOS_PER_MILLI,
+                        result.isSuccessful() ? "" : csvEscape(result.getError())));
+            }
+        }
+    }
+
+    /**
+     * Quotes the given CSV field if necessary.
+     */
+    private static String csvEscape(final String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        } else {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /**
+     * Returns the lower-case extension of the given file's name.
+     */
+    private static String extensionOf(final File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Initialization
+
+    /**
+     * Registers what the Eclipse platform would usually register through extension points: our
+     * layout options, so that they can be parsed when loading graphs, and the resource factories
+     * for the serialized graph formats.
+     */
+    private static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+
+        LayoutMetaDataService.getInstance().registerLayoutMetaDataProviders(
+                new SequenceMetaDataProvider());
+
+        // Accessing the package instance registers it with EMF
+        ElkGraphPackage.eINSTANCE.eClass();
+        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put(
+                ELKG_EXTENSION, new ElkGraphResourceFactory());
+
+        // The text format depends on Xtext, so we only support it if it's there
+        try {
+            Class.forName(ELKT_SETUP_CLASS).getMethod("doSetup").invoke(null);
+            elktSupported = true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            elktSupported = false;
+        }
+
+        initialized = true;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Results
+
+    /**
+     * The outcome of laying out a single diagram. Times are in nanoseconds and are zero for steps
+     * that were not executed.
+     */
+    public static final class Result {
+
+        /** The file the diagram was loaded from. */
+        private final File file;
+        /** Number of nodes in the diagram. */
+        private int nodes;
+        /** Number of edges in the diagram. */
+        private int edges;
+        /** Time spent loading the diagram. */
+        private long loadTime;
+        /** Time spent laying out the diagram. */
+        private long layoutTime;
+        /** Time spent saving the diagram. */
+        private long saveTime;
+        /** Description of what went wrong, if anything. */
+        private String error;
+
+        /**
+         * Creates a new result for the given file.
+         *
+         * @param file
+         *            the input file.
+         */
+        private Result(final File file) {
+            this.file = file;
+        }
+
+        /**
+         * Returns the file the diagram was loaded from.
+         *
+         * @return the input file.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the number of nodes in the diagram.
+         *
+         * @return the number of nodes.
+         */
+        public int getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the number of edges in the diagram.
+         *
+         * @return the number of edges.
+         */
+        public int getEdges() {
+            return edges;
+        }
+
+        /**
+         * Returns the time spent loading the diagram.
+         *
+         * @return the load time in nanoseconds.
+         */
+        public long getLoadTime() {
+            return loadTime;
+        }
+
+        /**
+         * Returns the time spent laying out the diagram.
+         *
+         * @return the layout time in nanoseconds.
+         */
+        public long getLayoutTime() {
+            return layoutTime;
+        }
+
+        /**
+         * Returns the time spent saving the diagram.
+         *
+         * @return the save time in nanoseconds.
+         */
+        public long getSaveTime() {
+            return saveTime;
+        }
+
+        /**
+         * Whether the diagram was successfully laid out and saved.
+         *
+         * @return {@code true} if there was no error.
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        /**
+         * Returns a description of what went wrong.
+         *
+         * @return the error description, or {@code null} if there was no error.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+}